@@ -4,6 +4,7 @@ import com.fancapital.backend.auth.model.AppUser;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
@@ -15,6 +16,10 @@ public interface AppUserRepository extends JpaRepository<AppUser, String> {
 
   List<AppUser> findByPremiumTrue();
 
+  /** Page d'utilisateurs ayant un wallet, par id croissant strictement après {@code afterId} (parcours par lots). */
+  @Query("SELECT u FROM AppUser u WHERE u.walletAddress IS NOT NULL AND u.walletAddress <> '' AND u.id > :afterId ORDER BY u.id ASC")
+  List<AppUser> findWithWalletAfter(String afterId, Pageable pageable);
+
   /** Abonnements actifs dont l'expiration est entre now et before (pour relances). */
   @Query("SELECT u FROM AppUser u WHERE u.premium = true AND u.premiumExpiresAt IS NOT NULL AND u.premiumExpiresAt > :now AND u.premiumExpiresAt <= :before")
   List<AppUser> findPremiumExpiringBetween(Instant now, Instant before);
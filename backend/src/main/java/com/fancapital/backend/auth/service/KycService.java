@@ -11,15 +11,18 @@ public class KycService {
   private final AppUserRepository repo;
   private final WalletProvisioningService walletProvisioningService;
   private final com.fancapital.backend.blockchain.service.OnchainBootstrapService onchainBootstrapService;
+  private final com.fancapital.backend.blockchain.service.SciComponentService sciComponents;
 
   public KycService(
       AppUserRepository repo,
       WalletProvisioningService walletProvisioningService,
-      com.fancapital.backend.blockchain.service.OnchainBootstrapService onchainBootstrapService
+      com.fancapital.backend.blockchain.service.OnchainBootstrapService onchainBootstrapService,
+      com.fancapital.backend.blockchain.service.SciComponentService sciComponents
   ) {
     this.repo = repo;
     this.walletProvisioningService = walletProvisioningService;
     this.onchainBootstrapService = onchainBootstrapService;
+    this.sciComponents = sciComponents;
   }
 
   /**
@@ -39,6 +42,8 @@ public class KycService {
       // Dev/MVP: bootstrap on-chain wallet state (whitelist + TND + approvals)
       onchainBootstrapService.bootstrapUser(userId);
     }
+    // Wallet may have just been provisioned above: re-read it for the SCI KYC component.
+    repo.findById(userId).map(AppUser::getWalletAddress).ifPresent(w -> sciComponents.onKycLevel(w, level));
     return u;
   }
 
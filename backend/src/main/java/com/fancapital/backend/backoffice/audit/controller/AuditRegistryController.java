@@ -13,6 +13,7 @@ import com.fancapital.backend.backoffice.audit.service.BusinessContextService;
 import com.fancapital.backend.backoffice.audit.repo.AuditAlertRepository;
 import com.fancapital.backend.backoffice.service.BackofficeAuthzService;
 import com.fancapital.backend.auth.repo.AppUserRepository;
+import com.fancapital.backend.blockchain.service.BlockTimeIndexService;
 import com.fancapital.backend.blockchain.service.BlockchainReadService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.Max;
@@ -21,6 +22,9 @@ import jakarta.validation.constraints.Pattern;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
 import java.util.HexFormat;
 import java.util.List;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -55,6 +59,7 @@ public class AuditRegistryController {
   private final AuditAlertRepository alerts;
   private final AuditProofService auditProof;
   private final BusinessContextService businessContext;
+  private final BlockTimeIndexService blockTimes;
 
   public AuditRegistryController(
       BackofficeAuthzService authz,
@@ -65,7 +70,8 @@ public class AuditRegistryController {
       AuditReconciliationService recon,
       AuditAlertRepository alerts,
       AuditProofService auditProof,
-      BusinessContextService businessContext
+      BusinessContextService businessContext,
+      BlockTimeIndexService blockTimes
   ) {
     this.authz = authz;
     this.registry = registry;
@@ -76,18 +82,20 @@ public class AuditRegistryController {
     this.alerts = alerts;
     this.auditProof = auditProof;
     this.businessContext = businessContext;
+    this.blockTimes = blockTimes;
   }
 
   @GetMapping("/registry")
   public AuditDtos.AuditRegistryResponse registry(
       @RequestParam(name = "q", required = false) String q,
       @RequestParam(name = "atBlock", required = false) Long atBlock,
+      @RequestParam(name = "atDate", required = false) String atDate,
       HttpServletRequest req
   ) {
     authz.requireAuditRead();
-    BigInteger block = atBlock == null ? null : BigInteger.valueOf(atBlock);
+    BigInteger block = resolveBlock(atBlock, atDate);
     var res = registry.registry(q, block);
-    log(req, "VIEW_REGISTRY", null, "atBlock=" + (atBlock == null ? "latest" : atBlock));
+    log(req, "VIEW_REGISTRY", null, "atBlock=" + (block == null ? "latest" : block));
     return res;
   }
 
@@ -231,10 +239,11 @@ public class AuditRegistryController {
   @GetMapping("/export/csv")
   public ResponseEntity<byte[]> exportCsv(
       @RequestParam(name = "atBlock", required = false) Long atBlock,
+      @RequestParam(name = "atDate", required = false) String atDate,
       HttpServletRequest req
   ) {
     authz.requireAuditExport();
-    BigInteger block = atBlock == null ? null : BigInteger.valueOf(atBlock);
+    BigInteger block = resolveBlock(atBlock, atDate);
     var res = registry.registry(null, block);
 
     StringBuilder sb = new StringBuilder();
@@ -268,10 +277,11 @@ public class AuditRegistryController {
   @GetMapping("/export/pdf")
   public ResponseEntity<byte[]> exportPdf(
       @RequestParam(name = "atBlock", required = false) Long atBlock,
+      @RequestParam(name = "atDate", required = false) String atDate,
       HttpServletRequest req
   ) {
     authz.requireAuditExport();
-    BigInteger block = atBlock == null ? null : BigInteger.valueOf(atBlock);
+    BigInteger block = resolveBlock(atBlock, atDate);
     var res = registry.registry(null, block);
     byte[] bytes = renderPdf(res);
     String hash = sha256Hex(bytes);
@@ -284,6 +294,30 @@ public class AuditRegistryController {
     return ResponseEntity.ok().headers(h).body(bytes);
   }
 
+  /**
+   * Bloc d'un export historique : atBlock explicite, ou atDate résolu via l'index bloc/horodatage
+   * (yyyy-MM-dd = état en fin de journée UTC, ou instant ISO-8601). null = dernier bloc.
+   */
+  private BigInteger resolveBlock(Long atBlock, String atDate) {
+    boolean hasDate = atDate != null && !atDate.isBlank();
+    if (atBlock != null && hasDate) throw new IllegalArgumentException("Use either atBlock or atDate, not both");
+    if (atBlock != null) return BigInteger.valueOf(atBlock);
+    if (!hasDate) return null;
+
+    long tsSec;
+    try {
+      String d = atDate.trim();
+      tsSec = d.length() == 10
+          ? LocalDate.parse(d).plusDays(1).atStartOfDay(ZoneOffset.UTC).toEpochSecond() - 1
+          : Instant.parse(d).getEpochSecond();
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid atDate (expected yyyy-MM-dd or ISO-8601 instant): " + atDate);
+    }
+    long b = blockTimes.blockAtOrBefore(tsSec);
+    if (b < 0) throw new IllegalArgumentException("atDate is before the first block");
+    return BigInteger.valueOf(b);
+  }
+
   private static byte[] renderPdf(AuditDtos.AuditRegistryResponse res) {
     try (PDDocument doc = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
       float margin = 48f;
@@ -0,0 +1,89 @@
+package com.fancapital.backend.backoffice.audit.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Journal des variations de solde appliquées à {@link AuditUserTokenBalance} pour les blocs encore
+ * non confirmés. Permet de les annuler exactement en cas de réorganisation ; purgé une fois confirmé.
+ */
+@Entity
+@Table(name = "audit_balance_deltas", indexes = {
+    @Index(name = "idx_audit_balance_deltas_block", columnList = "blockNumber")
+})
+public class AuditBalanceDelta {
+  @Id
+  @Column(nullable = false, updatable = false, length = 220)
+  private String id; // userId|tokenAddress|blockNumber
+
+  @Column(nullable = false, length = 60)
+  private String userId;
+
+  @Column(nullable = false, length = 42)
+  private String tokenAddress;
+
+  @Column(nullable = false)
+  private long blockNumber;
+
+  @Column(nullable = false, length = 80)
+  private String delta1e8 = "0"; // signed decimal string
+
+  @Column(nullable = false)
+  private Instant createdAt = Instant.now();
+
+  public static String key(String userId, String tokenAddress, long blockNumber) {
+    return AuditUserTokenBalance.key(userId, tokenAddress) + "|" + blockNumber;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public void setUserId(String userId) {
+    this.userId = userId;
+  }
+
+  public String getTokenAddress() {
+    return tokenAddress;
+  }
+
+  public void setTokenAddress(String tokenAddress) {
+    this.tokenAddress = tokenAddress;
+  }
+
+  public long getBlockNumber() {
+    return blockNumber;
+  }
+
+  public void setBlockNumber(long blockNumber) {
+    this.blockNumber = blockNumber;
+  }
+
+  public String getDelta1e8() {
+    return delta1e8;
+  }
+
+  public void setDelta1e8(String delta1e8) {
+    this.delta1e8 = delta1e8;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+
+  public void setCreatedAt(Instant createdAt) {
+    this.createdAt = createdAt;
+  }
+}
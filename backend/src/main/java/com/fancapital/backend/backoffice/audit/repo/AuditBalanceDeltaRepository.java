@@ -0,0 +1,15 @@
+package com.fancapital.backend.backoffice.audit.repo;
+
+import com.fancapital.backend.backoffice.audit.model.AuditBalanceDelta;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface AuditBalanceDeltaRepository extends JpaRepository<AuditBalanceDelta, String> {
+  List<AuditBalanceDelta> findByBlockNumberGreaterThan(long blockNumber);
+
+  @Modifying
+  @Query("delete from AuditBalanceDelta d where d.blockNumber <= ?1")
+  int deleteConfirmed(long confirmedBlock);
+}
@@ -0,0 +1,63 @@
+package com.fancapital.backend.backoffice.audit.service;
+
+import com.fancapital.backend.backoffice.audit.model.AuditBalanceDelta;
+import com.fancapital.backend.backoffice.audit.model.AuditUserTokenBalance;
+import com.fancapital.backend.backoffice.audit.repo.AuditBalanceDeltaRepository;
+import com.fancapital.backend.backoffice.audit.repo.AuditTokenSyncStateRepository;
+import com.fancapital.backend.backoffice.audit.repo.AuditUserTokenBalanceRepository;
+import com.fancapital.backend.blockchain.service.ChainIndexConsumer;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Annulation de la réconciliation après réorganisation : les variations journalisées des blocs
+ * abandonnés sont retirées des soldes indexés et les curseurs par token ramenés à l'ancêtre commun.
+ */
+@Service
+public class AuditReconciliationRollback implements ChainIndexConsumer {
+  private final AuditBalanceDeltaRepository deltaRepo;
+  private final AuditUserTokenBalanceRepository balRepo;
+  private final AuditTokenSyncStateRepository syncRepo;
+
+  public AuditReconciliationRollback(
+      AuditBalanceDeltaRepository deltaRepo,
+      AuditUserTokenBalanceRepository balRepo,
+      AuditTokenSyncStateRepository syncRepo
+  ) {
+    this.deltaRepo = deltaRepo;
+    this.balRepo = balRepo;
+    this.syncRepo = syncRepo;
+  }
+
+  @Override
+  public String indexerName() {
+    return "audit-reconciliation";
+  }
+
+  @Override
+  @Transactional
+  public void rollbackAfter(long ancestorBlock) {
+    List<AuditBalanceDelta> abandoned = deltaRepo.findByBlockNumberGreaterThan(ancestorBlock);
+    for (AuditBalanceDelta d : abandoned) {
+      balRepo.findById(AuditUserTokenBalance.key(d.getUserId(), d.getTokenAddress())).ifPresent(b -> {
+        BigInteger next = new BigInteger(b.getBalance1e8()).subtract(new BigInteger(d.getDelta1e8()));
+        b.setBalance1e8(next.signum() < 0 ? "0" : next.toString());
+        b.setLastUpdatedBlock(Math.min(b.getLastUpdatedBlock(), ancestorBlock));
+        b.setUpdatedAt(Instant.now());
+        balRepo.save(b);
+      });
+    }
+    deltaRepo.deleteAll(abandoned);
+
+    for (var st : syncRepo.findAll()) {
+      if (st.getLastProcessedBlock() > ancestorBlock) {
+        st.setLastProcessedBlock(Math.max(0, ancestorBlock));
+        st.setUpdatedAt(Instant.now());
+        syncRepo.save(st);
+      }
+    }
+  }
+}
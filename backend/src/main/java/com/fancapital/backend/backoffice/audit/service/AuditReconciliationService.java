@@ -2,12 +2,15 @@ package com.fancapital.backend.backoffice.audit.service;
 
 import com.fancapital.backend.auth.repo.AppUserRepository;
 import com.fancapital.backend.backoffice.audit.model.AuditAlert;
+import com.fancapital.backend.backoffice.audit.model.AuditBalanceDelta;
 import com.fancapital.backend.backoffice.audit.model.AuditTokenSyncState;
 import com.fancapital.backend.backoffice.audit.model.AuditUserTokenBalance;
 import com.fancapital.backend.backoffice.audit.repo.AuditAlertRepository;
+import com.fancapital.backend.backoffice.audit.repo.AuditBalanceDeltaRepository;
 import com.fancapital.backend.backoffice.audit.repo.AuditTokenSyncStateRepository;
 import com.fancapital.backend.backoffice.audit.repo.AuditUserTokenBalanceRepository;
 import com.fancapital.backend.blockchain.model.FundDto;
+import com.fancapital.backend.blockchain.service.ChainHeadTracker;
 import com.fancapital.backend.blockchain.service.DeploymentRegistry;
 import com.fancapital.backend.blockchain.service.EvmCallService;
 import java.io.IOException;
@@ -17,6 +20,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.web3j.abi.EventEncoder;
@@ -28,11 +32,17 @@ import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.Type;
 import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.DefaultBlockParameterNumber;
 import org.web3j.protocol.core.methods.request.EthFilter;
 import org.web3j.protocol.core.methods.response.Log;
 
+/**
+ * Réconciliation des soldes indexés (somme des Transfer) avec ERC20.balanceOf.
+ * <p>
+ * Les logs sont appliqués jusqu'à la tête validée par {@link ChainHeadTracker}. Les variations des blocs
+ * de la fenêtre non confirmée sont journalisées ({@link AuditBalanceDelta}) afin que
+ * {@link AuditReconciliationRollback} puisse les annuler si ces blocs sont réorganisés.
+ */
 @Service
 public class AuditReconciliationService {
   private static final Event TRANSFER = new Event(
@@ -52,6 +62,8 @@ public class AuditReconciliationService {
   private final AuditUserTokenBalanceRepository balRepo;
   private final AuditAlertRepository alertRepo;
   private final AuditLogService auditLog;
+  private final ChainHeadTracker headTracker;
+  private final AuditBalanceDeltaRepository deltaRepo;
 
   public AuditReconciliationService(
       Web3j web3j,
@@ -61,7 +73,9 @@ public class AuditReconciliationService {
       AuditTokenSyncStateRepository syncRepo,
       AuditUserTokenBalanceRepository balRepo,
       AuditAlertRepository alertRepo,
-      AuditLogService auditLog
+      AuditLogService auditLog,
+      ChainHeadTracker headTracker,
+      AuditBalanceDeltaRepository deltaRepo
   ) {
     this.web3j = web3j;
     this.registry = registry;
@@ -71,13 +85,16 @@ public class AuditReconciliationService {
     this.balRepo = balRepo;
     this.alertRepo = alertRepo;
     this.auditLog = auditLog;
+    this.headTracker = headTracker;
+    this.deltaRepo = deltaRepo;
   }
 
   public record ReconcileResult(long latestBlock, int tokensSynced, long transfersProcessed, int alertsCreated) {}
 
   @Transactional
   public ReconcileResult reconcileOnce(String actorUserId, String actorEmail) {
-    long latest = latestBlockNumber();
+    long latest = headTracker.advance();
+    long confirmed = headTracker.confirmedBlock(latest);
     Map<String, String> walletToUser = loadKnownWallets();
 
     long transfers = 0;
@@ -85,9 +102,11 @@ public class AuditReconciliationService {
 
     for (FundDto fund : registry.listFunds()) {
       String token = fund.token();
-      transfers += syncTokenTransfers(token, latest, walletToUser);
+      transfers += syncTokenTransfers(token, latest, confirmed, walletToUser);
       tokensSynced++;
     }
+    // Deltas of blocks that left the reorg window can no longer be undone: drop their journal.
+    deltaRepo.deleteConfirmed(confirmed);
 
     // Optional: cash token reconciliation could be added similarly
     // String cash = infra.cashTokenAddress();
@@ -103,7 +122,7 @@ public class AuditReconciliationService {
     return new ReconcileResult(latest, tokensSynced, transfers, alerts);
   }
 
-  private long syncTokenTransfers(String tokenAddress, long latestBlock, Map<String, String> walletToUser) {
+  private long syncTokenTransfers(String tokenAddress, long latestBlock, long confirmedBlock, Map<String, String> walletToUser) {
     AuditTokenSyncState st = syncRepo.findById(tokenAddress.toLowerCase(Locale.ROOT))
         .orElseGet(() -> new AuditTokenSyncState(tokenAddress.toLowerCase(Locale.ROOT)));
 
@@ -116,7 +135,7 @@ public class AuditReconciliationService {
 
     for (long start = from; start <= to; start += chunk) {
       long end = Math.min(to, start + chunk - 1);
-      processed += applyTransferLogs(tokenAddress, start, end, walletToUser);
+      processed += applyTransferLogs(tokenAddress, start, end, confirmedBlock, walletToUser);
     }
 
     st.setLastProcessedBlock(to);
@@ -125,7 +144,8 @@ public class AuditReconciliationService {
     return processed;
   }
 
-  private long applyTransferLogs(String tokenAddress, long fromBlock, long toBlock, Map<String, String> walletToUser) {
+  private long applyTransferLogs(String tokenAddress, long fromBlock, long toBlock, long confirmedBlock,
+      Map<String, String> walletToUser) {
     String topic0 = EventEncoder.encode(TRANSFER);
     EthFilter filter = new EthFilter(
         new DefaultBlockParameterNumber(BigInteger.valueOf(fromBlock)),
@@ -143,8 +163,8 @@ public class AuditReconciliationService {
 
     if (logs.isEmpty()) return 0;
 
-    // Accumulate deltas in-memory
-    Map<String, BigInteger> deltaByUser = new HashMap<>(); // userId -> delta
+    // Accumulate deltas in-memory, per user then per block (applied in block order)
+    Map<String, TreeMap<Long, BigInteger>> deltaByUser = new HashMap<>(); // userId -> block -> delta
     for (Log l : logs) {
       if (l.getTopics() == null || l.getTopics().size() < 3) continue;
       String fromAddr = topicToAddress(l.getTopics().get(1));
@@ -152,22 +172,21 @@ public class AuditReconciliationService {
 
       BigInteger value = decodeTransferValue(l.getData());
       if (value.signum() == 0) continue;
+      long block = l.getBlockNumber().longValue();
 
       String fromUser = walletToUser.get(fromAddr);
       if (fromUser != null) {
-        deltaByUser.merge(fromUser, value.negate(), BigInteger::add);
+        deltaByUser.computeIfAbsent(fromUser, k -> new TreeMap<>()).merge(block, value.negate(), BigInteger::add);
       }
       String toUser = walletToUser.get(toAddr);
       if (toUser != null) {
-        deltaByUser.merge(toUser, value, BigInteger::add);
+        deltaByUser.computeIfAbsent(toUser, k -> new TreeMap<>()).merge(block, value, BigInteger::add);
       }
     }
 
     // Apply deltas to DB
     for (var entry : deltaByUser.entrySet()) {
       String userId = entry.getKey();
-      BigInteger delta = entry.getValue();
-      if (delta.signum() == 0) continue;
 
       String wallet = users.findById(userId).map(u -> u.getWalletAddress()).orElse(null);
       if (wallet == null || wallet.isBlank()) continue;
@@ -183,11 +202,22 @@ public class AuditReconciliationService {
         return x;
       });
 
-      BigInteger old = new BigInteger(b.getBalance1e8());
-      BigInteger next = old.add(delta);
-      if (next.signum() < 0) next = BigInteger.ZERO;
+      BigInteger balance = new BigInteger(b.getBalance1e8());
+      boolean changed = false;
+      for (var perBlock : entry.getValue().entrySet()) {
+        BigInteger next = balance.add(perBlock.getValue());
+        if (next.signum() < 0) next = BigInteger.ZERO;
+        BigInteger applied = next.subtract(balance);
+        if (applied.signum() == 0) continue;
+        balance = next;
+        changed = true;
+        if (perBlock.getKey() > confirmedBlock) {
+          journalDelta(userId, tokenAddress, perBlock.getKey(), applied);
+        }
+      }
+      if (!changed) continue;
 
-      b.setBalance1e8(next.toString());
+      b.setBalance1e8(balance.toString());
       b.setLastUpdatedBlock(Math.max(b.getLastUpdatedBlock(), toBlock));
       b.setUpdatedAt(Instant.now());
       balRepo.save(b);
@@ -196,6 +226,20 @@ public class AuditReconciliationService {
     return logs.size();
   }
 
+  private void journalDelta(String userId, String tokenAddress, long block, BigInteger applied) {
+    String id = AuditBalanceDelta.key(userId, tokenAddress, block);
+    AuditBalanceDelta d = deltaRepo.findById(id).orElseGet(() -> {
+      AuditBalanceDelta x = new AuditBalanceDelta();
+      x.setId(id);
+      x.setUserId(userId);
+      x.setTokenAddress(tokenAddress.toLowerCase(Locale.ROOT));
+      x.setBlockNumber(block);
+      return x;
+    });
+    d.setDelta1e8(new BigInteger(d.getDelta1e8()).add(applied).toString());
+    deltaRepo.save(d);
+  }
+
   private int detectMismatchesForToken(String tokenAddress, long latestBlock, Map<String, String> walletToUser) {
     int created = 0;
     // Ensure we have a row for each known user/wallet even if they had no transfers yet.
@@ -257,14 +301,6 @@ public class AuditReconciliationService {
     return m;
   }
 
-  private long latestBlockNumber() {
-    try {
-      return web3j.ethGetBlockByNumber(DefaultBlockParameterName.LATEST, false).send().getBlock().getNumber().longValue();
-    } catch (Exception e) {
-      throw new IllegalStateException("Failed to get latest block: " + e.getMessage(), e);
-    }
-  }
-
   private BigInteger balanceOf(String token, String wallet) {
     Function f = new Function(
         "balanceOf",
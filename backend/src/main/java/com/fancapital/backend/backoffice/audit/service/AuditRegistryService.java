@@ -4,9 +4,12 @@ import com.fancapital.backend.auth.model.AppUser;
 import com.fancapital.backend.auth.repo.AppUserRepository;
 import com.fancapital.backend.backoffice.audit.model.AuditDtos;
 import com.fancapital.backend.blockchain.model.PortfolioDtos.PortfolioPosition;
+import com.fancapital.backend.blockchain.model.PortfolioDtos.PortfolioResponse;
 import com.fancapital.backend.blockchain.service.BlockchainReadService;
 import java.math.BigInteger;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
@@ -25,7 +28,7 @@ public class AuditRegistryService {
     long nowSec = System.currentTimeMillis() / 1000L;
 
     var all = users.findAll(Sort.by(Sort.Direction.DESC, "createdAt"));
-    List<AuditDtos.AuditRegistryRow> rows = all.stream()
+    List<AppUser> matched = all.stream()
         .filter(u -> {
           if (needle.isBlank()) return true;
           return contains(u.getEmail(), needle)
@@ -38,24 +41,35 @@ public class AuditRegistryService {
               || contains(u.getMatriculeFiscal(), needle)
               || contains(u.getWalletAddress(), needle);
         })
-        .map(u -> toRow(u, atBlockNumber))
+        .toList();
+
+    // One bulk read for every wallet of the page instead of one portfolio() per user.
+    List<String> wallets = matched.stream().map(AppUser::getWalletAddress).filter(AuditRegistryService::isWallet).toList();
+    Map<String, PortfolioResponse> byWallet = new HashMap<>();
+    List<PortfolioResponse> portfolios = chain.portfolios(wallets, atBlockNumber);
+    for (int i = 0; i < wallets.size(); i++) {
+      byWallet.put(wallets.get(i).toLowerCase(), portfolios.get(i));
+    }
+
+    List<AuditDtos.AuditRegistryRow> rows = matched.stream()
+        .map(u -> toRow(u, isWallet(u.getWalletAddress()) ? byWallet.get(u.getWalletAddress().toLowerCase()) : null))
         .toList();
 
     return new AuditDtos.AuditRegistryResponse(nowSec, atBlockNumber == null ? null : atBlockNumber.longValue(), rows);
   }
 
-  private AuditDtos.AuditRegistryRow toRow(AppUser u, BigInteger atBlockNumber) {
+  private static boolean isWallet(String wallet) {
+    return wallet != null && wallet.startsWith("0x") && wallet.length() == 42;
+  }
+
+  private AuditDtos.AuditRegistryRow toRow(AppUser u, PortfolioResponse portfolio) {
     String wallet = u.getWalletAddress();
     String atlas = "0";
     String didon = "0";
     String atlasLocked = "0";
     String didonLocked = "0";
 
-    if (wallet != null && wallet.startsWith("0x") && wallet.length() == 42) {
-      var portfolio = (atBlockNumber == null)
-          ? chain.portfolio(wallet)
-          : chain.portfolioAtBlock(wallet, atBlockNumber);
-
+    if (portfolio != null) {
       PortfolioPosition pAtlas = pickFund(portfolio.positions(), "atlas", 0);
       PortfolioPosition pDidon = pickFund(portfolio.positions(), "didon", 1);
       atlas = pAtlas != null ? pAtlas.balanceTokens() : "0";
@@ -0,0 +1,37 @@
+package com.fancapital.backend.backoffice.controller;
+
+import com.fancapital.backend.backoffice.service.BackofficeAuthzService;
+import com.fancapital.backend.blockchain.service.AumBackfillService;
+import java.time.LocalDate;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/backoffice/aum")
+public class AumBackofficeController {
+  private final BackofficeAuthzService authz;
+  private final AumBackfillService backfill;
+
+  public AumBackofficeController(BackofficeAuthzService authz, AumBackfillService backfill) {
+    this.authz = authz;
+    this.backfill = backfill;
+  }
+
+  public record BackfillRequest(
+      LocalDate from, // yyyy-MM-dd
+      LocalDate to    // yyyy-MM-dd, capped at yesterday
+  ) {}
+
+  /**
+   * Reconstitue l'historique AUM quotidien depuis les événements indexés et la VNI historique
+   * (nouveau déploiement / nouveaux utilisateurs). Les points existants sont conservés.
+   * Ex: POST /api/backoffice/aum/backfill {"from":"2025-01-01","to":"2025-03-31"}
+   */
+  @PostMapping("/backfill")
+  public AumBackfillService.BackfillResult backfill(@RequestBody BackfillRequest req) {
+    authz.requireAdmin();
+    return backfill.backfill(req.from(), req.to());
+  }
+}
@@ -1,6 +1,9 @@
 package com.fancapital.backend.backoffice.service;
 
 import com.fancapital.backend.blockchain.service.EvmCallService;
+import com.fancapital.backend.blockchain.service.FeeOracleService.Urgency;
+import com.fancapital.backend.blockchain.service.TxSubmitterService.KeyLane;
+import com.fancapital.backend.blockchain.service.TxSubmitterService;
 import com.fancapital.backend.config.BlockchainProperties;
 import java.io.IOException;
 import java.math.BigInteger;
@@ -15,13 +18,8 @@ import org.web3j.abi.datatypes.DynamicBytes;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.Type;
 import org.web3j.abi.datatypes.generated.Uint256;
-import org.web3j.crypto.Credentials;
-import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.methods.response.EthGasPrice;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
 import org.web3j.utils.Numeric;
-import org.web3j.tx.RawTransactionManager;
-import org.web3j.tx.TransactionManager;
 
 /**
  * Service pour interagir avec le contrat MultiSigCouncil (gouvernance N-of-M).
@@ -30,14 +28,14 @@ import org.web3j.tx.TransactionManager;
 @Service
 @SuppressWarnings("rawtypes")
 public class MultiSigService {
-  private final Web3j web3j;
+  private final TxSubmitterService txSubmitter;
   private final BlockchainProperties props;
   private final DeploymentInfraService infra;
   private final EvmCallService evm;
 
   @SuppressWarnings("unused")
-  public MultiSigService(Web3j web3j, BlockchainProperties props, DeploymentInfraService infra, EvmCallService evm) {
-    this.web3j = web3j;
+  public MultiSigService(TxSubmitterService txSubmitter, BlockchainProperties props, DeploymentInfraService infra, EvmCallService evm) {
+    this.txSubmitter = txSubmitter;
     this.props = props;
     this.infra = infra;
     this.evm = evm;
@@ -61,8 +59,7 @@ public class MultiSigService {
     if (govPk == null || govPk.isBlank()) {
       throw new IllegalStateException("Governance key (blockchain.operator-private-key) not configured for MultiSig submit.");
     }
-    Credentials credentials = Credentials.create(govPk.trim());
-    TransactionManager tm = new RawTransactionManager(web3j, credentials, chainId().longValue());
+    KeyLane tm = txSubmitter.forKey(govPk);
 
     DynamicBytes payload = data != null && !data.isBlank()
         ? new DynamicBytes(Numeric.hexStringToByteArray(data.startsWith("0x") ? data : "0x" + data))
@@ -73,10 +70,9 @@ public class MultiSigService {
         List.of()
     );
     String encoded = FunctionEncoder.encode(fn);
-    BigInteger gasPrice = suggestedGasPrice();
     BigInteger gasLimit = BigInteger.valueOf(300_000);
     try {
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, gasLimit, councilAddress(), encoded, BigInteger.ZERO);
+      EthSendTransaction tx = tm.send(Urgency.NORMAL, gasLimit, councilAddress(), encoded, BigInteger.ZERO);
       if (tx.hasError()) throw new IllegalStateException("submitTransaction failed: " + tx.getError().getMessage());
       return tx.getTransactionHash();
     } catch (IOException e) {
@@ -89,14 +85,12 @@ public class MultiSigService {
     if (govPk == null || govPk.isBlank()) {
       throw new IllegalStateException("Governance key not configured for MultiSig confirm.");
     }
-    Credentials credentials = Credentials.create(govPk.trim());
-    TransactionManager tm = new RawTransactionManager(web3j, credentials, chainId().longValue());
+    KeyLane tm = txSubmitter.forKey(govPk);
     Function fn = new Function("confirmTransaction", List.of(new Uint256(txId)), List.of());
     String encoded = FunctionEncoder.encode(fn);
-    BigInteger gasPrice = suggestedGasPrice();
     BigInteger gasLimit = BigInteger.valueOf(100_000);
     try {
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, gasLimit, councilAddress(), encoded, BigInteger.ZERO);
+      EthSendTransaction tx = tm.send(Urgency.NORMAL, gasLimit, councilAddress(), encoded, BigInteger.ZERO);
       if (tx.hasError()) throw new IllegalStateException("confirmTransaction failed: " + tx.getError().getMessage());
       return tx.getTransactionHash();
     } catch (IOException e) {
@@ -109,14 +103,12 @@ public class MultiSigService {
     if (govPk == null || govPk.isBlank()) {
       throw new IllegalStateException("Governance key not configured for MultiSig execute.");
     }
-    Credentials credentials = Credentials.create(govPk.trim());
-    TransactionManager tm = new RawTransactionManager(web3j, credentials, chainId().longValue());
+    KeyLane tm = txSubmitter.forKey(govPk);
     Function fn = new Function("executeTransaction", List.of(new Uint256(txId)), List.of());
     String encoded = FunctionEncoder.encode(fn);
-    BigInteger gasPrice = suggestedGasPrice();
     BigInteger gasLimit = BigInteger.valueOf(500_000);
     try {
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, gasLimit, councilAddress(), encoded, BigInteger.ZERO);
+      EthSendTransaction tx = tm.send(Urgency.NORMAL, gasLimit, councilAddress(), encoded, BigInteger.ZERO);
       if (tx.hasError()) throw new IllegalStateException("executeTransaction failed: " + tx.getError().getMessage());
       return tx.getTransactionHash();
     } catch (IOException e) {
@@ -181,23 +173,6 @@ public class MultiSigService {
     return out != null && !out.isEmpty() ? (BigInteger) out.get(0).getValue() : BigInteger.ZERO;
   }
 
-  private BigInteger chainId() {
-    try {
-      return web3j.ethChainId().send().getChainId();
-    } catch (IOException e) {
-      throw new IllegalStateException("eth_chainId failed: " + e.getMessage(), e);
-    }
-  }
-
-  private BigInteger suggestedGasPrice() {
-    try {
-      EthGasPrice gp = web3j.ethGasPrice().send();
-      return gp.getGasPrice();
-    } catch (IOException e) {
-      return BigInteger.valueOf(20_000_000_000L);
-    }
-  }
-
   public record MultiSigTransactionDto(
       BigInteger txId,
       String to,
@@ -2,6 +2,9 @@ package com.fancapital.backend.backoffice.service;
 
 import com.fancapital.backend.backoffice.config.BackofficeProperties;
 import com.fancapital.backend.backoffice.service.DeploymentInfraService;
+import com.fancapital.backend.blockchain.service.FeeOracleService.Urgency;
+import com.fancapital.backend.blockchain.service.TxSubmitterService.KeyLane;
+import com.fancapital.backend.blockchain.service.TxSubmitterService;
 import com.fancapital.backend.config.BlockchainProperties;
 import java.io.IOException;
 import java.math.BigInteger;
@@ -10,12 +13,7 @@ import org.springframework.stereotype.Service;
 import org.web3j.abi.FunctionEncoder;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.Utf8String;
-import org.web3j.crypto.Credentials;
-import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.methods.response.EthGasPrice;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
-import org.web3j.tx.RawTransactionManager;
-import org.web3j.tx.TransactionManager;
 
 /**
  * Service pour gérer la Panic Key (Bouton Panique) selon le Livre Blanc Technique v3.0.
@@ -28,12 +26,12 @@ import org.web3j.tx.TransactionManager;
  */
 @Service
 public class PanicKeyService {
-  private final Web3j web3j;
+  private final TxSubmitterService txSubmitter;
   private final BlockchainProperties props;
   private final DeploymentInfraService infra;
 
-  public PanicKeyService(Web3j web3j, BlockchainProperties props, DeploymentInfraService infra) {
-    this.web3j = web3j;
+  public PanicKeyService(TxSubmitterService txSubmitter, BlockchainProperties props, DeploymentInfraService infra) {
+    this.txSubmitter = txSubmitter;
     this.props = props;
     this.infra = infra;
   }
@@ -55,9 +53,7 @@ public class PanicKeyService {
       throw new IllegalStateException("CircuitBreaker address not configured in deployments infra.");
     }
 
-    Credentials credentials = Credentials.create(panicKey.trim());
-    BigInteger chainId = chainId();
-    TransactionManager tm = new RawTransactionManager(web3j, credentials, chainId.longValue());
+    KeyLane tm = txSubmitter.forKey(panicKey);
 
     Function fn = new Function(
         "pauseAll",
@@ -66,11 +62,10 @@ public class PanicKeyService {
     );
     String data = FunctionEncoder.encode(fn);
 
-    BigInteger gasPrice = suggestedGasPrice();
     BigInteger gasLimit = BigInteger.valueOf(200_000);
 
     try {
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, gasLimit, circuitBreaker, data, BigInteger.ZERO);
+      EthSendTransaction tx = tm.send(Urgency.HIGH, gasLimit, circuitBreaker, data, BigInteger.ZERO);
       if (tx.hasError()) {
         throw new IllegalStateException("pauseAll failed: " + tx.getError().getMessage());
       }
@@ -92,25 +87,4 @@ public class PanicKeyService {
     // This should be called via MultiSig or Governance service
     throw new UnsupportedOperationException("Resume requires GOVERNANCE_ROLE. Use MultiSig or Governance service to resume operations.");
   }
-
-  private BigInteger suggestedGasPrice() {
-    try {
-      EthGasPrice gp = web3j.ethGasPrice().send();
-      if (gp.hasError()) {
-        throw new IllegalStateException("eth_gasPrice error: " + gp.getError().getMessage());
-      }
-      BigInteger v = gp.getGasPrice();
-      return v.multiply(BigInteger.valueOf(12)).divide(BigInteger.TEN);
-    } catch (IOException e) {
-      return BigInteger.valueOf(1_000_000_000L);
-    }
-  }
-
-  private BigInteger chainId() {
-    try {
-      return web3j.ethChainId().send().getChainId();
-    } catch (IOException e) {
-      return BigInteger.valueOf(31337);
-    }
-  }
 }
@@ -1,6 +1,9 @@
 package com.fancapital.backend.backoffice.service;
 
 import com.fancapital.backend.backoffice.config.BackofficeProperties;
+import com.fancapital.backend.blockchain.service.FeeOracleService.Urgency;
+import com.fancapital.backend.blockchain.service.TxSubmitterService.KeyLane;
+import com.fancapital.backend.blockchain.service.TxSubmitterService;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.List;
@@ -8,21 +11,16 @@ import org.springframework.stereotype.Service;
 import org.web3j.abi.FunctionEncoder;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.generated.Uint256;
-import org.web3j.crypto.Credentials;
-import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.methods.response.EthGasPrice;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
-import org.web3j.tx.RawTransactionManager;
-import org.web3j.tx.TransactionManager;
 
 @Service
 public class TaxVaultWriteService {
-  private final Web3j web3j;
+  private final TxSubmitterService txSubmitter;
   private final DeploymentInfraService infra;
   private final BackofficeProperties props;
 
-  public TaxVaultWriteService(Web3j web3j, DeploymentInfraService infra, BackofficeProperties props) {
-    this.web3j = web3j;
+  public TaxVaultWriteService(TxSubmitterService txSubmitter, DeploymentInfraService infra, BackofficeProperties props) {
+    this.txSubmitter = txSubmitter;
     this.infra = infra;
     this.props = props;
   }
@@ -35,18 +33,15 @@ public class TaxVaultWriteService {
     String taxVault = infra.taxVaultAddress();
     if (taxVault == null || taxVault.isBlank()) throw new IllegalStateException("TaxVault address not configured");
 
-    Credentials credentials = Credentials.create(pk.trim());
-    BigInteger chainId = chainId();
-    TransactionManager tm = new RawTransactionManager(web3j, credentials, chainId.longValue());
+    KeyLane tm = txSubmitter.forKey(pk);
 
     Function fn = new Function("withdrawToFisc", List.of(new Uint256(amount)), List.of());
     String data = FunctionEncoder.encode(fn);
 
-    BigInteger gasPrice = suggestedGasPrice();
     BigInteger gasLimit = BigInteger.valueOf(500_000);
 
     try {
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, gasLimit, taxVault, data, BigInteger.ZERO);
+      EthSendTransaction tx = tm.send(Urgency.LOW, gasLimit, taxVault, data, BigInteger.ZERO);
       if (tx.hasError()) {
         throw new IllegalStateException("withdrawToFisc failed: " + tx.getError().getMessage());
       }
@@ -55,27 +50,5 @@ public class TaxVaultWriteService {
       throw new IllegalStateException("withdrawToFisc RPC error: " + e.getMessage(), e);
     }
   }
-
-  private BigInteger chainId() {
-    try {
-      return web3j.ethChainId().send().getChainId();
-    } catch (IOException e) {
-      // default hardhat
-      return BigInteger.valueOf(31337);
-    }
-  }
-
-  private BigInteger suggestedGasPrice() {
-    try {
-      EthGasPrice gp = web3j.ethGasPrice().send();
-      if (gp.hasError()) {
-        throw new IllegalStateException("eth_gasPrice error: " + gp.getError().getMessage());
-      }
-      BigInteger v = gp.getGasPrice();
-      return v.multiply(BigInteger.valueOf(12)).divide(BigInteger.TEN);
-    } catch (IOException e) {
-      return BigInteger.valueOf(1_000_000_000L); // 1 gwei
-    }
-  }
 }
 
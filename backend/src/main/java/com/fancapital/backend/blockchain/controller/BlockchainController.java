@@ -1,14 +1,19 @@
 package com.fancapital.backend.blockchain.controller;
 
+import com.fancapital.backend.blockchain.model.AumHistoryDtos.AumHistoryResponse;
+import com.fancapital.backend.blockchain.model.CreditActivation;
 import com.fancapital.backend.blockchain.model.FundDto;
 import com.fancapital.backend.blockchain.model.FundsListResponse;
 import com.fancapital.backend.blockchain.model.InvestorProfileDtos.InvestorProfileResponse;
 import com.fancapital.backend.blockchain.model.OracleVniResponse;
+import com.fancapital.backend.blockchain.model.SciTierChange;
 import com.fancapital.backend.blockchain.model.PortfolioDtos.PortfolioResponse;
 import com.fancapital.backend.blockchain.model.QuoteDtos.QuoteBuyRequest;
 import com.fancapital.backend.blockchain.model.QuoteDtos.QuoteBuyResponse;
 import com.fancapital.backend.blockchain.model.QuoteDtos.QuoteSellRequest;
 import com.fancapital.backend.blockchain.model.QuoteDtos.QuoteSellResponse;
+import com.fancapital.backend.blockchain.model.RepaymentDueDay;
+import com.fancapital.backend.blockchain.model.RepaymentInstallment;
 import com.fancapital.backend.blockchain.model.TxHistoryDtos.TxHistoryResponse;
 import com.fancapital.backend.blockchain.model.TxDtos.AdvanceRequest;
 import com.fancapital.backend.blockchain.model.TxDtos.BuyRequest;
@@ -19,26 +24,37 @@ import com.fancapital.backend.blockchain.service.BlockchainReadService;
 import com.fancapital.backend.auth.repo.AppUserRepository;
 import com.fancapital.backend.blockchain.service.AdvanceInterestService;
 import com.fancapital.backend.blockchain.service.AdvanceRepaymentService;
+import com.fancapital.backend.blockchain.service.AumSnapshotService;
 import com.fancapital.backend.blockchain.service.CreditAdvanceActivationService;
 import com.fancapital.backend.blockchain.service.CreditAdvanceRequestService;
 import com.fancapital.backend.blockchain.service.CreditReadService;
 import com.fancapital.backend.blockchain.service.DeploymentRegistry;
 import com.fancapital.backend.blockchain.service.LiquidityPoolWriteService;
+import com.fancapital.backend.blockchain.service.LtvMonitorService;
+import com.fancapital.backend.blockchain.service.PortfolioStreamService;
+import com.fancapital.backend.blockchain.service.RepaymentCalendarService;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.security.core.context.SecurityContextHolder;
 import com.fancapital.backend.blockchain.service.P2PExchangeWriteService;
 import com.fancapital.backend.blockchain.service.OnchainBootstrapService;
 import com.fancapital.backend.blockchain.service.CompartmentsService;
 import com.fancapital.backend.blockchain.service.OperatorDiagnosticsService;
+import com.fancapital.backend.blockchain.service.SciComponentService;
 import com.fancapital.backend.blockchain.service.SciScorePushService;
 import com.fancapital.backend.blockchain.service.SciScoreService;
+import com.fancapital.backend.blockchain.service.TradeOutboxService;
+import com.fancapital.backend.blockchain.service.TxLifecycleService;
 import java.util.Map;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Pattern;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -48,6 +64,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.http.HttpStatus;
 
 @RestController
@@ -69,6 +86,13 @@ public class BlockchainController {
   private final OnchainBootstrapService onchainBootstrap;
   private final CompartmentsService compartmentsService;
   private final AdvanceInterestService advanceInterestService;
+  private final PortfolioStreamService portfolioStream;
+  private final TradeOutboxService outbox;
+  private final TxLifecycleService txLifecycle;
+  private final SciComponentService sciComponents;
+  private final AumSnapshotService aumSnapshots;
+  private final LtvMonitorService ltvMonitor;
+  private final RepaymentCalendarService repaymentCalendar;
 
   public BlockchainController(
       DeploymentRegistry registry,
@@ -85,7 +109,14 @@ public class BlockchainController {
       SciScorePushService sciPush,
       OnchainBootstrapService onchainBootstrap,
       CompartmentsService compartmentsService,
-      AdvanceInterestService advanceInterestService
+      AdvanceInterestService advanceInterestService,
+      PortfolioStreamService portfolioStream,
+      TradeOutboxService outbox,
+      TxLifecycleService txLifecycle,
+      SciComponentService sciComponents,
+      AumSnapshotService aumSnapshots,
+      LtvMonitorService ltvMonitor,
+      RepaymentCalendarService repaymentCalendar
   ) {
     this.registry = registry;
     this.readService = readService;
@@ -102,6 +133,13 @@ public class BlockchainController {
     this.onchainBootstrap = onchainBootstrap;
     this.compartmentsService = compartmentsService;
     this.advanceInterestService = advanceInterestService;
+    this.portfolioStream = portfolioStream;
+    this.outbox = outbox;
+    this.txLifecycle = txLifecycle;
+    this.sciComponents = sciComponents;
+    this.aumSnapshots = aumSnapshots;
+    this.ltvMonitor = ltvMonitor;
+    this.repaymentCalendar = repaymentCalendar;
   }
 
   @GetMapping("/funds")
@@ -136,6 +174,62 @@ public class BlockchainController {
     return operatorDiagnostics.info();
   }
 
+  /** Profondeur des files d'envoi par signataire (en file locale / en attente de minage, plus ancien nonce bloqué). */
+  @GetMapping("/_tx-queue")
+  public List<TxLifecycleService.LaneDepth> txQueue() {
+    return txLifecycle.queueDepth();
+  }
+
+  /**
+   * Flux des changements de tier SCI (montées/descentes), lu par curseur : {@code after} = seq du dernier
+   * événement reçu, absent = depuis le début.
+   */
+  @GetMapping("/_sci/tier-changes")
+  public List<SciTierChange> sciTierChanges(
+      @RequestParam(defaultValue = "0") long after,
+      @RequestParam(defaultValue = "200") int limit
+  ) {
+    return sciComponents.tierChangesAfter(after, limit);
+  }
+
+  /**
+   * Avances en appel de marge ou en liquidation (moniteur LTV, VNI courante), LTV décroissant.
+   * {@code zone=LIQUIDATION} = candidats à la liquidation uniquement.
+   */
+  @GetMapping("/_risk/ltv")
+  public List<LtvMonitorService.LtvAlert> riskLtv(@RequestParam(required = false) LtvMonitorService.Zone zone) {
+    return ltvMonitor.atRisk(zone);
+  }
+
+  /** Agrégat quotidien du calendrier de remboursement (montant dû, prélevé, échéances ouvertes). Défaut : 30 prochains jours. */
+  @GetMapping("/_credit/due-days")
+  public List<RepaymentDueDay> creditDueDays(
+      @RequestParam(required = false) String from,
+      @RequestParam(required = false) String to
+  ) {
+    LocalDate start;
+    LocalDate end;
+    try {
+      start = from == null || from.isBlank() ? LocalDate.now() : LocalDate.parse(from.trim());
+      end = to == null || to.isBlank() ? start.plusDays(30) : LocalDate.parse(to.trim());
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("from/to must be ISO-8601 dates (yyyy-MM-dd)");
+    }
+    return repaymentCalendar.dueDays(start, end);
+  }
+
+  /** Activations d'avance à rapprocher par l'opérateur : lock envoyé, mint d'issue inconnue (jamais renvoyé). */
+  @GetMapping("/_credit/activations/review")
+  public List<CreditActivation> creditActivationsToReview() {
+    return creditAdvanceActivation.pendingReview();
+  }
+
+  /** Échéances à rapprocher par l'opérateur : échec ou interruption après le burn du Cash Wallet (jamais reprises). */
+  @GetMapping("/_credit/installments/review")
+  public List<RepaymentInstallment> creditInstallmentsToReview() {
+    return repaymentCalendar.toReview();
+  }
+
   @GetMapping("/oracle/vni")
   public OracleVniResponse getVni(@RequestParam @Pattern(regexp = ETH_ADDRESS_RX) String token) {
     return readService.getVni(token);
@@ -154,9 +248,7 @@ public class BlockchainController {
           else if (credit1e8 >= 500_000_000_000L) amount = 5_000L;
         }
         onchainBootstrap.seedCashToWallet(user, amount);
-        java.util.concurrent.CompletableFuture.runAsync(() -> {
-          try { sciPush.pushForWallet(user); } catch (Exception ex) { /* ignore */ }
-        });
+        outbox.enqueueSciPush(user);
         return readService.portfolio(user);
       } catch (Exception e) {
         // ignore seed errors (ex: MINTER_ROLE manquant), return initial response
@@ -165,6 +257,15 @@ public class BlockchainController {
     return p;
   }
 
+  /**
+   * Flux SSE : événement "portfolio" (état complet) à l'ouverture, puis "positions" (positions modifiées)
+   * à chaque bloc touchant ce wallet. Remplace le re-polling de /portfolio.
+   */
+  @GetMapping(path = "/portfolio/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter portfolioStream(@RequestParam @Pattern(regexp = ETH_ADDRESS_RX) String user) {
+    return portfolioStream.subscribe(user);
+  }
+
   @GetMapping("/investor/profile")
   public InvestorProfileResponse investorProfile(@RequestParam @Pattern(regexp = ETH_ADDRESS_RX) String user) {
     return readService.investorProfile(user);
@@ -176,6 +277,27 @@ public class BlockchainController {
     return sciScore.computeScore(user);
   }
 
+  /**
+   * Historique AUM pour les graphiques (points quotidiens sur 90 j, min/moyenne/max mensuels au-delà).
+   * Ex: GET /api/blockchain/investor/aum/history?user=0x...&from=2025-01-01&to=2025-12-31 (défaut : 365 derniers jours)
+   */
+  @GetMapping("/investor/aum/history")
+  public AumHistoryResponse aumHistory(
+      @RequestParam @Pattern(regexp = ETH_ADDRESS_RX) String user,
+      @RequestParam(required = false) String from,
+      @RequestParam(required = false) String to
+  ) {
+    LocalDate end;
+    LocalDate start;
+    try {
+      end = to == null || to.isBlank() ? LocalDate.now() : LocalDate.parse(to.trim());
+      start = from == null || from.isBlank() ? end.minusDays(365) : LocalDate.parse(from.trim());
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("from/to must be ISO-8601 dates (yyyy-MM-dd)");
+    }
+    return aumSnapshots.history(user, start, end);
+  }
+
   /** SCI v4.5: push score + tier effectif vers la blockchain. */
   @PostMapping("/investor/sci/push")
   public SciScorePushService.SciPushResult sciPush(@RequestParam @Pattern(regexp = ETH_ADDRESS_RX) String user) {
@@ -193,18 +315,17 @@ public class BlockchainController {
       @RequestParam(required = false, defaultValue = "5000") int amount
   ) {
     String result = onchainBootstrap.seedCashToWallet(walletAddress, amount);
-    java.util.concurrent.CompletableFuture.runAsync(() -> {
-      try { sciPush.pushForWallet(walletAddress); } catch (Exception ex) { /* ignore */ }
-    });
+    outbox.enqueueSciPush(walletAddress);
     return Map.of("status", "ok", "message", result != null ? result : "done");
   }
 
   @GetMapping("/tx/history")
   public TxHistoryResponse txHistory(
       @RequestParam @Pattern(regexp = ETH_ADDRESS_RX) String user,
-      @RequestParam(required = false, defaultValue = "150") int limit
+      @RequestParam(required = false, defaultValue = "150") int limit,
+      @RequestParam(required = false) String cursor
   ) {
-    return readService.txHistory(user, limit);
+    return readService.txHistory(user, limit, cursor);
   }
 
   @PostMapping("/pool/quote-buy")
@@ -242,6 +363,15 @@ public class BlockchainController {
     return ResponseEntity.ok(body);
   }
 
+  /** Calendrier des échéances de l'avance active (Modèle A ; matérialisé à l'activation). */
+  @GetMapping("/advance/schedule")
+  public ResponseEntity<List<RepaymentInstallment>> getAdvanceSchedule(
+      @RequestParam @Pattern(regexp = ETH_ADDRESS_RX) String user) {
+    CreditReadService.ActiveAdvanceResult adv = creditRead.getActiveAdvanceForUser(user);
+    if (adv == null) return ResponseEntity.notFound().build();
+    return ResponseEntity.ok(repaymentCalendar.installments(adv.model(), adv.loan().loanId()));
+  }
+
   /**
    * Liste des demandes d'avance en attente (opérateur) — Modèle A et B (PGP).
    * Chaque entrée inclut le modèle pour l'activation.
@@ -317,10 +447,11 @@ public class BlockchainController {
     return new TxResponse("submitted", txHash, "Demande d'avance soumise. En attente d'activation par l'opérateur.");
   }
 
+  /** Asynchrone : si un approve préalable est nécessaire, la réponse part quand buyFor est soumis. */
   @PostMapping("/pool/buy")
-  public TxResponse buy(@Valid @RequestBody BuyRequest req) {
-    String txHash = poolWriteService.buyFor(req);
-    return new TxResponse("submitted", txHash, "LiquidityPool.buyFor submitted");
+  public CompletableFuture<TxResponse> buy(@Valid @RequestBody BuyRequest req) {
+    return poolWriteService.buyForAsync(req)
+        .thenApply(txHash -> new TxResponse("submitted", txHash, "LiquidityPool.buyFor submitted"));
   }
 
   @PostMapping("/pool/sell")
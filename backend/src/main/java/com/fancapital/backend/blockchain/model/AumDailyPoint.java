@@ -0,0 +1,80 @@
+package com.fancapital.backend.blockchain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Valorisation quotidienne d'un wallet (série AUM dense). Conservée sur la fenêtre de scoring AUM_90j ;
+ * au-delà, les points sont agrégés en {@link AumMonthlyRollup} puis supprimés.
+ * Clé primaire (walletAddress, day) : les lectures par plage de dates d'un wallet suivent l'index de la clé.
+ */
+@Entity
+@Table(name = "aum_daily_points")
+@IdClass(AumDailyPoint.Key.class)
+public class AumDailyPoint {
+
+  /** Wallet (minuscules) */
+  @Id
+  @Column(nullable = false, updatable = false, length = 42)
+  private String walletAddress;
+
+  @Id
+  @Column(name = "point_date", nullable = false, updatable = false) // DAY/MONTH are reserved words in H2
+  private LocalDate day;
+
+  /** Total valorisation TND (échelle 1e8) */
+  @Column(nullable = false)
+  private long value1e8;
+
+  public AumDailyPoint() {}
+
+  public AumDailyPoint(String walletAddress, LocalDate day, long value1e8) {
+    this.walletAddress = walletAddress;
+    this.day = day;
+    this.value1e8 = value1e8;
+  }
+
+  public String getWalletAddress() {
+    return walletAddress;
+  }
+
+  public LocalDate getDay() {
+    return day;
+  }
+
+  public long getValue1e8() {
+    return value1e8;
+  }
+
+  public void setValue1e8(long value1e8) {
+    this.value1e8 = value1e8;
+  }
+
+  public static class Key implements Serializable {
+    private String walletAddress;
+    private LocalDate day;
+
+    public Key() {}
+
+    public Key(String walletAddress, LocalDate day) {
+      this.walletAddress = walletAddress;
+      this.day = day;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key k && Objects.equals(walletAddress, k.walletAddress) && Objects.equals(day, k.day);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(walletAddress, day);
+    }
+  }
+}
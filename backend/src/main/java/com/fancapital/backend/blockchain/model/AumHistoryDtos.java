@@ -0,0 +1,21 @@
+package com.fancapital.backend.blockchain.model;
+
+import java.util.List;
+
+public class AumHistoryDtos {
+  public record AumHistoryResponse(
+      String user,
+      String from,          // yyyy-MM-dd
+      String to,            // yyyy-MM-dd
+      List<AumPoint> points // chronological: monthly rollups, then daily points
+  ) {}
+
+  public record AumPoint(
+      String date,          // day (DAY) or first day of the month (MONTH)
+      String resolution,    // DAY | MONTH
+      long value1e8,        // DAY: valuation; MONTH: average
+      long min1e8,
+      long max1e8,
+      int samples           // daily points behind the value
+  ) {}
+}
@@ -0,0 +1,114 @@
+package com.fancapital.backend.blockchain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Agrégat mensuel min/moyenne/max de la valorisation d'un wallet, pour l'historique au-delà de la fenêtre
+ * AUM_90j (points quotidiens sous-échantillonnés). Un mois à cheval sur la fenêtre est complété au fil des
+ * compactions.
+ */
+@Entity
+@Table(name = "aum_monthly_rollups")
+@IdClass(AumMonthlyRollup.Key.class)
+public class AumMonthlyRollup {
+
+  /** Wallet (minuscules) */
+  @Id
+  @Column(nullable = false, updatable = false, length = 42)
+  private String walletAddress;
+
+  /** Premier jour du mois */
+  @Id
+  @Column(name = "month_start", nullable = false, updatable = false) // DAY/MONTH are reserved words in H2
+  private LocalDate month;
+
+  /** Valeurs TND (échelle 1e8) */
+  @Column(nullable = false)
+  private long min1e8;
+
+  @Column(nullable = false)
+  private long avg1e8;
+
+  @Column(nullable = false)
+  private long max1e8;
+
+  /** Nombre de points quotidiens agrégés */
+  @Column(nullable = false)
+  private int pointCount;
+
+  public AumMonthlyRollup() {}
+
+  public AumMonthlyRollup(String walletAddress, LocalDate month) {
+    this.walletAddress = walletAddress;
+    this.month = month;
+  }
+
+  /** Ajoute un point quotidien (moyenne recalculée sur le nombre de points). */
+  public void add(long value1e8) {
+    if (pointCount == 0) {
+      min1e8 = value1e8;
+      max1e8 = value1e8;
+      avg1e8 = value1e8;
+    } else {
+      min1e8 = Math.min(min1e8, value1e8);
+      max1e8 = Math.max(max1e8, value1e8);
+      avg1e8 = BigInteger.valueOf(avg1e8).multiply(BigInteger.valueOf(pointCount)).add(BigInteger.valueOf(value1e8))
+          .divide(BigInteger.valueOf(pointCount + 1L)).longValue();
+    }
+    pointCount++;
+  }
+
+  public String getWalletAddress() {
+    return walletAddress;
+  }
+
+  public LocalDate getMonth() {
+    return month;
+  }
+
+  public long getMin1e8() {
+    return min1e8;
+  }
+
+  public long getAvg1e8() {
+    return avg1e8;
+  }
+
+  public long getMax1e8() {
+    return max1e8;
+  }
+
+  public int getPointCount() {
+    return pointCount;
+  }
+
+  public static class Key implements Serializable {
+    private String walletAddress;
+    private LocalDate month;
+
+    public Key() {}
+
+    public Key(String walletAddress, LocalDate month) {
+      this.walletAddress = walletAddress;
+      this.month = month;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key k && Objects.equals(walletAddress, k.walletAddress) && Objects.equals(month, k.month);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(walletAddress, month);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.fancapital.backend.blockchain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Agrégat glissant AUM_90j par wallet : somme et nombre des snapshots de la fenêtre.
+ * Mis à jour à chaque snapshot écrit (ajout du jour, retrait des jours sortis de la fenêtre), la moyenne
+ * 90 jours est lue sans parcourir les snapshots.
+ */
+@Entity
+@Table(name = "aum_rolling_windows")
+public class AumRollingWindow {
+
+  /** Wallet (minuscules) */
+  @Id
+  @Column(nullable = false, updatable = false, length = 42)
+  private String walletAddress;
+
+  /** Somme des totalValueTnd1e8 des snapshots de la fenêtre */
+  @Column(nullable = false, length = 48)
+  private String sumTnd1e8 = "0";
+
+  @Column(nullable = false)
+  private int snapshotCount;
+
+  /** Plus ancien snapshot encore compté (null si fenêtre vide) */
+  private LocalDate oldestDate;
+
+  @Column(nullable = false)
+  private Instant updatedAt = Instant.now();
+
+  public AumRollingWindow() {}
+
+  public AumRollingWindow(String walletAddress) {
+    this.walletAddress = walletAddress;
+  }
+
+  public String getWalletAddress() {
+    return walletAddress;
+  }
+
+  public String getSumTnd1e8() {
+    return sumTnd1e8;
+  }
+
+  public void setSumTnd1e8(String sumTnd1e8) {
+    this.sumTnd1e8 = sumTnd1e8;
+  }
+
+  public int getSnapshotCount() {
+    return snapshotCount;
+  }
+
+  public void setSnapshotCount(int snapshotCount) {
+    this.snapshotCount = snapshotCount;
+  }
+
+  public LocalDate getOldestDate() {
+    return oldestDate;
+  }
+
+  public void setOldestDate(LocalDate oldestDate) {
+    this.oldestDate = oldestDate;
+  }
+
+  public Instant getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(Instant updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+}
@@ -7,8 +7,9 @@ import jakarta.persistence.Table;
 import java.time.LocalDate;
 
 /**
- * Snapshot quotidien de l'AUM (Actifs sous gestion) par wallet.
- * Utilisé pour le calcul AUM_90j dans la formule SCI (Spécifications Financières v4.7).
+ * Snapshot quotidien de l'AUM (Actifs sous gestion) par wallet, ancien format (id et montant texte).
+ * Remplacé par {@link AumDailyPoint} / {@link AumMonthlyRollup} : les lignes restantes sont reprises puis
+ * supprimées au démarrage ({@code AumSnapshotJob}).
  */
 @Entity
 @Table(name = "aum_snapshots")
@@ -0,0 +1,83 @@
+package com.fancapital.backend.blockchain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Point de reprise du snapshot AUM quotidien : tous les utilisateurs d'id ≤ lastUserId ont leur snapshot du
+ * jour. Un passage interrompu reprend après lastUserId ; un passage terminé n'est pas relancé le même jour.
+ */
+@Entity
+@Table(name = "aum_snapshot_runs")
+public class AumSnapshotRun {
+
+  @Id
+  @Column(nullable = false, updatable = false)
+  private LocalDate snapshotDate;
+
+  /** Dernier id utilisateur (ordre croissant) dont la page et toutes les précédentes sont écrites. */
+  @Column(length = 36)
+  private String lastUserId;
+
+  @Column(nullable = false)
+  private long walletsDone;
+
+  @Column(nullable = false)
+  private boolean completed;
+
+  @Column(nullable = false)
+  private Instant startedAt = Instant.now();
+
+  @Column(nullable = false)
+  private Instant updatedAt = Instant.now();
+
+  public AumSnapshotRun() {}
+
+  public AumSnapshotRun(LocalDate snapshotDate) {
+    this.snapshotDate = snapshotDate;
+  }
+
+  public LocalDate getSnapshotDate() {
+    return snapshotDate;
+  }
+
+  public String getLastUserId() {
+    return lastUserId;
+  }
+
+  public void setLastUserId(String lastUserId) {
+    this.lastUserId = lastUserId;
+  }
+
+  public long getWalletsDone() {
+    return walletsDone;
+  }
+
+  public void setWalletsDone(long walletsDone) {
+    this.walletsDone = walletsDone;
+  }
+
+  public boolean isCompleted() {
+    return completed;
+  }
+
+  public void setCompleted(boolean completed) {
+    this.completed = completed;
+  }
+
+  public Instant getStartedAt() {
+    return startedAt;
+  }
+
+  public Instant getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(Instant updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+}
@@ -0,0 +1,80 @@
+package com.fancapital.backend.blockchain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+
+/**
+ * En-tête de bloc récent (fenêtre non confirmée) utilisé pour détecter les réorganisations :
+ * un bloc dont le parentHash ne correspond plus au hash mémorisé signale un fork.
+ */
+@Entity
+@Table(name = "chain_block_headers")
+public class ChainBlockHeader {
+  @Id
+  @Column(nullable = false, updatable = false)
+  private Long blockNumber;
+
+  @Column(nullable = false, length = 66)
+  private String blockHash;
+
+  @Column(nullable = false, length = 66)
+  private String parentHash;
+
+  @Column(nullable = false)
+  private long timestampSec;
+
+  @Column(nullable = false)
+  private Instant seenAt = Instant.now();
+
+  public ChainBlockHeader() {}
+
+  public ChainBlockHeader(long blockNumber, String blockHash, String parentHash, long timestampSec) {
+    this.blockNumber = blockNumber;
+    this.blockHash = blockHash;
+    this.parentHash = parentHash;
+    this.timestampSec = timestampSec;
+  }
+
+  public Long getBlockNumber() {
+    return blockNumber;
+  }
+
+  public void setBlockNumber(Long blockNumber) {
+    this.blockNumber = blockNumber;
+  }
+
+  public String getBlockHash() {
+    return blockHash;
+  }
+
+  public void setBlockHash(String blockHash) {
+    this.blockHash = blockHash;
+  }
+
+  public String getParentHash() {
+    return parentHash;
+  }
+
+  public void setParentHash(String parentHash) {
+    this.parentHash = parentHash;
+  }
+
+  public long getTimestampSec() {
+    return timestampSec;
+  }
+
+  public void setTimestampSec(long timestampSec) {
+    this.timestampSec = timestampSec;
+  }
+
+  public Instant getSeenAt() {
+    return seenAt;
+  }
+
+  public void setSeenAt(Instant seenAt) {
+    this.seenAt = seenAt;
+  }
+}
@@ -0,0 +1,47 @@
+package com.fancapital.backend.blockchain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Index persistant numéro de bloc → horodatage (secondes). Une ligne par bloc connu, alimentée à la
+ * demande et par backfill ; les timestamps étant monotones, l'index sert aussi la recherche « bloc à une date ».
+ */
+@Entity
+@Table(name = "chain_block_times", indexes = {
+    @Index(name = "idx_chain_block_times_ts", columnList = "timestampSec")
+})
+public class ChainBlockTime {
+  @Id
+  @Column(nullable = false, updatable = false)
+  private Long blockNumber;
+
+  @Column(nullable = false)
+  private long timestampSec;
+
+  public ChainBlockTime() {}
+
+  public ChainBlockTime(long blockNumber, long timestampSec) {
+    this.blockNumber = blockNumber;
+    this.timestampSec = timestampSec;
+  }
+
+  public Long getBlockNumber() {
+    return blockNumber;
+  }
+
+  public void setBlockNumber(Long blockNumber) {
+    this.blockNumber = blockNumber;
+  }
+
+  public long getTimestampSec() {
+    return timestampSec;
+  }
+
+  public void setTimestampSec(long timestampSec) {
+    this.timestampSec = timestampSec;
+  }
+}
@@ -0,0 +1,55 @@
+package com.fancapital.backend.blockchain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Curseur de progression d'un indexeur d'événements on-chain (dernier bloc traité).
+ */
+@Entity
+@Table(name = "chain_indexer_state")
+public class ChainIndexerState {
+  @Id
+  @Column(nullable = false, updatable = false, length = 60)
+  private String name;
+
+  /** Dernier bloc entièrement indexé ; -1 si rien n'a encore été indexé. */
+  @Column(nullable = false)
+  private long lastIndexedBlock = -1L;
+
+  @Column(nullable = false)
+  private Instant updatedAt = Instant.now();
+
+  public ChainIndexerState() {}
+
+  public ChainIndexerState(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public long getLastIndexedBlock() {
+    return lastIndexedBlock;
+  }
+
+  public void setLastIndexedBlock(long lastIndexedBlock) {
+    this.lastIndexedBlock = lastIndexedBlock;
+  }
+
+  public Instant getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(Instant updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+}
@@ -0,0 +1,181 @@
+package com.fancapital.backend.blockchain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Événement on-chain indexé localement (Bought / Sold / dépôt / retrait) pour l'historique utilisateur.
+ * Alimenté en tâche de fond par {@code TxEventIndexerService} ; /tx/history lit uniquement cette table.
+ */
+@Entity
+@Table(
+    name = "chain_tx_events",
+    indexes = @Index(name = "idx_chain_tx_events_wallet_pos", columnList = "walletAddress,blockNumber,logIndex")
+)
+public class ChainTxEvent {
+
+  /** Clé : txHash:logIndex */
+  @Id
+  @Column(nullable = false, updatable = false, length = 80)
+  private String id;
+
+  /** Wallet concerné (minuscules) : user pour BUY/SELL, destinataire du mint / émetteur du burn pour le cash. */
+  @Column(nullable = false, length = 42)
+  private String walletAddress;
+
+  /** BUY | SELL | DEPOSIT | WITHDRAW */
+  @Column(nullable = false, length = 16)
+  private String kind;
+
+  @Column(nullable = false)
+  private int fundId = -1;
+
+  @Column(length = 120)
+  private String fundName;
+
+  @Column(length = 40)
+  private String fundSymbol;
+
+  @Column(nullable = false, length = 42)
+  private String tokenAddress;
+
+  @Column(nullable = false, length = 80)
+  private String amountTnd1e8 = "0";
+
+  @Column(nullable = false, length = 80)
+  private String amountToken1e8 = "0";
+
+  @Column(nullable = false, length = 80)
+  private String priceClient1e8 = "0";
+
+  @Column(nullable = false)
+  private long blockNumber;
+
+  @Column(nullable = false)
+  private long logIndex;
+
+  @Column(nullable = false)
+  private long timestampSec;
+
+  @Column(nullable = false, length = 66)
+  private String txHash;
+
+  public static String buildId(String txHash, long logIndex) {
+    return (txHash != null ? txHash.toLowerCase() : "") + ":" + logIndex;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getWalletAddress() {
+    return walletAddress;
+  }
+
+  public void setWalletAddress(String walletAddress) {
+    this.walletAddress = walletAddress;
+  }
+
+  public String getKind() {
+    return kind;
+  }
+
+  public void setKind(String kind) {
+    this.kind = kind;
+  }
+
+  public int getFundId() {
+    return fundId;
+  }
+
+  public void setFundId(int fundId) {
+    this.fundId = fundId;
+  }
+
+  public String getFundName() {
+    return fundName;
+  }
+
+  public void setFundName(String fundName) {
+    this.fundName = fundName;
+  }
+
+  public String getFundSymbol() {
+    return fundSymbol;
+  }
+
+  public void setFundSymbol(String fundSymbol) {
+    this.fundSymbol = fundSymbol;
+  }
+
+  public String getTokenAddress() {
+    return tokenAddress;
+  }
+
+  public void setTokenAddress(String tokenAddress) {
+    this.tokenAddress = tokenAddress;
+  }
+
+  public String getAmountTnd1e8() {
+    return amountTnd1e8;
+  }
+
+  public void setAmountTnd1e8(String amountTnd1e8) {
+    this.amountTnd1e8 = amountTnd1e8;
+  }
+
+  public String getAmountToken1e8() {
+    return amountToken1e8;
+  }
+
+  public void setAmountToken1e8(String amountToken1e8) {
+    this.amountToken1e8 = amountToken1e8;
+  }
+
+  public String getPriceClient1e8() {
+    return priceClient1e8;
+  }
+
+  public void setPriceClient1e8(String priceClient1e8) {
+    this.priceClient1e8 = priceClient1e8;
+  }
+
+  public long getBlockNumber() {
+    return blockNumber;
+  }
+
+  public void setBlockNumber(long blockNumber) {
+    this.blockNumber = blockNumber;
+  }
+
+  public long getLogIndex() {
+    return logIndex;
+  }
+
+  public void setLogIndex(long logIndex) {
+    this.logIndex = logIndex;
+  }
+
+  public long getTimestampSec() {
+    return timestampSec;
+  }
+
+  public void setTimestampSec(long timestampSec) {
+    this.timestampSec = timestampSec;
+  }
+
+  public String getTxHash() {
+    return txHash;
+  }
+
+  public void setTxHash(String txHash) {
+    this.txHash = txHash;
+  }
+}
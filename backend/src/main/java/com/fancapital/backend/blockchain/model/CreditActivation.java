@@ -0,0 +1,173 @@
+package com.fancapital.backend.blockchain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Clé d'idempotence de l'activation d'une avance (lock collatéral puis crédit du Credit Wallet).
+ * Chaque étape est enregistrée avant l'envoi suivant : une activation reprise ne renvoie jamais un mint déjà
+ * accepté par le nœud. Un mint dont l'issue est inconnue (erreur RPC, arrêt du process pendant l'envoi) passe
+ * en REVIEW et n'est plus retenté automatiquement.
+ */
+@Entity
+@Table(
+    name = "credit_activations",
+    indexes = @Index(name = "idx_credit_activations_status", columnList = "status,nextAttemptAt")
+)
+public class CreditActivation {
+
+  /**
+   * PENDING : réclamée, activateAdvance non accepté (nouvelle tentative possible) ; LOCKED : activateAdvance
+   * accepté, mint à envoyer ; MINTING : mint en cours d'envoi ; CREDITED : terminée ; REVIEW : mint incertain,
+   * à rapprocher par l'opérateur.
+   */
+  public enum Status { PENDING, LOCKED, MINTING, CREDITED, REVIEW }
+
+  /** Clé : model:loanId (ex. A:12, même clé que credit_loans) */
+  @Id
+  @Column(nullable = false, updatable = false, length = 40)
+  private String id;
+
+  /** A (AST) | B (PGP) */
+  @Column(nullable = false, updatable = false, length = 1)
+  private String model;
+
+  @Column(nullable = false, updatable = false)
+  private long loanId;
+
+  /** Emprunteur (minuscules) */
+  @Column(nullable = false, length = 42)
+  private String userAddress;
+
+  /** Montant crédité (TND, échelle 1e8) */
+  @Column(nullable = false, length = 40)
+  private String principalTnd1e8;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 10)
+  private Status status = Status.PENDING;
+
+  @Column(length = 66)
+  private String activateTxHash;
+
+  @Column(length = 66)
+  private String mintTxHash;
+
+  @Column(nullable = false)
+  private int attempts;
+
+  /** Prochaine reprise automatique (PENDING / LOCKED en échec) */
+  @Column(nullable = false)
+  private Instant nextAttemptAt = Instant.now();
+
+  @Column(length = 500)
+  private String lastError;
+
+  @Column(nullable = false)
+  private Instant createdAt = Instant.now();
+
+  @Column(nullable = false)
+  private Instant updatedAt = Instant.now();
+
+  public CreditActivation() {}
+
+  public CreditActivation(String model, long loanId) {
+    this.id = CreditLoan.buildId(model, loanId);
+    this.model = model;
+    this.loanId = loanId;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getModel() {
+    return model;
+  }
+
+  public long getLoanId() {
+    return loanId;
+  }
+
+  public String getUserAddress() {
+    return userAddress;
+  }
+
+  public void setUserAddress(String userAddress) {
+    this.userAddress = userAddress;
+  }
+
+  public String getPrincipalTnd1e8() {
+    return principalTnd1e8;
+  }
+
+  public void setPrincipalTnd1e8(String principalTnd1e8) {
+    this.principalTnd1e8 = principalTnd1e8;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public void setStatus(Status status) {
+    this.status = status;
+  }
+
+  public String getActivateTxHash() {
+    return activateTxHash;
+  }
+
+  public void setActivateTxHash(String activateTxHash) {
+    this.activateTxHash = activateTxHash;
+  }
+
+  public String getMintTxHash() {
+    return mintTxHash;
+  }
+
+  public void setMintTxHash(String mintTxHash) {
+    this.mintTxHash = mintTxHash;
+  }
+
+  public int getAttempts() {
+    return attempts;
+  }
+
+  public void setAttempts(int attempts) {
+    this.attempts = attempts;
+  }
+
+  public Instant getNextAttemptAt() {
+    return nextAttemptAt;
+  }
+
+  public void setNextAttemptAt(Instant nextAttemptAt) {
+    this.nextAttemptAt = nextAttemptAt;
+  }
+
+  public String getLastError() {
+    return lastError;
+  }
+
+  public void setLastError(String lastError) {
+    this.lastError = lastError;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+
+  public Instant getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(Instant updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+}
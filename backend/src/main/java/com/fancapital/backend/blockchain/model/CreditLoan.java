@@ -0,0 +1,198 @@
+package com.fancapital.backend.blockchain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Avance (CreditModelA / CreditModelBPGP) indexée localement à partir des événements de prêt.
+ * Alimentée par {@code LoanIndexService} ; l'avance active d'un wallet est lue ici au lieu de parcourir
+ * tous les loanId on-chain.
+ */
+@Entity
+@Table(
+    name = "credit_loans",
+    indexes = {
+        @Index(name = "idx_credit_loans_user_status", columnList = "userAddress,status"),
+        @Index(name = "idx_credit_loans_contract_status", columnList = "contractAddress,status")
+    }
+)
+public class CreditLoan {
+
+  /** Clé : model:loanId (ex. A:12) */
+  @Id
+  @Column(nullable = false, updatable = false, length = 40)
+  private String id;
+
+  /** A (AST) | B (PGP) */
+  @Column(nullable = false, length = 1)
+  private String model;
+
+  /** Contrat émetteur (minuscules) : les lignes d'un ancien déploiement sont ignorées. */
+  @Column(nullable = false, length = 42)
+  private String contractAddress;
+
+  @Column(nullable = false)
+  private long loanId;
+
+  /** Emprunteur (minuscules) */
+  @Column(nullable = false, length = 42)
+  private String userAddress;
+
+  @Column(nullable = false, length = 42)
+  private String tokenAddress;
+
+  @Column(nullable = false, length = 80)
+  private String collateralAmount = "0";
+
+  @Column(nullable = false, length = 80)
+  private String vniAtStart = "0";
+
+  /** Principal restant dû (TND, échelle 1e8) */
+  @Column(nullable = false, length = 80)
+  private String principalTnd = "0";
+
+  @Column(nullable = false)
+  private long startAt;
+
+  @Column(nullable = false)
+  private long durationDays;
+
+  /** 0 Requested | 1 Active | 2 Closed | 3 Cancelled */
+  @Column(nullable = false)
+  private int status;
+
+  /** Bloc de LoanRequested (ligne supprimée si ce bloc est annulé par une reorg). */
+  @Column(nullable = false)
+  private long requestedBlock;
+
+  /** Dernier bloc ayant modifié le prêt (état relu à l'ancêtre commun en cas de reorg). */
+  @Column(nullable = false)
+  private long updatedBlock;
+
+  @Column(nullable = false)
+  private Instant updatedAt = Instant.now();
+
+  public CreditLoan() {}
+
+  public CreditLoan(String model, long loanId) {
+    this.id = buildId(model, loanId);
+    this.model = model;
+    this.loanId = loanId;
+  }
+
+  public static String buildId(String model, long loanId) {
+    return model + ":" + loanId;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getModel() {
+    return model;
+  }
+
+  public String getContractAddress() {
+    return contractAddress;
+  }
+
+  public void setContractAddress(String contractAddress) {
+    this.contractAddress = contractAddress;
+  }
+
+  public long getLoanId() {
+    return loanId;
+  }
+
+  public String getUserAddress() {
+    return userAddress;
+  }
+
+  public void setUserAddress(String userAddress) {
+    this.userAddress = userAddress;
+  }
+
+  public String getTokenAddress() {
+    return tokenAddress;
+  }
+
+  public void setTokenAddress(String tokenAddress) {
+    this.tokenAddress = tokenAddress;
+  }
+
+  public String getCollateralAmount() {
+    return collateralAmount;
+  }
+
+  public void setCollateralAmount(String collateralAmount) {
+    this.collateralAmount = collateralAmount;
+  }
+
+  public String getVniAtStart() {
+    return vniAtStart;
+  }
+
+  public void setVniAtStart(String vniAtStart) {
+    this.vniAtStart = vniAtStart;
+  }
+
+  public String getPrincipalTnd() {
+    return principalTnd;
+  }
+
+  public void setPrincipalTnd(String principalTnd) {
+    this.principalTnd = principalTnd;
+  }
+
+  public long getStartAt() {
+    return startAt;
+  }
+
+  public void setStartAt(long startAt) {
+    this.startAt = startAt;
+  }
+
+  public long getDurationDays() {
+    return durationDays;
+  }
+
+  public void setDurationDays(long durationDays) {
+    this.durationDays = durationDays;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public void setStatus(int status) {
+    this.status = status;
+  }
+
+  public long getRequestedBlock() {
+    return requestedBlock;
+  }
+
+  public void setRequestedBlock(long requestedBlock) {
+    this.requestedBlock = requestedBlock;
+  }
+
+  public long getUpdatedBlock() {
+    return updatedBlock;
+  }
+
+  public void setUpdatedBlock(long updatedBlock) {
+    this.updatedBlock = updatedBlock;
+  }
+
+  public Instant getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(Instant updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+}
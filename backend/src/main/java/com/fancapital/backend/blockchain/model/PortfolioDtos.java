@@ -30,5 +30,18 @@ public class PortfolioDtos {
       String totalValueTnd,      // TND (1e8)
       String totalUnrealizedGainTnd // TND (1e8)
   ) {}
-}
 
+  /**
+   * Mise à jour poussée sur /portfolio/stream : seules les positions modifiées depuis le dernier envoi,
+   * plus les agrégats recalculés.
+   */
+  public record PortfolioUpdate(
+      String user,
+      long blockNumber,
+      List<PortfolioPosition> changedPositions,
+      String cashBalanceTnd,
+      String creditDebtTnd,
+      String totalValueTnd,
+      String totalUnrealizedGainTnd
+  ) {}
+}
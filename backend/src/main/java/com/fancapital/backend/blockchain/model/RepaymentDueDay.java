@@ -0,0 +1,91 @@
+package com.fancapital.backend.blockchain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Agrégat quotidien du calendrier de remboursement : montant des échéances du jour, montant prélevé et
+ * échéances encore ouvertes. Tenu à jour par incréments (requêtes UPDATE, dans la transaction qui modifie les
+ * échéances) à chaque matérialisation / prélèvement / annulation ({@code RepaymentCalendarService}).
+ */
+@Entity
+@Table(name = "repayment_due_days")
+public class RepaymentDueDay {
+
+  @Id
+  @Column(name = "due_date", nullable = false, updatable = false) // DAY is a reserved word in H2
+  private LocalDate dueDate;
+
+  /** Montant des échéances non annulées du jour (TND, échelle 1e8) */
+  @Column(nullable = false)
+  private long dueTnd1e8;
+
+  /** Montant prélevé sur ces échéances (TND, échelle 1e8) */
+  @Column(nullable = false)
+  private long collectedTnd1e8;
+
+  /** Échéances non annulées du jour */
+  @Column(nullable = false)
+  private int itemCount;
+
+  /** Échéances du jour non soldées (DUE, en cours, FAILED ou REVIEW) */
+  @Column(nullable = false)
+  private int openCount;
+
+  @Column(nullable = false)
+  private Instant updatedAt = Instant.now();
+
+  public RepaymentDueDay() {}
+
+  public RepaymentDueDay(LocalDate dueDate) {
+    this.dueDate = dueDate;
+  }
+
+  public LocalDate getDueDate() {
+    return dueDate;
+  }
+
+  public long getDueTnd1e8() {
+    return dueTnd1e8;
+  }
+
+  public void setDueTnd1e8(long dueTnd1e8) {
+    this.dueTnd1e8 = dueTnd1e8;
+  }
+
+  public long getCollectedTnd1e8() {
+    return collectedTnd1e8;
+  }
+
+  public void setCollectedTnd1e8(long collectedTnd1e8) {
+    this.collectedTnd1e8 = collectedTnd1e8;
+  }
+
+  public int getItemCount() {
+    return itemCount;
+  }
+
+  public void setItemCount(int itemCount) {
+    this.itemCount = itemCount;
+  }
+
+  public int getOpenCount() {
+    return openCount;
+  }
+
+  public void setOpenCount(int openCount) {
+    this.openCount = openCount;
+  }
+
+  public Instant getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(Instant updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+}
@@ -0,0 +1,241 @@
+package com.fancapital.backend.blockchain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Échéance du calendrier de remboursement d'une avance (Mod AST 2.2), matérialisée à l'activation :
+ * une échéance par période de 30 jours, la dernière à maturité. File des échéances dues lue par
+ * (status, nextAttemptAt) ; chaque tentative de prélèvement passe par {@code AdvanceRepaymentService}.
+ * L'étape du prélèvement est enregistrée avant et après le burn : seul un échec antérieur au burn est repris
+ * automatiquement, les autres passent en REVIEW (jamais de second burn pour une même échéance).
+ */
+@Entity
+@Table(
+    name = "repayment_installments",
+    indexes = {
+        @Index(name = "idx_repayment_installments_due", columnList = "status,nextAttemptAt"),
+        @Index(name = "idx_repayment_installments_loan", columnList = "loanKey")
+    }
+)
+public class RepaymentInstallment {
+
+  /**
+   * DUE : à prélever ; BURNING : burn en cours d'envoi ; BURNED : burn accepté, remboursement à enregistrer ;
+   * COLLECTED : remboursement enregistré on-chain ; FAILED : tentatives épuisées avant burn (opérateur) ;
+   * REVIEW : échec ou interruption après le début du burn, à rapprocher par l'opérateur ; CANCELLED : avance clôturée.
+   */
+  public enum Status { DUE, BURNING, BURNED, COLLECTED, FAILED, REVIEW, CANCELLED }
+
+  /** Clé : model:loanId:seq (ex. A:12:3) */
+  @Id
+  @Column(nullable = false, updatable = false, length = 50)
+  private String id;
+
+  /** Avance : model:loanId (même clé que credit_loans) */
+  @Column(nullable = false, updatable = false, length = 40)
+  private String loanKey;
+
+  @Column(nullable = false, updatable = false)
+  private long loanId;
+
+  /** Emprunteur (minuscules) */
+  @Column(nullable = false, updatable = false, length = 42)
+  private String userAddress;
+
+  /** Rang de l'échéance (1..installmentCount) */
+  @Column(nullable = false, updatable = false)
+  private int seq;
+
+  @Column(nullable = false, updatable = false)
+  private int installmentCount;
+
+  @Column(nullable = false, updatable = false)
+  private Instant dueAt;
+
+  /** Jour d'échéance (agrégat {@link RepaymentDueDay}) */
+  @Column(name = "due_date", nullable = false, updatable = false)
+  private LocalDate dueDate;
+
+  /** Part de capital (TND, échelle 1e8) */
+  @Column(nullable = false, length = 40)
+  private String principalTnd1e8;
+
+  /** Part d'intérêts fixes (TND, échelle 1e8) */
+  @Column(nullable = false, length = 40)
+  private String interestTnd1e8;
+
+  /** Montant de l'échéance = capital + intérêts (TND, échelle 1e8) */
+  @Column(nullable = false, length = 40)
+  private String amountTnd1e8;
+
+  /** Montant effectivement prélevé (plafonné au restant dû si l'avance a été remboursée par anticipation) */
+  @Column(nullable = false, length = 40)
+  private String collectedTnd1e8 = "0";
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 10)
+  private Status status = Status.DUE;
+
+  @Column(nullable = false)
+  private Instant nextAttemptAt;
+
+  @Column(nullable = false)
+  private int attempts;
+
+  /** Burn du Cash Wallet (accepté par le nœud) */
+  @Column(length = 66)
+  private String burnTxHash;
+
+  /** recordRepayment */
+  @Column(length = 66)
+  private String txHash;
+
+  @Column(length = 500)
+  private String lastError;
+
+  @Column(nullable = false)
+  private Instant updatedAt = Instant.now();
+
+  public RepaymentInstallment() {}
+
+  public RepaymentInstallment(String loanKey, long loanId, String userAddress, int seq, int installmentCount,
+      Instant dueAt, LocalDate dueDate) {
+    this.id = loanKey + ":" + seq;
+    this.loanKey = loanKey;
+    this.loanId = loanId;
+    this.userAddress = userAddress;
+    this.seq = seq;
+    this.installmentCount = installmentCount;
+    this.dueAt = dueAt;
+    this.dueDate = dueDate;
+    this.nextAttemptAt = dueAt;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getLoanKey() {
+    return loanKey;
+  }
+
+  public long getLoanId() {
+    return loanId;
+  }
+
+  public String getUserAddress() {
+    return userAddress;
+  }
+
+  public int getSeq() {
+    return seq;
+  }
+
+  public int getInstallmentCount() {
+    return installmentCount;
+  }
+
+  public Instant getDueAt() {
+    return dueAt;
+  }
+
+  public LocalDate getDueDate() {
+    return dueDate;
+  }
+
+  public String getPrincipalTnd1e8() {
+    return principalTnd1e8;
+  }
+
+  public void setPrincipalTnd1e8(String principalTnd1e8) {
+    this.principalTnd1e8 = principalTnd1e8;
+  }
+
+  public String getInterestTnd1e8() {
+    return interestTnd1e8;
+  }
+
+  public void setInterestTnd1e8(String interestTnd1e8) {
+    this.interestTnd1e8 = interestTnd1e8;
+  }
+
+  public String getAmountTnd1e8() {
+    return amountTnd1e8;
+  }
+
+  public void setAmountTnd1e8(String amountTnd1e8) {
+    this.amountTnd1e8 = amountTnd1e8;
+  }
+
+  public String getCollectedTnd1e8() {
+    return collectedTnd1e8;
+  }
+
+  public void setCollectedTnd1e8(String collectedTnd1e8) {
+    this.collectedTnd1e8 = collectedTnd1e8;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public void setStatus(Status status) {
+    this.status = status;
+  }
+
+  public Instant getNextAttemptAt() {
+    return nextAttemptAt;
+  }
+
+  public void setNextAttemptAt(Instant nextAttemptAt) {
+    this.nextAttemptAt = nextAttemptAt;
+  }
+
+  public int getAttempts() {
+    return attempts;
+  }
+
+  public void setAttempts(int attempts) {
+    this.attempts = attempts;
+  }
+
+  public String getBurnTxHash() {
+    return burnTxHash;
+  }
+
+  public void setBurnTxHash(String burnTxHash) {
+    this.burnTxHash = burnTxHash;
+  }
+
+  public String getTxHash() {
+    return txHash;
+  }
+
+  public void setTxHash(String txHash) {
+    this.txHash = txHash;
+  }
+
+  public String getLastError() {
+    return lastError;
+  }
+
+  public void setLastError(String lastError) {
+    this.lastError = lastError;
+  }
+
+  public Instant getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(Instant updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+}
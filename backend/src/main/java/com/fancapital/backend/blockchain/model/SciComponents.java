@@ -0,0 +1,125 @@
+package com.fancapital.backend.blockchain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Composantes SCI matérialisées par wallet (AUM_90j, niveau KYC, nombre de transactions, points de risque).
+ * Tenues à jour par {@code SciComponentService} à partir des événements indexés, des snapshots AUM, des
+ * changements KYC et des opérations d'avance ; le score est recalculé à partir de ces valeurs sans lecture externe.
+ */
+@Entity
+@Table(name = "sci_components")
+public class SciComponents {
+
+  /** Wallet (minuscules) */
+  @Id
+  @Column(nullable = false, updatable = false, length = 42)
+  private String walletAddress;
+
+  /** AUM moyen 90j (TND, échelle 1e8) ; portefeuille courant tant qu'aucun snapshot n'existe. */
+  @Column(nullable = false, length = 40)
+  private String aum1e8 = "0";
+
+  /** true = aum1e8 vient des snapshots quotidiens, false = proxy portefeuille courant. */
+  @Column(nullable = false)
+  private boolean aumFromSnapshots;
+
+  @Column(nullable = false)
+  private int kycLevel;
+
+  /** Événements indexés (achats, ventes, dépôts, retraits) du wallet. */
+  @Column(nullable = false)
+  private long txCount;
+
+  /** 100 sans avance ou LTV < 75 %, 50 en appel de marge, 0 au seuil de liquidation. */
+  @Column(nullable = false)
+  private double riskPoints = 100.0;
+
+  /** Dernier score / tier effectif calculés (-1 = jamais calculé), base des événements de changement de tier. */
+  @Column(nullable = false)
+  private int lastScore = -1;
+
+  @Column(nullable = false)
+  private int lastTier = -1;
+
+  @Column(nullable = false)
+  private Instant updatedAt = Instant.now();
+
+  public SciComponents() {}
+
+  public SciComponents(String walletAddress) {
+    this.walletAddress = walletAddress;
+  }
+
+  public String getWalletAddress() {
+    return walletAddress;
+  }
+
+  public String getAum1e8() {
+    return aum1e8;
+  }
+
+  public void setAum1e8(String aum1e8) {
+    this.aum1e8 = aum1e8;
+  }
+
+  public boolean isAumFromSnapshots() {
+    return aumFromSnapshots;
+  }
+
+  public void setAumFromSnapshots(boolean aumFromSnapshots) {
+    this.aumFromSnapshots = aumFromSnapshots;
+  }
+
+  public int getKycLevel() {
+    return kycLevel;
+  }
+
+  public void setKycLevel(int kycLevel) {
+    this.kycLevel = kycLevel;
+  }
+
+  public long getTxCount() {
+    return txCount;
+  }
+
+  public void setTxCount(long txCount) {
+    this.txCount = txCount;
+  }
+
+  public double getRiskPoints() {
+    return riskPoints;
+  }
+
+  public void setRiskPoints(double riskPoints) {
+    this.riskPoints = riskPoints;
+  }
+
+  public int getLastScore() {
+    return lastScore;
+  }
+
+  public void setLastScore(int lastScore) {
+    this.lastScore = lastScore;
+  }
+
+  public int getLastTier() {
+    return lastTier;
+  }
+
+  public void setLastTier(int lastTier) {
+    this.lastTier = lastTier;
+  }
+
+  public Instant getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(Instant updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+}
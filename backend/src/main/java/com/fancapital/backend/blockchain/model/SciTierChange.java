@@ -0,0 +1,101 @@
+package com.fancapital.backend.blockchain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Changement de tier SCI effectif d'un wallet (montée ou descente), journal append-only lu par
+ * {@code GET /api/blockchain/_sci/tier-changes}. Le curseur des lecteurs est {@code seq} (identité croissante
+ * attribuée à l'insertion), pas l'horodatage : deux changements du même instant ne sont ni sautés ni relus.
+ */
+@Entity
+@Table(name = "sci_tier_change_log")
+public class SciTierChange {
+
+  public enum Direction { UPGRADE, DOWNGRADE }
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long seq;
+
+  @Column(nullable = false, length = 42)
+  private String walletAddress;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 10)
+  private Direction direction;
+
+  @Column(nullable = false)
+  private int oldTier;
+
+  @Column(nullable = false)
+  private int newTier;
+
+  @Column(nullable = false)
+  private int oldScore;
+
+  @Column(nullable = false)
+  private int newScore;
+
+  /** NIGHTLY (recalcul global) | PUSH (après trade, KYC, abonnement) */
+  @Column(nullable = false, length = 16)
+  private String source;
+
+  @Column(nullable = false)
+  private Instant changedAt = Instant.now();
+
+  public SciTierChange() {}
+
+  public SciTierChange(String walletAddress, int oldTier, int newTier, int oldScore, int newScore, String source) {
+    this.walletAddress = walletAddress;
+    this.direction = newTier > oldTier ? Direction.UPGRADE : Direction.DOWNGRADE;
+    this.oldTier = oldTier;
+    this.newTier = newTier;
+    this.oldScore = oldScore;
+    this.newScore = newScore;
+    this.source = source;
+  }
+
+  public Long getSeq() {
+    return seq;
+  }
+
+  public String getWalletAddress() {
+    return walletAddress;
+  }
+
+  public Direction getDirection() {
+    return direction;
+  }
+
+  public int getOldTier() {
+    return oldTier;
+  }
+
+  public int getNewTier() {
+    return newTier;
+  }
+
+  public int getOldScore() {
+    return oldScore;
+  }
+
+  public int getNewScore() {
+    return newScore;
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  public Instant getChangedAt() {
+    return changedAt;
+  }
+}
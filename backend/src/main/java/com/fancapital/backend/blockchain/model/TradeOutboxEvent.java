@@ -0,0 +1,207 @@
+package com.fancapital.backend.blockchain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Effet de bord post-trade en attente (outbox) : écrit dans le chemin du trade avant l'envoi de la transaction
+ * (PENDING_TX), passé en PENDING avec le hash une fois la transaction acceptée, exécuté par
+ * {@code TradeOutboxJob}. Les lignes traitées sont supprimées ; celles en échec définitif restent en FAILED.
+ */
+@Entity
+@Table(
+    name = "trade_outbox",
+    indexes = {
+        @Index(name = "idx_trade_outbox_due", columnList = "status,nextAttemptAt"),
+        @Index(name = "idx_trade_outbox_batch", columnList = "batchId")
+    }
+)
+public class TradeOutboxEvent {
+
+  public enum Kind { BUSINESS_CONTEXT, NOTIFICATION, SCI_PUSH }
+  /**
+   * PENDING_TX : écrit avant l'envoi, en attente du hash (reste ainsi si l'issue de l'envoi est inconnue) ;
+   * PENDING : à exécuter ; FAILED : tentatives épuisées.
+   */
+  public enum Status { PENDING_TX, PENDING, FAILED }
+
+  @Id
+  @Column(nullable = false, updatable = false, length = 36)
+  private String id = UUID.randomUUID().toString();
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 20)
+  private Kind kind;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 10)
+  private Status status = Status.PENDING;
+
+  @Column(nullable = false)
+  private Instant createdAt = Instant.now();
+
+  @Column(nullable = false)
+  private Instant nextAttemptAt = Instant.now();
+
+  @Column(nullable = false)
+  private int attempts;
+
+  /** Lot d'effets d'une même transaction (rattachement du hash après l'envoi). */
+  @Column(length = 36)
+  private String batchId;
+
+  /** Wallet concerné (minuscules) : destinataire de la notification / du push SCI. */
+  @Column(length = 42)
+  private String walletAddress;
+
+  /** Hash de la transaction on-chain, rattaché après l'envoi (BUSINESS_CONTEXT : clé du mapping). */
+  @Column(length = 66)
+  private String txHash;
+
+  /** BUSINESS_CONTEXT : identifiant métier, fixé à l'écriture pour que les reprises soient idempotentes. */
+  @Column(length = 80)
+  private String businessContextId;
+
+  @Column(length = 42)
+  private String contractAddress;
+
+  /** BUSINESS_CONTEXT : BUY, SELL, P2P_SETTLE… */
+  @Column(length = 200)
+  private String operationType;
+
+  /** NOTIFICATION : titre ; BUSINESS_CONTEXT : non utilisé. */
+  @Column(length = 200)
+  private String title;
+
+  /** NOTIFICATION : message ; BUSINESS_CONTEXT : description. */
+  @Column(length = 500)
+  private String message;
+
+  @Column(length = 500)
+  private String lastError;
+
+  public TradeOutboxEvent() {}
+
+  public TradeOutboxEvent(Kind kind) {
+    this.kind = kind;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  public void setKind(Kind kind) {
+    this.kind = kind;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public void setStatus(Status status) {
+    this.status = status;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+
+  public Instant getNextAttemptAt() {
+    return nextAttemptAt;
+  }
+
+  public void setNextAttemptAt(Instant nextAttemptAt) {
+    this.nextAttemptAt = nextAttemptAt;
+  }
+
+  public int getAttempts() {
+    return attempts;
+  }
+
+  public void setAttempts(int attempts) {
+    this.attempts = attempts;
+  }
+
+  public String getBatchId() {
+    return batchId;
+  }
+
+  public void setBatchId(String batchId) {
+    this.batchId = batchId;
+  }
+
+  public String getWalletAddress() {
+    return walletAddress;
+  }
+
+  public void setWalletAddress(String walletAddress) {
+    this.walletAddress = walletAddress;
+  }
+
+  public String getTxHash() {
+    return txHash;
+  }
+
+  public void setTxHash(String txHash) {
+    this.txHash = txHash;
+  }
+
+  public String getBusinessContextId() {
+    return businessContextId;
+  }
+
+  public void setBusinessContextId(String businessContextId) {
+    this.businessContextId = businessContextId;
+  }
+
+  public String getContractAddress() {
+    return contractAddress;
+  }
+
+  public void setContractAddress(String contractAddress) {
+    this.contractAddress = contractAddress;
+  }
+
+  public String getOperationType() {
+    return operationType;
+  }
+
+  public void setOperationType(String operationType) {
+    this.operationType = operationType;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  public String getLastError() {
+    return lastError;
+  }
+
+  public void setLastError(String lastError) {
+    this.lastError = lastError;
+  }
+}
@@ -5,7 +5,9 @@ import java.util.List;
 public class TxHistoryDtos {
   public record TxHistoryResponse(
       String user,
-      List<TxRow> items
+      List<TxRow> items,
+      String nextCursor,   // "blockNumber:logIndex" of the last item, null when no more pages
+      long indexedToBlock  // last block covered by the local event index
   ) {}
 
   public record TxRow(
@@ -0,0 +1,293 @@
+package com.fancapital.backend.blockchain.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Cycle de vie d'une transaction signée par le backend (clé opérateur, clés HSM, wallets WaaS) :
+ * envoi → minée / revert / remplacée (gas bump) / abandonnée. Alimenté par {@code TxLifecycleService}.
+ */
+@Entity
+@Table(
+    name = "tx_lifecycle",
+    indexes = {
+        @Index(name = "idx_tx_lifecycle_status", columnList = "status,submittedAt"),
+        @Index(name = "idx_tx_lifecycle_sender_nonce", columnList = "fromAddress,nonce")
+    }
+)
+public class TxLifecycleRecord {
+
+  /**
+   * PENDING : acceptée par le nœud, pas encore minée ; MINED / REVERTED : reçu obtenu ;
+   * REPLACED : remplacée par une transaction aux frais relevés (même nonce) ;
+   * DROPPED : nonce consommé par une autre transaction, aucun reçu pour celle-ci ;
+   * STUCK : abandonnée par le superviseur (bumps épuisés, aucune file de signature), à traiter par l'opérateur.
+   */
+  public enum Status { PENDING, MINED, REVERTED, REPLACED, DROPPED, STUCK }
+
+  @Id
+  @Column(nullable = false, updatable = false, length = 66)
+  private String txHash;
+
+  /** Signataire (minuscules). */
+  @Column(nullable = false, length = 42)
+  private String fromAddress;
+
+  @Column(nullable = false)
+  private long nonce;
+
+  @Column(length = 42)
+  private String toAddress;
+
+  /** Nom de la fonction appelée ou sélecteur (0x12345678), "transfer" pour un envoi d'ETH. */
+  @Column(nullable = false, length = 80)
+  private String purpose;
+
+  @Column(nullable = false, length = 10)
+  private String urgency;
+
+  @Lob
+  @Column(name = "call_data")
+  private String data;
+
+  @Column(nullable = false, length = 80)
+  private String valueWei = "0";
+
+  @Column(nullable = false)
+  private long gasLimit;
+
+  @Column(nullable = false)
+  private boolean eip1559;
+
+  @Column(length = 80)
+  private String maxPriorityFeePerGas;
+
+  @Column(length = 80)
+  private String maxFeePerGas;
+
+  @Column(length = 80)
+  private String gasPrice;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 10)
+  private Status status = Status.PENDING;
+
+  /** Nombre de remplacements déjà effectués pour ce nonce (0 = transaction d'origine). */
+  @Column(nullable = false)
+  private int bumps;
+
+  @Column(length = 66)
+  private String replacesTxHash;
+
+  @Column(length = 66)
+  private String replacedByTxHash;
+
+  @Column(nullable = false)
+  private Instant submittedAt = Instant.now();
+
+  @Column(nullable = false)
+  private Instant updatedAt = Instant.now();
+
+  private Long blockNumber;
+
+  private Long gasUsed;
+
+  @Column(length = 80)
+  private String effectiveGasPrice;
+
+  @Column(length = 500)
+  private String lastError;
+
+  public TxLifecycleRecord() {}
+
+  public String getTxHash() {
+    return txHash;
+  }
+
+  public void setTxHash(String txHash) {
+    this.txHash = txHash;
+  }
+
+  public String getFromAddress() {
+    return fromAddress;
+  }
+
+  public void setFromAddress(String fromAddress) {
+    this.fromAddress = fromAddress;
+  }
+
+  public long getNonce() {
+    return nonce;
+  }
+
+  public void setNonce(long nonce) {
+    this.nonce = nonce;
+  }
+
+  public String getToAddress() {
+    return toAddress;
+  }
+
+  public void setToAddress(String toAddress) {
+    this.toAddress = toAddress;
+  }
+
+  public String getPurpose() {
+    return purpose;
+  }
+
+  public void setPurpose(String purpose) {
+    this.purpose = purpose;
+  }
+
+  public String getUrgency() {
+    return urgency;
+  }
+
+  public void setUrgency(String urgency) {
+    this.urgency = urgency;
+  }
+
+  public String getData() {
+    return data;
+  }
+
+  public void setData(String data) {
+    this.data = data;
+  }
+
+  public String getValueWei() {
+    return valueWei;
+  }
+
+  public void setValueWei(String valueWei) {
+    this.valueWei = valueWei;
+  }
+
+  public long getGasLimit() {
+    return gasLimit;
+  }
+
+  public void setGasLimit(long gasLimit) {
+    this.gasLimit = gasLimit;
+  }
+
+  public boolean isEip1559() {
+    return eip1559;
+  }
+
+  public void setEip1559(boolean eip1559) {
+    this.eip1559 = eip1559;
+  }
+
+  public String getMaxPriorityFeePerGas() {
+    return maxPriorityFeePerGas;
+  }
+
+  public void setMaxPriorityFeePerGas(String maxPriorityFeePerGas) {
+    this.maxPriorityFeePerGas = maxPriorityFeePerGas;
+  }
+
+  public String getMaxFeePerGas() {
+    return maxFeePerGas;
+  }
+
+  public void setMaxFeePerGas(String maxFeePerGas) {
+    this.maxFeePerGas = maxFeePerGas;
+  }
+
+  public String getGasPrice() {
+    return gasPrice;
+  }
+
+  public void setGasPrice(String gasPrice) {
+    this.gasPrice = gasPrice;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public void setStatus(Status status) {
+    this.status = status;
+  }
+
+  public int getBumps() {
+    return bumps;
+  }
+
+  public void setBumps(int bumps) {
+    this.bumps = bumps;
+  }
+
+  public String getReplacesTxHash() {
+    return replacesTxHash;
+  }
+
+  public void setReplacesTxHash(String replacesTxHash) {
+    this.replacesTxHash = replacesTxHash;
+  }
+
+  public String getReplacedByTxHash() {
+    return replacedByTxHash;
+  }
+
+  public void setReplacedByTxHash(String replacedByTxHash) {
+    this.replacedByTxHash = replacedByTxHash;
+  }
+
+  public Instant getSubmittedAt() {
+    return submittedAt;
+  }
+
+  public void setSubmittedAt(Instant submittedAt) {
+    this.submittedAt = submittedAt;
+  }
+
+  public Instant getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(Instant updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+
+  public Long getBlockNumber() {
+    return blockNumber;
+  }
+
+  public void setBlockNumber(Long blockNumber) {
+    this.blockNumber = blockNumber;
+  }
+
+  public Long getGasUsed() {
+    return gasUsed;
+  }
+
+  public void setGasUsed(Long gasUsed) {
+    this.gasUsed = gasUsed;
+  }
+
+  public String getEffectiveGasPrice() {
+    return effectiveGasPrice;
+  }
+
+  public void setEffectiveGasPrice(String effectiveGasPrice) {
+    this.effectiveGasPrice = effectiveGasPrice;
+  }
+
+  public String getLastError() {
+    return lastError;
+  }
+
+  public void setLastError(String lastError) {
+    this.lastError = lastError;
+  }
+}
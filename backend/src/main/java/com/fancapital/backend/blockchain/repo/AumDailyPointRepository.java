@@ -0,0 +1,32 @@
+package com.fancapital.backend.blockchain.repo;
+
+import com.fancapital.backend.blockchain.model.AumDailyPoint;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface AumDailyPointRepository extends JpaRepository<AumDailyPoint, AumDailyPoint.Key> {
+
+  /** Points d'un wallet (minuscules) sur [start, end], par date croissante. */
+  @Query("select p from AumDailyPoint p where p.walletAddress = ?1 and p.day between ?2 and ?3 order by p.day asc")
+  List<AumDailyPoint> findRange(String walletAddress, LocalDate start, LocalDate end);
+
+  /** Wallets ayant des points antérieurs à {@code before} (à compacter), par ordre d'adresse. */
+  @Query("select distinct p.walletAddress from AumDailyPoint p where p.day < ?1 order by p.walletAddress asc")
+  List<String> findWalletsWithPointsBefore(LocalDate before, Pageable pageable);
+
+  /** Points existants d'un lot de wallets sur [start, end] : lignes [walletAddress, day]. */
+  @Query("select p.walletAddress, p.day from AumDailyPoint p where p.walletAddress in ?1 and p.day between ?2 and ?3")
+  List<Object[]> findKeys(Collection<String> wallets, LocalDate start, LocalDate end);
+
+  @Query("select p from AumDailyPoint p where p.walletAddress in ?1 and p.day < ?2")
+  List<AumDailyPoint> findBefore(Collection<String> wallets, LocalDate before);
+
+  @Modifying
+  @Query("delete from AumDailyPoint p where p.walletAddress in ?1 and p.day < ?2")
+  int deleteBefore(Collection<String> wallets, LocalDate before);
+}
@@ -0,0 +1,19 @@
+package com.fancapital.backend.blockchain.repo;
+
+import com.fancapital.backend.blockchain.model.AumMonthlyRollup;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface AumMonthlyRollupRepository extends JpaRepository<AumMonthlyRollup, AumMonthlyRollup.Key> {
+
+  /** Mois d'un wallet (minuscules) dont le premier jour est dans [start, end], par date croissante. */
+  @Query("select r from AumMonthlyRollup r where r.walletAddress = ?1 and r.month between ?2 and ?3 order by r.month asc")
+  List<AumMonthlyRollup> findRange(String walletAddress, LocalDate start, LocalDate end);
+
+  /** Mois déjà compactés d'un lot de wallets sur [start, end] : lignes [walletAddress, month]. */
+  @Query("select r.walletAddress, r.month from AumMonthlyRollup r where r.walletAddress in ?1 and r.month between ?2 and ?3")
+  List<Object[]> findKeys(Collection<String> wallets, LocalDate start, LocalDate end);
+}
@@ -0,0 +1,7 @@
+package com.fancapital.backend.blockchain.repo;
+
+import com.fancapital.backend.blockchain.model.AumRollingWindow;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface AumRollingWindowRepository extends JpaRepository<AumRollingWindow, String> {
+}
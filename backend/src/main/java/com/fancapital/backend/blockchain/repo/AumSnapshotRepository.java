@@ -1,12 +1,8 @@
 package com.fancapital.backend.blockchain.repo;
 
 import com.fancapital.backend.blockchain.model.AumSnapshot;
-import java.time.LocalDate;
-import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+/** Ancienne table aum_snapshots, lue seulement pour la reprise dans aum_daily_points. */
 public interface AumSnapshotRepository extends JpaRepository<AumSnapshot, String> {
-
-  List<AumSnapshot> findByWalletAddressIgnoreCaseAndSnapshotDateBetween(
-      String walletAddress, LocalDate start, LocalDate end);
 }
@@ -0,0 +1,8 @@
+package com.fancapital.backend.blockchain.repo;
+
+import com.fancapital.backend.blockchain.model.AumSnapshotRun;
+import java.time.LocalDate;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface AumSnapshotRunRepository extends JpaRepository<AumSnapshotRun, LocalDate> {
+}
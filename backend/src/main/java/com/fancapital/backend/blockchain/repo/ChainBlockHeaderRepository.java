@@ -0,0 +1,24 @@
+package com.fancapital.backend.blockchain.repo;
+
+import com.fancapital.backend.blockchain.model.ChainBlockHeader;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ChainBlockHeaderRepository extends JpaRepository<ChainBlockHeader, Long> {
+  Optional<ChainBlockHeader> findTopByOrderByBlockNumberDesc();
+
+  Optional<ChainBlockHeader> findTopByOrderByBlockNumberAsc();
+
+  @Modifying
+  @Transactional
+  @Query("delete from ChainBlockHeader h where h.blockNumber > ?1")
+  int deleteAbove(long blockNumber);
+
+  @Modifying
+  @Transactional
+  @Query("delete from ChainBlockHeader h where h.blockNumber < ?1")
+  int deleteBelow(long blockNumber);
+}
@@ -0,0 +1,21 @@
+package com.fancapital.backend.blockchain.repo;
+
+import com.fancapital.backend.blockchain.model.ChainBlockTime;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ChainBlockTimeRepository extends JpaRepository<ChainBlockTime, Long> {
+  /** Borne basse connue : dernier bloc indexé dont l'horodatage est <= ts. */
+  Optional<ChainBlockTime> findTopByTimestampSecLessThanEqualOrderByBlockNumberDesc(long timestampSec);
+
+  /** Borne haute connue : premier bloc indexé dont l'horodatage est > ts. */
+  Optional<ChainBlockTime> findTopByTimestampSecGreaterThanOrderByBlockNumberAsc(long timestampSec);
+
+  @Modifying
+  @Transactional
+  @Query("delete from ChainBlockTime t where t.blockNumber > ?1")
+  int deleteAbove(long blockNumber);
+}
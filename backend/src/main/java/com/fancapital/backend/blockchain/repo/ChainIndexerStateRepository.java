@@ -0,0 +1,6 @@
+package com.fancapital.backend.blockchain.repo;
+
+import com.fancapital.backend.blockchain.model.ChainIndexerState;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ChainIndexerStateRepository extends JpaRepository<ChainIndexerState, String> {}
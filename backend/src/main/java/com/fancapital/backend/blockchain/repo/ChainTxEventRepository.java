@@ -0,0 +1,40 @@
+package com.fancapital.backend.blockchain.repo;
+
+import com.fancapital.backend.blockchain.model.ChainTxEvent;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ChainTxEventRepository extends JpaRepository<ChainTxEvent, String> {
+
+  /** Première page (plus récent d'abord), ordre (blockNumber, logIndex) décroissant. */
+  @Query("select e from ChainTxEvent e where e.walletAddress = ?1 order by e.blockNumber desc, e.logIndex desc")
+  List<ChainTxEvent> findLatestForWallet(String walletAddress, Pageable pageable);
+
+  /** Page suivante : keyset strictement avant (beforeBlock, beforeLogIndex). */
+  @Query("select e from ChainTxEvent e where e.walletAddress = ?1"
+      + " and (e.blockNumber < ?2 or (e.blockNumber = ?2 and e.logIndex < ?3))"
+      + " order by e.blockNumber desc, e.logIndex desc")
+  List<ChainTxEvent> findForWalletBefore(String walletAddress, long beforeBlock, long beforeLogIndex, Pageable pageable);
+
+  long countByWalletAddress(String walletAddress);
+
+  /** Nombre d'événements par wallet pour un lot de wallets : lignes [walletAddress, count]. */
+  @Query("select e.walletAddress, count(e) from ChainTxEvent e where e.walletAddress in ?1 group by e.walletAddress")
+  List<Object[]> countByWallets(Collection<String> wallets);
+
+  /** Événements d'un lot de wallets jusqu'au bloc {@code maxBlock} inclus, par wallet puis ordre de chaîne. */
+  @Query("select e from ChainTxEvent e where e.walletAddress in ?1 and e.blockNumber <= ?2"
+      + " order by e.walletAddress asc, e.blockNumber asc, e.logIndex asc")
+  List<ChainTxEvent> findForWalletsUpTo(Collection<String> wallets, long maxBlock);
+
+  /** Annulation après réorganisation : supprime les événements des blocs abandonnés. */
+  @Modifying
+  @Transactional
+  @Query("delete from ChainTxEvent e where e.blockNumber > ?1")
+  int deleteAbove(long blockNumber);
+}
@@ -0,0 +1,11 @@
+package com.fancapital.backend.blockchain.repo;
+
+import com.fancapital.backend.blockchain.model.CreditActivation;
+import com.fancapital.backend.blockchain.model.CreditActivation.Status;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CreditActivationRepository extends JpaRepository<CreditActivation, String> {
+
+  List<CreditActivation> findByStatusOrderByUpdatedAtAsc(Status status);
+}
@@ -0,0 +1,19 @@
+package com.fancapital.backend.blockchain.repo;
+
+import com.fancapital.backend.blockchain.model.CreditLoan;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface CreditLoanRepository extends JpaRepository<CreditLoan, String> {
+
+  /** Prêts d'un contrat dans un statut donné, par loanId croissant (même ordre que le parcours on-chain). */
+  List<CreditLoan> findByContractAddressAndStatusOrderByLoanIdAsc(String contractAddress, int status);
+
+  /** Prêts d'un wallet (minuscules) dans un statut donné (au plus un actif par modèle en pratique). */
+  List<CreditLoan> findByUserAddressAndStatus(String userAddress, int status);
+
+  /** Prêts modifiés après {@code block} (à relire ou supprimer après une reorg). */
+  @Query("select l from CreditLoan l where l.updatedBlock > ?1")
+  List<CreditLoan> findUpdatedAbove(long block);
+}
@@ -0,0 +1,27 @@
+package com.fancapital.backend.blockchain.repo;
+
+import com.fancapital.backend.blockchain.model.RepaymentDueDay;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface RepaymentDueDayRepository extends JpaRepository<RepaymentDueDay, LocalDate> {
+
+  @Query("select d from RepaymentDueDay d where d.dueDate between ?1 and ?2 order by d.dueDate asc")
+  List<RepaymentDueDay> findRange(LocalDate from, LocalDate to);
+
+  /** Échéances ajoutées (delta positif) ou annulées (delta négatif) pour le jour. */
+  @Modifying
+  @Query("update RepaymentDueDay d set d.dueTnd1e8 = d.dueTnd1e8 + ?2, d.itemCount = d.itemCount + ?3,"
+      + " d.openCount = d.openCount + ?4, d.updatedAt = ?5 where d.dueDate = ?1")
+  int addDue(LocalDate dueDate, long amount1e8, int items, int open, Instant now);
+
+  /** Prélèvement enregistré (openDelta = -1 si l'échéance est soldée). */
+  @Modifying
+  @Query("update RepaymentDueDay d set d.collectedTnd1e8 = d.collectedTnd1e8 + ?2, d.openCount = d.openCount + ?3,"
+      + " d.updatedAt = ?4 where d.dueDate = ?1")
+  int addCollected(LocalDate dueDate, long amount1e8, int openDelta, Instant now);
+}
@@ -0,0 +1,26 @@
+package com.fancapital.backend.blockchain.repo;
+
+import com.fancapital.backend.blockchain.model.RepaymentInstallment;
+import com.fancapital.backend.blockchain.model.RepaymentInstallment.Status;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface RepaymentInstallmentRepository extends JpaRepository<RepaymentInstallment, String> {
+
+  /** Échéances à prélever, par prochaine tentative puis date d'échéance (file des échéances dues). */
+  @Query("select i from RepaymentInstallment i where i.status = ?1 and i.nextAttemptAt <= ?2"
+      + " order by i.nextAttemptAt asc, i.dueAt asc")
+  List<RepaymentInstallment> findDue(Status status, Instant now, Pageable pageable);
+
+  List<RepaymentInstallment> findByLoanKeyOrderBySeqAsc(String loanKey);
+
+  List<RepaymentInstallment> findByLoanKeyAndStatusIn(String loanKey, Collection<Status> statuses);
+
+  boolean existsByLoanKey(String loanKey);
+
+  List<RepaymentInstallment> findByStatusInOrderByUpdatedAtAsc(Collection<Status> statuses);
+}
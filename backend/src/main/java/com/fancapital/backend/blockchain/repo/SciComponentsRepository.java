@@ -0,0 +1,7 @@
+package com.fancapital.backend.blockchain.repo;
+
+import com.fancapital.backend.blockchain.model.SciComponents;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface SciComponentsRepository extends JpaRepository<SciComponents, String> {
+}
@@ -0,0 +1,14 @@
+package com.fancapital.backend.blockchain.repo;
+
+import com.fancapital.backend.blockchain.model.SciTierChange;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface SciTierChangeRepository extends JpaRepository<SciTierChange, Long> {
+
+  /** Changements de séquence strictement supérieure à {@code afterSeq}, dans l'ordre d'insertion. */
+  @Query("select c from SciTierChange c where c.seq > ?1 order by c.seq asc")
+  List<SciTierChange> findAfter(long afterSeq, Pageable pageable);
+}
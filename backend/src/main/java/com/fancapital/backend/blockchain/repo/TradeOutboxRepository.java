@@ -0,0 +1,33 @@
+package com.fancapital.backend.blockchain.repo;
+
+import com.fancapital.backend.blockchain.model.TradeOutboxEvent;
+import com.fancapital.backend.blockchain.model.TradeOutboxEvent.Status;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface TradeOutboxRepository extends JpaRepository<TradeOutboxEvent, String> {
+
+  /** Lot d'événements PENDING échus, dans l'ordre d'écriture. */
+  @Query("select e from TradeOutboxEvent e where e.status = ?1 and e.nextAttemptAt <= ?2 order by e.createdAt asc")
+  List<TradeOutboxEvent> findDue(Status status, Instant now, Pageable pageable);
+
+  long countByStatus(Status status);
+
+  /** Hash rattaché au lot écrit avant l'envoi : ses effets deviennent exécutables. */
+  @Modifying
+  @Transactional
+  @Query("update TradeOutboxEvent e set e.txHash = ?2, e.status = ?3, e.nextAttemptAt = ?4"
+      + " where e.batchId = ?1 and e.status = ?5")
+  int attachTx(String batchId, String txHash, Status to, Instant now, Status from);
+
+  /** Lot écrit avant un envoi rejeté par le nœud : rien à exécuter. */
+  @Modifying
+  @Transactional
+  @Query("delete from TradeOutboxEvent e where e.batchId = ?1 and e.status = ?2")
+  int deleteBatch(String batchId, Status status);
+}
@@ -0,0 +1,24 @@
+package com.fancapital.backend.blockchain.repo;
+
+import com.fancapital.backend.blockchain.model.TxLifecycleRecord;
+import com.fancapital.backend.blockchain.model.TxLifecycleRecord.Status;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface TxLifecycleRepository extends JpaRepository<TxLifecycleRecord, String> {
+
+  /**
+   * Transactions encore en attente envoyées avant {@code before} (candidates au remplacement), les moins
+   * récemment examinées d'abord : une ligne en erreur passe derrière les autres.
+   */
+  @Query("select t from TxLifecycleRecord t where t.status = ?1 and t.submittedAt < ?2 order by t.updatedAt asc")
+  List<TxLifecycleRecord> findByStatusSubmittedBefore(Status status, Instant before, Pageable pageable);
+
+  /** Profondeur par signataire : [fromAddress, nombre, plus petit nonce, plus ancien envoi]. */
+  @Query("select t.fromAddress, count(t), min(t.nonce), min(t.submittedAt) from TxLifecycleRecord t"
+      + " where t.status = ?1 group by t.fromAddress")
+  List<Object[]> depthBySender(Status status);
+}
@@ -29,6 +29,7 @@ public class AdvanceRepaymentService {
   private final DeploymentRegistry registry;
   private final CompartmentsService compartmentsService;
   private final AdvanceInterestTrackingRepository interestTrackingRepo;
+  private final SciComponentService sciComponents;
 
   public AdvanceRepaymentService(
       BlockchainReadService readService,
@@ -38,7 +39,8 @@ public class AdvanceRepaymentService {
       CreditWriteService creditWrite,
       DeploymentRegistry registry,
       CompartmentsService compartmentsService,
-      AdvanceInterestTrackingRepository interestTrackingRepo) {
+      AdvanceInterestTrackingRepository interestTrackingRepo,
+      SciComponentService sciComponents) {
     this.readService = readService;
     this.debtManager = debtManager;
     this.burnKey = burnKey;
@@ -47,6 +49,21 @@ public class AdvanceRepaymentService {
     this.registry = registry;
     this.compartmentsService = compartmentsService;
     this.interestTrackingRepo = interestTrackingRepo;
+    this.sciComponents = sciComponents;
+  }
+
+  /**
+   * Étapes irréversibles d'un remboursement, signalées à l'appelant pour qu'il les enregistre (reprise sans
+   * double burn, cf. {@code CreditRepaymentScheduler}).
+   */
+  public interface RepaymentProgress {
+    RepaymentProgress NONE = new RepaymentProgress() {};
+
+    /** Contrôles passés, burn sur le point d'être envoyé. */
+    default void burning() {}
+
+    /** Burn accepté par le nœud : la suite (mints, suivi des intérêts, recordRepayment) ne doit plus être rejouée. */
+    default void burned(String burnTxHash) {}
   }
 
   /**
@@ -58,6 +75,12 @@ public class AdvanceRepaymentService {
    * @return Hash de la transaction recordRepayment
    */
   public String repayFromCashWallet(String userWallet, BigInteger amountTnd1e8) throws IOException {
+    return repayFromCashWallet(userWallet, amountTnd1e8, RepaymentProgress.NONE);
+  }
+
+  /** Variante avec suivi des étapes : toute erreur levée après {@link RepaymentProgress#burned} suit un burn envoyé. */
+  public String repayFromCashWallet(String userWallet, BigInteger amountTnd1e8, RepaymentProgress progress)
+      throws IOException {
     if (userWallet == null || userWallet.isBlank() || amountTnd1e8 == null || amountTnd1e8.signum() <= 0) {
       throw new IllegalArgumentException("Paramètres invalides pour le remboursement.");
     }
@@ -111,9 +134,10 @@ public class AdvanceRepaymentService {
 
     Optional<CompartmentsService.MatriceInfo> matriceOpt = compartmentsService.getMatrice();
 
+    progress.burning();
     if (matriceOpt.isPresent()) {
       // 1. Burn TND from user
-      burnKey.burn(userWallet, amountTnd1e8);
+      progress.burned(burnKey.burn(userWallet, amountTnd1e8));
 
       // 2. Mint capital → Piscine A (pool du token collatéral)
       var fund = registry.findByToken(loan.token()).orElse(null);
@@ -133,7 +157,7 @@ public class AdvanceRepaymentService {
       // Fallback : burn uniquement (comportement legacy)
       principalPart = amountTnd1e8;
       interestPart = BigInteger.ZERO;
-      burnKey.burn(userWallet, amountTnd1e8);
+      progress.burned(burnKey.burn(userWallet, amountTnd1e8));
     }
 
     // 4. Mettre à jour les intérêts payés (modèle fixe)
@@ -145,7 +169,9 @@ public class AdvanceRepaymentService {
     }
 
     // 5. Record repayment on-chain (principal uniquement)
-    return creditWrite.recordRepayment(loan.loanId(), principalPart);
+    String txHash = creditWrite.recordRepayment(loan.loanId(), principalPart);
+    sciComponents.onLoanChanged(userWallet, txHash);
+    return txHash;
   }
 
   private int getFeeLevel(String userWallet) {
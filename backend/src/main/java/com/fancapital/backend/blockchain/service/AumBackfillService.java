@@ -0,0 +1,317 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.auth.model.AppUser;
+import com.fancapital.backend.auth.repo.AppUserRepository;
+import com.fancapital.backend.blockchain.model.ChainIndexerState;
+import com.fancapital.backend.blockchain.model.ChainTxEvent;
+import com.fancapital.backend.blockchain.model.FundDto;
+import com.fancapital.backend.blockchain.repo.AumDailyPointRepository;
+import com.fancapital.backend.blockchain.repo.AumMonthlyRollupRepository;
+import com.fancapital.backend.blockchain.repo.ChainIndexerStateRepository;
+import com.fancapital.backend.blockchain.repo.ChainTxEventRepository;
+import com.fancapital.backend.config.BlockchainProperties;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+/**
+ * Reconstitution de l'historique AUM quotidien (nouveau déploiement, nouveaux utilisateurs) pour que l'inertie
+ * 90 jours s'applique dès le premier jour.
+ * <p>
+ * Pour chaque jour de la plage : bloc de fin de journée ({@link BlockTimeIndexService}) et VNI de chaque fonds
+ * à ce bloc, résolus en parallèle. Puis, par pages de wallets traitées en parallèle : soldes rejoués depuis les
+ * événements indexés (achats, ventes, dépôts, retraits de chain_tx_events) et valorisés à la VNI du jour,
+ * écrits en lot ({@link AumSnapshotWriter}). Les points déjà présents (snapshots réels) et les mois déjà
+ * compactés ne sont jamais remplacés.
+ */
+@Service
+public class AumBackfillService {
+
+  private static final Logger log = LoggerFactory.getLogger(AumBackfillService.class);
+  private static final BigInteger PRICE_SCALE = BigInteger.TEN.pow(8);
+  static final int MAX_DAYS = 366;
+
+  private final AppUserRepository userRepo;
+  private final ChainTxEventRepository eventRepo;
+  private final ChainIndexerStateRepository stateRepo;
+  private final AumDailyPointRepository pointRepo;
+  private final AumMonthlyRollupRepository rollupRepo;
+  private final AumSnapshotWriter writer;
+  private final AumSnapshotService snapshots;
+  private final BlockTimeIndexService blockTimes;
+  private final BlockchainReadService readService;
+  private final DeploymentRegistry registry;
+  private final SciComponentService sciComponents;
+  private final int parallelism;
+  private final int pageSize;
+
+  public AumBackfillService(
+      AppUserRepository userRepo,
+      ChainTxEventRepository eventRepo,
+      ChainIndexerStateRepository stateRepo,
+      AumDailyPointRepository pointRepo,
+      AumMonthlyRollupRepository rollupRepo,
+      AumSnapshotWriter writer,
+      AumSnapshotService snapshots,
+      BlockTimeIndexService blockTimes,
+      BlockchainReadService readService,
+      DeploymentRegistry registry,
+      SciComponentService sciComponents,
+      BlockchainProperties props
+  ) {
+    this.userRepo = userRepo;
+    this.eventRepo = eventRepo;
+    this.stateRepo = stateRepo;
+    this.pointRepo = pointRepo;
+    this.rollupRepo = rollupRepo;
+    this.writer = writer;
+    this.snapshots = snapshots;
+    this.blockTimes = blockTimes;
+    this.readService = readService;
+    this.registry = registry;
+    this.sciComponents = sciComponents;
+    BlockchainProperties.Aum a = props.aum();
+    this.parallelism = a != null && a.snapshotParallelism() > 0 ? a.snapshotParallelism() : 4;
+    this.pageSize = a != null && a.snapshotPageSize() > 0 ? a.snapshotPageSize() : 100;
+  }
+
+  public record BackfillResult(
+      String from,
+      String to,
+      int days,           // days resolved to a block covered by the event index
+      int daysSkipped,    // before the chain or after the indexed head
+      int wallets,
+      int pointsWritten,
+      int pointsKept,     // existing point or compacted month, left as is
+      long elapsedMs
+  ) {}
+
+  /** Jour résolu : bloc de fin de journée et VNI (échelle 1e8) par token de fonds (minuscules). */
+  private record DayState(LocalDate day, long block, Map<String, BigInteger> vnis) {}
+
+  /**
+   * Reconstitue les points quotidiens manquants sur [from, to] (to borné à la veille : le jour courant
+   * appartient au snapshot quotidien).
+   */
+  public BackfillResult backfill(LocalDate from, LocalDate to) {
+    if (from == null || to == null) throw new IllegalArgumentException("from and to are required");
+    LocalDate yesterday = LocalDate.now().minusDays(1);
+    if (to.isAfter(yesterday)) to = yesterday;
+    if (from.isAfter(to)) throw new IllegalArgumentException("from must be before today and not after to");
+    if (ChronoUnit.DAYS.between(from, to) + 1 > MAX_DAYS) {
+      throw new IllegalArgumentException("Backfill range is limited to " + MAX_DAYS + " days");
+    }
+
+    // Same monitor as snapshotAllUsers(), compactHistory() and migrateLegacySnapshots(): no rolling window
+    // is updated by two of them concurrently.
+    synchronized (snapshots) {
+      long started = System.currentTimeMillis();
+      long indexedHead = stateRepo.findById(TxEventIndexerService.INDEXER_NAME)
+          .map(ChainIndexerState::getLastIndexedBlock).orElse(-1L);
+      List<FundDto> funds = registry.listFunds();
+
+      AtomicInteger threadNo = new AtomicInteger();
+      ExecutorService pool = Executors.newFixedThreadPool(parallelism, r -> {
+        Thread t = new Thread(r, "aum-backfill-" + threadNo.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      });
+      try {
+        List<Callable<DayState>> dayTasks = new ArrayList<>();
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+          LocalDate day = d;
+          dayTasks.add(() -> resolveDay(day, indexedHead, funds));
+        }
+        List<DayState> days = new ArrayList<>();
+        for (Future<DayState> f : pool.invokeAll(dayTasks)) {
+          DayState s = get(f);
+          if (s != null) days.add(s);
+        }
+        int skipped = dayTasks.size() - days.size();
+        fillMissingVnis(days, funds);
+        if (days.isEmpty()) {
+          log.info("AUM backfill {}..{}: no day covered by the event index (indexed head {})", from, to, indexedHead);
+          return new BackfillResult(from.toString(), to.toString(), 0, skipped, 0, 0, 0,
+              System.currentTimeMillis() - started);
+        }
+
+        List<Future<int[]>> pages = new ArrayList<>();
+        int wallets = 0;
+        String after = "";
+        while (true) {
+          List<AppUser> page = userRepo.findWithWalletAfter(after, PageRequest.of(0, pageSize));
+          if (page.isEmpty()) break;
+          after = page.get(page.size() - 1).getId();
+          List<String> batch = page.stream().map(u -> u.getWalletAddress().trim().toLowerCase(Locale.ROOT))
+              .distinct().toList();
+          wallets += batch.size();
+          pages.add(pool.submit(() -> backfillPage(batch, days)));
+        }
+        int written = 0;
+        int kept = 0;
+        for (Future<int[]> f : pages) {
+          int[] n = get(f);
+          if (n == null) continue;
+          written += n[0];
+          kept += n[1];
+        }
+        if (written > 0) sciComponents.refreshAum();
+        long elapsed = System.currentTimeMillis() - started;
+        log.info("AUM backfill {}..{}: {} days ({} skipped), {} wallets, {} points written, {} kept in {} ms",
+            from, to, days.size(), skipped, wallets, written, kept, elapsed);
+        return new BackfillResult(from.toString(), to.toString(), days.size(), skipped, wallets, written, kept, elapsed);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("AUM backfill interrupted");
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+  }
+
+  /** @return null si le jour précède la chaîne ou dépasse la tête indexée (événements incomplets) */
+  private DayState resolveDay(LocalDate day, long indexedHead, List<FundDto> funds) {
+    long endOfDay = day.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toEpochSecond() - 1;
+    long block = blockTimes.blockAtOrBefore(endOfDay);
+    if (block < 0 || block > indexedHead) return null;
+    Map<String, BigInteger> vnis = new HashMap<>();
+    for (FundDto fund : funds) {
+      try {
+        BigInteger vni = readService.vni1e8AtBlock(fund, BigInteger.valueOf(block));
+        if (vni != null) vnis.put(fund.token().toLowerCase(Locale.ROOT), vni);
+      } catch (Exception e) {
+        // Oracle not deployed yet, or state pruned at that block: filled from neighbouring days.
+        log.debug("VNI of {} at block {} unavailable: {}", fund.token(), block, e.getMessage());
+      }
+    }
+    return new DayState(day, block, vnis);
+  }
+
+  /** VNI manquante : celle du jour précédent, à défaut la VNI courante. */
+  private void fillMissingVnis(List<DayState> days, List<FundDto> funds) {
+    for (FundDto fund : funds) {
+      String token = fund.token().toLowerCase(Locale.ROOT);
+      BigInteger last = null;
+      for (DayState d : days) {
+        BigInteger v = d.vnis().get(token);
+        if (v != null) {
+          last = v;
+          continue;
+        }
+        if (last == null) {
+          try {
+            last = new BigInteger(readService.getVni(fund.token()).vni());
+          } catch (Exception e) {
+            log.warn("AUM backfill: no VNI for {}: {}", fund.token(), e.getMessage());
+            last = BigInteger.ZERO;
+          }
+        }
+        d.vnis().put(token, last);
+      }
+    }
+  }
+
+  /** @return {points écrits, points conservés} */
+  private int[] backfillPage(List<String> wallets, List<DayState> days) {
+    LocalDate first = days.get(0).day();
+    LocalDate last = days.get(days.size() - 1).day();
+    Set<String> existingDays = new HashSet<>();
+    for (Object[] row : pointRepo.findKeys(wallets, first, last)) existingDays.add(row[0] + "|" + row[1]);
+    Set<String> compactedMonths = new HashSet<>();
+    for (Object[] row : rollupRepo.findKeys(wallets, first.withDayOfMonth(1), last)) {
+      compactedMonths.add(row[0] + "|" + row[1]);
+    }
+
+    Map<String, List<ChainTxEvent>> byWallet = new HashMap<>();
+    for (ChainTxEvent e : eventRepo.findForWalletsUpTo(wallets, days.get(days.size() - 1).block())) {
+      byWallet.computeIfAbsent(e.getWalletAddress(), k -> new ArrayList<>()).add(e);
+    }
+
+    Map<LocalDate, Map<String, BigInteger>> perDay = new LinkedHashMap<>();
+    int kept = 0;
+    for (String wallet : wallets) {
+      List<ChainTxEvent> events = byWallet.getOrDefault(wallet, List.of());
+      Map<String, BigInteger> tokens = new HashMap<>();
+      BigInteger cash = BigInteger.ZERO;
+      int next = 0;
+      for (DayState d : days) {
+        while (next < events.size() && events.get(next).getBlockNumber() <= d.block()) {
+          cash = apply(events.get(next++), tokens, cash);
+        }
+        if (next == 0) continue; // no activity yet: the wallet did not exist on-chain that day
+        if (existingDays.contains(wallet + "|" + d.day())
+            || compactedMonths.contains(wallet + "|" + d.day().withDayOfMonth(1))) {
+          kept++;
+          continue;
+        }
+        BigInteger total = cash;
+        for (Map.Entry<String, BigInteger> t : tokens.entrySet()) {
+          BigInteger vni = d.vnis().getOrDefault(t.getKey(), BigInteger.ZERO);
+          total = total.add(t.getValue().multiply(vni).divide(PRICE_SCALE));
+        }
+        // Transfers outside the indexed kinds (P2P) can drive a replayed balance below zero.
+        perDay.computeIfAbsent(d.day(), k -> new LinkedHashMap<>()).put(wallet, total.max(BigInteger.ZERO));
+      }
+    }
+
+    int written = 0;
+    for (Map.Entry<LocalDate, Map<String, BigInteger>> e : perDay.entrySet()) {
+      writer.writeBatch(e.getKey(), e.getValue());
+      written += e.getValue().size();
+    }
+    return new int[] {written, kept};
+  }
+
+  /** Applique un événement aux soldes rejoués ; retourne le nouveau solde cash (TND, échelle 1e8). */
+  private static BigInteger apply(ChainTxEvent e, Map<String, BigInteger> tokens, BigInteger cash) {
+    BigInteger tnd = new BigInteger(e.getAmountTnd1e8());
+    BigInteger token = new BigInteger(e.getAmountToken1e8());
+    switch (e.getKind()) {
+      case "BUY" -> {
+        tokens.merge(e.getTokenAddress(), token, BigInteger::add);
+        return cash.subtract(tnd);
+      }
+      case "SELL" -> {
+        tokens.merge(e.getTokenAddress(), token.negate(), BigInteger::add);
+        return cash.add(tnd);
+      }
+      case "DEPOSIT" -> {
+        return cash.add(tnd);
+      }
+      case "WITHDRAW" -> {
+        return cash.subtract(tnd);
+      }
+      default -> {
+        return cash;
+      }
+    }
+  }
+
+  private static <T> T get(Future<T> f) throws InterruptedException {
+    try {
+      return f.get();
+    } catch (ExecutionException e) {
+      log.warn("AUM backfill task failed: {}", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+      return null;
+    }
+  }
+}
@@ -14,9 +14,11 @@ public class AumSnapshotJob {
   private static final Logger log = LoggerFactory.getLogger(AumSnapshotJob.class);
 
   private final AumSnapshotService aumSnapshotService;
+  private final SciComponentService sciComponents;
 
-  public AumSnapshotJob(AumSnapshotService aumSnapshotService) {
+  public AumSnapshotJob(AumSnapshotService aumSnapshotService, SciComponentService sciComponents) {
     this.aumSnapshotService = aumSnapshotService;
+    this.sciComponents = sciComponents;
   }
 
   @Scheduled(cron = "${blockchain.aum.snapshot-cron:0 0 1 * * ?}")
@@ -24,9 +26,28 @@ public class AumSnapshotJob {
     log.info("Starting AUM snapshot job");
     try {
       aumSnapshotService.snapshotAllUsers();
+      aumSnapshotService.compactHistory();
+      // New AUM_90j averages for the SCI components, ahead of the nightly recompute.
+      sciComponents.refreshAum();
       log.info("AUM snapshot job completed");
     } catch (Exception e) {
       log.error("AUM snapshot job failed", e);
     }
   }
+
+  /**
+   * Reprise d'un passage du jour interrompu, depuis son point de reprise. Le premier passage reprend aussi les
+   * anciens snapshots (aum_snapshots) dans la série quotidienne.
+   */
+  @Scheduled(initialDelayString = "60000", fixedDelayString = "600000")
+  public void resumeSnapshot() {
+    try {
+      boolean migrated = aumSnapshotService.migrateLegacySnapshots() > 0;
+      if (aumSnapshotService.resumeIfInterrupted() || migrated) {
+        sciComponents.refreshAum();
+      }
+    } catch (Exception e) {
+      log.warn("AUM snapshot resume skipped: {}", e.getMessage());
+    }
+  }
 }
@@ -1,70 +1,173 @@
 package com.fancapital.backend.blockchain.service;
 
+import com.fancapital.backend.auth.model.AppUser;
 import com.fancapital.backend.auth.repo.AppUserRepository;
-import com.fancapital.backend.blockchain.model.AumSnapshot;
-import com.fancapital.backend.blockchain.repo.AumSnapshotRepository;
+import com.fancapital.backend.blockchain.model.AumDailyPoint;
+import com.fancapital.backend.blockchain.model.AumHistoryDtos.AumHistoryResponse;
+import com.fancapital.backend.blockchain.model.AumHistoryDtos.AumPoint;
+import com.fancapital.backend.blockchain.model.AumMonthlyRollup;
+import com.fancapital.backend.blockchain.model.AumRollingWindow;
+import com.fancapital.backend.blockchain.model.AumSnapshotRun;
+import com.fancapital.backend.blockchain.model.PortfolioDtos.PortfolioResponse;
+import com.fancapital.backend.blockchain.repo.AumDailyPointRepository;
+import com.fancapital.backend.blockchain.repo.AumMonthlyRollupRepository;
+import com.fancapital.backend.blockchain.repo.AumSnapshotRunRepository;
+import com.fancapital.backend.config.BlockchainProperties;
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 /**
  * Service AUM 90 jours (Spécifications Financières v4.7 - Inertie AUM).
  * Calcule la moyenne des actifs sous gestion sur 90 jours pour éviter les sauts de niveau opportunistes.
+ * La moyenne vient d'un agrégat glissant par wallet (somme, nombre, plus ancien jour) tenu à jour à chaque
+ * snapshot écrit ; les jours sortis de la fenêtre en sont retirés au fil de l'eau.
+ * <p>
+ * Snapshot quotidien : utilisateurs parcourus par pages (id croissant), une lecture groupée des portefeuilles
+ * par page, pages traitées en parallèle sur un pool borné (blockchain.aum.snapshot-parallelism) et écrites en
+ * batch ({@link AumSnapshotWriter}). Le point de reprise ({@link AumSnapshotRun}) avance quand une page et
+ * toutes les précédentes sont écrites : un passage interrompu reprend là où il s'est arrêté.
+ * <p>
+ * Historique : points quotidiens sur la fenêtre de scoring, puis min/moyenne/max mensuels au-delà
+ * ({@link #compactHistory()}) ; {@link #history} sert les graphiques du tableau de bord investisseur.
+ * <p>
+ * Toute écriture des agrégats glissants (snapshot, compactage, reprise legacy, backfill) se fait sous le
+ * moniteur de ce service : une seule à la fois, sans verrou optimiste sur {@link AumRollingWindow}.
  */
 @Service
 public class AumSnapshotService {
 
   private static final Logger log = LoggerFactory.getLogger(AumSnapshotService.class);
-  private static final int AUM_WINDOW_DAYS = 90;
 
-  private final AumSnapshotRepository aumRepo;
   private final BlockchainReadService blockchainRead;
   private final AppUserRepository userRepo;
+  private final AumSnapshotWriter writer;
+  private final AumSnapshotRunRepository runRepo;
+  private final AumDailyPointRepository pointRepo;
+  private final AumMonthlyRollupRepository rollupRepo;
+  private final int parallelism;
+  private final int pageSize;
 
-  public AumSnapshotService(AumSnapshotRepository aumRepo, BlockchainReadService blockchainRead,
-      AppUserRepository userRepo) {
-    this.aumRepo = aumRepo;
+  public AumSnapshotService(BlockchainReadService blockchainRead, AppUserRepository userRepo,
+      AumSnapshotWriter writer, AumSnapshotRunRepository runRepo, AumDailyPointRepository pointRepo,
+      AumMonthlyRollupRepository rollupRepo, BlockchainProperties props) {
     this.blockchainRead = blockchainRead;
     this.userRepo = userRepo;
+    this.writer = writer;
+    this.runRepo = runRepo;
+    this.pointRepo = pointRepo;
+    this.rollupRepo = rollupRepo;
+    BlockchainProperties.Aum a = props.aum();
+    this.parallelism = a != null && a.snapshotParallelism() > 0 ? a.snapshotParallelism() : 4;
+    this.pageSize = a != null && a.snapshotPageSize() > 0 ? a.snapshotPageSize() : 100;
   }
 
   /**
-   * Moyenne AUM sur les 90 derniers jours pour un wallet.
+   * Moyenne AUM sur les 90 derniers jours pour un wallet, lue dans l'agrégat glissant ({@link AumRollingWindow}).
    *
    * @param walletAddress adresse du wallet
    * @return moyenne TND (échelle 1e8), ou null si pas assez de données
    */
   public BigDecimal getAum90DaysAvgTnd(String walletAddress) {
     if (walletAddress == null || walletAddress.isBlank()) return null;
-    LocalDate end = LocalDate.now();
-    LocalDate start = end.minusDays(AUM_WINDOW_DAYS);
-    List<AumSnapshot> snapshots = aumRepo.findByWalletAddressIgnoreCaseAndSnapshotDateBetween(
-        walletAddress.trim(), start, end);
-    if (snapshots.isEmpty()) return null;
-    BigDecimal sum = BigDecimal.ZERO;
-    for (AumSnapshot s : snapshots) {
-      try {
-        sum = sum.add(new BigDecimal(s.getTotalValueTnd1e8()));
-      } catch (NumberFormatException e) {
-        log.warn("Invalid totalValueTnd1e8 in snapshot {}: {}", s.getId(), e.getMessage());
+    AumRollingWindow w = writer.window(walletAddress.trim().toLowerCase(Locale.ROOT));
+    if (w.getSnapshotCount() == 0) return null;
+    return new BigDecimal(w.getSumTnd1e8()).divide(BigDecimal.valueOf(w.getSnapshotCount()), 8, RoundingMode.HALF_UP);
+  }
+
+  /**
+   * Exécute un snapshot pour tous les utilisateurs ayant un wallet (reprise après le dernier point de reprise
+   * du jour). À appeler quotidiennement (cron).
+   */
+  public synchronized void snapshotAllUsers() {
+    LocalDate today = LocalDate.now();
+    AumSnapshotRun run = runRepo.findById(today).orElseGet(() -> new AumSnapshotRun(today));
+    if (run.isCompleted()) {
+      log.info("AUM snapshot for {} already completed ({} wallets)", today, run.getWalletsDone());
+      return;
+    }
+    if (run.getLastUserId() != null) {
+      log.info("AUM snapshot for {} resuming after user {} ({} wallets done)", today, run.getLastUserId(),
+          run.getWalletsDone());
+    }
+    Checkpoint checkpoint = new Checkpoint(runRepo.save(run));
+
+    AtomicInteger threadNo = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(parallelism, r -> {
+      Thread t = new Thread(r, "aum-snapshot-" + threadNo.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    // Bounded look-ahead: pages are fetched from the database only as fast as they are written.
+    Semaphore inFlight = new Semaphore(parallelism * 2);
+    List<Future<?>> futures = new ArrayList<>();
+    boolean interrupted = false;
+    try {
+      String after = run.getLastUserId() != null ? run.getLastUserId() : "";
+      for (long seq = 0; ; seq++) {
+        List<AppUser> page = userRepo.findWithWalletAfter(after, PageRequest.of(0, pageSize));
+        if (page.isEmpty()) break;
+        after = page.get(page.size() - 1).getId();
+        long pageSeq = seq;
+        String lastId = after;
+        inFlight.acquire();
+        futures.add(pool.submit(() -> {
+          try {
+            int n = snapshotPage(page, today);
+            checkpoint.pageDone(pageSeq, lastId, n);
+          } finally {
+            inFlight.release();
+          }
+        }));
       }
+      for (Future<?> f : futures) {
+        try {
+          f.get();
+        } catch (ExecutionException e) {
+          // Checkpoint stays before the failed page: the next run resumes from there.
+          log.warn("AUM snapshot page failed: {}", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        }
+      }
+    } catch (InterruptedException e) {
+      interrupted = true;
+      Thread.currentThread().interrupt();
+    } finally {
+      pool.shutdownNow();
+    }
+    if (!interrupted && checkpoint.allDone(futures.size())) {
+      checkpoint.complete();
+      log.info("AUM snapshot for {} completed: {} wallets", today, checkpoint.walletsDone());
     }
-    return sum.divide(BigDecimal.valueOf(snapshots.size()), 8, RoundingMode.HALF_UP);
   }
 
   /**
-   * Exécute un snapshot pour tous les utilisateurs ayant un wallet.
-   * À appeler quotidiennement (cron).
+   * Reprend le passage du jour s'il a été commencé puis interrompu (arrêt du service, page en échec).
+   *
+   * @return true si une reprise a été lancée
    */
-  public void snapshotAllUsers() {
-    LocalDate today = LocalDate.now();
-    userRepo.findAll().stream()
-        .filter(u -> u.getWalletAddress() != null && !u.getWalletAddress().isBlank())
-        .forEach(u -> snapshotForWallet(u.getWalletAddress(), today));
+  public boolean resumeIfInterrupted() {
+    AumSnapshotRun run = runRepo.findById(LocalDate.now()).orElse(null);
+    if (run == null || run.isCompleted()) return false;
+    snapshotAllUsers();
+    return true;
   }
 
   /**
@@ -73,18 +176,135 @@ public class AumSnapshotService {
   public void snapshotForWallet(String walletAddress, LocalDate date) {
     if (walletAddress == null || walletAddress.isBlank()) return;
     try {
-      var port = blockchainRead.portfolio(walletAddress);
-      BigDecimal total = new BigDecimal(port.totalValueTnd()).add(new BigDecimal(port.cashBalanceTnd()));
-      String totalStr = total.toBigInteger().toString();
-
-      AumSnapshot s = aumRepo.findById(AumSnapshot.buildId(walletAddress, date)).orElse(new AumSnapshot());
-      s.setId(AumSnapshot.buildId(walletAddress, date));
-      s.setWalletAddress(walletAddress.trim().toLowerCase());
-      s.setSnapshotDate(date);
-      s.setTotalValueTnd1e8(totalStr != null ? totalStr : "0");
-      aumRepo.save(s);
+      PortfolioResponse port = blockchainRead.portfolio(walletAddress);
+      synchronized (this) {
+        writer.writeBatch(date, Map.of(walletAddress.trim().toLowerCase(Locale.ROOT), total1e8(port)));
+      }
     } catch (Exception e) {
       log.warn("AUM snapshot failed for {} at {}: {}", walletAddress, date, e.getMessage());
     }
   }
+
+  /**
+   * Sous-échantillonne en mensuel (min/moyenne/max) les points quotidiens sortis de la fenêtre de scoring.
+   * À appeler après le snapshot quotidien.
+   *
+   * @return nombre de points compactés
+   */
+  public synchronized int compactHistory() {
+    LocalDate today = LocalDate.now();
+    LocalDate start = AumSnapshotWriter.windowStart(today);
+    int total = 0;
+    while (true) {
+      // Always page 0: each compacted batch no longer matches the query.
+      List<String> wallets = pointRepo.findWalletsWithPointsBefore(start, PageRequest.of(0, pageSize));
+      if (wallets.isEmpty()) break;
+      total += writer.compact(wallets, today);
+    }
+    if (total > 0) log.info("AUM history compacted: {} daily points folded into monthly rollups", total);
+    return total;
+  }
+
+  /**
+   * Reprend l'ancienne table aum_snapshots dans la série numérique, puis reconstruit les agrégats glissants.
+   *
+   * @return nombre de lignes reprises
+   */
+  public synchronized int migrateLegacySnapshots() {
+    int total = 0;
+    for (int n; (n = writer.migrateLegacyPage(500)) > 0; ) total += n;
+    if (total > 0) {
+      writer.resetWindows();
+      log.info("AUM legacy snapshots migrated: {} rows", total);
+    }
+    return total;
+  }
+
+  /**
+   * Historique AUM d'un wallet sur [from, to] : mois compactés (moyenne, min, max) puis points quotidiens.
+   */
+  public AumHistoryResponse history(String walletAddress, LocalDate from, LocalDate to) {
+    if (from.isAfter(to)) throw new IllegalArgumentException("from must not be after to");
+    String wallet = walletAddress.trim().toLowerCase(Locale.ROOT);
+    List<AumPoint> points = new ArrayList<>();
+    for (AumMonthlyRollup r : rollupRepo.findRange(wallet, from.withDayOfMonth(1), to)) {
+      points.add(new AumPoint(r.getMonth().toString(), "MONTH", r.getAvg1e8(), r.getMin1e8(), r.getMax1e8(),
+          r.getPointCount()));
+    }
+    for (AumDailyPoint p : pointRepo.findRange(wallet, from, to)) {
+      points.add(new AumPoint(p.getDay().toString(), "DAY", p.getValue1e8(), p.getValue1e8(), p.getValue1e8(), 1));
+    }
+    return new AumHistoryResponse(walletAddress, from.toString(), to.toString(), points);
+  }
+
+  /** @return nombre de wallets écrits */
+  private int snapshotPage(List<AppUser> page, LocalDate date) {
+    Map<String, BigInteger> values = new LinkedHashMap<>();
+    for (AppUser u : page) values.put(u.getWalletAddress().trim().toLowerCase(Locale.ROOT), null);
+    List<String> wallets = new ArrayList<>(values.keySet());
+    try {
+      List<PortfolioResponse> ports = blockchainRead.portfolios(wallets, null);
+      for (int i = 0; i < wallets.size(); i++) values.put(wallets.get(i), total1e8(ports.get(i)));
+    } catch (Exception e) {
+      // Bulk read failed (RPC): fall back to per-wallet so one bad page doesn't skip everyone.
+      log.warn("AUM bulk snapshot failed for {} wallets: {}", wallets.size(), e.getMessage());
+      for (String w : wallets) {
+        try {
+          values.put(w, total1e8(blockchainRead.portfolio(w)));
+        } catch (Exception we) {
+          log.warn("AUM snapshot failed for {} at {}: {}", w, date, we.getMessage());
+        }
+      }
+    }
+    values.values().removeIf(v -> v == null);
+    writer.writeBatch(date, values);
+    return values.size();
+  }
+
+  private static BigInteger total1e8(PortfolioResponse port) {
+    return new BigDecimal(port.totalValueTnd()).add(new BigDecimal(port.cashBalanceTnd())).toBigInteger();
+  }
+
+  /** Avance le point de reprise sur la plus longue suite de pages consécutives terminées. */
+  private final class Checkpoint {
+    private final AumSnapshotRun run;
+    private final TreeMap<Long, Map.Entry<String, Integer>> done = new TreeMap<>();
+    private long nextSeq;
+    private long pagesDone;
+
+    Checkpoint(AumSnapshotRun run) {
+      this.run = run;
+    }
+
+    synchronized void pageDone(long seq, String lastUserId, int wallets) {
+      pagesDone++;
+      done.put(seq, Map.entry(lastUserId, wallets));
+      String watermark = null;
+      while (done.containsKey(nextSeq)) {
+        Map.Entry<String, Integer> page = done.remove(nextSeq);
+        watermark = page.getKey();
+        run.setWalletsDone(run.getWalletsDone() + page.getValue());
+        nextSeq++;
+      }
+      if (watermark != null) {
+        run.setLastUserId(watermark);
+        run.setUpdatedAt(Instant.now());
+        runRepo.save(run);
+      }
+    }
+
+    synchronized boolean allDone(int pages) {
+      return pagesDone == pages;
+    }
+
+    synchronized long walletsDone() {
+      return run.getWalletsDone();
+    }
+
+    synchronized void complete() {
+      run.setCompleted(true);
+      run.setUpdatedAt(Instant.now());
+      runRepo.save(run);
+    }
+  }
 }
@@ -0,0 +1,224 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.blockchain.model.AumDailyPoint;
+import com.fancapital.backend.blockchain.model.AumMonthlyRollup;
+import com.fancapital.backend.blockchain.model.AumRollingWindow;
+import com.fancapital.backend.blockchain.model.AumSnapshot;
+import com.fancapital.backend.blockchain.repo.AumDailyPointRepository;
+import com.fancapital.backend.blockchain.repo.AumMonthlyRollupRepository;
+import com.fancapital.backend.blockchain.repo.AumRollingWindowRepository;
+import com.fancapital.backend.blockchain.repo.AumSnapshotRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Écriture groupée de la série AUM ({@link AumDailyPoint}) et des agrégats glissants 90 jours
+ * ({@link AumRollingWindow}).
+ * <p>
+ * Un lot = une transaction : points et agrégats existants lus en deux requêtes, nouvelles lignes en
+ * {@code persist} (pas de SELECT préalable), le tout envoyé en batch JDBC au commit
+ * (hibernate.jdbc.batch_size). Seul ce service modifie les agrégats ; un lot ne contient jamais deux fois le
+ * même wallet. Les points sortis de la fenêtre sont sous-échantillonnés en {@link AumMonthlyRollup}
+ * ({@link #compact}).
+ */
+@Service
+public class AumSnapshotWriter {
+
+  private static final Logger log = LoggerFactory.getLogger(AumSnapshotWriter.class);
+  static final int AUM_WINDOW_DAYS = 90;
+
+  private final AumDailyPointRepository pointRepo;
+  private final AumMonthlyRollupRepository rollupRepo;
+  private final AumRollingWindowRepository windowRepo;
+  private final AumSnapshotRepository legacyRepo;
+
+  @PersistenceContext
+  private EntityManager em;
+
+  public AumSnapshotWriter(AumDailyPointRepository pointRepo, AumMonthlyRollupRepository rollupRepo,
+      AumRollingWindowRepository windowRepo, AumSnapshotRepository legacyRepo) {
+    this.pointRepo = pointRepo;
+    this.rollupRepo = rollupRepo;
+    this.windowRepo = windowRepo;
+    this.legacyRepo = legacyRepo;
+  }
+
+  /**
+   * Upsert des points du jour {@code date} et mise à jour des agrégats.
+   *
+   * @param values total TND (échelle 1e8) par wallet (minuscules)
+   */
+  @Transactional
+  public void writeBatch(LocalDate date, Map<String, BigInteger> values) {
+    if (values.isEmpty()) return;
+    LocalDate today = LocalDate.now();
+    boolean inWindow = !date.isBefore(windowStart(today));
+
+    Map<String, AumDailyPoint> existing = new HashMap<>();
+    pointRepo.findAllById(values.keySet().stream().map(w -> new AumDailyPoint.Key(w, date)).toList())
+        .forEach(p -> existing.put(p.getWalletAddress(), p));
+    Map<String, AumRollingWindow> windows = new HashMap<>();
+    windowRepo.findAllById(values.keySet()).forEach(w -> windows.put(w.getWalletAddress(), w));
+
+    values.forEach((wallet, v) -> {
+      long value = v.longValueExact();
+      AumRollingWindow w = windows.get(wallet);
+      if (w == null) {
+        w = rebuild(wallet, today);
+        em.persist(w);
+      }
+      AumDailyPoint p = existing.get(wallet);
+      Long previous = p != null ? p.getValue1e8() : null;
+      if (p == null) {
+        em.persist(new AumDailyPoint(wallet, date, value));
+      } else {
+        p.setValue1e8(value);
+      }
+
+      if (inWindow) {
+        BigInteger sum = new BigInteger(w.getSumTnd1e8());
+        if (previous != null) {
+          sum = sum.subtract(BigInteger.valueOf(previous)); // same day re-snapshotted: replace its value
+        } else {
+          w.setSnapshotCount(w.getSnapshotCount() + 1);
+        }
+        w.setSumTnd1e8(sum.add(BigInteger.valueOf(value)).toString());
+        if (w.getOldestDate() == null || date.isBefore(w.getOldestDate())) w.setOldestDate(date);
+      }
+      expire(w, today);
+      w.setUpdatedAt(Instant.now());
+    });
+  }
+
+  /**
+   * Sous-échantillonne les points antérieurs à la fenêtre : agrégats expirés d'abord (ils lisent ces points),
+   * puis min/moyenne/max fusionnés dans le mois, puis suppression des points quotidiens.
+   *
+   * @return nombre de points compactés
+   */
+  @Transactional
+  public int compact(List<String> wallets, LocalDate today) {
+    if (wallets.isEmpty()) return 0;
+    LocalDate start = windowStart(today);
+    windowRepo.findAllById(wallets).forEach(w -> {
+      expire(w, today);
+      w.setUpdatedAt(Instant.now());
+    });
+
+    List<AumDailyPoint> old = pointRepo.findBefore(wallets, start);
+    if (old.isEmpty()) return 0;
+    Map<AumMonthlyRollup.Key, AumMonthlyRollup> rollups = new HashMap<>();
+    rollupRepo.findAllById(old.stream().map(p -> new AumMonthlyRollup.Key(p.getWalletAddress(), monthOf(p.getDay())))
+            .distinct().toList())
+        .forEach(r -> rollups.put(new AumMonthlyRollup.Key(r.getWalletAddress(), r.getMonth()), r));
+    for (AumDailyPoint p : old) {
+      LocalDate month = monthOf(p.getDay());
+      rollups.computeIfAbsent(new AumMonthlyRollup.Key(p.getWalletAddress(), month), k -> {
+        AumMonthlyRollup r = new AumMonthlyRollup(p.getWalletAddress(), month);
+        em.persist(r);
+        return r;
+      }).add(p.getValue1e8());
+    }
+    em.flush();
+    pointRepo.deleteBefore(wallets, start);
+    return old.size();
+  }
+
+  /**
+   * Reprend une page de l'ancienne table aum_snapshots (id texte, montant texte) dans la série numérique.
+   *
+   * @return nombre de lignes reprises (0 = table vide)
+   */
+  @Transactional
+  public int migrateLegacyPage(int size) {
+    List<AumSnapshot> page = legacyRepo.findAll(PageRequest.of(0, size)).getContent();
+    if (page.isEmpty()) return 0;
+    Map<AumDailyPoint.Key, AumDailyPoint> existing = new HashMap<>();
+    pointRepo.findAllById(page.stream()
+            .map(s -> new AumDailyPoint.Key(s.getWalletAddress().toLowerCase(), s.getSnapshotDate())).toList())
+        .forEach(p -> existing.put(new AumDailyPoint.Key(p.getWalletAddress(), p.getDay()), p));
+    for (AumSnapshot s : page) {
+      AumDailyPoint.Key k = new AumDailyPoint.Key(s.getWalletAddress().toLowerCase(), s.getSnapshotDate());
+      if (existing.containsKey(k)) continue; // already written by the new writer
+      AumDailyPoint p = new AumDailyPoint(s.getWalletAddress().toLowerCase(), s.getSnapshotDate(),
+          parse1e8(s).longValueExact());
+      existing.put(k, p);
+      em.persist(p);
+    }
+    legacyRepo.deleteAllInBatch(page);
+    return page.size();
+  }
+
+  /** Agrégats reconstruits depuis la série au prochain accès (après reprise des anciens snapshots). */
+  @Transactional
+  public void resetWindows() {
+    windowRepo.deleteAllInBatch();
+  }
+
+  /**
+   * Agrégat courant du wallet, sans écriture : les jours sortis de la fenêtre depuis le dernier point écrit
+   * sont retirés en mémoire ; un wallet sans agrégat est reconstruit depuis ses points.
+   */
+  public AumRollingWindow window(String wallet) {
+    LocalDate today = LocalDate.now();
+    AumRollingWindow w = windowRepo.findById(wallet).orElse(null);
+    if (w == null) return rebuild(wallet, today);
+    expire(w, today);
+    return w;
+  }
+
+  /** Retire de l'agrégat les points antérieurs à today - 90 j (lecture de la seule plage expirée). */
+  private void expire(AumRollingWindow w, LocalDate today) {
+    LocalDate start = windowStart(today);
+    if (w.getOldestDate() == null || !w.getOldestDate().isBefore(start)) return;
+    List<AumDailyPoint> out = pointRepo.findRange(w.getWalletAddress(), w.getOldestDate(), start.minusDays(1));
+    BigInteger sum = new BigInteger(w.getSumTnd1e8());
+    for (AumDailyPoint p : out) sum = sum.subtract(BigInteger.valueOf(p.getValue1e8()));
+    int count = Math.max(0, w.getSnapshotCount() - out.size());
+    w.setSumTnd1e8(count == 0 ? "0" : sum.max(BigInteger.ZERO).toString());
+    w.setSnapshotCount(count);
+    // Daily points: the next candidate is the window start; a gap only costs one empty range read later.
+    w.setOldestDate(count == 0 ? null : start);
+  }
+
+  /** Agrégat initial à partir des points existants (wallets antérieurs à l'agrégat). */
+  private AumRollingWindow rebuild(String wallet, LocalDate today) {
+    List<AumDailyPoint> rows = pointRepo.findRange(wallet, windowStart(today), today);
+    AumRollingWindow w = new AumRollingWindow(wallet);
+    BigInteger sum = BigInteger.ZERO;
+    for (AumDailyPoint p : rows) sum = sum.add(BigInteger.valueOf(p.getValue1e8()));
+    w.setSumTnd1e8(sum.toString());
+    w.setSnapshotCount(rows.size());
+    w.setOldestDate(rows.isEmpty() ? null : rows.get(0).getDay());
+    return w;
+  }
+
+  static LocalDate windowStart(LocalDate today) {
+    return today.minusDays(AUM_WINDOW_DAYS);
+  }
+
+  private static LocalDate monthOf(LocalDate day) {
+    return day.withDayOfMonth(1);
+  }
+
+  private static BigInteger parse1e8(AumSnapshot s) {
+    try {
+      return new BigDecimal(s.getTotalValueTnd1e8()).toBigInteger();
+    } catch (NumberFormatException e) {
+      log.warn("Invalid totalValueTnd1e8 in snapshot {}: {}", s.getId(), e.getMessage());
+      return BigInteger.ZERO;
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.blockchain.model.ChainBlockTime;
+import com.fancapital.backend.blockchain.model.ChainIndexerState;
+import com.fancapital.backend.blockchain.repo.ChainBlockTimeRepository;
+import com.fancapital.backend.blockchain.repo.ChainIndexerStateRepository;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthBlock;
+
+/**
+ * Index bloc ↔ horodatage servi localement.
+ * <p>
+ * {@link #timestampOf(long)} lit la table et ne va au nœud qu'en cas d'absence (le résultat est alors
+ * persisté) ; {@link #backfill(long, int)} complète l'index par lots JSON-RPC jusqu'aux blocs confirmés ;
+ * {@link #blockAtOrBefore(long)} résout une date en bloc par recherche dichotomique, bornée par les
+ * entrées déjà connues.
+ */
+@Service
+public class BlockTimeIndexService implements ChainIndexConsumer {
+
+  static final String INDEXER_NAME = "block-times";
+  private static final int RPC_BATCH = 100;
+
+  private final Web3j web3j;
+  private final ChainBlockTimeRepository repo;
+  private final ChainIndexerStateRepository stateRepo;
+
+  public BlockTimeIndexService(Web3j web3j, ChainBlockTimeRepository repo, ChainIndexerStateRepository stateRepo) {
+    this.web3j = web3j;
+    this.repo = repo;
+    this.stateRepo = stateRepo;
+  }
+
+  @Override
+  public String indexerName() {
+    return INDEXER_NAME;
+  }
+
+  @Override
+  public synchronized void rollbackAfter(long ancestorBlock) {
+    repo.deleteAbove(ancestorBlock);
+    stateRepo.findById(INDEXER_NAME).ifPresent(st -> {
+      if (st.getLastIndexedBlock() > ancestorBlock) {
+        st.setLastIndexedBlock(ancestorBlock);
+        st.setUpdatedAt(Instant.now());
+        stateRepo.save(st);
+      }
+    });
+  }
+
+  /** Horodatage (secondes) du bloc ; lu depuis l'index, sinon récupéré puis mémorisé. */
+  public long timestampOf(long blockNumber) {
+    return repo.findById(blockNumber).map(ChainBlockTime::getTimestampSec).orElseGet(() -> fetchAndStore(blockNumber));
+  }
+
+  /**
+   * Dernier bloc dont l'horodatage est <= {@code timestampSec}.
+   *
+   * @return numéro de bloc, ou -1 si la date précède le bloc 0
+   */
+  public long blockAtOrBefore(long timestampSec) {
+    long latest = latestBlockNumber();
+    Optional<ChainBlockTime> floor = repo.findTopByTimestampSecLessThanEqualOrderByBlockNumberDesc(timestampSec);
+    Optional<ChainBlockTime> ceil = repo.findTopByTimestampSecGreaterThanOrderByBlockNumberAsc(timestampSec);
+
+    long lo;
+    if (floor.isPresent()) {
+      lo = Math.min(floor.get().getBlockNumber(), latest);
+    } else {
+      if (timestampOf(0) > timestampSec) return -1;
+      lo = 0;
+    }
+    long hi;
+    if (ceil.isPresent() && ceil.get().getBlockNumber() <= latest) {
+      hi = ceil.get().getBlockNumber() - 1;
+    } else {
+      if (timestampOf(latest) <= timestampSec) return latest;
+      hi = latest - 1;
+    }
+
+    // Invariant: ts(lo) <= timestampSec and the answer lies in [lo, hi]. Probes are persisted.
+    while (lo < hi) {
+      long mid = lo + (hi - lo + 1) / 2;
+      if (timestampOf(mid) <= timestampSec) lo = mid; else hi = mid - 1;
+    }
+    return lo;
+  }
+
+  /**
+   * Complète l'index en continu depuis le dernier bloc backfillé, par lots JSON-RPC.
+   *
+   * @param upToBlock bloc maximum (en pratique le dernier bloc confirmé)
+   * @param maxBlocks nombre maximum de blocs traités par appel
+   * @return nombre de blocs ajoutés
+   */
+  public synchronized int backfill(long upToBlock, int maxBlocks) {
+    ChainIndexerState st = stateRepo.findById(INDEXER_NAME).orElseGet(() -> new ChainIndexerState(INDEXER_NAME));
+    long from = st.getLastIndexedBlock() + 1;
+    long to = Math.min(upToBlock, from + maxBlocks - 1);
+    if (from > to) return 0;
+
+    int stored = 0;
+    for (long start = from; start <= to; start += RPC_BATCH) {
+      long end = Math.min(to, start + RPC_BATCH - 1);
+      List<ChainBlockTime> rows = fetchRange(start, end);
+      repo.saveAll(rows);
+      stored += rows.size();
+      st.setLastIndexedBlock(end);
+      st.setUpdatedAt(Instant.now());
+      st = stateRepo.save(st);
+    }
+    return stored;
+  }
+
+  private List<ChainBlockTime> fetchRange(long fromBlock, long toBlock) {
+    BatchRequest batch = web3j.newBatch();
+    for (long n = fromBlock; n <= toBlock; n++) {
+      batch.add(web3j.ethGetBlockByNumber(new DefaultBlockParameterNumber(BigInteger.valueOf(n)), false));
+    }
+    List<ChainBlockTime> out = new ArrayList<>();
+    try {
+      for (Response<?> r : batch.send().getResponses()) {
+        EthBlock.Block b = ((EthBlock) r).getBlock();
+        if (b == null || b.getNumber() == null || b.getTimestamp() == null) {
+          throw new IllegalStateException("eth_getBlockByNumber returned no block in range " + fromBlock + ".." + toBlock);
+        }
+        out.add(new ChainBlockTime(b.getNumber().longValue(), b.getTimestamp().longValue()));
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("eth_getBlockByNumber batch failed: " + e.getMessage(), e);
+    }
+    return out;
+  }
+
+  private long fetchAndStore(long blockNumber) {
+    try {
+      var b = web3j.ethGetBlockByNumber(new DefaultBlockParameterNumber(BigInteger.valueOf(blockNumber)), false)
+          .send().getBlock();
+      if (b == null || b.getTimestamp() == null) return 0L;
+      long ts = b.getTimestamp().longValue();
+      repo.save(new ChainBlockTime(blockNumber, ts));
+      return ts;
+    } catch (IOException e) {
+      throw new IllegalStateException("eth_getBlockByNumber failed: " + e.getMessage(), e);
+    }
+  }
+
+  private long latestBlockNumber() {
+    try {
+      return web3j.ethBlockNumber().send().getBlockNumber().longValue();
+    } catch (IOException e) {
+      throw new IllegalStateException("eth_blockNumber failed: " + e.getMessage(), e);
+    }
+  }
+}
@@ -12,73 +12,28 @@ import com.fancapital.backend.auth.repo.AppUserRepository;
 import com.fancapital.backend.blockchain.model.InvestorProfileDtos.InvestorProfileResponse;
 import com.fancapital.backend.blockchain.model.TxHistoryDtos.TxHistoryResponse;
 import com.fancapital.backend.blockchain.model.TxHistoryDtos.TxRow;
+import com.fancapital.backend.blockchain.model.ChainTxEvent;
+import com.fancapital.backend.blockchain.repo.ChainTxEventRepository;
 import com.fancapital.backend.backoffice.service.DeploymentInfraService;
 import com.fancapital.backend.config.BlockchainProperties;
-import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.web3j.abi.TypeReference;
-import org.web3j.abi.EventEncoder;
-import org.web3j.abi.FunctionReturnDecoder;
 import org.web3j.abi.datatypes.Bool;
 import org.web3j.abi.datatypes.Address;
-import org.web3j.abi.datatypes.Event;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.abi.datatypes.generated.Uint64;
 import org.web3j.abi.datatypes.Type;
-import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.DefaultBlockParameterName;
-import org.web3j.protocol.core.DefaultBlockParameterNumber;
-import org.web3j.protocol.core.methods.request.EthFilter;
-import org.web3j.protocol.core.methods.response.Log;
 
 @Service
 public class BlockchainReadService {
   private static final BigInteger PRICE_SCALE = BigInteger.valueOf(100_000_000L); // 1e8
   private static final BigInteger BPS = BigInteger.valueOf(10_000);
-  private static final String ZERO_TOPIC = "0x0000000000000000000000000000000000000000000000000000000000000000";
-
-  private static final Event BOUGHT = new Event(
-      "Bought",
-      List.of(
-          TypeReference.create(Address.class, true), // token (indexed)
-          TypeReference.create(Address.class, true), // user (indexed)
-          TypeReference.create(Uint256.class),       // tndIn
-          TypeReference.create(Uint256.class),       // priceClient
-          TypeReference.create(Uint256.class),       // mintedAmount
-          TypeReference.create(Uint256.class),       // feeBase
-          TypeReference.create(Uint256.class),       // vat
-          TypeReference.create(Uint256.class)        // totalFee
-      )
-  );
-
-  private static final Event SOLD = new Event(
-      "Sold",
-      List.of(
-          TypeReference.create(Address.class, true), // token (indexed)
-          TypeReference.create(Address.class, true), // user (indexed)
-          TypeReference.create(Uint256.class),       // tokenAmount
-          TypeReference.create(Uint256.class),       // priceClient
-          TypeReference.create(Uint256.class),       // tndOut
-          TypeReference.create(Uint256.class),       // feeBase
-          TypeReference.create(Uint256.class),       // vat
-          TypeReference.create(Uint256.class)        // totalFee
-      )
-  );
-
-  private static final Event TRANSFER = new Event(
-      "Transfer",
-      List.of(
-          TypeReference.create(Address.class, true), // from
-          TypeReference.create(Address.class, true), // to
-          TypeReference.create(Uint256.class)        // value
-      )
-  );
 
   private static final BigInteger CREDIT_LINE_KYC1 = BigInteger.valueOf(5_000).multiply(PRICE_SCALE);
   private static final BigInteger CREDIT_LINE_KYC2 = BigInteger.valueOf(10_000).multiply(PRICE_SCALE);
@@ -87,18 +42,23 @@ public class BlockchainReadService {
   private final EvmCallService evm;
   private final BlockchainProperties props;
   private final DeploymentInfraService infra;
-  private final Web3j web3j;
   private final AppUserRepository userRepo;
   private final DebtManager debtManager;
+  private final ChainTxEventRepository txEvents;
+  private final TxEventIndexerService txIndexer;
+  private final PoolQuoteEngine quoteEngine;
 
-  public BlockchainReadService(DeploymentRegistry registry, EvmCallService evm, BlockchainProperties props, DeploymentInfraService infra, Web3j web3j, AppUserRepository userRepo, DebtManager debtManager) {
+  public BlockchainReadService(DeploymentRegistry registry, EvmCallService evm, BlockchainProperties props, DeploymentInfraService infra, AppUserRepository userRepo, DebtManager debtManager,
+      ChainTxEventRepository txEvents, TxEventIndexerService txIndexer, PoolQuoteEngine quoteEngine) {
     this.registry = registry;
     this.evm = evm;
     this.props = props;
     this.infra = infra;
-    this.web3j = web3j;
     this.userRepo = userRepo;
     this.debtManager = debtManager;
+    this.txEvents = txEvents;
+    this.txIndexer = txIndexer;
+    this.quoteEngine = quoteEngine;
   }
 
   public OracleVniResponse getVni(String tokenAddress) {
@@ -144,25 +104,7 @@ public class BlockchainReadService {
       return quoteBuyFixed(req, fixed);
     }
 
-    Function f = new Function(
-        "quoteBuy",
-        List.of(new Address(req.token()), new Address(req.user()), new Uint256(new BigInteger(req.tndIn()))),
-        List.of(
-            new TypeReference<Uint256>() {}, // priceClient
-            new TypeReference<Uint256>() {}, // minted
-            new TypeReference<Uint256>() {}, // feeBase
-            new TypeReference<Uint256>() {}, // vat
-            new TypeReference<Uint256>() {}  // totalFee
-        )
-    );
-    List<Type> out = evm.ethCall(fund.pool(), f);
-    return new QuoteBuyResponse(
-        EvmCallService.uint(out.get(0)).toString(),
-        EvmCallService.uint(out.get(1)).toString(),
-        EvmCallService.uint(out.get(2)).toString(),
-        EvmCallService.uint(out.get(3)).toString(),
-        EvmCallService.uint(out.get(4)).toString()
-    );
+    return quoteEngine.enabled() ? quoteEngine.quoteBuy(fund, req) : quoteEngine.onchainQuoteBuy(fund, req);
   }
 
   public QuoteSellResponse quoteSell(QuoteSellRequest req) {
@@ -174,74 +116,103 @@ public class BlockchainReadService {
       return quoteSellFixed(req, fixed);
     }
 
-    Function f = new Function(
-        "quoteSell",
-        List.of(new Address(req.token()), new Address(req.user()), new Uint256(new BigInteger(req.tokenAmount()))),
-        List.of(
-            new TypeReference<Uint256>() {}, // priceClient
-            new TypeReference<Uint256>() {}, // tndOut
-            new TypeReference<Uint256>() {}, // feeBase
-            new TypeReference<Uint256>() {}, // vat
-            new TypeReference<Uint256>() {}, // totalFee
-            new TypeReference<Uint256>() {}  // tax
-        )
-    );
-    List<Type> out = evm.ethCall(fund.pool(), f);
-    return new QuoteSellResponse(
-        EvmCallService.uint(out.get(0)).toString(),
-        EvmCallService.uint(out.get(1)).toString(),
-        EvmCallService.uint(out.get(2)).toString(),
-        EvmCallService.uint(out.get(3)).toString(),
-        EvmCallService.uint(out.get(4)).toString(),
-        EvmCallService.uint(out.get(5)).toString()
-    );
+    return quoteEngine.enabled() ? quoteEngine.quoteSell(fund, req) : quoteEngine.onchainQuoteSell(fund, req);
   }
 
   public PortfolioResponse portfolio(String userAddress) {
+    return portfolios(List.of(userAddress), null).get(0);
+  }
+
+  /**
+   * Portefeuilles de plusieurs wallets en une passe (registre d'audit, snapshots AUM, exports).
+   * La VNI est lue une fois par fonds ; soldes, verrous escrow, PRM et cash de tous les wallets sont lus
+   * par lots JSON-RPC, donc le coût suit fonds + wallets et non fonds × wallets.
+   *
+   * @param blockNumber null = dernier bloc (dette AST incluse) ; sinon soldes/verrous à ce bloc
+   * @return un PortfolioResponse par wallet, dans l'ordre de {@code wallets}
+   */
+  public List<PortfolioResponse> portfolios(List<String> wallets, BigInteger blockNumber) {
+    if (wallets.isEmpty()) return List.of();
     List<FundDto> funds = registry.listFunds();
-    List<PortfolioPosition> positions = new ArrayList<>();
+    String cashToken = infra.cashTokenAddress();
+    boolean hasCash = cashToken != null && !cashToken.isBlank();
 
-    BigInteger totalValue = BigInteger.ZERO;
-    BigInteger totalGain = BigInteger.ZERO;
+    List<BigInteger> vnis = new ArrayList<>(funds.size());
+    for (FundDto fund : funds) {
+      vnis.add(new BigInteger(getVni(fund.token()).vni()));
+    }
 
+    // Per fund, per wallet: balanceOf, escrowLockedAmount (at block), getPRM (latest); then cash per wallet.
+    List<EvmCallService.Call> atBlock = new ArrayList<>();
+    List<EvmCallService.Call> latest = new ArrayList<>();
     for (FundDto fund : funds) {
-      BigInteger bal = balanceOf(fund.token(), userAddress);
-      BigInteger locked = escrowLockedAmount(fund.token(), userAddress);
-      BigInteger prm = getPrm(fund.token(), userAddress);
-      BigInteger vni = new BigInteger(getVni(fund.token()).vni());
-
-      BigInteger valueTnd = bal.multiply(vni).divide(PRICE_SCALE);
-      BigInteger gainPerToken = vni.subtract(prm);
-      if (gainPerToken.signum() < 0) gainPerToken = BigInteger.ZERO;
-      BigInteger gainTnd = bal.multiply(gainPerToken).divide(PRICE_SCALE);
-
-      totalValue = totalValue.add(valueTnd);
-      totalGain = totalGain.add(gainTnd);
-
-      positions.add(new PortfolioPosition(
-          fund.id(),
-          fund.name(),
-          fund.symbol(),
-          fund.token(),
-          fund.pool(),
-          fund.oracle(),
-          bal.toString(),
-          locked.toString(),
-          vni.toString(),
-          prm.toString(),
-          valueTnd.toString(),
-          gainTnd.toString()
-      ));
+      for (String w : wallets) {
+        atBlock.add(new EvmCallService.Call(fund.token(), uintView("balanceOf", w)));
+        atBlock.add(new EvmCallService.Call(fund.token(), uintView("escrowLockedAmount", w)));
+        latest.add(new EvmCallService.Call(fund.token(), uintView("getPRM", w)));
+      }
+    }
+    if (hasCash) {
+      for (String w : wallets) atBlock.add(new EvmCallService.Call(cashToken, uintView("balanceOf", w)));
+    }
+    List<List<Type>> atBlockOut = evm.ethCallBatch(atBlock, blockNumber);
+    List<List<Type>> latestOut = evm.ethCallBatch(latest, null);
+    Map<String, CreditReadService.LoanInfo> activeLoans = blockNumber == null ? debtManager.activeLoansByWallet() : Map.of();
+
+    List<PortfolioResponse> out = new ArrayList<>(wallets.size());
+    for (int wi = 0; wi < wallets.size(); wi++) {
+      String userAddress = wallets.get(wi);
+      List<PortfolioPosition> positions = new ArrayList<>();
+      BigInteger totalValue = BigInteger.ZERO;
+      BigInteger totalGain = BigInteger.ZERO;
+
+      for (int fi = 0; fi < funds.size(); fi++) {
+        FundDto fund = funds.get(fi);
+        int idx = fi * wallets.size() + wi;
+        BigInteger bal = firstUint(atBlockOut.get(2 * idx));
+        BigInteger locked = firstUint(atBlockOut.get(2 * idx + 1));
+        BigInteger prm = firstUint(latestOut.get(idx));
+        BigInteger vni = vnis.get(fi);
+
+        BigInteger valueTnd = bal.multiply(vni).divide(PRICE_SCALE);
+        BigInteger gainPerToken = vni.subtract(prm);
+        if (gainPerToken.signum() < 0) gainPerToken = BigInteger.ZERO;
+        BigInteger gainTnd = bal.multiply(gainPerToken).divide(PRICE_SCALE);
+
+        totalValue = totalValue.add(valueTnd);
+        totalGain = totalGain.add(gainTnd);
+
+        positions.add(new PortfolioPosition(
+            fund.id(),
+            fund.name(),
+            fund.symbol(),
+            fund.token(),
+            fund.pool(),
+            fund.oracle(),
+            bal.toString(),
+            locked.toString(),
+            vni.toString(),
+            prm.toString(),
+            valueTnd.toString(),
+            gainTnd.toString()
+        ));
+      }
+
+      BigInteger cashBal = hasCash ? firstUint(atBlockOut.get(2 * funds.size() * wallets.size() + wi)) : BigInteger.ZERO;
+      BigInteger creditLine = creditLineForWallet(userAddress);
+      var activeLoan = activeLoans.get(userAddress.toLowerCase());
+      BigInteger creditDebt = activeLoan != null ? activeLoan.principalTnd() : BigInteger.ZERO;
+      out.add(new PortfolioResponse(userAddress, positions, cashBal.toString(), creditLine.toString(), creditDebt.toString(), totalValue.toString(), totalGain.toString()));
     }
+    return out;
+  }
 
-    String cashToken = infra.cashTokenAddress();
-    BigInteger cashBal = (cashToken == null || cashToken.isBlank()) ? BigInteger.ZERO : balanceOf(cashToken, userAddress);
-    BigInteger creditLine = creditLineForWallet(userAddress);
-    BigInteger creditDebt = BigInteger.ZERO;
-    var activeLoan = debtManager.getActiveLoanForUser(userAddress);
-    if (activeLoan != null) creditDebt = activeLoan.principalTnd();
+  private static Function uintView(String name, String user) {
+    return new Function(name, List.of(new Address(user)), List.of(new TypeReference<Uint256>() {}));
+  }
 
-    return new PortfolioResponse(userAddress, positions, cashBal.toString(), creditLine.toString(), creditDebt.toString(), totalValue.toString(), totalGain.toString());
+  private static BigInteger firstUint(List<Type> out) {
+    return out == null || out.isEmpty() ? BigInteger.ZERO : EvmCallService.uint(out.get(0));
   }
 
   /** Ligne de crédit test: KYC1=5000 TND, KYC2=10000 TND (jusqu'à intégration API paiement). */
@@ -256,49 +227,27 @@ public class BlockchainReadService {
    * Note: VNI/oracle reads will still use "latest" unless fixed price overrides are enabled.
    */
   public PortfolioResponse portfolioAtBlock(String userAddress, BigInteger blockNumber) {
-    List<FundDto> funds = registry.listFunds();
-    List<PortfolioPosition> positions = new ArrayList<>();
-
-    BigInteger totalValue = BigInteger.ZERO;
-    BigInteger totalGain = BigInteger.ZERO;
-
-    for (FundDto fund : funds) {
-      BigInteger bal = balanceOfAtBlock(fund.token(), userAddress, blockNumber);
-      BigInteger locked = escrowLockedAmountAtBlock(fund.token(), userAddress, blockNumber);
-      BigInteger prm = getPrm(fund.token(), userAddress);
-      BigInteger vni = new BigInteger(getVni(fund.token()).vni());
-
-      BigInteger valueTnd = bal.multiply(vni).divide(PRICE_SCALE);
-      BigInteger gainPerToken = vni.subtract(prm);
-      if (gainPerToken.signum() < 0) gainPerToken = BigInteger.ZERO;
-      BigInteger gainTnd = bal.multiply(gainPerToken).divide(PRICE_SCALE);
-
-      totalValue = totalValue.add(valueTnd);
-      totalGain = totalGain.add(gainTnd);
-
-      positions.add(new PortfolioPosition(
-          fund.id(),
-          fund.name(),
-          fund.symbol(),
-          fund.token(),
-          fund.pool(),
-          fund.oracle(),
-          bal.toString(),
-          locked.toString(),
-          vni.toString(),
-          prm.toString(),
-          valueTnd.toString(),
-          gainTnd.toString()
-      ));
-    }
-
-    String cashToken = infra.cashTokenAddress();
-    BigInteger cashBal = (cashToken == null || cashToken.isBlank())
-        ? BigInteger.ZERO
-        : balanceOfAtBlock(cashToken, userAddress, blockNumber);
-    BigInteger creditLine = creditLineForWallet(userAddress);
+    return portfolios(List.of(userAddress), blockNumber).get(0);
+  }
 
-    return new PortfolioResponse(userAddress, positions, cashBal.toString(), creditLine.toString(), "0", totalValue.toString(), totalGain.toString());
+  /**
+   * VNI d'un fonds à un bloc passé (PriceOracle.getVNIData en eth_call à ce bloc), pour la reconstitution
+   * de l'historique AUM. La VNI fixe de configuration s'applique si elle est activée.
+   *
+   * @return VNI (échelle 1e8), ou null si l'oracle n'a pas de valeur à ce bloc
+   */
+  public BigInteger vni1e8AtBlock(FundDto fund, BigInteger blockNumber) {
+    BigInteger fixed = fixedVni1e8ForFund(fund);
+    if (fixed != null) return fixed;
+    Function f = new Function(
+        "getVNIData",
+        List.of(new Address(fund.token())),
+        List.of(new TypeReference<Uint256>() {}, new TypeReference<Uint64>() {})
+    );
+    List<Type> out = evm.ethCallAtBlock(fund.oracle(), f, blockNumber);
+    if (out == null || out.isEmpty()) return null;
+    BigInteger vni = EvmCallService.uint(out.get(0));
+    return vni.signum() > 0 ? vni : null;
   }
 
   public InvestorProfileResponse investorProfile(String userAddress) {
@@ -406,159 +355,61 @@ public class BlockchainReadService {
   }
 
   public TxHistoryResponse txHistory(String userAddress, int limit) {
-    if (limit <= 0) limit = 100;
-    if (limit > 500) limit = 500;
-
-    String userTopic = topicAddress(userAddress);
-    List<TxRow> out = new ArrayList<>();
-
-    // ----- Buy/Sell events from all pools -----
-    List<String> pools = registry.listFunds().stream().map(FundDto::pool).distinct().toList();
-    out.addAll(fetchPoolEvents("BUY", BOUGHT, pools, userTopic));
-    out.addAll(fetchPoolEvents("SELL", SOLD, pools, userTopic));
-
-    // ----- Cash mint/burn (deposit/withdraw) -----
-    String cashToken = infra.cashTokenAddress();
-    if (cashToken != null && !cashToken.isBlank()) {
-      out.addAll(fetchCashEvents("DEPOSIT", cashToken, ZERO_TOPIC, userTopic));
-      out.addAll(fetchCashEvents("WITHDRAW", cashToken, userTopic, ZERO_TOPIC));
-    }
-
-    out.sort((a, b) -> {
-      int t = Long.compare(b.timestampSec(), a.timestampSec());
-      if (t != 0) return t;
-      return Long.compare(b.blockNumber(), a.blockNumber());
-    });
-
-    if (out.size() > limit) out = out.subList(0, limit);
-    return new TxHistoryResponse(userAddress, out);
+    return txHistory(userAddress, limit, null);
   }
 
-  private List<TxRow> fetchPoolEvents(String kind, Event ev, List<String> pools, String userTopic) {
-    String topic0 = EventEncoder.encode(ev);
-    EthFilter filter = new EthFilter(
-        new DefaultBlockParameterNumber(BigInteger.ZERO),
-        DefaultBlockParameterName.LATEST,
-        pools
-    );
-    filter.addSingleTopic(topic0);
-    filter.addNullTopic();          // token indexed (any)
-    filter.addSingleTopic(userTopic); // user indexed
-
-    List<Log> logs;
-    try {
-      logs = web3j.ethGetLogs(filter).send().getLogs().stream().map(lr -> (Log) lr.get()).toList();
-    } catch (IOException e) {
-      throw new IllegalStateException("eth_getLogs failed: " + e.getMessage(), e);
-    }
-
-    Map<BigInteger, Long> tsCache = new HashMap<>();
-    List<TxRow> out = new ArrayList<>();
-    for (Log l : logs) {
-      if (l.getTopics() == null || l.getTopics().size() < 3) continue;
-      String tokenAddr = "0x" + l.getTopics().get(1).substring(l.getTopics().get(1).length() - 40);
-      FundDto fund = registry.findByToken(tokenAddr).orElse(null);
-
-      List<Type> decoded = FunctionReturnDecoder.decode(l.getData(), ev.getNonIndexedParameters());
-      BigInteger a0 = EvmCallService.uint(decoded.get(0));
-      BigInteger priceClient = EvmCallService.uint(decoded.get(1));
-      BigInteger a2 = EvmCallService.uint(decoded.get(2));
-
-      BigInteger blockNo = l.getBlockNumber();
-      long ts = blockTimestampSec(blockNo, tsCache);
-      String id = l.getTransactionHash() + ":" + (l.getLogIndex() != null ? l.getLogIndex().toString() : "0");
-
-      String amountTnd;
-      String amountToken;
-      if ("BUY".equals(kind)) {
-        amountTnd = a0.toString();     // tndIn
-        amountToken = a2.toString();   // minted
-      } else {
-        amountTnd = a2.toString();     // tndOut
-        amountToken = a0.toString();   // tokenAmount
-      }
-
-      out.add(new TxRow(
-          id,
-          kind,
-          fund != null ? fund.id() : -1,
-          fund != null ? fund.name() : "Unknown",
-          fund != null ? fund.symbol() : "",
-          tokenAddr,
-          amountTnd,
-          amountToken,
-          priceClient.toString(),
-          blockNo.longValue(),
-          ts,
-          l.getTransactionHash()
-      ));
-    }
-    return out;
-  }
-
-  private List<TxRow> fetchCashEvents(String kind, String cashToken, String topicFrom, String topicTo) {
-    String topic0 = EventEncoder.encode(TRANSFER);
-    EthFilter filter = new EthFilter(
-        new DefaultBlockParameterNumber(BigInteger.ZERO),
-        DefaultBlockParameterName.LATEST,
-        cashToken
-    );
-    filter.addSingleTopic(topic0);
-    filter.addSingleTopic(topicFrom);
-    filter.addSingleTopic(topicTo);
+  /**
+   * Historique servi depuis l'index local des événements (voir {@link TxEventIndexerService}).
+   * Pagination keyset sur (blockNumber, logIndex) : {@code cursor} = "block:logIndex" de la dernière ligne reçue.
+   */
+  public TxHistoryResponse txHistory(String userAddress, int limit, String cursor) {
+    if (limit <= 0) limit = 100;
+    if (limit > 500) limit = 500;
 
-    List<Log> logs;
-    try {
-      logs = web3j.ethGetLogs(filter).send().getLogs().stream().map(lr -> (Log) lr.get()).toList();
-    } catch (IOException e) {
-      throw new IllegalStateException("eth_getLogs failed: " + e.getMessage(), e);
+    String wallet = userAddress.trim().toLowerCase();
+    PageRequest page = PageRequest.of(0, limit);
+    List<ChainTxEvent> events;
+    if (cursor == null || cursor.isBlank()) {
+      events = txEvents.findLatestForWallet(wallet, page);
+    } else {
+      long[] pos = parseCursor(cursor);
+      events = txEvents.findForWalletBefore(wallet, pos[0], pos[1], page);
     }
 
-    Map<BigInteger, Long> tsCache = new HashMap<>();
-    List<TxRow> out = new ArrayList<>();
-    for (Log l : logs) {
-      List<Type> decoded = FunctionReturnDecoder.decode(l.getData(), TRANSFER.getNonIndexedParameters());
-      BigInteger value = EvmCallService.uint(decoded.get(0));
-      BigInteger blockNo = l.getBlockNumber();
-      long ts = blockTimestampSec(blockNo, tsCache);
-      String id = l.getTransactionHash() + ":" + (l.getLogIndex() != null ? l.getLogIndex().toString() : "0");
-
-      out.add(new TxRow(
-          id,
-          kind,
-          -1,
-          "Cash",
-          "TND",
-          cashToken,
-          value.toString(),
-          "0",
-          "0",
-          blockNo.longValue(),
-          ts,
-          l.getTransactionHash()
-      ));
+    List<TxRow> out = events.stream().map(BlockchainReadService::toTxRow).toList();
+    String nextCursor = null;
+    if (events.size() == limit) {
+      ChainTxEvent last = events.get(events.size() - 1);
+      nextCursor = last.getBlockNumber() + ":" + last.getLogIndex();
     }
-    return out;
+    return new TxHistoryResponse(userAddress, out, nextCursor, txIndexer.lastIndexedBlock());
   }
 
-  private long blockTimestampSec(BigInteger blockNo, Map<BigInteger, Long> cache) {
-    if (blockNo == null) return 0;
-    Long cached = cache.get(blockNo);
-    if (cached != null) return cached;
+  private static long[] parseCursor(String cursor) {
+    String[] parts = cursor.trim().split(":");
+    if (parts.length != 2) throw new IllegalArgumentException("cursor must be <block>:<logIndex>");
     try {
-      var b = web3j.ethGetBlockByNumber(new DefaultBlockParameterNumber(blockNo), false).send().getBlock();
-      long ts = b != null && b.getTimestamp() != null ? b.getTimestamp().longValue() : 0L;
-      cache.put(blockNo, ts);
-      return ts;
-    } catch (IOException e) {
-      throw new IllegalStateException("eth_getBlockByNumber failed: " + e.getMessage(), e);
+      return new long[] {Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("cursor must be <block>:<logIndex>");
     }
   }
 
-  private static String topicAddress(String addr) {
-    String a = addr.toLowerCase();
-    if (a.startsWith("0x")) a = a.substring(2);
-    return "0x" + "0".repeat(24) + a;
+  private static TxRow toTxRow(ChainTxEvent e) {
+    return new TxRow(
+        e.getId(),
+        e.getKind(),
+        e.getFundId(),
+        e.getFundName(),
+        e.getFundSymbol(),
+        e.getTokenAddress(),
+        e.getAmountTnd1e8(),
+        e.getAmountToken1e8(),
+        e.getPriceClient1e8(),
+        e.getBlockNumber(),
+        e.getTimestampSec(),
+        e.getTxHash()
+    );
   }
 
   private BigInteger balanceOf(String token, String user) {
@@ -596,41 +447,6 @@ public class BlockchainReadService {
     return EvmCallService.uint(out.get(0));
   }
 
-  private BigInteger escrowLockedAmountAtBlock(String token, String user, BigInteger blockNumber) {
-    Function f = new Function(
-        "escrowLockedAmount",
-        List.of(new Address(user)),
-        List.of(new TypeReference<Uint256>() {})
-    );
-    List<Type> out = evm.ethCallAtBlock(token, f, blockNumber);
-    if (out == null || out.isEmpty()) return BigInteger.ZERO;
-    return EvmCallService.uint(out.get(0));
-  }
-
-  private BigInteger balanceOfAtBlock(String token, String user, BigInteger blockNumber) {
-    Function f = new Function(
-        "balanceOf",
-        List.of(new Address(user)),
-        List.of(new TypeReference<Uint256>() {})
-    );
-    List<Type> out = evm.ethCallAtBlock(token, f, blockNumber);
-    if (out == null || out.isEmpty()) {
-      return BigInteger.ZERO;
-    }
-    return EvmCallService.uint(out.get(0));
-  }
-
-  private BigInteger getPrm(String token, String user) {
-    Function f = new Function(
-        "getPRM",
-        List.of(new Address(user)),
-        List.of(new TypeReference<Uint256>() {})
-    );
-    List<Type> out = evm.ethCall(token, f);
-    if (out == null || out.isEmpty()) return BigInteger.ZERO;
-    return EvmCallService.uint(out.get(0));
-  }
-
   private BigInteger fixedVni1e8ForFund(FundDto fund) {
     BlockchainProperties.PriceOverrides po = props.priceOverrides();
     if (po == null || !po.enabled()) return null;
@@ -1,6 +1,8 @@
 package com.fancapital.backend.blockchain.service;
 
 import com.fancapital.backend.backoffice.service.DeploymentInfraService;
+import com.fancapital.backend.blockchain.service.FeeOracleService.Urgency;
+import com.fancapital.backend.blockchain.service.TxSubmitterService.KeyLane;
 import com.fancapital.backend.config.BlockchainProperties;
 import java.io.IOException;
 import java.math.BigInteger;
@@ -10,12 +12,7 @@ import org.web3j.abi.FunctionEncoder;
 import org.web3j.abi.datatypes.Address;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.generated.Uint256;
-import org.web3j.crypto.Credentials;
-import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.methods.response.EthGasPrice;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
-import org.web3j.tx.RawTransactionManager;
-import org.web3j.tx.TransactionManager;
 
 /**
  * Service pour gérer la Burn Key (clé de destruction de tokens).
@@ -27,12 +24,12 @@ import org.web3j.tx.TransactionManager;
  */
 @Service
 public class BurnKeyService {
-  private final Web3j web3j;
+  private final TxSubmitterService txSubmitter;
   private final BlockchainProperties props;
   private final DeploymentInfraService infra;
 
-  public BurnKeyService(Web3j web3j, BlockchainProperties props, DeploymentInfraService infra) {
-    this.web3j = web3j;
+  public BurnKeyService(TxSubmitterService txSubmitter, BlockchainProperties props, DeploymentInfraService infra) {
+    this.txSubmitter = txSubmitter;
     this.props = props;
     this.infra = infra;
   }
@@ -55,9 +52,7 @@ public class BurnKeyService {
       throw new IllegalStateException("CashTokenTND address not configured in deployments infra.");
     }
 
-    Credentials credentials = Credentials.create(burnKey.trim());
-    BigInteger chainId = chainId();
-    TransactionManager tm = new RawTransactionManager(web3j, credentials, chainId.longValue());
+    KeyLane tm = txSubmitter.forKey(burnKey);
 
     Function fn = new Function(
         "burn",
@@ -66,11 +61,10 @@ public class BurnKeyService {
     );
     String data = FunctionEncoder.encode(fn);
 
-    BigInteger gasPrice = suggestedGasPrice();
     BigInteger gasLimit = BigInteger.valueOf(250_000);
 
     try {
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, gasLimit, cashToken, data, BigInteger.ZERO);
+      EthSendTransaction tx = tm.send(Urgency.NORMAL, gasLimit, cashToken, data, BigInteger.ZERO);
       if (tx.hasError()) {
         throw new IllegalStateException("burn failed: " + tx.getError().getMessage());
       }
@@ -79,25 +73,4 @@ public class BurnKeyService {
       throw new IllegalStateException("burn RPC error: " + e.getMessage(), e);
     }
   }
-
-  private BigInteger suggestedGasPrice() {
-    try {
-      EthGasPrice gp = web3j.ethGasPrice().send();
-      if (gp.hasError()) {
-        throw new IllegalStateException("eth_gasPrice error: " + gp.getError().getMessage());
-      }
-      BigInteger v = gp.getGasPrice();
-      return v.multiply(BigInteger.valueOf(12)).divide(BigInteger.TEN);
-    } catch (IOException e) {
-      return BigInteger.valueOf(1_000_000_000L);
-    }
-  }
-
-  private BigInteger chainId() {
-    try {
-      return web3j.ethChainId().send().getChainId();
-    } catch (IOException e) {
-      return BigInteger.valueOf(31337);
-    }
-  }
 }
@@ -0,0 +1,217 @@
+package com.fancapital.backend.blockchain.service;
+
+import java.util.List;
+import java.util.Locale;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.generated.Int256;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.abi.datatypes.generated.Uint64;
+import org.web3j.abi.datatypes.generated.Uint8;
+
+/**
+ * Signatures des événements on-chain lus par les indexeurs (LiquidityPool, ERC20, EscrowRegistry, CPEFToken,
+ * CreditModelA / CreditModelBPGP).
+ */
+public final class ChainEvents {
+
+  private ChainEvents() {}
+
+  public static final String ZERO_TOPIC = "0x0000000000000000000000000000000000000000000000000000000000000000";
+
+  public static final Event BOUGHT = new Event(
+      "Bought",
+      List.of(
+          TypeReference.create(Address.class, true), // token (indexed)
+          TypeReference.create(Address.class, true), // user (indexed)
+          TypeReference.create(Uint256.class),       // tndIn
+          TypeReference.create(Uint256.class),       // priceClient
+          TypeReference.create(Uint256.class),       // mintedAmount
+          TypeReference.create(Uint256.class),       // feeBase
+          TypeReference.create(Uint256.class),       // vat
+          TypeReference.create(Uint256.class)        // totalFee
+      )
+  );
+
+  public static final Event SOLD = new Event(
+      "Sold",
+      List.of(
+          TypeReference.create(Address.class, true), // token (indexed)
+          TypeReference.create(Address.class, true), // user (indexed)
+          TypeReference.create(Uint256.class),       // tokenAmount
+          TypeReference.create(Uint256.class),       // priceClient
+          TypeReference.create(Uint256.class),       // tndOut
+          TypeReference.create(Uint256.class),       // feeBase
+          TypeReference.create(Uint256.class),       // vat
+          TypeReference.create(Uint256.class)        // totalFee
+      )
+  );
+
+  public static final Event TRANSFER = new Event(
+      "Transfer",
+      List.of(
+          TypeReference.create(Address.class, true), // from
+          TypeReference.create(Address.class, true), // to
+          TypeReference.create(Uint256.class)        // value
+      )
+  );
+
+  /** ERC20 Approval(owner indexed, spender indexed, value). */
+  public static final Event APPROVAL = new Event(
+      "Approval",
+      List.of(
+          TypeReference.create(Address.class, true), // owner
+          TypeReference.create(Address.class, true), // spender
+          TypeReference.create(Uint256.class)        // value
+      )
+  );
+
+  /** EscrowRegistry.CollateralLocked / CollateralUnlocked(loanId, user, token indexed; amount). */
+  public static final Event COLLATERAL_LOCKED = new Event(
+      "CollateralLocked",
+      List.of(
+          TypeReference.create(Uint256.class, true), // loanId
+          TypeReference.create(Address.class, true), // user
+          TypeReference.create(Address.class, true), // token
+          TypeReference.create(Uint256.class)        // amount
+      )
+  );
+
+  public static final Event COLLATERAL_UNLOCKED = new Event(
+      "CollateralUnlocked",
+      List.of(
+          TypeReference.create(Uint256.class, true), // loanId
+          TypeReference.create(Address.class, true), // user
+          TypeReference.create(Address.class, true), // token
+          TypeReference.create(Uint256.class)        // amount
+      )
+  );
+
+  /** CPEFToken.EscrowLockUpdated(user indexed, locked). */
+  public static final Event ESCROW_LOCK_UPDATED = new Event(
+      "EscrowLockUpdated",
+      List.of(
+          TypeReference.create(Address.class, true), // user
+          TypeReference.create(Bool.class)           // locked
+      )
+  );
+
+  // Inputs of LiquidityPool pricing (see PoolQuoteEngine): only topic0 is used, data is re-read on refresh.
+  public static final Event VNI_UPDATED = oracleEvent("VNIUpdated");
+  public static final Event VNI_FORCE_UPDATED = oracleEvent("VNIForceUpdated");
+  public static final Event VOLATILITY_UPDATED = oracleEvent("VolatilityUpdated");
+
+  public static final Event POOL_FEE_UPDATED = new Event(
+      "PoolFeeUpdated",
+      List.of(TypeReference.create(Uint8.class, true), TypeReference.create(Uint256.class))
+  );
+  public static final Event SPREAD_DISCOUNT_UPDATED = new Event(
+      "SpreadDiscountUpdated",
+      List.of(TypeReference.create(Uint8.class, true), TypeReference.create(Uint256.class))
+  );
+  public static final Event BASE_SPREAD_UPDATED = new Event(
+      "BaseSpreadUpdated",
+      List.of(TypeReference.create(Uint256.class), TypeReference.create(Uint256.class))
+  );
+  public static final Event SPREAD_PARAMS_UPDATED = new Event(
+      "SpreadParamsUpdated",
+      List.of(TypeReference.create(Uint256.class), TypeReference.create(Uint256.class), TypeReference.create(Uint256.class))
+  );
+
+  /** CPEFToken.PRMUpdated(user indexed, oldPRM, newPRM). */
+  public static final Event PRM_UPDATED = new Event(
+      "PRMUpdated",
+      List.of(TypeReference.create(Address.class, true), TypeReference.create(Uint256.class), TypeReference.create(Uint256.class))
+  );
+
+  /** InvestorRegistry.FeeLevelUpdated(user indexed, feeLevel). */
+  public static final Event FEE_LEVEL_UPDATED = new Event(
+      "FeeLevelUpdated",
+      List.of(TypeReference.create(Address.class, true), TypeReference.create(Uint8.class))
+  );
+
+  // CreditModelA / CreditModelBPGP (loanId indexed first): only topic0 and loanId are used, the loan is re-read.
+  public static final Event LOAN_REQUESTED = new Event(
+      "LoanRequested",
+      List.of(
+          TypeReference.create(Uint256.class, true), // loanId
+          TypeReference.create(Address.class, true), // user
+          TypeReference.create(Address.class, true), // token
+          TypeReference.create(Uint256.class),       // collateralAmount
+          TypeReference.create(Uint256.class)        // principalTnd
+      )
+  );
+  public static final Event LOAN_ACTIVATED = new Event(
+      "LoanActivated",
+      List.of(TypeReference.create(Uint256.class, true), TypeReference.create(Uint64.class), TypeReference.create(Uint64.class))
+  );
+  public static final Event LOAN_CLOSED = new Event("LoanClosed", List.of(TypeReference.create(Uint256.class, true)));
+  /** CreditModelBPGP.LoanClosed(loanId indexed, performanceTnd, fanShareTnd, clientShareTnd). */
+  public static final Event LOAN_CLOSED_B = new Event(
+      "LoanClosed",
+      List.of(
+          TypeReference.create(Uint256.class, true),
+          TypeReference.create(Int256.class),
+          TypeReference.create(Uint256.class),
+          TypeReference.create(Uint256.class)
+      )
+  );
+  public static final Event LOAN_CANCELLED = new Event("LoanCancelled", List.of(TypeReference.create(Uint256.class, true)));
+  public static final Event REPAYMENT_RECORDED = new Event(
+      "RepaymentRecorded",
+      List.of(TypeReference.create(Uint256.class, true), TypeReference.create(Uint256.class))
+  );
+
+  public static final String BOUGHT_TOPIC = EventEncoder.encode(BOUGHT);
+  public static final String SOLD_TOPIC = EventEncoder.encode(SOLD);
+  public static final String TRANSFER_TOPIC = EventEncoder.encode(TRANSFER);
+  public static final String APPROVAL_TOPIC = EventEncoder.encode(APPROVAL);
+  public static final String COLLATERAL_LOCKED_TOPIC = EventEncoder.encode(COLLATERAL_LOCKED);
+  public static final String COLLATERAL_UNLOCKED_TOPIC = EventEncoder.encode(COLLATERAL_UNLOCKED);
+  public static final String ESCROW_LOCK_UPDATED_TOPIC = EventEncoder.encode(ESCROW_LOCK_UPDATED);
+  public static final String VNI_UPDATED_TOPIC = EventEncoder.encode(VNI_UPDATED);
+  public static final String VNI_FORCE_UPDATED_TOPIC = EventEncoder.encode(VNI_FORCE_UPDATED);
+  public static final String VOLATILITY_UPDATED_TOPIC = EventEncoder.encode(VOLATILITY_UPDATED);
+  public static final String POOL_FEE_UPDATED_TOPIC = EventEncoder.encode(POOL_FEE_UPDATED);
+  public static final String SPREAD_DISCOUNT_UPDATED_TOPIC = EventEncoder.encode(SPREAD_DISCOUNT_UPDATED);
+  public static final String BASE_SPREAD_UPDATED_TOPIC = EventEncoder.encode(BASE_SPREAD_UPDATED);
+  public static final String SPREAD_PARAMS_UPDATED_TOPIC = EventEncoder.encode(SPREAD_PARAMS_UPDATED);
+  public static final String PRM_UPDATED_TOPIC = EventEncoder.encode(PRM_UPDATED);
+  public static final String FEE_LEVEL_UPDATED_TOPIC = EventEncoder.encode(FEE_LEVEL_UPDATED);
+  public static final String LOAN_REQUESTED_TOPIC = EventEncoder.encode(LOAN_REQUESTED);
+  public static final String LOAN_ACTIVATED_TOPIC = EventEncoder.encode(LOAN_ACTIVATED);
+  public static final String LOAN_CLOSED_TOPIC = EventEncoder.encode(LOAN_CLOSED);
+  public static final String LOAN_CLOSED_B_TOPIC = EventEncoder.encode(LOAN_CLOSED_B);
+  public static final String LOAN_CANCELLED_TOPIC = EventEncoder.encode(LOAN_CANCELLED);
+  public static final String REPAYMENT_RECORDED_TOPIC = EventEncoder.encode(REPAYMENT_RECORDED);
+
+  /** PriceOracle events: (token indexed, old, new, timestamp). */
+  private static Event oracleEvent(String name) {
+    return new Event(
+        name,
+        List.of(
+            TypeReference.create(Address.class, true),
+            TypeReference.create(Uint256.class),
+            TypeReference.create(Uint256.class),
+            TypeReference.create(Uint256.class)
+        )
+    );
+  }
+
+  /** Adresse → topic indexé (32 octets, padding à gauche). */
+  public static String topicAddress(String addr) {
+    String a = addr.toLowerCase(Locale.ROOT);
+    if (a.startsWith("0x")) a = a.substring(2);
+    return "0x" + "0".repeat(24) + a;
+  }
+
+  /** Topic indexé → adresse (40 derniers caractères hex, minuscules). */
+  public static String topicToAddress(String topic) {
+    String t = topic.toLowerCase(Locale.ROOT);
+    if (t.startsWith("0x")) t = t.substring(2);
+    return "0x" + t.substring(t.length() - 40);
+  }
+}
@@ -0,0 +1,139 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.blockchain.model.ChainBlockHeader;
+import com.fancapital.backend.blockchain.repo.ChainBlockHeaderRepository;
+import com.fancapital.backend.config.BlockchainProperties;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.methods.response.EthBlock;
+
+/**
+ * Pipeline d'ingestion commun : suit la tête de chaîne, mémorise les hashes des N derniers blocs
+ * (fenêtre non confirmée) et, sur incohérence parentHash, retrouve l'ancêtre commun puis demande
+ * à chaque {@link ChainIndexConsumer} d'annuler l'état dérivé des blocs abandonnés.
+ * <p>
+ * Les indexeurs peuvent ainsi travailler jusqu'à la tête sans rejouer la chaîne après un fork.
+ */
+@Service
+public class ChainHeadTracker {
+
+  private static final Logger log = LoggerFactory.getLogger(ChainHeadTracker.class);
+  private static final int DEFAULT_CONFIRMATIONS = 12;
+
+  private final Web3j web3j;
+  private final ChainBlockHeaderRepository headers;
+  private final List<ChainIndexConsumer> consumers;
+  private final int confirmations;
+
+  public ChainHeadTracker(
+      Web3j web3j,
+      BlockchainProperties props,
+      ChainBlockHeaderRepository headers,
+      List<ChainIndexConsumer> consumers
+  ) {
+    this.web3j = web3j;
+    this.headers = headers;
+    this.consumers = consumers;
+    int c = props.indexer() != null ? props.indexer().confirmations() : 0;
+    this.confirmations = c > 0 ? c : DEFAULT_CONFIRMATIONS;
+  }
+
+  /** Profondeur de la fenêtre non confirmée (en blocs). */
+  public int confirmations() {
+    return confirmations;
+  }
+
+  /** Dernier bloc considéré comme définitif pour une tête donnée. */
+  public long confirmedBlock(long head) {
+    return Math.max(-1, head - confirmations);
+  }
+
+  /**
+   * Vérifie la continuité des hashes jusqu'à la tête courante, annule les indexeurs en cas de fork.
+   *
+   * @return numéro du bloc de tête validé
+   */
+  public synchronized long advance() {
+    long latest = latestBlockNumber();
+    verifyStoredHead();
+
+    long head = headers.findTopByOrderByBlockNumberDesc().map(ChainBlockHeader::getBlockNumber).orElse(-1L);
+    // No need to walk confirmed history: start at most one window below the tip.
+    long start = Math.max(head + 1, Math.max(0, latest - confirmations));
+    for (long n = start; n <= latest; n++) {
+      EthBlock.Block b = block(n);
+      if (b == null) {
+        // The node moved its head back while we were walking; resume on the next run.
+        latest = n - 1;
+        break;
+      }
+      ChainBlockHeader prev = headers.findById(n - 1).orElse(null);
+      if (prev != null && !prev.getBlockHash().equalsIgnoreCase(b.getParentHash())) {
+        long ancestor = findCommonAncestor(n - 1);
+        rollback(ancestor, n - 1);
+        n = ancestor; // loop resumes at ancestor + 1 on the canonical chain
+        continue;
+      }
+      headers.save(new ChainBlockHeader(n, b.getHash(), b.getParentHash(), b.getTimestamp().longValue()));
+    }
+
+    headers.deleteBelow(latest - confirmations);
+    return latest;
+  }
+
+  /** Le bloc de tête mémorisé est-il toujours canonique ? Sinon on remonte jusqu'à l'ancêtre commun. */
+  private void verifyStoredHead() {
+    ChainBlockHeader top = headers.findTopByOrderByBlockNumberDesc().orElse(null);
+    if (top == null) return;
+    EthBlock.Block b = block(top.getBlockNumber());
+    if (b != null && top.getBlockHash().equalsIgnoreCase(b.getHash())) return;
+    long ancestor = findCommonAncestor(top.getBlockNumber());
+    rollback(ancestor, top.getBlockNumber());
+  }
+
+  private long findCommonAncestor(long fromBlock) {
+    long oldest = headers.findTopByOrderByBlockNumberAsc().map(ChainBlockHeader::getBlockNumber).orElse(fromBlock);
+    for (long n = fromBlock; n >= oldest; n--) {
+      ChainBlockHeader stored = headers.findById(n).orElse(null);
+      if (stored == null) continue;
+      EthBlock.Block b = block(n);
+      if (b != null && stored.getBlockHash().equalsIgnoreCase(b.getHash())) return n;
+    }
+    log.error("Chain reorg deeper than the {}-block window (below block {}); rolling indexers back to {}",
+        confirmations, oldest, oldest - 1);
+    return oldest - 1;
+  }
+
+  private void rollback(long ancestor, long oldHead) {
+    log.warn("Chain reorg detected: blocks {}..{} abandoned, common ancestor {}", ancestor + 1, oldHead, ancestor);
+    // Consumers first: if one fails, the stale headers stay and the next run retries the rollback.
+    for (ChainIndexConsumer c : consumers) {
+      c.rollbackAfter(ancestor);
+      log.info("Indexer {} rolled back to block {}", c.indexerName(), ancestor);
+    }
+    headers.deleteAbove(ancestor);
+  }
+
+  private EthBlock.Block block(long number) {
+    try {
+      return web3j.ethGetBlockByNumber(new DefaultBlockParameterNumber(BigInteger.valueOf(number)), false)
+          .send().getBlock();
+    } catch (IOException e) {
+      throw new IllegalStateException("eth_getBlockByNumber failed: " + e.getMessage(), e);
+    }
+  }
+
+  private long latestBlockNumber() {
+    try {
+      return web3j.ethBlockNumber().send().getBlockNumber().longValue();
+    } catch (IOException e) {
+      throw new IllegalStateException("eth_blockNumber failed: " + e.getMessage(), e);
+    }
+  }
+}
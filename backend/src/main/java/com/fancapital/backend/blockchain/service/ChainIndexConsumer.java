@@ -0,0 +1,15 @@
+package com.fancapital.backend.blockchain.service;
+
+/**
+ * Indexeur alimenté depuis la chaîne et capable d'annuler son état après une réorganisation.
+ * <p>
+ * Appelé par {@link ChainHeadTracker} quand le fork est détecté : tout ce qui a été dérivé de
+ * blocs strictement supérieurs à {@code ancestorBlock} doit être retiré, et le curseur de
+ * l'indexeur ramené au plus à {@code ancestorBlock}.
+ */
+public interface ChainIndexConsumer {
+
+  String indexerName();
+
+  void rollbackAfter(long ancestorBlock);
+}
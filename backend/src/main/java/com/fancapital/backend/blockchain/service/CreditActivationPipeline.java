@@ -0,0 +1,142 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.blockchain.model.CreditActivation;
+import com.fancapital.backend.blockchain.model.CreditActivation.Status;
+import com.fancapital.backend.blockchain.model.CreditLoan;
+import com.fancapital.backend.blockchain.repo.CreditActivationRepository;
+import com.fancapital.backend.config.BlockchainProperties;
+import jakarta.annotation.PreDestroy;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Pipeline d'auto-activation des demandes d'avance : alimenté par les prêts Requested de l'index des avances
+ * ({@link LoanIndexService.RequestListener}), sans parcours des loanId on-chain.
+ * <p>
+ * Les prêts indépendants sont activés en parallèle ({@code activate-parallelism} workers) : pendant qu'un
+ * worker attend la file de signature mint, un autre envoie son activateAdvance sur la file operator ; les
+ * lectures de chaque activation (prêt, solde collatéral, profil) se chevauchent aussi. Un même prêt n'est
+ * jamais en file deux fois, et la clé d'idempotence persistée ({@link CreditActivation}) empêche tout double
+ * crédit. {@link #sweep} rattrape ce que les événements n'ont pas apporté (démarrage, reprises différées).
+ */
+@Service
+@ConditionalOnProperty(name = "blockchain.credit.auto-activate", havingValue = "true", matchIfMissing = false)
+public class CreditActivationPipeline {
+
+  private static final Logger log = LoggerFactory.getLogger(CreditActivationPipeline.class);
+
+  private final CreditReadService creditRead;
+  private final CreditAdvanceActivationService activation;
+  private final CreditActivationRepository activations;
+  private final ExecutorService workers;
+  private final Duration staleMinting;
+  /** Clés en file ou en cours dans le pipeline. */
+  private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+  public CreditActivationPipeline(
+      LoanIndexService loanIndex,
+      CreditReadService creditRead,
+      CreditAdvanceActivationService activation,
+      CreditActivationRepository activations,
+      BlockchainProperties props
+  ) {
+    this.creditRead = creditRead;
+    this.activation = activation;
+    this.activations = activations;
+    BlockchainProperties.Credit c = props.credit();
+    int parallelism = c != null && c.activateParallelism() > 0 ? c.activateParallelism() : 4;
+    this.staleMinting = Duration.ofMillis(c != null && c.activateRetryMs() > 0 ? c.activateRetryMs() : 60_000L);
+    AtomicInteger threadNo = new AtomicInteger();
+    this.workers = Executors.newFixedThreadPool(parallelism, r -> {
+      Thread t = new Thread(r, "credit-activation-" + threadNo.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    loanIndex.addRequestListener((model, loan) -> submit(model, loan.loanId()));
+  }
+
+  /** Met le prêt en file d'activation, sauf s'il y est déjà. */
+  public void submit(String model, BigInteger loanId) {
+    String key = CreditLoan.buildId(model, loanId.longValueExact());
+    if (!queued.add(key)) return;
+    try {
+      workers.execute(() -> {
+        try {
+          String txHash = activation.activateAndCredit(loanId, model);
+          log.info("AST ({}) auto-activated loan {}: tx={}", model, loanId, txHash);
+        } catch (Exception e) {
+          log.warn("AST ({}) auto-activation failed for loan {}: {}", model, loanId, e.getMessage());
+        } finally {
+          queued.remove(key);
+        }
+      });
+    } catch (RuntimeException e) {
+      queued.remove(key);
+      throw e;
+    }
+  }
+
+  /**
+   * Rattrapage : demandes Requested (index local s'il est à jour, parcours on-chain sinon) dont la reprise est
+   * échue, activations verrouillées restant à créditer et mints interrompus (passés en REVIEW par le service).
+   *
+   * @return nombre de prêts mis en file
+   */
+  public int sweep() {
+    Map<String, BigInteger> candidates = new LinkedHashMap<>();
+    for (CreditReadService.LoanInfo l : creditRead.listRequestedLoans()) {
+      candidates.put(CreditLoan.buildId("A", l.loanId().longValueExact()), l.loanId());
+    }
+    for (CreditReadService.LoanInfo l : creditRead.listRequestedLoansB()) {
+      candidates.put(CreditLoan.buildId("B", l.loanId().longValueExact()), l.loanId());
+    }
+    Map<String, CreditActivation> known = new HashMap<>();
+    activations.findAllById(candidates.keySet()).forEach(a -> known.put(a.getId(), a));
+    Instant now = Instant.now();
+    for (CreditActivation a : activations.findByStatusOrderByUpdatedAtAsc(Status.LOCKED)) {
+      candidates.putIfAbsent(a.getId(), BigInteger.valueOf(a.getLoanId()));
+      known.put(a.getId(), a);
+    }
+    for (CreditActivation a : activations.findByStatusOrderByUpdatedAtAsc(Status.MINTING)) {
+      if (a.getUpdatedAt().isBefore(now.minus(staleMinting))) {
+        candidates.putIfAbsent(a.getId(), BigInteger.valueOf(a.getLoanId()));
+      }
+    }
+
+    int submitted = 0;
+    for (Map.Entry<String, BigInteger> e : candidates.entrySet()) {
+      CreditActivation a = known.get(e.getKey());
+      if (a != null && a.getStatus() != Status.MINTING
+          && (a.getStatus() == Status.CREDITED || a.getStatus() == Status.REVIEW || a.getNextAttemptAt().isAfter(now))) {
+        continue;
+      }
+      if (queued.contains(e.getKey())) continue;
+      submit(e.getKey().substring(0, 1), e.getValue());
+      submitted++;
+    }
+    return submitted;
+  }
+
+  /** Activations en file ou en cours. */
+  public int queuedCount() {
+    return queued.size();
+  }
+
+  @PreDestroy
+  void shutdown() {
+    workers.shutdown();
+  }
+}
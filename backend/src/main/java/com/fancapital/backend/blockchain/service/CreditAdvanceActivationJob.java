@@ -1,6 +1,5 @@
 package com.fancapital.backend.blockchain.service;
 
-import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -8,7 +7,9 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 /**
- * Auto-active les demandes d'avance en attente : crédite le Credit Wallet puis lock collatéral.
+ * Auto-activation des demandes d'avance en attente : les nouvelles demandes arrivent par les événements
+ * LoanRequested indexés ({@link CreditActivationPipeline}) ; ce job ne fait que le rattrapage (demandes
+ * antérieures au démarrage, reprises différées, activations interrompues).
  * Désactivé par défaut ; activer avec blockchain.credit.auto-activate=true
  */
 @Service
@@ -17,31 +18,19 @@ public class CreditAdvanceActivationJob {
 
   private static final Logger log = LoggerFactory.getLogger(CreditAdvanceActivationJob.class);
 
-  private final CreditReadService creditRead;
-  private final CreditAdvanceActivationService activation;
+  private final CreditActivationPipeline pipeline;
 
-  public CreditAdvanceActivationJob(CreditReadService creditRead, CreditAdvanceActivationService activation) {
-    this.creditRead = creditRead;
-    this.activation = activation;
+  public CreditAdvanceActivationJob(CreditActivationPipeline pipeline) {
+    this.pipeline = pipeline;
   }
 
   @Scheduled(fixedDelayString = "${blockchain.credit.auto-activate-interval-ms:60000}") // 1 min default
   public void processRequestedAdvances() {
-    for (CreditReadService.LoanInfo loan : creditRead.listRequestedLoans()) {
-      try {
-        String txHash = activation.activateAndCredit(loan.loanId(), "A");
-        log.info("AST (A) auto-activated loan {}: tx={}, user={}", loan.loanId(), txHash, loan.user());
-      } catch (Exception e) {
-        log.warn("AST (A) auto-activation failed for loan {}: {}", loan.loanId(), e.getMessage());
-      }
-    }
-    for (CreditReadService.LoanInfo loan : creditRead.listRequestedLoansB()) {
-      try {
-        String txHash = activation.activateAndCredit(loan.loanId(), "B");
-        log.info("AST (B/PGP) auto-activated loan {}: tx={}, user={}", loan.loanId(), txHash, loan.user());
-      } catch (Exception e) {
-        log.warn("AST (B/PGP) auto-activation failed for loan {}: {}", loan.loanId(), e.getMessage());
-      }
+    try {
+      int n = pipeline.sweep();
+      if (n > 0) log.info("AST auto-activation: {} requested advance(s) queued", n);
+    } catch (Exception e) {
+      log.warn("AST auto-activation sweep skipped: {}", e.getMessage());
     }
   }
 }
@@ -2,19 +2,40 @@ package com.fancapital.backend.blockchain.service;
 
 import com.fancapital.backend.blockchain.config.SpecFinancieresV47;
 import com.fancapital.backend.blockchain.model.AdvanceInterestTracking;
+import com.fancapital.backend.blockchain.model.CreditActivation;
+import com.fancapital.backend.blockchain.model.CreditActivation.Status;
+import com.fancapital.backend.blockchain.model.CreditLoan;
 import com.fancapital.backend.blockchain.model.InvestorProfileDtos.InvestorProfileResponse;
 import com.fancapital.backend.blockchain.repo.AdvanceInterestTrackingRepository;
+import com.fancapital.backend.blockchain.repo.CreditActivationRepository;
+import com.fancapital.backend.config.BlockchainProperties;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
 
 /**
- * Active une demande d'avance : crédite le Credit Wallet (mint TND) puis appelle activateAdvance.
+ * Active une demande d'avance : appelle activateAdvance (lock du collatéral), attend son reçu, puis crédite le
+ * Credit Wallet (mint TND) ; jamais de mint sur un lock non miné ou annulé.
  * Les intérêts sont fixes dès le début (principal × taux × durée / 365) et prélevés en priorité.
+ * Le calendrier de remboursement (Modèle A) est matérialisé à l'activation ({@link RepaymentCalendarService}).
+ * Chaque prêt a une clé d'idempotence persistée ({@link CreditActivation}) : jamais deux crédits pour un même
+ * prêt, y compris entre le pipeline d'auto-activation et l'activation manuelle.
  */
 @Service
 public class CreditAdvanceActivationService {
 
+  private static final Logger log = LoggerFactory.getLogger(CreditAdvanceActivationService.class);
   private static final BigInteger DAYS_PER_YEAR = BigInteger.valueOf(365);
 
   private final CreditReadService creditRead;
@@ -22,19 +43,38 @@ public class CreditAdvanceActivationService {
   private final MintKeyService mintKey;
   private final BlockchainReadService blockchainRead;
   private final AdvanceInterestTrackingRepository interestTrackingRepo;
+  private final SciComponentService sciComponents;
+  private final RepaymentCalendarService calendar;
+  private final CreditActivationRepository activations;
+  private final ReceiptTrackerService receipts;
+  private final Web3j web3j;
+  private final Duration retryAfter;
+  /** Clés en cours d'activation dans ce process. */
+  private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
 
   public CreditAdvanceActivationService(CreditReadService creditRead, CreditWriteService creditWrite,
       MintKeyService mintKey, BlockchainReadService blockchainRead,
-      AdvanceInterestTrackingRepository interestTrackingRepo) {
+      AdvanceInterestTrackingRepository interestTrackingRepo, SciComponentService sciComponents,
+      RepaymentCalendarService calendar, CreditActivationRepository activations, ReceiptTrackerService receipts,
+      Web3j web3j, BlockchainProperties props) {
     this.creditRead = creditRead;
     this.creditWrite = creditWrite;
     this.mintKey = mintKey;
     this.blockchainRead = blockchainRead;
     this.interestTrackingRepo = interestTrackingRepo;
+    this.sciComponents = sciComponents;
+    this.calendar = calendar;
+    this.activations = activations;
+    this.receipts = receipts;
+    this.web3j = web3j;
+    BlockchainProperties.Credit c = props.credit();
+    this.retryAfter = Duration.ofMillis(c != null && c.activateRetryMs() > 0 ? c.activateRetryMs() : 60_000L);
   }
 
   /**
    * Crédite le principal au wallet utilisateur et active l'avance (lock collatéral).
+   * Idempotent par prêt ({@link CreditActivation}) : une activation déjà créditée est refusée, une activation
+   * interrompue après le lock reprend au mint sans renvoyer activateAdvance.
    *
    * @param loanId ID du prêt (status Requested)
    * @param model  "A" ou "B" (PGP)
@@ -42,13 +82,40 @@ public class CreditAdvanceActivationService {
    */
   public String activateAndCredit(BigInteger loanId, String model) {
     String m = (model != null && !model.isBlank()) ? model.trim().toUpperCase() : "A";
+    String key = CreditLoan.buildId(m, loanId.longValueExact());
+    if (!inFlight.add(key)) {
+      throw new IllegalStateException("Activation déjà en cours pour le prêt " + loanId + " (modèle " + m + ").");
+    }
+    try {
+      return activate(key, loanId, m);
+    } finally {
+      inFlight.remove(key);
+    }
+  }
+
+  private String activate(String key, BigInteger loanId, String m) {
     boolean isB = "B".equals(m);
+    CreditActivation a = activations.findById(key).orElse(null);
+    if (a != null && a.getStatus() == Status.CREDITED) {
+      throw new IllegalStateException("Avance déjà activée et créditée (prêt " + loanId + ", tx " + a.getActivateTxHash() + ").");
+    }
+    if (a != null && (a.getStatus() == Status.MINTING || a.getStatus() == Status.REVIEW)) {
+      // MINTING outside of an in-flight activation: the process stopped while the mint was being sent.
+      if (a.getStatus() == Status.MINTING) save(a, Status.REVIEW, "Mint interrompu : issue inconnue");
+      throw new IllegalStateException("Crédit du prêt " + loanId + " à vérifier par l'opérateur (mint possiblement envoyé).");
+    }
 
     CreditReadService.LoanInfo loan = isB ? creditRead.getLoanB(loanId) : creditRead.getLoan(loanId);
     if (loan == null) {
       throw new IllegalArgumentException("Prêt introuvable: " + loanId + " (modèle " + m + ")");
     }
-    if (loan.status() != 0) { // Status.Requested = 0
+    // A PENDING key whose loan is already Active: our lock was broadcast despite the RPC error, resume at the mint.
+    boolean locked = a != null && (a.getStatus() == Status.LOCKED || (a.getStatus() == Status.PENDING && loan.status() == 1));
+    if (locked && loan.status() == 0) {
+      // LOCKED but the loan is still Requested: the lock never took effect on-chain, never mint on it.
+      throw lockNotActive(a, key, loanId);
+    }
+    if (locked ? loan.status() != 1 : loan.status() != 0) { // Status.Requested = 0, Active = 1
       throw new IllegalStateException("Le prêt n'est pas en attente (status=" + loan.status() + "). Seuls les prêts Requested peuvent être activés.");
     }
     if (loan.principalTnd() == null || loan.principalTnd().signum() <= 0) {
@@ -59,39 +126,169 @@ public class CreditAdvanceActivationService {
       throw new IllegalStateException("Utilisateur invalide pour le prêt " + loanId);
     }
 
-    String tokenAddr = loan.token();
-    BigInteger collateralAmount = loan.collateralAmount();
-    BigInteger available = blockchainRead.getAvailableTokenBalance(tokenAddr, user);
-    if (available.compareTo(collateralAmount) < 0) {
-      throw new IllegalStateException(
-          "L'utilisateur ne possède pas suffisamment de tokens pour le collateral. Disponible: "
-              + available + ", requis: " + collateralAmount + ". Annulez la demande ou attendez que l'utilisateur acquière les tokens.");
+    Instant startAt = Instant.now();
+    if (!locked) {
+      String tokenAddr = loan.token();
+      BigInteger collateralAmount = loan.collateralAmount();
+      BigInteger available = blockchainRead.getAvailableTokenBalance(tokenAddr, user);
+      if (available.compareTo(collateralAmount) < 0) {
+        throw retryLater(a, key, m, loan, new IllegalStateException(
+            "L'utilisateur ne possède pas suffisamment de tokens pour le collateral. Disponible: "
+                + available + ", requis: " + collateralAmount + ". Annulez la demande ou attendez que l'utilisateur acquière les tokens."));
+      }
+
+      // 1. Activer l'avance (lock collatéral) AVANT de créditer ; la clé est réclamée avant l'envoi et le lock
+      // doit être miné avec succès avant le mint
+      a = claim(a, m, loan);
+      String lockTx;
+      try {
+        lockTx = isB ? creditWrite.activateAdvanceB(loanId) : creditWrite.activateAdvance(loanId);
+      } catch (IOException e) {
+        throw retryLater(a, key, m, loan, new IllegalStateException(
+            "Échec activateAdvance (vérifiez que l'utilisateur possède les tokens en collateral): " + e.getMessage(), e));
+      } catch (RuntimeException e) {
+        throw retryLater(a, key, m, loan, e);
+      }
+      a.setActivateTxHash(lockTx);
+      save(a, Status.LOCKED, null);
+      awaitLock(a, key, m, loan, lockTx);
+    } else {
+      startAt = loan.status() == 1 && loan.startAt() > 0 ? Instant.ofEpochSecond(loan.startAt()) : a.getUpdatedAt();
     }
 
-    // 1. Activer l'avance (lock collatéral) AVANT de créditer
-    String txHash;
+    // 2. Créditer le Credit Wallet une fois le collatéral verrouillé (état MINTING enregistré avant l'envoi)
+    save(a, Status.MINTING, null);
+    String mintTx;
     try {
-      txHash = isB ? creditWrite.activateAdvanceB(loanId) : creditWrite.activateAdvance(loanId);
-    } catch (IOException e) {
-      throw new IllegalStateException("Échec activateAdvance (vérifiez que l'utilisateur possède les tokens en collateral): " + e.getMessage(), e);
+      mintTx = mintKey.mint(user, loan.principalTnd());
+    } catch (RuntimeException e) {
+      if (e.getCause() instanceof IOException) {
+        save(a, Status.REVIEW, truncate("Mint RPC error, issue inconnue: " + e.getMessage()));
+      } else {
+        // Rejected before broadcast (node error response, missing key): nothing was sent.
+        a.setNextAttemptAt(Instant.now().plus(retryAfter));
+        save(a, Status.LOCKED, truncate(e.getMessage()));
+      }
+      throw e;
     }
+    a.setMintTxHash(mintTx);
+    save(a, Status.CREDITED, null);
+    String txHash = a.getActivateTxHash();
 
-    // 2. Créditer le Credit Wallet une fois le collatéral verrouillé
-    mintKey.mint(user, loan.principalTnd());
-
-    // 3. Créer le suivi des intérêts fixes (principal × taux × durée / 365)
+    // 3. Créer le suivi des intérêts fixes (principal × taux × durée / 365) et le calendrier des échéances
+    // (le modèle B/PGP ne supporte pas les remboursements partiels : clôture à l'échéance par l'opérateur)
     if (!isB) {
-      createInterestTracking(loan, user);
+      BigInteger totalInterest = createInterestTracking(loan, user);
+      try {
+        calendar.schedule("A", loan, startAt, totalInterest);
+      } catch (Exception e) {
+        log.warn("Repayment calendar not created for loan {}: {}", loanId, e.getMessage());
+      }
     }
+    sciComponents.onLoanChanged(user, txHash);
 
     return txHash;
   }
 
-  private void createInterestTracking(CreditReadService.LoanInfo loan, String user) {
+  /** Statut d'activation du prêt (null = jamais tentée). */
+  public CreditActivation activation(String model, BigInteger loanId) {
+    return activations.findById(CreditLoan.buildId(model, loanId.longValueExact())).orElse(null);
+  }
+
+  /** Activations à rapprocher par l'opérateur (mint d'issue inconnue). */
+  public List<CreditActivation> pendingReview() {
+    return activations.findByStatusOrderByUpdatedAtAsc(Status.REVIEW);
+  }
+
+  /**
+   * Attend le reçu de activateAdvance avant tout mint : revert, retour en PENDING (nouvel essai après
+   * {@code retryAfter}) ; pas de reçu dans le délai, l'activation reste LOCKED et la reprise vérifie l'état
+   * du prêt on-chain.
+   */
+  private void awaitLock(CreditActivation a, String key, String model, CreditReadService.LoanInfo loan, String lockTx) {
+    TransactionReceipt receipt;
+    try {
+      receipt = receipts.track(lockTx).join();
+    } catch (CompletionException e) {
+      Throwable c = e.getCause() != null ? e.getCause() : e;
+      a.setNextAttemptAt(Instant.now().plus(retryAfter));
+      save(a, Status.LOCKED, truncate("Reçu activateAdvance en attente: " + c.getMessage()));
+      throw new IllegalStateException("activateAdvance du prêt " + loan.loanId() + " non confirmé (tx " + lockTx
+          + ") ; reprise planifiée.", c);
+    }
+    if (!receipt.isStatusOK()) {
+      a.setActivateTxHash(null);
+      throw retryLater(a, key, model, loan, new IllegalStateException(
+          "activateAdvance revert (tx " + lockTx + ") : collatéral indisponible ou prêt déjà traité."));
+    }
+  }
+
+  /**
+   * Reprise LOCKED d'un prêt encore Requested : selon le reçu de activateAdvance, retour en PENDING (lock
+   * annulé, nouvel essai après {@code retryAfter}) ou REVIEW (reçu absent : tx abandonnée ou pas encore minée).
+   */
+  private RuntimeException lockNotActive(CreditActivation a, String key, BigInteger loanId) {
+    Optional<TransactionReceipt> receipt;
+    try {
+      receipt = web3j.ethGetTransactionReceipt(a.getActivateTxHash()).send().getTransactionReceipt();
+    } catch (IOException e) {
+      // Outcome still unknown: stay LOCKED, retried by the pipeline.
+      a.setNextAttemptAt(Instant.now().plus(retryAfter));
+      save(a, Status.LOCKED, truncate("Reçu activateAdvance illisible: " + e.getMessage()));
+      return new IllegalStateException("Reçu activateAdvance illisible pour le prêt " + loanId + ": " + e.getMessage(), e);
+    }
+    if (receipt.isPresent() && !receipt.get().isStatusOK()) {
+      a.setActivateTxHash(null);
+      a.setNextAttemptAt(Instant.now().plus(retryAfter));
+      save(a, Status.PENDING, "activateAdvance revert (tx " + receipt.get().getTransactionHash() + ")");
+      return new IllegalStateException("activateAdvance du prêt " + loanId + " annulé on-chain ; nouvel essai planifié.");
+    }
+    save(a, Status.REVIEW, receipt.isPresent()
+        ? "activateAdvance miné mais prêt encore Requested"
+        : "activateAdvance sans reçu, prêt encore Requested");
+    log.warn("Activation {} moved to REVIEW: lock tx {} not reflected on-chain", key, a.getActivateTxHash());
+    return new IllegalStateException("Activation du prêt " + loanId + " à vérifier par l'opérateur (lock non confirmé).");
+  }
+
+  private CreditActivation claim(CreditActivation a, String model, CreditReadService.LoanInfo loan) {
+    CreditActivation c = a != null ? a : new CreditActivation(model, loan.loanId().longValueExact());
+    c.setUserAddress(loan.user().toLowerCase());
+    c.setPrincipalTnd1e8(loan.principalTnd().toString());
+    c.setAttempts(c.getAttempts() + 1);
+    return save(c, Status.PENDING, null);
+  }
+
+  /** Échec avant le lock : clé (ré)enregistrée en PENDING, reprise par le pipeline après {@code retryAfter}. */
+  private RuntimeException retryLater(CreditActivation a, String key, String model, CreditReadService.LoanInfo loan,
+      RuntimeException e) {
+    try {
+      CreditActivation c = a != null ? a : activations.findById(key).orElse(null);
+      if (c == null) c = claim(null, model, loan);
+      c.setNextAttemptAt(Instant.now().plus(retryAfter));
+      save(c, Status.PENDING, truncate(e.getMessage()));
+    } catch (Exception ex) {
+      log.debug("Activation state not saved for {}: {}", key, ex.getMessage());
+    }
+    return e;
+  }
+
+  private CreditActivation save(CreditActivation a, Status status, String error) {
+    a.setStatus(status);
+    a.setLastError(error);
+    a.setUpdatedAt(Instant.now());
+    return activations.save(a);
+  }
+
+  private static String truncate(String s) {
+    return s != null && s.length() > 500 ? s.substring(0, 500) : s;
+  }
+
+  /** @return intérêts fixes de l'avance (1e8), 0 si aucun suivi n'est créé */
+  private BigInteger createInterestTracking(CreditReadService.LoanInfo loan, String user) {
     int feeLevel = getFeeLevel(user);
-    if (feeLevel <= 0 || feeLevel >= SpecFinancieresV47.TIER_INTEREST_RATES.length) return;
+    if (feeLevel <= 0 || feeLevel >= SpecFinancieresV47.TIER_INTEREST_RATES.length) return BigInteger.ZERO;
     double rate = SpecFinancieresV47.TIER_INTEREST_RATES[feeLevel];
-    if (rate <= 0 || loan.durationDays() <= 0) return;
+    if (rate <= 0 || loan.durationDays() <= 0) return BigInteger.ZERO;
 
     BigInteger totalInterest = loan.principalTnd()
         .multiply(BigInteger.valueOf((long) (rate * 100)))
@@ -104,6 +301,7 @@ public class CreditAdvanceActivationService {
     t.setTotalInterestTnd1e8(totalInterest.toString());
     t.setInterestPaidTnd1e8("0");
     interestTrackingRepo.save(t);
+    return totalInterest;
   }
 
   private int getFeeLevel(String userWallet) {
@@ -2,6 +2,8 @@ package com.fancapital.backend.blockchain.service;
 
 import com.fancapital.backend.auth.model.AppUser;
 import com.fancapital.backend.auth.repo.AppUserRepository;
+import com.fancapital.backend.blockchain.service.FeeOracleService.Urgency;
+import com.fancapital.backend.blockchain.service.TxSubmitterService.KeyLane;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.List;
@@ -12,11 +14,7 @@ import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.abi.datatypes.generated.Uint64;
 import org.web3j.crypto.Credentials;
-import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.methods.response.EthGasPrice;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
-import org.web3j.tx.RawTransactionManager;
-import org.web3j.tx.TransactionManager;
 
 /**
  * Demande d'avance sur titres (AST) — signée par l'utilisateur via WaaS.
@@ -27,20 +25,24 @@ public class CreditAdvanceRequestService {
 
   private static final BigInteger PRICE_SCALE = BigInteger.valueOf(100_000_000L);
 
-  private final Web3j web3j;
+  private final TxSubmitterService txSubmitter;
   private final DeploymentRegistry registry;
   private final AppUserRepository userRepo;
   private final WaasUserWalletService waasWallets;
   private final BlockchainReadService blockchainRead;
+  private final WalletStateCacheService walletState;
+  private final ReceiptTrackerService receipts;
 
-  public CreditAdvanceRequestService(Web3j web3j, DeploymentRegistry registry,
+  public CreditAdvanceRequestService(TxSubmitterService txSubmitter, DeploymentRegistry registry,
       AppUserRepository userRepo, WaasUserWalletService waasWallets,
-      BlockchainReadService blockchainRead) {
-    this.web3j = web3j;
+      BlockchainReadService blockchainRead, WalletStateCacheService walletState, ReceiptTrackerService receipts) {
+    this.txSubmitter = txSubmitter;
     this.registry = registry;
     this.userRepo = userRepo;
     this.waasWallets = waasWallets;
     this.blockchainRead = blockchainRead;
+    this.walletState = walletState;
+    this.receipts = receipts;
   }
 
   /**
@@ -101,33 +103,30 @@ public class CreditAdvanceRequestService {
     return sendAsUser(creds, creditAddr, fn);
   }
 
+  /** Envoi signé par l'utilisateur ; le gas payé est reporté dans le cache de solde à réception du reçu. */
   private String sendAsUser(Credentials credentials, String to, Function fn) {
-    long chainId;
-    try {
-      chainId = web3j.ethChainId().send().getChainId().longValue();
-    } catch (IOException e) {
-      chainId = 31337;
-    }
-    TransactionManager tm = new RawTransactionManager(web3j, credentials, chainId);
+    KeyLane tm = txSubmitter.forCredentials(credentials);
     String data = FunctionEncoder.encode(fn);
-    BigInteger gasPrice;
-    try {
-      EthGasPrice gp = web3j.ethGasPrice().send();
-      gasPrice = gp.getGasPrice();
-      if (gasPrice == null) gasPrice = BigInteger.valueOf(20_000_000_000L);
-    } catch (IOException e) {
-      gasPrice = BigInteger.valueOf(20_000_000_000L);
-    }
-    gasPrice = gasPrice.multiply(BigInteger.valueOf(12)).divide(BigInteger.TEN);
+    String wallet = credentials.getAddress();
 
+    EthSendTransaction tx;
     try {
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, BigInteger.valueOf(500_000), to, data, BigInteger.ZERO);
-      if (tx.hasError()) {
-        throw new IllegalStateException("EVM tx failed: " + tx.getError().getMessage());
-      }
-      return tx.getTransactionHash();
+      tx = tm.send(Urgency.NORMAL, BigInteger.valueOf(500_000), to, data, BigInteger.ZERO);
     } catch (IOException e) {
+      walletState.evictGas(wallet);
       throw new IllegalStateException("Erreur RPC: " + e.getMessage(), e);
+    } catch (RuntimeException e) {
+      walletState.evictGas(wallet);
+      throw e;
+    }
+    if (tx.hasError()) {
+      walletState.evictGas(wallet);
+      throw new IllegalStateException("EVM tx failed: " + tx.getError().getMessage());
     }
+    receipts.track(tx.getTransactionHash()).whenComplete((r, ex) -> {
+      if (ex != null) walletState.evictGas(wallet);
+      else walletState.onGasSpent(wallet, r);
+    });
+    return tx.getTransactionHash();
   }
 }
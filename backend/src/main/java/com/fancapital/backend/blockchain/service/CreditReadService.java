@@ -13,7 +13,9 @@ import org.web3j.abi.datatypes.generated.Uint64;
 import org.web3j.abi.datatypes.generated.Uint8;
 
 /**
- * Read service for CreditModelA (Avance sur Titres). Reads active loans from chain.
+ * Read service for CreditModelA (Avance sur Titres) and CreditModelBPGP. Loan lists and the active advance of a
+ * user come from the local loan index ({@link LoanIndexService}) while it is up to date, otherwise from a scan of
+ * every loan id on chain.
  */
 @Service
 public class CreditReadService {
@@ -23,10 +25,12 @@ public class CreditReadService {
 
   private final EvmCallService evmCall;
   private final DeploymentRegistry registry;
+  private final LoanIndexService loanIndex;
 
-  public CreditReadService(EvmCallService evmCall, DeploymentRegistry registry) {
+  public CreditReadService(EvmCallService evmCall, DeploymentRegistry registry, LoanIndexService loanIndex) {
     this.evmCall = evmCall;
     this.registry = registry;
+    this.loanIndex = loanIndex;
   }
 
   /**
@@ -61,19 +65,7 @@ public class CreditReadService {
   public LoanInfo getLoan(BigInteger loanId) {
     String addr = registry.getCreditModelAAddress();
     if (addr == null || addr.isBlank()) return null;
-    Function fn = new Function("loans",
-        List.of(new Uint256(loanId)),
-        List.of(
-            new TypeReference<Address>() {},
-            new TypeReference<Address>() {},
-            new TypeReference<Uint256>() {},
-            new TypeReference<Uint256>() {},
-            new TypeReference<Uint256>() {},
-            new TypeReference<Uint64>() {},
-            new TypeReference<Uint64>() {},
-            new TypeReference<Uint8>() {}
-        ));
-    return parseLoanInfo(addr, loanId, fn, 0);
+    return parseLoanInfo(loanId, evmCall.ethCall(addr, loanFunction(loanId, false)), false);
   }
 
   /**
@@ -82,24 +74,28 @@ public class CreditReadService {
   public LoanInfo getLoanB(BigInteger loanId) {
     String addr = registry.getCreditModelBAddress();
     if (addr == null || addr.isBlank()) return null;
-    Function fn = new Function("loans",
-        List.of(new Uint256(loanId)),
-        List.of(
-            new TypeReference<Address>() {},
-            new TypeReference<Address>() {},
-            new TypeReference<Uint256>() {},
-            new TypeReference<Uint256>() {},
-            new TypeReference<Uint256>() {},  // vniAtClose
-            new TypeReference<Uint256>() {},
-            new TypeReference<Uint64>() {},
-            new TypeReference<Uint64>() {},
-            new TypeReference<Uint8>() {}
-        ));
-    return parseLoanInfo(addr, loanId, fn, 1);
+    return parseLoanInfo(loanId, evmCall.ethCall(addr, loanFunction(loanId, true)), true);
   }
 
-  private LoanInfo parseLoanInfo(String addr, BigInteger loanId, Function fn, int offset) {
-    List<Type> out = evmCall.ethCall(addr, fn);
+  /** loans(loanId) view; Model B has an extra vniAtClose field before principalTnd. */
+  static Function loanFunction(BigInteger loanId, boolean modelB) {
+    List<TypeReference<?>> outputs = new ArrayList<>(List.of(
+        new TypeReference<Address>() {},
+        new TypeReference<Address>() {},
+        new TypeReference<Uint256>() {},
+        new TypeReference<Uint256>() {}
+    ));
+    if (modelB) outputs.add(new TypeReference<Uint256>() {}); // vniAtClose
+    outputs.add(new TypeReference<Uint256>() {});
+    outputs.add(new TypeReference<Uint64>() {});
+    outputs.add(new TypeReference<Uint64>() {});
+    outputs.add(new TypeReference<Uint8>() {});
+    return new Function("loans", List.of(new Uint256(loanId)), outputs);
+  }
+
+  @SuppressWarnings("rawtypes")
+  static LoanInfo parseLoanInfo(BigInteger loanId, List<Type> out, boolean modelB) {
+    int offset = modelB ? 1 : 0;
     if (out == null || out.size() < 8 + offset) return null;
     String user = (String) out.get(0).getValue();
     String token = (String) out.get(1).getValue();
@@ -128,6 +124,7 @@ public class CreditReadService {
   }
 
   private List<LoanInfo> listLoansByStatus(String addr, boolean modelB, int statusFilter) {
+    if (loanIndex.isFresh()) return loanIndex.loansByStatus(addr, statusFilter);
     List<LoanInfo> result = new ArrayList<>();
     BigInteger next = modelB ? getNextLoanIdB() : getNextLoanId();
     if (next == null || next.compareTo(BigInteger.ONE) < 0) return result;
@@ -143,6 +140,7 @@ public class CreditReadService {
    */
   public ActiveAdvanceResult getActiveAdvanceForUser(String userWallet) {
     if (userWallet == null || userWallet.isBlank()) return null;
+    if (loanIndex.isFresh()) return loanIndex.activeForUser(userWallet);
     String n = userWallet.trim().toLowerCase();
     LoanInfo fromB = listActiveLoansB().stream()
         .filter(l -> l.user() != null && l.user().equalsIgnoreCase(n))
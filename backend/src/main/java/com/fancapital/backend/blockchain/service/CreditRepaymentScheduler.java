@@ -1,6 +1,12 @@
 package com.fancapital.backend.blockchain.service;
 
+import com.fancapital.backend.blockchain.model.RepaymentInstallment;
+import com.fancapital.backend.blockchain.model.RepaymentInstallment.Status;
+import com.fancapital.backend.blockchain.repo.AdvanceInterestTrackingRepository;
+import com.fancapital.backend.config.BlockchainProperties;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import org.slf4j.Logger;
@@ -10,55 +16,129 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 /**
- * Scheduler for repayment calendar: identifies loans with due payments.
- * Runs daily; logs loans whose next installment or maturity is due.
- * Actual repayment recording is done via CreditWriteService when cash/coupon is received.
+ * Scheduler for repayment calendar: collects due installments of the materialised calendar
+ * ({@link RepaymentCalendarService}) through the Cash Wallet repayment flow ({@link AdvanceRepaymentService}).
+ * Only the due-item queue is read; failed attempts are retried after collect-retry-ms, then left FAILED
+ * for the operator. Installments of a loan that is no longer active are cancelled.
+ * <p>
+ * Each installment records its step around the Cash Wallet burn (DUE, BURNING, BURNED, then COLLECTED once
+ * recordRepayment is accepted). Only failures before the burn is broadcast are retried; a failure after it,
+ * or an unknown burn outcome, moves the installment to REVIEW so the burn is never sent twice.
  */
 @Service
 @ConditionalOnProperty(name = "blockchain.credit.scheduler-enabled", havingValue = "true", matchIfMissing = false)
 public class CreditRepaymentScheduler {
 
   private static final Logger log = LoggerFactory.getLogger(CreditRepaymentScheduler.class);
-  private static final long SECONDS_PER_DAY = 86_400;
+  private static final int STATUS_ACTIVE = 1;
+  private static final Duration MIN_RETRY = Duration.ofMinutes(1);
 
+  private final RepaymentCalendarService calendar;
   private final CreditReadService creditRead;
+  private final AdvanceRepaymentService repayment;
+  private final AdvanceInterestTrackingRepository interestTrackingRepo;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final Duration retryAfter;
 
-  public CreditRepaymentScheduler(CreditReadService creditRead) {
+  public CreditRepaymentScheduler(
+      RepaymentCalendarService calendar,
+      CreditReadService creditRead,
+      AdvanceRepaymentService repayment,
+      AdvanceInterestTrackingRepository interestTrackingRepo,
+      BlockchainProperties props
+  ) {
+    this.calendar = calendar;
     this.creditRead = creditRead;
+    this.repayment = repayment;
+    this.interestTrackingRepo = interestTrackingRepo;
+    BlockchainProperties.Credit c = props.credit();
+    this.batchSize = c != null && c.collectBatchSize() > 0 ? c.collectBatchSize() : 100;
+    this.maxAttempts = c != null && c.collectMaxAttempts() > 0 ? c.collectMaxAttempts() : 5;
+    Duration retry = Duration.ofMillis(c != null && c.collectRetryMs() > 0 ? c.collectRetryMs() : 86_400_000L);
+    this.retryAfter = retry.compareTo(MIN_RETRY) < 0 ? MIN_RETRY : retry;
   }
 
   @Scheduled(cron = "${blockchain.credit.scheduler-cron:0 0 2 * * ?}") // 2 AM daily by default
-  public void checkDuePayments() {
+  public void collectDuePayments() {
+    int processed = 0;
     try {
-      if (creditRead.getNextLoanId().compareTo(BigInteger.ONE) < 0) return;
+      // Single-threaded: anything still BURNING/BURNED was interrupted by a previous run (restart, crash).
+      int interrupted = calendar.flagInterrupted();
+      if (interrupted > 0) log.warn("Repayment calendar: {} interrupted installment(s) moved to REVIEW", interrupted);
+      List<RepaymentInstallment> batch;
+      do {
+        // Every item leaves the queue (collected, cancelled or rescheduled), so the next page is new work.
+        batch = calendar.due(Instant.now(), batchSize);
+        for (RepaymentInstallment item : batch) {
+          collect(item);
+          processed++;
+        }
+      } while (batch.size() == batchSize);
     } catch (Exception e) {
-      return; // CreditModelA not configured
+      log.warn("Repayment collection skipped: {}", e.getMessage());
     }
+    if (processed > 0) log.info("Repayment calendar: {} due installment(s) processed", processed);
+  }
 
-    List<CreditReadService.LoanInfo> active = creditRead.listActiveLoans();
-    long now = Instant.now().getEpochSecond();
-
-    for (CreditReadService.LoanInfo loan : active) {
-      long startAt = loan.startAt();
-      long durationDays = loan.durationDays();
-      long endAt = startAt + durationDays * SECONDS_PER_DAY;
+  private void collect(RepaymentInstallment item) {
+    // Node errors propagate: the run stops and the queue is left as is.
+    CreditReadService.LoanInfo loan = creditRead.getLoan(BigInteger.valueOf(item.getLoanId()));
+    if (loan == null || loan.status() != STATUS_ACTIVE) {
+      int n = calendar.cancelRemaining(item.getLoanKey(), "Avance clôturée ou annulée");
+      log.info("AST loan {} no longer active: {} installment(s) cancelled", item.getLoanId(), n);
+      return;
+    }
 
-      // Maturity due
-      if (now >= endAt) {
-        log.info("AST loan {} maturity due: user={}, principal={} (1e8 TND)",
-            loan.loanId(), loan.user(), loan.principalTnd());
-        continue;
+    // Capped at what is still owed (early repayments reduce the last installments).
+    BigInteger amount = new BigInteger(item.getAmountTnd1e8()).min(outstanding(loan));
+    if (amount.signum() <= 0) {
+      calendar.markCollected(item, BigInteger.ZERO, null);
+      return;
+    }
+    AdvanceRepaymentService.RepaymentProgress progress = new AdvanceRepaymentService.RepaymentProgress() {
+      @Override
+      public void burning() {
+        calendar.markStep(item, Status.BURNING, null);
       }
 
-      // Monthly installments (simplified: one installment per 30 days)
-      int installments = Math.max(1, (int) (durationDays / 30));
-      for (int i = 1; i <= installments; i++) {
-        long dueAt = startAt + (i * SECONDS_PER_DAY * 30L);
-        if (now >= dueAt && dueAt < endAt) {
-          log.info("AST loan {} installment {}/{} due: user={}",
-              loan.loanId(), i, installments, loan.user());
-        }
+      @Override
+      public void burned(String burnTxHash) {
+        calendar.markStep(item, Status.BURNED, burnTxHash);
+      }
+    };
+    try {
+      String txHash = repayment.repayFromCashWallet(item.getUserAddress(), amount, progress);
+      calendar.markCollected(item, amount, txHash);
+      log.info("AST loan {} installment {}/{} collected: user={}, amount={} (1e8 TND), tx={}",
+          item.getLoanId(), item.getSeq(), item.getInstallmentCount(), item.getUserAddress(), amount, txHash);
+    } catch (Exception e) {
+      if (retryable(item, e)) {
+        calendar.markFailed(item, e.getMessage(), retryAfter, maxAttempts);
+        log.warn("AST loan {} installment {}/{} collection failed (attempt {}): {}",
+            item.getLoanId(), item.getSeq(), item.getInstallmentCount(), item.getAttempts(), e.getMessage());
+      } else {
+        calendar.markReview(item, e.getMessage());
+        log.warn("AST loan {} installment {}/{} needs review (burn tx={}): {}",
+            item.getLoanId(), item.getSeq(), item.getInstallmentCount(), item.getBurnTxHash(), e.getMessage());
       }
     }
   }
+
+  /**
+   * Safe to retry only if no burn can have been broadcast: failed before the burn step (checks, balance), or the
+   * node rejected the burn. An RPC transport error during the burn leaves its outcome unknown.
+   */
+  private static boolean retryable(RepaymentInstallment item, Exception e) {
+    if (item.getStatus() == Status.DUE) return true;
+    return item.getStatus() == Status.BURNING && !(e.getCause() instanceof IOException) && !(e instanceof IOException);
+  }
+
+  /** Restant dû = principal on-chain + intérêts fixes non encore payés. */
+  private BigInteger outstanding(CreditReadService.LoanInfo loan) {
+    BigInteger remainingInterest = interestTrackingRepo.findByLoanId(loan.loanId().toString())
+        .map(t -> new BigInteger(t.getTotalInterestTnd1e8()).subtract(new BigInteger(t.getInterestPaidTnd1e8())))
+        .orElse(BigInteger.ZERO);
+    return loan.principalTnd().add(remainingInterest.max(BigInteger.ZERO));
+  }
 }
@@ -1,5 +1,7 @@
 package com.fancapital.backend.blockchain.service;
 
+import com.fancapital.backend.blockchain.service.FeeOracleService.Urgency;
+import com.fancapital.backend.blockchain.service.TxSubmitterService.KeyLane;
 import com.fancapital.backend.config.BlockchainProperties;
 import java.io.IOException;
 import java.math.BigInteger;
@@ -8,12 +10,7 @@ import org.springframework.stereotype.Service;
 import org.web3j.abi.FunctionEncoder;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.generated.Uint256;
-import org.web3j.crypto.Credentials;
-import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.methods.response.EthGasPrice;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
-import org.web3j.tx.RawTransactionManager;
-import org.web3j.tx.TransactionManager;
 
 /**
  * Write service for CreditModelA and CreditModelBPGP. Calls activateAdvance, recordRepayment (A only).
@@ -21,12 +18,12 @@ import org.web3j.tx.TransactionManager;
 @Service
 public class CreditWriteService {
 
-  private final Web3j web3j;
+  private final TxSubmitterService txSubmitter;
   private final BlockchainProperties props;
   private final DeploymentRegistry registry;
 
-  public CreditWriteService(Web3j web3j, BlockchainProperties props, DeploymentRegistry registry) {
-    this.web3j = web3j;
+  public CreditWriteService(TxSubmitterService txSubmitter, BlockchainProperties props, DeploymentRegistry registry) {
+    this.txSubmitter = txSubmitter;
     this.props = props;
     this.registry = registry;
   }
@@ -78,28 +75,11 @@ public class CreditWriteService {
     if (pk == null || pk.isBlank()) {
       throw new IllegalStateException("OPERATOR_PRIVATE_KEY not configured.");
     }
-    Credentials credentials = Credentials.create(pk.trim());
-    BigInteger chainId;
-    try {
-      chainId = web3j.ethChainId().send().getChainId();
-    } catch (IOException e) {
-      chainId = BigInteger.valueOf(31337);
-    }
-    TransactionManager tm = new RawTransactionManager(web3j, credentials, chainId.longValue());
+    KeyLane tm = txSubmitter.forKey(pk);
 
     String data = FunctionEncoder.encode(fn);
-    BigInteger gasPrice;
-    try {
-      gasPrice = web3j.ethGasPrice().send().getGasPrice();
-    } catch (IOException e) {
-      gasPrice = BigInteger.valueOf(20_000_000_000L);
-    }
-    if (gasPrice == null) {
-      gasPrice = BigInteger.valueOf(20_000_000_000L);
-    }
-    gasPrice = gasPrice.multiply(BigInteger.valueOf(12)).divide(BigInteger.TEN);
 
-    EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, gasLimit, to, data, BigInteger.ZERO);
+    EthSendTransaction tx = tm.send(Urgency.NORMAL, gasLimit, to, data, BigInteger.ZERO);
     if (tx.hasError()) {
       throw new IllegalStateException("EVM tx failed: " + tx.getError().getMessage());
     }
@@ -1,7 +1,9 @@
 package com.fancapital.backend.blockchain.service;
 
 import java.math.BigInteger;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -49,6 +51,21 @@ public class DebtManager {
     return creditRead.getActiveAdvanceForUser(userWallet);
   }
 
+  /**
+   * Avances actives indexées par wallet (minuscules), en deux lectures au total (Model B prioritaire,
+   * comme {@link #getActiveAdvanceForUser}). Pour les traitements multi-wallets.
+   */
+  public Map<String, CreditReadService.LoanInfo> activeLoansByWallet() {
+    Map<String, CreditReadService.LoanInfo> out = new HashMap<>();
+    for (CreditReadService.LoanInfo l : creditRead.listActiveLoansB()) {
+      if (l.user() != null) out.putIfAbsent(l.user().toLowerCase(), l);
+    }
+    for (CreditReadService.LoanInfo l : creditRead.listActiveLoans()) {
+      if (l.user() != null) out.putIfAbsent(l.user().toLowerCase(), l);
+    }
+    return out;
+  }
+
   /** @deprecated Préférer getActiveAdvanceForUser pour le modèle. */
   public CreditReadService.LoanInfo getActiveLoanForUser(String userWallet) {
     CreditReadService.ActiveAdvanceResult r = getActiveAdvanceForUser(userWallet);
@@ -16,9 +16,11 @@ public class DividendService {
   private static final BigInteger TND_SCALE = BigInteger.valueOf(100_000_000L);
 
   private final DebtManager debtManager;
+  private final SciComponentService sciComponents;
 
-  public DividendService(DebtManager debtManager) {
+  public DividendService(DebtManager debtManager, SciComponentService sciComponents) {
     this.debtManager = debtManager;
+    this.sciComponents = sciComponents;
   }
 
   /**
@@ -35,6 +37,7 @@ public class DividendService {
     BigInteger appliedToLoan = debtManager.applyRepaymentFromCoupon(userWallet, amountTnd);
 
     if (appliedToLoan.signum() > 0) {
+      sciComponents.onLoanChanged(userWallet, null);
       log.info("Coupon {} TND affecté au remboursement AST pour {}", appliedToLoan, userWallet);
       return appliedToLoan;
     }
@@ -48,6 +51,8 @@ public class DividendService {
    */
   public double distributeCouponTnd(String userWallet, double amountTnd) {
     BigInteger scaled = BigInteger.valueOf((long) (amountTnd * 1e8));
-    return debtManager.applyRepaymentFromCoupon(userWallet, scaled).doubleValue() / 1e8;
+    BigInteger applied = debtManager.applyRepaymentFromCoupon(userWallet, scaled);
+    if (applied.signum() > 0) sciComponents.onLoanChanged(userWallet, null);
+    return applied.doubleValue() / 1e8;
   }
 }
@@ -2,21 +2,38 @@ package com.fancapital.backend.blockchain.service;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.stereotype.Service;
 import org.web3j.abi.FunctionEncoder;
 import org.web3j.abi.FunctionReturnDecoder;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.Type;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.Response;
 import org.web3j.protocol.core.methods.request.Transaction;
 import org.web3j.protocol.core.methods.response.EthCall;
 
 @Service
 public class EvmCallService {
+  /** Nombre max d'eth_call par requête JSON-RPC batch. */
+  private static final int BATCH_SIZE = 200;
+
   private final Web3j web3j;
+  private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+  /** Un appel de lecture dans un lot {@link #ethCallBatch}. */
+  public record Call(String contract, Function function) {}
 
   public EvmCallService(Web3j web3j) {
     this.web3j = web3j;
@@ -24,35 +41,117 @@ public class EvmCallService {
 
   @SuppressWarnings("rawtypes")
   public List<Type> ethCall(String contract, Function function) {
+    return ethCallAtBlock(contract, function, null);
+  }
+
+  @SuppressWarnings("rawtypes")
+  public List<Type> ethCallAtBlock(String contract, Function function, BigInteger blockNumber) {
     String data = FunctionEncoder.encode(function);
+    String raw = singleFlight(contract, data, blockNumber);
+    return FunctionReturnDecoder.decode(raw, function.getOutputParameters());
+  }
+
+  /**
+   * Single-flight : les lectures identiques (contrat, calldata, bloc) concurrentes partagent un seul
+   * eth_call en vol ; tous les appelants reçoivent la même valeur brute (ou la même erreur). Rien n'est
+   * conservé après la réponse : ce n'est pas un cache, la charge du nœud suit les lectures distinctes.
+   */
+  private String singleFlight(String contract, String data, BigInteger blockNumber) {
+    String key = contract.toLowerCase(Locale.ROOT) + '|' + (blockNumber == null ? "latest" : blockNumber) + '|' + data;
+    CompletableFuture<String> mine = new CompletableFuture<>();
+    CompletableFuture<String> inFlight = this.inFlight.putIfAbsent(key, mine);
+    if (inFlight != null) return await(inFlight);
+    try {
+      mine.complete(send(contract, data, blockNumber));
+    } catch (RuntimeException e) {
+      mine.completeExceptionally(e);
+    } finally {
+      this.inFlight.remove(key, mine);
+    }
+    return await(mine);
+  }
+
+  private String send(String contract, String data, BigInteger blockNumber) {
     Transaction tx = Transaction.createEthCallTransaction(null, contract, data);
+    DefaultBlockParameter at = blockNumber == null
+        ? DefaultBlockParameterName.LATEST
+        : new DefaultBlockParameterNumber(blockNumber);
     EthCall res;
     try {
-      res = web3j.ethCall(tx, DefaultBlockParameterName.LATEST).send();
+      res = web3j.ethCall(tx, at).send();
     } catch (IOException e) {
       throw new IllegalStateException("RPC eth_call failed: " + e.getMessage(), e);
     }
     if (res.hasError()) {
       throw new IllegalStateException("eth_call error: " + res.getError().getMessage());
     }
-    return FunctionReturnDecoder.decode(res.getValue(), function.getOutputParameters());
+    return res.getValue();
   }
 
-  @SuppressWarnings("rawtypes")
-  public List<Type> ethCallAtBlock(String contract, Function function, BigInteger blockNumber) {
-    if (blockNumber == null) return ethCall(contract, function);
-    String data = FunctionEncoder.encode(function);
-    Transaction tx = Transaction.createEthCallTransaction(null, contract, data);
-    EthCall res;
+  private static String await(CompletableFuture<String> f) {
     try {
-      res = web3j.ethCall(tx, new DefaultBlockParameterNumber(blockNumber)).send();
-    } catch (IOException e) {
-      throw new IllegalStateException("RPC eth_call failed: " + e.getMessage(), e);
+      return f.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException re) throw re;
+      throw e;
     }
-    if (res.hasError()) {
-      throw new IllegalStateException("eth_call error: " + res.getError().getMessage());
+  }
+
+  /**
+   * Exécute des eth_call en lots JSON-RPC (un aller-retour par {@value #BATCH_SIZE} appels).
+   * Le résultat est aligné sur {@code calls} ; un appel qui revert donne une liste vide. Toute autre erreur
+   * (transport, erreur RPC hors exécution, réponse manquante) lève une exception : elle ne doit pas se lire
+   * comme un solde nul.
+   *
+   * @param blockNumber bloc de lecture, null = latest
+   */
+  @SuppressWarnings("rawtypes")
+  public List<List<Type>> ethCallBatch(List<Call> calls, BigInteger blockNumber) {
+    DefaultBlockParameter at = blockNumber == null
+        ? DefaultBlockParameterName.LATEST
+        : new DefaultBlockParameterNumber(blockNumber);
+    List<List<Type>> out = new ArrayList<>(calls.size());
+    for (int start = 0; start < calls.size(); start += BATCH_SIZE) {
+      List<Call> chunk = calls.subList(start, Math.min(calls.size(), start + BATCH_SIZE));
+      BatchRequest batch = web3j.newBatch();
+      for (Call c : chunk) {
+        String data = FunctionEncoder.encode(c.function());
+        batch.add(web3j.ethCall(Transaction.createEthCallTransaction(null, c.contract(), data), at));
+      }
+      Map<Long, Response<?>> byId = new HashMap<>();
+      try {
+        // JSON-RPC allows a node to answer a batch out of order: match responses by request id.
+        for (Response<?> r : batch.send().getResponses()) byId.put(r.getId(), r);
+      } catch (IOException e) {
+        throw new IllegalStateException("RPC eth_call batch failed: " + e.getMessage(), e);
+      }
+      for (int i = 0; i < chunk.size(); i++) {
+        long id = batch.getRequests().get(i).getId();
+        EthCall res = (EthCall) byId.get(id);
+        if (res == null) {
+          throw new IllegalStateException("eth_call batch: no response for request id " + id);
+        }
+        if (res.hasError()) {
+          if (!isRevert(res.getError())) {
+            throw new IllegalStateException("eth_call error: " + res.getError().getMessage());
+          }
+          out.add(List.of());
+          continue;
+        }
+        out.add(FunctionReturnDecoder.decode(res.getValue(), chunk.get(i).function().getOutputParameters()));
+      }
     }
-    return FunctionReturnDecoder.decode(res.getValue(), function.getOutputParameters());
+    return out;
+  }
+
+  /**
+   * Erreur d'exécution du contrat (revert) : code 3 (geth) ou message « revert » / « execution reverted »
+   * (Hardhat, Anvil renvoient -32603 / -32000 avec ce message).
+   */
+  static boolean isRevert(Response.Error error) {
+    if (error.getCode() == 3) return true;
+    String msg = error.getMessage();
+    return msg != null && msg.toLowerCase(Locale.ROOT).contains("revert");
   }
 
   @SuppressWarnings("rawtypes")
@@ -0,0 +1,148 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.config.BlockchainProperties;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthFeeHistory;
+import org.web3j.protocol.core.methods.response.EthGasPrice;
+
+/**
+ * Oracle de frais partagé par tous les envois (via {@link TxSubmitterService}).
+ * <p>
+ * Les frais sont relus au plus une fois par intervalle de bloc (blockchain.fees.refresh-ms) :
+ * eth_feeHistory sur les derniers blocs donne la base fee du prochain bloc et les pourboires payés
+ * aux percentiles de chaque {@link Urgency}. Si le nœud ne supporte pas EIP-1559, repli sur
+ * eth_gasPrice × 1.2 en transaction legacy.
+ */
+@Service
+public class FeeOracleService {
+
+  private static final Logger log = LoggerFactory.getLogger(FeeOracleService.class);
+  private static final int HISTORY_BLOCKS = 10;
+  private static final BigInteger FALLBACK_GAS_PRICE = BigInteger.valueOf(1_000_000_000L); // 1 gwei, local dev
+
+  /**
+   * Classe d'urgence : percentile des pourboires récents et marge sur la base fee
+   * (maxFee = baseFee × baseFeeMultiplier + pourboire).
+   */
+  public enum Urgency {
+    LOW(25, 1),
+    NORMAL(50, 2),
+    HIGH(90, 3);
+
+    final double percentile;
+    final int baseFeeMultiplier;
+
+    Urgency(double percentile, int baseFeeMultiplier) {
+      this.percentile = percentile;
+      this.baseFeeMultiplier = baseFeeMultiplier;
+    }
+  }
+
+  /**
+   * @param eip1559 true = transaction type 2 (maxPriorityFeePerGas/maxFeePerGas), false = legacy (gasPrice)
+   */
+  public record Fees(boolean eip1559, BigInteger maxPriorityFeePerGas, BigInteger maxFeePerGas, BigInteger gasPrice) {}
+
+  private record Snapshot(Map<Urgency, Fees> byUrgency, long fetchedAtMs) {}
+
+  private final Web3j web3j;
+  private final long refreshMs;
+  private final BigInteger minPriorityFee;
+  private volatile Snapshot snapshot;
+
+  public FeeOracleService(Web3j web3j, BlockchainProperties props) {
+    this.web3j = web3j;
+    BlockchainProperties.Fees f = props.fees();
+    this.refreshMs = f != null && f.refreshMs() > 0 ? f.refreshMs() : 2_000;
+    this.minPriorityFee = BigInteger.valueOf(f != null && f.minPriorityFeeWei() > 0 ? f.minPriorityFeeWei() : 1_000_000_000L);
+  }
+
+  public Fees fees(Urgency urgency) {
+    Snapshot s = snapshot;
+    if (s == null || System.currentTimeMillis() - s.fetchedAtMs() >= refreshMs) {
+      s = refresh();
+    }
+    return s.byUrgency().get(urgency);
+  }
+
+  private synchronized Snapshot refresh() {
+    Snapshot s = snapshot;
+    if (s != null && System.currentTimeMillis() - s.fetchedAtMs() < refreshMs) return s;
+
+    Map<Urgency, Fees> byUrgency = fromFeeHistory();
+    if (byUrgency == null) byUrgency = fromGasPrice();
+    s = new Snapshot(byUrgency, System.currentTimeMillis());
+    snapshot = s;
+    return s;
+  }
+
+  /** null si eth_feeHistory n'est pas disponible (nœud pré-London). */
+  private Map<Urgency, Fees> fromFeeHistory() {
+    List<Double> percentiles = new ArrayList<>();
+    for (Urgency u : Urgency.values()) percentiles.add(u.percentile);
+    EthFeeHistory res;
+    try {
+      res = web3j.ethFeeHistory(HISTORY_BLOCKS, DefaultBlockParameterName.LATEST, percentiles).send();
+    } catch (IOException e) {
+      log.debug("eth_feeHistory failed: {}", e.getMessage());
+      return null;
+    }
+    if (res.hasError() || res.getFeeHistory() == null) return null;
+    List<BigInteger> baseFees = res.getFeeHistory().getBaseFeePerGas();
+    if (baseFees == null || baseFees.isEmpty() || baseFees.get(baseFees.size() - 1) == null) return null;
+    // Last entry = base fee of the next (pending) block.
+    BigInteger nextBaseFee = baseFees.get(baseFees.size() - 1);
+    List<List<BigInteger>> rewards = res.getFeeHistory().getReward();
+
+    Map<Urgency, Fees> out = new EnumMap<>(Urgency.class);
+    Urgency[] values = Urgency.values();
+    for (int i = 0; i < values.length; i++) {
+      BigInteger tip = medianReward(rewards, i).max(minPriorityFee);
+      BigInteger maxFee = nextBaseFee.multiply(BigInteger.valueOf(values[i].baseFeeMultiplier)).add(tip);
+      out.put(values[i], new Fees(true, tip, maxFee, nextBaseFee.add(tip)));
+    }
+    return out;
+  }
+
+  private static BigInteger medianReward(List<List<BigInteger>> rewards, int column) {
+    List<BigInteger> col = new ArrayList<>();
+    if (rewards != null) {
+      for (List<BigInteger> block : rewards) {
+        if (block != null && block.size() > column && block.get(column) != null) col.add(block.get(column));
+      }
+    }
+    if (col.isEmpty()) return BigInteger.ZERO;
+    col.sort(null);
+    return col.get(col.size() / 2);
+  }
+
+  private Map<Urgency, Fees> fromGasPrice() {
+    BigInteger gasPrice = FALLBACK_GAS_PRICE;
+    try {
+      EthGasPrice gp = web3j.ethGasPrice().send();
+      if (!gp.hasError() && gp.getGasPrice() != null) {
+        // add a small buffer (x1.2) to avoid "too low for next block"
+        gasPrice = gp.getGasPrice().multiply(BigInteger.valueOf(12)).divide(BigInteger.TEN);
+      }
+    } catch (IOException e) {
+      // fallback for local dev
+    }
+    Map<Urgency, Fees> out = new EnumMap<>(Urgency.class);
+    for (Urgency u : Urgency.values()) {
+      // Legacy chains: scale the buffer with urgency (LOW x1.2, NORMAL x1.2, HIGH x1.5 of the raw price).
+      BigInteger p = u == Urgency.HIGH ? gasPrice.multiply(BigInteger.valueOf(5)).divide(BigInteger.valueOf(4)) : gasPrice;
+      out.put(u, new Fees(false, null, null, p));
+    }
+    return out;
+  }
+}
@@ -0,0 +1,30 @@
+package com.fancapital.backend.blockchain.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Vide la fenêtre de fusion de {@link InvestorRegistrySyncService} (envoi groupé des champs modifiés).
+ */
+@Component
+public class InvestorRegistrySyncJob {
+
+  private static final Logger log = LoggerFactory.getLogger(InvestorRegistrySyncJob.class);
+
+  private final InvestorRegistrySyncService sync;
+
+  public InvestorRegistrySyncJob(InvestorRegistrySyncService sync) {
+    this.sync = sync;
+  }
+
+  @Scheduled(fixedDelayString = "${blockchain.investor-sync.flush-interval-ms:2000}")
+  public void run() {
+    try {
+      sync.flush();
+    } catch (Exception e) {
+      log.warn("InvestorRegistry sync skipped: {}", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,256 @@
+package com.fancapital.backend.blockchain.service;
+
+import static com.fancapital.backend.blockchain.service.InvestorRegistryWriteService.FIELD_FEE_LEVEL;
+import static com.fancapital.backend.blockchain.service.InvestorRegistryWriteService.FIELD_SCORE;
+import static com.fancapital.backend.blockchain.service.InvestorRegistryWriteService.FIELD_SUBSCRIPTION;
+
+import com.fancapital.backend.backoffice.service.DeploymentInfraService;
+import com.fancapital.backend.blockchain.service.InvestorRegistryWriteService.InvestorState;
+import com.fancapital.backend.blockchain.service.InvestorRegistryWriteService.InvestorUpdate;
+import com.fancapital.backend.config.BlockchainProperties;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint16;
+import org.web3j.abi.datatypes.generated.Uint8;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+/**
+ * Synchronisation différentielle score / feeLevel / subscriptionActive vers InvestorRegistry.
+ * <p>
+ * {@link #submit} enregistre seulement la cible d'un wallet : les demandes répétées dans la fenêtre
+ * (blockchain.investor-sync.flush-interval-ms) se fusionnent. {@link #flush()} compare chaque cible au dernier
+ * état connu (lu en lot sur la chaîne au premier passage), ne garde que les champs modifiés et les envoie via
+ * InvestorRegistry.setInvestors, jusqu'à max-wallets-per-tx wallets par transaction. La présence de setInvestors
+ * est sondée une fois (eth_call à vide) ; sans elle, setters unitaires pour les seuls champs modifiés. Un lot qui
+ * revert est renvoyé par setters unitaires (un wallet fautif n'est pas renvoyé en boucle). Une cible envoyée
+ * reste « en vol » jusqu'au reçu : l'état connu n'est mis à jour qu'au reçu OK, et une cible sans reçu dans le
+ * délai est remise en attente.
+ */
+@Service
+public class InvestorRegistrySyncService {
+
+  private static final Logger log = LoggerFactory.getLogger(InvestorRegistrySyncService.class);
+  private static final long MAX_BACKOFF_MS = 300_000;
+
+  /** Cible d'un wallet ; subscriptionActive null = champ non géré (aucun utilisateur lié au wallet). */
+  public record Target(int score, int feeLevel, Boolean subscriptionActive) {}
+
+  private final InvestorRegistryWriteService registryWrite;
+  private final EvmCallService evm;
+  private final DeploymentInfraService infra;
+  private final ReceiptTrackerService receipts;
+  private final int maxWalletsPerTx;
+
+  private final Map<String, Target> desired = new ConcurrentHashMap<>();
+  /** Cibles envoyées, en attente de reçu. */
+  private final Map<String, Target> inFlight = new ConcurrentHashMap<>();
+  /** Wallets d'un setInvestors revert : prochain envoi par setters unitaires. */
+  private final Set<String> singlesNext = ConcurrentHashMap.newKeySet();
+  private final boolean batchEnabled;
+  /** Résultat de la sonde setInvestors (null = pas encore sondé). */
+  private volatile Boolean batchSupported;
+  private int consecutiveFailures; // flush thread only
+  private long nextFlushAtMs; // flush thread only
+
+  public InvestorRegistrySyncService(
+      InvestorRegistryWriteService registryWrite,
+      EvmCallService evm,
+      DeploymentInfraService infra,
+      ReceiptTrackerService receipts,
+      BlockchainProperties props
+  ) {
+    this.registryWrite = registryWrite;
+    this.evm = evm;
+    this.infra = infra;
+    this.receipts = receipts;
+    BlockchainProperties.InvestorSync s = props.investorSync();
+    this.maxWalletsPerTx = s != null && s.maxWalletsPerTx() > 0 ? s.maxWalletsPerTx() : 50;
+    this.batchEnabled = s == null || s.batchEnabled();
+  }
+
+  /**
+   * Demande la synchronisation d'un wallet.
+   *
+   * @return false si la cible est déjà l'état connu on-chain (rien à envoyer)
+   */
+  public boolean submit(String wallet, Target target) {
+    String w = wallet.toLowerCase(Locale.ROOT);
+    InvestorState known = registryWrite.known(w);
+    boolean synced = known != null && fieldsToWrite(known, target) == 0;
+    if ((synced || target.equals(inFlight.get(w))) && !desired.containsKey(w)) return false;
+    desired.put(w, target);
+    return true;
+  }
+
+  public int pendingCount() {
+    return desired.size();
+  }
+
+  /**
+   * Envoie les cibles en attente.
+   *
+   * @return nombre de wallets dont au moins un champ a été envoyé
+   */
+  public synchronized int flush() {
+    if (desired.isEmpty() || System.currentTimeMillis() < nextFlushAtMs) return 0;
+
+    Map<String, Target> batch = new LinkedHashMap<>();
+    for (Iterator<Map.Entry<String, Target>> it = desired.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<String, Target> e = it.next();
+      batch.put(e.getKey(), e.getValue());
+      it.remove();
+    }
+
+    try {
+      boolean useBatch = batchEnabled && batchSupported();
+      loadUnknown(batch.keySet());
+      List<InvestorUpdate> updates = new ArrayList<>();
+      List<InvestorUpdate> singles = new ArrayList<>();
+      batch.forEach((w, t) -> {
+        if (t.equals(inFlight.get(w))) return; // already sent, receipt pending
+        InvestorState known = registryWrite.known(w);
+        int fields = fieldsToWrite(known, t);
+        if (fields == 0) return;
+        boolean sub = t.subscriptionActive() != null ? t.subscriptionActive() : known != null && known.subscriptionActive();
+        InvestorUpdate u = new InvestorUpdate(w, t.score(), t.feeLevel(), sub, fields);
+        (useBatch && !singlesNext.contains(w) ? updates : singles).add(u);
+      });
+
+      int sent = 0;
+      for (int start = 0; start < updates.size(); start += maxWalletsPerTx) {
+        List<InvestorUpdate> chunk = updates.subList(start, Math.min(updates.size(), start + maxWalletsPerTx));
+        sendBatch(chunk, batch);
+        sent += chunk.size();
+        chunk.forEach(u -> batch.remove(u.wallet()));
+      }
+      for (InvestorUpdate u : singles) {
+        sendSingles(u, batch.get(u.wallet()));
+        singlesNext.remove(u.wallet());
+        batch.remove(u.wallet());
+        sent++;
+      }
+      consecutiveFailures = 0;
+      nextFlushAtMs = 0;
+      return sent;
+    } catch (RuntimeException e) {
+      // Keep unsent targets (a newer submit wins), retry with backoff.
+      batch.forEach(desired::putIfAbsent);
+      consecutiveFailures++;
+      nextFlushAtMs = System.currentTimeMillis() + Math.min(MAX_BACKOFF_MS, 1000L << Math.min(consecutiveFailures, 18));
+      throw e;
+    }
+  }
+
+  /** Sonde setInvestors au premier passage ; une sonde en échec (RPC) est refaite au passage suivant. */
+  private boolean batchSupported() {
+    Boolean supported = batchSupported;
+    if (supported == null) {
+      supported = registryWrite.supportsSetInvestors();
+      batchSupported = supported;
+      if (!supported) log.warn("InvestorRegistry has no setInvestors, syncing with single-field setters");
+    }
+    return supported;
+  }
+
+  private void sendBatch(List<InvestorUpdate> chunk, Map<String, Target> batch) {
+    List<InvestorUpdate> sent = List.copyOf(chunk);
+    Map<String, Target> targets = new HashMap<>();
+    for (InvestorUpdate u : sent) targets.put(u.wallet(), batch.get(u.wallet()));
+    String txHash = registryWrite.setInvestors(sent);
+    inFlight.putAll(targets);
+    receipts.track(txHash).whenComplete((r, ex) -> {
+      targets.forEach(inFlight::remove);
+      if (ex == null && r.isStatusOK()) return;
+      if (ex == null) {
+        // Reverted (gas, one bad entry…): resend these wallets one field at a time to isolate the culprit.
+        singlesNext.addAll(targets.keySet());
+        log.warn("InvestorRegistry.setInvestors reverted (tx {}), resending {} wallets with single-field setters",
+            txHash, targets.size());
+      }
+      targets.forEach(desired::putIfAbsent);
+    });
+  }
+
+  private void sendSingles(InvestorUpdate u, Target target) {
+    List<String> txHashes = new ArrayList<>(3);
+    if ((u.fields() & FIELD_SCORE) != 0) txHashes.add(registryWrite.setScore(u.wallet(), u.score()));
+    if ((u.fields() & FIELD_FEE_LEVEL) != 0) txHashes.add(registryWrite.setFeeLevel(u.wallet(), u.feeLevel()));
+    if ((u.fields() & FIELD_SUBSCRIPTION) != 0) {
+      txHashes.add(registryWrite.setSubscriptionActive(u.wallet(), u.subscriptionActive()));
+    }
+    inFlight.put(u.wallet(), target);
+    List<CompletableFuture<TransactionReceipt>> tracked = txHashes.stream().map(receipts::track).toList();
+    CompletableFuture.allOf(tracked.toArray(CompletableFuture[]::new)).whenComplete((v, ex) -> {
+      inFlight.remove(u.wallet(), target);
+      if (ex != null) {
+        desired.putIfAbsent(u.wallet(), target); // no receipt in time: resend (known was cleared)
+        return;
+      }
+      for (CompletableFuture<TransactionReceipt> f : tracked) {
+        TransactionReceipt r = f.join();
+        // Not retried: a single-field revert is a rejected value, not a transient failure.
+        if (!r.isStatusOK()) log.warn("InvestorRegistry update for {} reverted (tx {})", u.wallet(), r.getTransactionHash());
+      }
+    });
+  }
+
+  /** Lit en un lot JSON-RPC l'état on-chain des wallets jamais vus. */
+  @SuppressWarnings("rawtypes")
+  private void loadUnknown(Iterable<String> wallets) {
+    String registry = infra.investorRegistryAddress();
+    if (registry == null || registry.isBlank()) {
+      throw new IllegalStateException("InvestorRegistry address not configured in deployments infra.");
+    }
+    List<String> unknown = new ArrayList<>();
+    for (String w : wallets) if (registryWrite.known(w) == null) unknown.add(w);
+    if (unknown.isEmpty()) return;
+
+    List<EvmCallService.Call> calls = new ArrayList<>(unknown.size() * 3);
+    for (String w : unknown) {
+      calls.add(new EvmCallService.Call(registry,
+          new Function("getScore", List.of(new Address(w)), List.of(new TypeReference<Uint16>() {}))));
+      calls.add(new EvmCallService.Call(registry,
+          new Function("getFeeLevel", List.of(new Address(w)), List.of(new TypeReference<Uint8>() {}))));
+      calls.add(new EvmCallService.Call(registry,
+          new Function("isSubscriptionActive", List.of(new Address(w)), List.of(new TypeReference<Bool>() {}))));
+    }
+    List<List<Type>> out = evm.ethCallBatch(calls, null);
+    for (int i = 0; i < unknown.size(); i++) {
+      List<Type> score = out.get(3 * i);
+      List<Type> fee = out.get(3 * i + 1);
+      List<Type> sub = out.get(3 * i + 2);
+      // A failed read leaves the wallet unknown: every field is then written.
+      if (score.isEmpty() || fee.isEmpty() || sub.isEmpty()) continue;
+      registryWrite.recordOnChain(unknown.get(i), new InvestorState(
+          EvmCallService.uint(score.get(0)).intValue(),
+          EvmCallService.uint(fee.get(0)).intValue(),
+          (Boolean) sub.get(0).getValue()));
+    }
+  }
+
+  private static int fieldsToWrite(InvestorState known, Target t) {
+    int fields = 0;
+    if (known == null || known.score() != t.score()) fields |= FIELD_SCORE;
+    if (known == null || known.feeLevel() != t.feeLevel()) fields |= FIELD_FEE_LEVEL;
+    if (t.subscriptionActive() != null && (known == null || known.subscriptionActive() != t.subscriptionActive())) {
+      fields |= FIELD_SUBSCRIPTION;
+    }
+    return fields;
+  }
+}
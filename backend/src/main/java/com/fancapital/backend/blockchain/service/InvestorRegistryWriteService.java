@@ -1,34 +1,67 @@
 package com.fancapital.backend.blockchain.service;
 
 import com.fancapital.backend.backoffice.service.DeploymentInfraService;
+import com.fancapital.backend.blockchain.service.FeeOracleService.Urgency;
+import com.fancapital.backend.blockchain.service.TxSubmitterService.KeyLane;
 import com.fancapital.backend.config.BlockchainProperties;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
 import org.springframework.stereotype.Service;
 import org.web3j.abi.FunctionEncoder;
 import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.DynamicArray;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.Bool;
 import org.web3j.abi.datatypes.generated.Uint16;
 import org.web3j.abi.datatypes.generated.Uint8;
-import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.methods.response.EthGasPrice;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
-import org.web3j.tx.RawTransactionManager;
-import org.web3j.tx.TransactionManager;
 
+/**
+ * Écritures InvestorRegistry (clé opérateur). Garde en mémoire le dernier état connu de chaque investisseur
+ * (lu sur la chaîne ou écrit par ce service, reçu OK à l'appui) pour que {@link InvestorRegistrySyncService}
+ * n'envoie que les champs modifiés. Une écriture revert ou sans reçu dans le délai efface l'état connu du
+ * wallet : il est relu avant la prochaine synchronisation.
+ */
 @Service
 public class InvestorRegistryWriteService {
-  private final Web3j web3j;
+  /** Masque de champs de setInvestors (InvestorRegistry.FIELD_*). */
+  public static final int FIELD_SCORE = 1;
+  public static final int FIELD_FEE_LEVEL = 2;
+  public static final int FIELD_SUBSCRIPTION = 4;
+
+  private static final BigInteger BATCH_BASE_GAS = BigInteger.valueOf(80_000);
+  private static final BigInteger BATCH_GAS_PER_FIELD = BigInteger.valueOf(40_000);
+
+  /** État on-chain d'un investisseur (score, feeLevel, subscriptionActive). */
+  public record InvestorState(int score, int feeLevel, boolean subscriptionActive) {}
+
+  /** Entrée de setInvestors : seuls les champs présents dans {@code fields} sont écrits. */
+  public record InvestorUpdate(String wallet, int score, int feeLevel, boolean subscriptionActive, int fields) {}
+
+  private final TxSubmitterService txSubmitter;
   private final BlockchainProperties props;
   private final DeploymentInfraService infra;
+  private final ReceiptTrackerService receipts;
+  private final Web3j web3j;
+  private final Map<String, InvestorState> known = new ConcurrentHashMap<>();
 
-  public InvestorRegistryWriteService(Web3j web3j, BlockchainProperties props, DeploymentInfraService infra) {
-    this.web3j = web3j;
+  public InvestorRegistryWriteService(TxSubmitterService txSubmitter, BlockchainProperties props, DeploymentInfraService infra,
+      ReceiptTrackerService receipts, Web3j web3j) {
+    this.txSubmitter = txSubmitter;
     this.props = props;
     this.infra = infra;
+    this.receipts = receipts;
+    this.web3j = web3j;
   }
 
   public String setScore(String userWallet, int score) {
@@ -45,7 +78,9 @@ public class InvestorRegistryWriteService {
         List.of(new Address(userWallet), new Uint16(BigInteger.valueOf(score))),
         List.of()
     );
-    return send(investorRegistry, fn, BigInteger.valueOf(250_000));
+    String txHash = send(investorRegistry, fn, BigInteger.valueOf(250_000));
+    applyWhenMined(txHash, Map.of(key(userWallet), s -> new InvestorState(score, s.feeLevel(), s.subscriptionActive())));
+    return txHash;
   }
 
   /**
@@ -66,7 +101,9 @@ public class InvestorRegistryWriteService {
         List.of(new Address(userWallet), new Uint8(BigInteger.valueOf(feeLevel))),
         List.of()
     );
-    return send(investorRegistry, fn, BigInteger.valueOf(250_000));
+    String txHash = send(investorRegistry, fn, BigInteger.valueOf(250_000));
+    applyWhenMined(txHash, Map.of(key(userWallet), s -> new InvestorState(s.score(), feeLevel, s.subscriptionActive())));
+    return txHash;
   }
 
   /**
@@ -83,22 +120,135 @@ public class InvestorRegistryWriteService {
         List.of(new Address(userWallet), new Bool(active)),
         List.of()
     );
-    return send(investorRegistry, fn, BigInteger.valueOf(150_000));
+    String txHash = send(investorRegistry, fn, BigInteger.valueOf(150_000));
+    applyWhenMined(txHash, Map.of(key(userWallet), s -> new InvestorState(s.score(), s.feeLevel(), active)));
+    return txHash;
   }
 
-  private String send(String to, Function fn, BigInteger gasLimit) {
+  /**
+   * Synchronisation groupée (InvestorRegistry.setInvestors) : une transaction pour plusieurs wallets, seuls les
+   * champs marqués sont écrits. L'état connu est mis à jour au reçu OK.
+   */
+  public String setInvestors(List<InvestorUpdate> updates) {
+    if (updates.isEmpty()) {
+      throw new IllegalArgumentException("updates must not be empty");
+    }
+    String investorRegistry = infra.investorRegistryAddress();
+    if (investorRegistry == null || investorRegistry.isBlank()) {
+      throw new IllegalStateException("InvestorRegistry address not configured in deployments infra.");
+    }
+    int fieldCount = 0;
+    for (InvestorUpdate u : updates) {
+      if (u.feeLevel() < 0 || u.feeLevel() > 4) {
+        throw new IllegalArgumentException("feeLevel must be 0..4 (0=BRONZE, 1=SILVER, 2=GOLD, 3=DIAMOND, 4=PLATINUM)");
+      }
+      if (u.score() < 0 || u.score() > 65_535) {
+        throw new IllegalArgumentException("score must be 0..65535");
+      }
+      fieldCount += Integer.bitCount(u.fields());
+    }
+    Function fn = new Function(
+        "setInvestors",
+        List.of(
+            new DynamicArray<>(Address.class, updates.stream().map(u -> new Address(u.wallet())).toList()),
+            new DynamicArray<>(Uint16.class, updates.stream().map(u -> new Uint16(BigInteger.valueOf(u.score()))).toList()),
+            new DynamicArray<>(Uint8.class, updates.stream().map(u -> new Uint8(BigInteger.valueOf(u.feeLevel()))).toList()),
+            new DynamicArray<>(Bool.class, updates.stream().map(u -> new Bool(u.subscriptionActive())).toList()),
+            new DynamicArray<>(Uint8.class, updates.stream().map(u -> new Uint8(BigInteger.valueOf(u.fields()))).toList())
+        ),
+        List.of()
+    );
+    BigInteger gasLimit = BATCH_BASE_GAS.add(BATCH_GAS_PER_FIELD.multiply(BigInteger.valueOf(fieldCount)));
+    String txHash = send(investorRegistry, fn, gasLimit);
+    Map<String, UnaryOperator<InvestorState>> changes = new HashMap<>();
+    for (InvestorUpdate u : updates) {
+      changes.put(key(u.wallet()), old -> new InvestorState(
+          (u.fields() & FIELD_SCORE) != 0 ? u.score() : old.score(),
+          (u.fields() & FIELD_FEE_LEVEL) != 0 ? u.feeLevel() : old.feeLevel(),
+          (u.fields() & FIELD_SUBSCRIPTION) != 0 ? u.subscriptionActive() : old.subscriptionActive()));
+    }
+    applyWhenMined(txHash, changes);
+    return txHash;
+  }
+
+  /**
+   * Sonde setInvestors sur le registre déployé : eth_call à vide depuis la clé opérateur.
+   *
+   * @return false si l'appel revert (registre déployé avant setInvestors)
+   * @throws IllegalStateException si le nœud ne répond pas ou renvoie une autre erreur (sonde à refaire)
+   */
+  public boolean supportsSetInvestors() {
+    String investorRegistry = infra.investorRegistryAddress();
+    if (investorRegistry == null || investorRegistry.isBlank()) {
+      throw new IllegalStateException("InvestorRegistry address not configured in deployments infra.");
+    }
+    Function fn = new Function(
+        "setInvestors",
+        List.of(
+            new DynamicArray<>(Address.class, List.of()),
+            new DynamicArray<>(Uint16.class, List.of()),
+            new DynamicArray<>(Uint8.class, List.of()),
+            new DynamicArray<>(Bool.class, List.of()),
+            new DynamicArray<>(Uint8.class, List.of())
+        ),
+        List.of()
+    );
+    String from = txSubmitter.forKey(operatorKey()).address();
+    EthCall res;
+    try {
+      res = web3j.ethCall(Transaction.createEthCallTransaction(from, investorRegistry, FunctionEncoder.encode(fn)),
+          DefaultBlockParameterName.LATEST).send();
+    } catch (IOException e) {
+      throw new IllegalStateException("setInvestors probe failed: " + e.getMessage(), e);
+    }
+    if (res.hasError()) {
+      if (EvmCallService.isRevert(res.getError())) return false;
+      throw new IllegalStateException("setInvestors probe failed: " + res.getError().getMessage());
+    }
+    return !res.isReverted();
+  }
+
+  /** Dernier état connu (null = jamais lu ni poussé depuis le démarrage). */
+  public InvestorState known(String userWallet) {
+    return known.get(key(userWallet));
+  }
+
+  /** Enregistre l'état lu sur la chaîne. */
+  public void recordOnChain(String userWallet, InvestorState state) {
+    known.put(key(userWallet), state);
+  }
+
+  /** Oublie l'état connu : il sera relu avant la prochaine synchronisation. */
+  public void forget(String userWallet) {
+    known.remove(key(userWallet));
+  }
+
+  /** État connu mis à jour au reçu OK ; oublié sur revert ou sans reçu dans le délai (tx abandonnée, STUCK…). */
+  private void applyWhenMined(String txHash, Map<String, UnaryOperator<InvestorState>> changes) {
+    receipts.track(txHash).whenComplete((r, ex) -> changes.forEach((w, change) -> {
+      if (ex == null && r.isStatusOK()) known.computeIfPresent(w, (k, s) -> change.apply(s));
+      else known.remove(w);
+    }));
+  }
+
+  private String operatorKey() {
     String pk = props.operatorPrivateKey();
     if (pk == null || pk.isBlank()) {
       throw new IllegalStateException("OPERATOR_PRIVATE_KEY not configured (blockchain.operator-private-key).");
     }
-    Credentials credentials = Credentials.create(pk.trim());
-    BigInteger chainId = chainId();
-    TransactionManager tm = new RawTransactionManager(web3j, credentials, chainId.longValue());
+    return pk;
+  }
+
+  private static String key(String wallet) {
+    return wallet.toLowerCase(Locale.ROOT);
+  }
+
+  private String send(String to, Function fn, BigInteger gasLimit) {
+    KeyLane tm = txSubmitter.forKey(operatorKey());
 
     String data = FunctionEncoder.encode(fn);
-    BigInteger gasPrice = suggestedGasPrice();
     try {
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, gasLimit, to, data, BigInteger.ZERO);
+      EthSendTransaction tx = tm.send(Urgency.NORMAL, gasLimit, to, data, BigInteger.ZERO);
       if (tx.hasError()) {
         throw new IllegalStateException("EVM tx failed: " + tx.getError().getMessage());
       }
@@ -107,26 +257,5 @@ public class InvestorRegistryWriteService {
       throw new IllegalStateException("EVM tx RPC error: " + e.getMessage(), e);
     }
   }
-
-  private BigInteger suggestedGasPrice() {
-    try {
-      EthGasPrice gp = web3j.ethGasPrice().send();
-      if (gp.hasError()) {
-        throw new IllegalStateException("eth_gasPrice error: " + gp.getError().getMessage());
-      }
-      BigInteger v = gp.getGasPrice();
-      return v.multiply(BigInteger.valueOf(12)).divide(BigInteger.TEN);
-    } catch (IOException e) {
-      return BigInteger.valueOf(1_000_000_000L);
-    }
-  }
-
-  private BigInteger chainId() {
-    try {
-      return web3j.ethChainId().send().getChainId();
-    } catch (IOException e) {
-      return BigInteger.valueOf(31337);
-    }
-  }
 }
 
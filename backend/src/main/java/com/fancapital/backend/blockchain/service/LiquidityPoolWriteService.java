@@ -1,37 +1,34 @@
 package com.fancapital.backend.blockchain.service;
 
-import com.fancapital.backend.auth.model.Notification;
-import com.fancapital.backend.auth.model.Notification.Priority;
 import com.fancapital.backend.auth.repo.AppUserRepository;
-import com.fancapital.backend.auth.service.NotificationService;
 import com.fancapital.backend.backoffice.audit.service.BusinessContextService;
 import com.fancapital.backend.backoffice.service.DeploymentInfraService;
+import com.fancapital.backend.blockchain.model.FundDto;
 import com.fancapital.backend.blockchain.model.TxDtos.BuyRequest;
 import com.fancapital.backend.blockchain.model.TxDtos.SellRequest;
+import com.fancapital.backend.blockchain.service.FeeOracleService.Urgency;
+import com.fancapital.backend.blockchain.service.TxSubmitterService.KeyLane;
 import com.fancapital.backend.config.BlockchainProperties;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.web3j.abi.FunctionEncoder;
-import org.web3j.abi.FunctionReturnDecoder;
-import org.web3j.abi.TypeReference;
 import org.web3j.abi.datatypes.Address;
 import org.web3j.abi.datatypes.Function;
-import org.web3j.abi.datatypes.Type;
 import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.crypto.Credentials;
-import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.DefaultBlockParameterName;
-import org.web3j.protocol.core.methods.request.Transaction;
-import org.web3j.protocol.core.methods.response.EthCall;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
-import org.web3j.protocol.core.methods.response.EthGasPrice;
-import org.web3j.tx.RawTransactionManager;
-import org.web3j.tx.TransactionManager;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
 
 @Service
 public class LiquidityPoolWriteService {
@@ -40,40 +37,73 @@ public class LiquidityPoolWriteService {
   private static final BigInteger MAX_APPROVE = new BigInteger("2").pow(255);
   private static final BigInteger MIN_GAS_ETH = new BigInteger("10000000000000000");   // 0.01 ETH
   private static final BigInteger TOPUP_GAS_ETH = new BigInteger("50000000000000000");  // 0.05 ETH
+  private static final int BUY_WORKERS = 4;
+  private static final int BUY_QUEUE = 256;
 
-  private final Web3j web3j;
+  private final TxSubmitterService txSubmitter;
   private final DeploymentRegistry registry;
   private final DeploymentInfraService infra;
   private final BlockchainProperties props;
   private final BusinessContextService businessContextService;
   private final AppUserRepository userRepo;
   private final WaasUserWalletService waasWallets;
-  private final NotificationService notificationService;
-  private final SciScorePushService sciPush;
+  private final TradeOutboxService outbox;
+  private final OracleVniTracker oracleVni;
+  private final ReceiptTrackerService receipts;
+  private final WalletStateCacheService walletState;
+  /**
+   * buyFor envoyés après un approve miné : travail bloquant (oracle, file de signature operator) hors du
+   * pool commun et du thread de suivi des reçus ; file bornée, un achat refusé échoue au lieu de s'accumuler.
+   */
+  private final ThreadPoolExecutor buyWorkers;
 
   public LiquidityPoolWriteService(
-      Web3j web3j,
+      TxSubmitterService txSubmitter,
       DeploymentRegistry registry,
       DeploymentInfraService infra,
       BlockchainProperties props,
       BusinessContextService businessContextService,
       AppUserRepository userRepo,
       WaasUserWalletService waasWallets,
-      NotificationService notificationService,
-      SciScorePushService sciPush
+      TradeOutboxService outbox,
+      OracleVniTracker oracleVni,
+      ReceiptTrackerService receipts,
+      WalletStateCacheService walletState
   ) {
-    this.web3j = web3j;
+    this.txSubmitter = txSubmitter;
     this.registry = registry;
     this.infra = infra;
     this.props = props;
     this.businessContextService = businessContextService;
     this.userRepo = userRepo;
     this.waasWallets = waasWallets;
-    this.notificationService = notificationService;
-    this.sciPush = sciPush;
+    this.outbox = outbox;
+    this.oracleVni = oracleVni;
+    this.receipts = receipts;
+    this.walletState = walletState;
+    AtomicInteger threadNo = new AtomicInteger();
+    this.buyWorkers = new ThreadPoolExecutor(BUY_WORKERS, BUY_WORKERS, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(BUY_QUEUE), r -> {
+          Thread t = new Thread(r, "pool-buy-" + threadNo.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        });
+  }
+
+  @PreDestroy
+  void shutdown() {
+    buyWorkers.shutdown();
   }
 
   public String buyFor(BuyRequest req) {
+    return join(buyForAsync(req));
+  }
+
+  /**
+   * Achat non bloquant : si un approve (et un éventuel top-up de gas) est nécessaire, buyFor n'est envoyé
+   * qu'une fois l'approve miné, sans bloquer de thread pendant l'attente.
+   */
+  public CompletableFuture<String> buyForAsync(BuyRequest req) {
     var fund = registry.findByToken(req.token())
         .orElseThrow(() -> new IllegalArgumentException("Unknown fund token: " + req.token()));
     String pool = fund.pool();
@@ -81,8 +111,13 @@ public class LiquidityPoolWriteService {
     BigInteger tndIn = parseUint(req.tndIn(), "tndIn");
 
     // S'assurer que l'utilisateur a approve le pool pour dépenser ses TND (évite ERC20InsufficientAllowance)
-    ensureCashAllowance(req.user(), pool, tndIn);
+    CompletableFuture<Void> allowance = ensureCashAllowance(req.user(), pool, tndIn);
+    return allowance.isDone() && !allowance.isCompletedExceptionally()
+        ? CompletableFuture.completedFuture(submitBuy(req, fund, pool, tndIn))
+        : allowance.thenApplyAsync(v -> submitBuy(req, fund, pool, tndIn), buyWorkers);
+  }
 
+  private String submitBuy(BuyRequest req, FundDto fund, String pool, BigInteger tndIn) {
     // Dev: ensure on-chain oracle has an initialized VNI (required by pool staleness guard).
     ensureOraclePriceInitialized(fund.oracle(), req.token(), fund.name(), fund.id());
 
@@ -92,39 +127,18 @@ public class LiquidityPoolWriteService {
         List.of()
     );
 
-    String txHash = send(pool, fn, BigInteger.valueOf(1_000_000));
-    
-    // Enregistrer le BusinessContextId pour la traçabilité (Livre Blanc v2.1 - Section 4.2)
-    String businessContextId = businessContextService.generateBusinessContextId("BUY");
-    try {
-      businessContextService.registerTransaction(
-          txHash,
-          businessContextId,
-          pool,
-          "BUY",
-          String.format("Achat de tokens %s pour utilisateur %s, montant TND: %s", req.token(), req.user(), tndIn),
-          null // accountingDocumentId sera ajouté par le backoffice si nécessaire
-      );
-    } catch (Exception e) {
-      // Log l'erreur mais ne fait pas échouer la transaction
-      System.err.println("Failed to register business context for transaction " + txHash + ": " + e.getMessage());
-    }
-
-    userRepo.findByWalletAddressIgnoreCase(req.user()).ifPresent(u -> {
-      double tnd = tndIn.doubleValue() / 100_000_000.0;
-      String fundName = fund.name() != null ? fund.name() : "CPEF";
-      try {
-        notificationService.create(u.getId(), Notification.Type.PRICE,
-            "Achat effectué - " + fundName,
-            String.format("Vous avez acheté des tokens %s pour %.2f TND.", fundName, tnd),
-            Priority.LOW);
-      } catch (Exception ex) {
-        System.err.println("Failed to create buy notification: " + ex.getMessage());
-      }
-    });
-
-    // Mise à jour temps réel du score SCI (async, sans bloquer la réponse)
-    scheduleScoreUpdate(req.user());
+    // Traçabilité (Livre Blanc v2.1 - Section 4.2), notification et score SCI : via l'outbox (écrite avant
+    // l'envoi), exécutés hors du chemin de la requête
+    double tnd = tndIn.doubleValue() / 100_000_000.0;
+    String fundName = fund.name() != null ? fund.name() : "CPEF";
+    String txHash = outbox.sendWithEffects(outbox.batch()
+        .businessContext(businessContextService.generateBusinessContextId("BUY"), pool, "BUY",
+            String.format("Achat de tokens %s pour utilisateur %s, montant TND: %s", req.token(), req.user(), tndIn))
+        .notification(req.user(), "Achat effectué - " + fundName,
+            String.format("Vous avez acheté des tokens %s pour %.2f TND.", fundName, tnd))
+        .sciPush(req.user()), () -> send(pool, fn, BigInteger.valueOf(1_000_000)));
+    String cash = infra.cashTokenAddress();
+    if (cash != null && !cash.isBlank()) walletState.onSpent(cash, req.user(), pool, tndIn);
 
     return txHash;
   }
@@ -144,52 +158,14 @@ public class LiquidityPoolWriteService {
         List.of()
     );
 
-    String txHash = send(pool, fn, BigInteger.valueOf(1_200_000));
-    
-    // Enregistrer le BusinessContextId pour la traçabilité (Livre Blanc v2.1 - Section 4.2)
-    String businessContextId = businessContextService.generateBusinessContextId("SELL");
-    try {
-      businessContextService.registerTransaction(
-          txHash,
-          businessContextId,
-          pool,
-          "SELL",
-          String.format("Vente de tokens %s pour utilisateur %s, montant tokens: %s", req.token(), req.user(), tokenAmount),
-          null // accountingDocumentId sera ajouté par le backoffice si nécessaire
-      );
-    } catch (Exception e) {
-      // Log l'erreur mais ne fait pas échouer la transaction
-      System.err.println("Failed to register business context for transaction " + txHash + ": " + e.getMessage());
-    }
-
-    userRepo.findByWalletAddressIgnoreCase(req.user()).ifPresent(u -> {
-      String fundName = fund.name() != null ? fund.name() : "CPEF";
-      try {
-        notificationService.create(u.getId(), Notification.Type.PRICE,
-            "Vente effectuée - " + fundName,
-            String.format("Vous avez vendu des tokens %s.", fundName),
-            Priority.LOW);
-      } catch (Exception ex) {
-        System.err.println("Failed to create sell notification: " + ex.getMessage());
-      }
-    });
-
-    // Mise à jour temps réel du score SCI (async, sans bloquer la réponse)
-    scheduleScoreUpdate(req.user());
-
-    return txHash;
-  }
-
-  /** Lance le push du score SCI en arrière-plan après achat/vente. */
-  private void scheduleScoreUpdate(String walletAddress) {
-    CompletableFuture.runAsync(() -> {
-      try {
-        sciPush.pushForWallet(walletAddress);
-        log.debug("SCI score pushed for {}", walletAddress);
-      } catch (Exception e) {
-        log.warn("SCI score push failed for {}: {}", walletAddress, e.getMessage());
-      }
-    });
+    // Traçabilité (Livre Blanc v2.1 - Section 4.2), notification et score SCI : via l'outbox (écrite avant
+    // l'envoi), exécutés hors du chemin de la requête
+    String fundName = fund.name() != null ? fund.name() : "CPEF";
+    return outbox.sendWithEffects(outbox.batch()
+        .businessContext(businessContextService.generateBusinessContextId("SELL"), pool, "SELL",
+            String.format("Vente de tokens %s pour utilisateur %s, montant tokens: %s", req.token(), req.user(), tokenAmount))
+        .notification(req.user(), "Vente effectuée - " + fundName, String.format("Vous avez vendu des tokens %s.", fundName))
+        .sciPush(req.user()), () -> send(pool, fn, BigInteger.valueOf(1_200_000)));
   }
 
   private String send(String to, Function fn, BigInteger gasLimit) {
@@ -198,15 +174,12 @@ public class LiquidityPoolWriteService {
       throw new IllegalStateException("OPERATOR_PRIVATE_KEY not configured (blockchain.operator-private-key).");
     }
 
-    Credentials credentials = Credentials.create(pk.trim());
-    BigInteger chainId = chainId();
-    TransactionManager tm = new RawTransactionManager(web3j, credentials, chainId.longValue());
+    KeyLane tm = txSubmitter.forKey(pk);
 
     String data = FunctionEncoder.encode(fn);
-    BigInteger gasPrice = suggestedGasPrice();
 
     try {
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, gasLimit, to, data, BigInteger.ZERO);
+      EthSendTransaction tx = tm.send(fn.getName(), Urgency.NORMAL, gasLimit, to, data, BigInteger.ZERO);
       if (tx.hasError()) {
         throw new IllegalStateException("EVM tx failed: " + tx.getError().getMessage());
       }
@@ -216,35 +189,15 @@ public class LiquidityPoolWriteService {
     }
   }
 
-  private BigInteger suggestedGasPrice() {
-    try {
-      EthGasPrice gp = web3j.ethGasPrice().send();
-      if (gp.hasError()) {
-        throw new IllegalStateException("eth_gasPrice error: " + gp.getError().getMessage());
-      }
-      BigInteger v = gp.getGasPrice();
-      // add a small buffer (x1.2) to avoid "too low for next block"
-      return v.multiply(BigInteger.valueOf(12)).divide(BigInteger.TEN);
-    } catch (IOException e) {
-      // fallback for local dev
-      return BigInteger.valueOf(1_000_000_000L); // 1 gwei
-    }
-  }
-
-  private BigInteger chainId() {
-    try {
-      return web3j.ethChainId().send().getChainId();
-    } catch (IOException e) {
-      return BigInteger.valueOf(31337);
-    }
-  }
-
-  /** Vérifie que l'utilisateur a accordé au pool le droit de dépenser tndAmount TND. Si non, approve via WaaS. */
-  private void ensureCashAllowance(String userAddress, String poolAddress, BigInteger tndAmount) {
+  /**
+   * Vérifie que l'utilisateur a accordé au pool le droit de dépenser tndAmount TND. Si non, approve via WaaS.
+   * Le futur se complète quand l'approve est miné (immédiatement si l'allowance suffit déjà).
+   */
+  private CompletableFuture<Void> ensureCashAllowance(String userAddress, String poolAddress, BigInteger tndAmount) {
     String cash = infra.cashTokenAddress();
-    if (cash == null || cash.isBlank()) return;
-    BigInteger allowance = allowanceOf(cash, userAddress, poolAddress);
-    if (allowance.compareTo(tndAmount) >= 0) return;
+    if (cash == null || cash.isBlank()) return CompletableFuture.completedFuture(null);
+    BigInteger allowance = walletState.allowance(cash, userAddress, poolAddress);
+    if (allowance.compareTo(tndAmount) >= 0) return CompletableFuture.completedFuture(null);
     var userOpt = userRepo.findByWalletAddressIgnoreCase(userAddress);
     if (userOpt.isEmpty()) {
       throw new IllegalStateException(
@@ -252,78 +205,77 @@ public class LiquidityPoolWriteService {
           "User not found in DB (WaaS) - ensure KYC validated and wallet provisioned."
       );
     }
+    String userId = userOpt.get().getId();
     // Alimenter le wallet en ETH pour le gas si nécessaire (circuit fermé : la plateforme paie)
-    ensureUserHasGasForTx(userAddress);
+    return ensureUserHasGasForTx(userAddress)
+        .thenCompose(v -> sendApprove(userId, userAddress, poolAddress, cash))
+        .thenAccept(receipt -> {
+          walletState.onGasSpent(userAddress, receipt);
+          if (!receipt.isStatusOK()) {
+            throw new IllegalStateException("approve reverted for user " + userAddress + " (tx " + receipt.getTransactionHash() + ")");
+          }
+          walletState.onApproved(cash, userAddress, poolAddress, MAX_APPROVE);
+        });
+  }
 
+  /** Envoie l'approve signé par le wallet WaaS ; le futur suit son reçu (évite ERC20InsufficientAllowance si buyFor mined avant approve). */
+  private CompletableFuture<TransactionReceipt> sendApprove(String userId, String userAddress, String poolAddress, String cash) {
     try {
-      Credentials creds = waasWallets.credentialsForUser(userOpt.get().getId());
-      TransactionManager tm = new RawTransactionManager(web3j, creds, chainId().longValue());
+      Credentials creds = waasWallets.credentialsForUser(userId);
+      KeyLane tm = txSubmitter.forCredentials(creds);
       Function approve = new Function("approve", List.of(new Address(poolAddress), new Uint256(MAX_APPROVE)), List.of());
       String data = FunctionEncoder.encode(approve);
-      BigInteger gasPrice = suggestedGasPrice();
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, BigInteger.valueOf(120_000), cash, data, BigInteger.ZERO);
+      EthSendTransaction tx = tm.send("approve", Urgency.NORMAL, BigInteger.valueOf(120_000), cash, data, BigInteger.ZERO);
       if (tx.hasError()) {
         throw new IllegalStateException("approve failed: " + tx.getError().getMessage());
       }
-      String txHash = tx.getTransactionHash();
-      if (txHash != null && !txHash.isBlank()) {
-        waitForReceipt(txHash);
-      }
+      return receipts.track(tx.getTransactionHash()).whenComplete((r, ex) -> {
+        if (ex != null) walletState.evictGas(userAddress);
+      });
     } catch (IllegalStateException e) {
+      walletState.evictGas(userAddress);
       throw e;
     } catch (Exception e) {
+      walletState.evictGas(userAddress);
       throw new IllegalStateException("Could not approve pool for user " + userAddress + ": " + e.getMessage(), e);
     }
   }
 
-  /** Attend que la tx soit minée avant de poursuivre (évite ERC20InsufficientAllowance si buyFor mined avant approve). */
-  private void waitForReceipt(String txHash) throws InterruptedException, java.io.IOException {
-    for (int i = 0; i < 30; i++) {
-      var receipt = web3j.ethGetTransactionReceipt(txHash).send();
-      if (receipt.getTransactionReceipt().isPresent()) {
-        return;
-      }
-      Thread.sleep(500);
-    }
-    throw new IllegalStateException("Approval tx " + txHash + " not mined within 15s");
-  }
-
-  /** Alimente le wallet utilisateur en ETH natif si solde insuffisant pour le gas (plateforme paie). */
-  private void ensureUserHasGasForTx(String userAddress) {
+  /**
+   * Alimente le wallet utilisateur en ETH natif si solde insuffisant pour le gas (plateforme paie).
+   * Best-effort : le futur se complète normalement même si le top-up échoue.
+   */
+  private CompletableFuture<Void> ensureUserHasGasForTx(String userAddress) {
     String opPk = props.operatorPrivateKey();
-    if (opPk == null || opPk.isBlank()) return;
+    if (opPk == null || opPk.isBlank()) return CompletableFuture.completedFuture(null);
     try {
-      BigInteger ethBal = web3j.ethGetBalance(userAddress, DefaultBlockParameterName.LATEST).send().getBalance();
-      if (ethBal.compareTo(MIN_GAS_ETH) >= 0) return;
-      Credentials op = Credentials.create(opPk.trim());
-      TransactionManager opTm = new RawTransactionManager(web3j, op, chainId().longValue());
-      BigInteger gasPrice = suggestedGasPrice();
-      EthSendTransaction tx = (EthSendTransaction) opTm.sendTransaction(gasPrice, BigInteger.valueOf(21_000), userAddress, "", TOPUP_GAS_ETH);
+      BigInteger ethBal = walletState.gasBalance(userAddress);
+      if (ethBal.compareTo(MIN_GAS_ETH) >= 0) return CompletableFuture.completedFuture(null);
+      KeyLane opTm = txSubmitter.forKey(opPk);
+      EthSendTransaction tx = opTm.send("gasTopUp", Urgency.NORMAL, BigInteger.valueOf(21_000), userAddress, "", TOPUP_GAS_ETH);
       if (tx.hasError()) {
-        System.err.println("Gas topup failed for " + userAddress + ": " + tx.getError().getMessage());
-        return;
-      }
-      String txHash = tx.getTransactionHash();
-      if (txHash != null && !txHash.isBlank()) {
-        waitForReceipt(txHash);
+        log.warn("Gas topup failed for {}: {}", userAddress, tx.getError().getMessage());
+        return CompletableFuture.completedFuture(null);
       }
+      return receipts.track(tx.getTransactionHash())
+          .handle((receipt, ex) -> {
+            if (ex != null) log.warn("Gas topup error for {}: {}", userAddress, ex.getMessage());
+            else if (receipt.isStatusOK()) walletState.onFunded(userAddress, TOPUP_GAS_ETH);
+            return null;
+          });
     } catch (Exception e) {
-      System.err.println("Gas topup error for " + userAddress + ": " + e.getMessage());
+      log.warn("Gas topup error for {}: {}", userAddress, e.getMessage());
+      return CompletableFuture.completedFuture(null);
     }
   }
 
-  private BigInteger allowanceOf(String token, String owner, String spender) {
-    Function f = new Function("allowance", List.of(new Address(owner), new Address(spender)), List.of(new TypeReference<Uint256>() {}));
-    String data = FunctionEncoder.encode(f);
-    Transaction call = Transaction.createEthCallTransaction(null, token, data);
+  /** Attend un résultat asynchrone et relance l'exception d'origine (IllegalState/IllegalArgument). */
+  private static <T> T join(CompletableFuture<T> f) {
     try {
-      EthCall res = web3j.ethCall(call, DefaultBlockParameterName.LATEST).send();
-      if (res.hasError() || res.getValue() == null || res.getValue().isBlank()) return BigInteger.ZERO;
-      @SuppressWarnings("rawtypes")
-      List<Type> decoded = FunctionReturnDecoder.decode(res.getValue(), f.getOutputParameters());
-      return decoded.isEmpty() ? BigInteger.ZERO : (BigInteger) decoded.get(0).getValue();
-    } catch (IOException e) {
-      return BigInteger.ZERO;
+      return f.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException re) throw re;
+      throw e;
     }
   }
 
@@ -334,16 +286,14 @@ public class LiquidityPoolWriteService {
     BigInteger vni1e8 = fixedVni1e8ForFund(po, fundName, fundId);
     if (vni1e8 == null) return;
 
-    // PriceOracle.updateVNI(address token, uint256 newVni)
-    // Note: This should use OracleKeyService for strict separation, but for now we keep using operator
-    // TODO: Migrate to OracleKeyService for strict separation according to Dossier de Sécurité v2.0
-    Function fn = new Function(
-        "updateVNI",
-        List.of(new Address(token), new Uint256(vni1e8)),
-        List.of()
-    );
+    // PriceOracle.updateVNI via la clé Oracle, seulement si la valeur diffère ou approche du seuil de fraîcheur ;
+    // le reçu est attendu avant l'envoi du trade (file operator distincte).
     // best-effort: if this fails due to roles, caller will see later pool revert.
-    send(oracle, fn, BigInteger.valueOf(250_000));
+    try {
+      oracleVni.ensureVni(oracle, token, vni1e8);
+    } catch (IllegalStateException e) {
+      log.warn("Oracle VNI update skipped for {}: {}", token, e.getMessage());
+    }
   }
 
   private BigInteger fixedVni1e8ForFund(BlockchainProperties.PriceOverrides po, String name, int id) {
@@ -0,0 +1,326 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.blockchain.model.ChainIndexerState;
+import com.fancapital.backend.blockchain.model.CreditLoan;
+import com.fancapital.backend.blockchain.repo.ChainIndexerStateRepository;
+import com.fancapital.backend.blockchain.repo.CreditLoanRepository;
+import com.fancapital.backend.config.BlockchainProperties;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.Log;
+
+/**
+ * Index local des avances (CreditModelA / CreditModelBPGP) alimenté par les événements LoanRequested,
+ * LoanActivated, LoanClosed, LoanCancelled et RepaymentRecorded.
+ * <p>
+ * Par tranche de blocs, les prêts touchés sont relus en un lot JSON-RPC ({@code loans(id)} au dernier bloc de
+ * la tranche) : l'index reste idempotent (une tranche rejouée réécrit le même état). {@link CreditReadService}
+ * le lit tant qu'il est à jour (avance active d'un wallet = une requête indexée) et revient au parcours
+ * on-chain sinon (indexeur désactivé, démarrage).
+ * <p>
+ * En cas de reorg, les prêts demandés après l'ancêtre commun sont supprimés, les autres relus à ce bloc.
+ */
+@Service
+public class LoanIndexService implements ChainIndexConsumer {
+
+  private static final Logger log = LoggerFactory.getLogger(LoanIndexService.class);
+  static final String INDEXER_NAME = "credit-loans";
+  private static final long CHUNK = 5_000;
+  static final int STATUS_REQUESTED = 0;
+  static final int STATUS_ACTIVE = 1;
+
+  private final Web3j web3j;
+  private final DeploymentRegistry registry;
+  private final EvmCallService evm;
+  private final CreditLoanRepository repo;
+  private final ChainIndexerStateRepository stateRepo;
+  private final long staleAfterMs;
+  /** Dernier passage ayant atteint la tête (0 = pas encore, ou reorg en cours de rattrapage). */
+  private volatile long syncedAtMillis;
+  private final List<LoanListener> listeners = new CopyOnWriteArrayList<>();
+  private final List<RequestListener> requestListeners = new CopyOnWriteArrayList<>();
+
+  /** Wallets dont un prêt a changé (statut ou principal), appelé après l'enregistrement. */
+  public interface LoanListener {
+    void onLoansChanged(Set<String> wallets);
+  }
+
+  /** Prêt nouvellement indexé en statut Requested (modèle A ou B), appelé après l'enregistrement. */
+  public interface RequestListener {
+    void onRequested(String model, CreditReadService.LoanInfo loan);
+  }
+
+  public LoanIndexService(
+      Web3j web3j,
+      DeploymentRegistry registry,
+      EvmCallService evm,
+      CreditLoanRepository repo,
+      ChainIndexerStateRepository stateRepo,
+      BlockchainProperties props
+  ) {
+    this.web3j = web3j;
+    this.registry = registry;
+    this.evm = evm;
+    this.repo = repo;
+    this.stateRepo = stateRepo;
+    BlockchainProperties.Indexer ix = props.indexer();
+    long interval = ix != null && ix.intervalMs() > 0 ? ix.intervalMs() : 5_000L;
+    // A few missed indexer runs are tolerated before falling back to the on-chain scan.
+    this.staleAfterMs = Math.max(30_000L, interval * 6);
+  }
+
+  public void addLoanListener(LoanListener listener) {
+    listeners.add(listener);
+  }
+
+  public void addRequestListener(RequestListener listener) {
+    requestListeners.add(listener);
+  }
+
+  @Override
+  public String indexerName() {
+    return INDEXER_NAME;
+  }
+
+  @Override
+  public synchronized void rollbackAfter(long ancestorBlock) {
+    syncedAtMillis = 0;
+    List<CreditLoan> touched = repo.findUpdatedAbove(ancestorBlock);
+    List<CreditLoan> reread = new ArrayList<>();
+    List<CreditLoan> dropped = new ArrayList<>();
+    for (CreditLoan l : touched) {
+      (l.getRequestedBlock() > ancestorBlock ? dropped : reread).add(l);
+    }
+    repo.deleteAll(dropped);
+    if (!reread.isEmpty()) {
+      Map<String, CreditLoan> byId = new LinkedHashMap<>();
+      for (CreditLoan l : reread) byId.put(l.getId(), l);
+      refresh(byId, ancestorBlock);
+    }
+    stateRepo.findById(INDEXER_NAME).ifPresent(st -> {
+      if (st.getLastIndexedBlock() > ancestorBlock) {
+        st.setLastIndexedBlock(ancestorBlock);
+        st.setUpdatedAt(Instant.now());
+        stateRepo.save(st);
+      }
+    });
+    if (!touched.isEmpty()) {
+      log.info("Loan index: {} loans removed, {} re-read at block {} after reorg", dropped.size(), reread.size(),
+          ancestorBlock);
+    }
+  }
+
+  /**
+   * Indexe les blocs non encore traités jusqu'à {@code latest} (tête validée par {@link ChainHeadTracker}).
+   *
+   * @return nombre de prêts mis à jour
+   */
+  public synchronized int indexTo(long latest) {
+    String a = normalize(registry.getCreditModelAAddress());
+    String b = normalize(registry.getCreditModelBAddress());
+    ChainIndexerState st = stateRepo.findById(INDEXER_NAME).orElseGet(() -> new ChainIndexerState(INDEXER_NAME));
+    long from = st.getLastIndexedBlock() + 1;
+
+    int updated = 0;
+    if (a != null || b != null) {
+      for (long start = from; start <= latest; start += CHUNK) {
+        long end = Math.min(latest, start + CHUNK - 1);
+        updated += indexRange(start, end, a, b);
+        st.setLastIndexedBlock(end);
+        st.setUpdatedAt(Instant.now());
+        st = stateRepo.save(st);
+      }
+    }
+    syncedAtMillis = System.currentTimeMillis();
+    if (updated > 0) log.debug("Loan index: {} loans updated up to block {}", updated, latest);
+    return updated;
+  }
+
+  /** true si l'index a atteint la tête récemment : les lectures peuvent s'y substituer au parcours on-chain. */
+  public boolean isFresh() {
+    long t = syncedAtMillis;
+    return t > 0 && System.currentTimeMillis() - t <= staleAfterMs;
+  }
+
+  /** Prêts du contrat dans le statut donné, par loanId croissant. */
+  public List<CreditReadService.LoanInfo> loansByStatus(String contractAddress, int status) {
+    String c = normalize(contractAddress);
+    if (c == null) return List.of();
+    return repo.findByContractAddressAndStatusOrderByLoanIdAsc(c, status).stream().map(LoanIndexService::toInfo).toList();
+  }
+
+  /** Avance active du wallet (Model B prioritaire, comme le parcours on-chain), ou null. */
+  public CreditReadService.ActiveAdvanceResult activeForUser(String userWallet) {
+    String b = normalize(registry.getCreditModelBAddress());
+    String a = normalize(registry.getCreditModelAAddress());
+    CreditLoan fromA = null;
+    for (CreditLoan l : repo.findByUserAddressAndStatus(userWallet.trim().toLowerCase(Locale.ROOT), STATUS_ACTIVE)) {
+      if (l.getContractAddress().equals(b)) return new CreditReadService.ActiveAdvanceResult("B", toInfo(l));
+      if (l.getContractAddress().equals(a) && (fromA == null || l.getLoanId() < fromA.getLoanId())) fromA = l;
+    }
+    return fromA != null ? new CreditReadService.ActiveAdvanceResult("A", toInfo(fromA)) : null;
+  }
+
+  private int indexRange(long fromBlock, long toBlock, String a, String b) {
+    List<String> contracts = new ArrayList<>();
+    if (a != null) contracts.add(a);
+    if (b != null) contracts.add(b);
+    EthFilter filter = new EthFilter(
+        new DefaultBlockParameterNumber(BigInteger.valueOf(fromBlock)),
+        new DefaultBlockParameterNumber(BigInteger.valueOf(toBlock)),
+        contracts
+    );
+    filter.addOptionalTopics(
+        ChainEvents.LOAN_REQUESTED_TOPIC,
+        ChainEvents.LOAN_ACTIVATED_TOPIC,
+        ChainEvents.LOAN_CLOSED_TOPIC,
+        ChainEvents.LOAN_CLOSED_B_TOPIC,
+        ChainEvents.LOAN_CANCELLED_TOPIC,
+        ChainEvents.REPAYMENT_RECORDED_TOPIC
+    );
+
+    // One re-read per touched loan, however many events it had in the range.
+    Map<String, CreditLoan> touched = new LinkedHashMap<>();
+    Map<String, Long> lastBlock = new HashMap<>();
+    Map<String, Long> requestedAt = new HashMap<>();
+    for (Log l : getLogs(filter)) {
+      if (l.getTopics() == null || l.getTopics().size() < 2) continue;
+      String contract = l.getAddress().toLowerCase(Locale.ROOT);
+      String model = contract.equals(b) ? "B" : "A";
+      long loanId = new BigInteger(l.getTopics().get(1).substring(2), 16).longValueExact();
+      String id = CreditLoan.buildId(model, loanId);
+      long block = l.getBlockNumber().longValue();
+      touched.computeIfAbsent(id, k -> {
+        CreditLoan row = new CreditLoan(model, loanId);
+        row.setContractAddress(contract);
+        return row;
+      });
+      lastBlock.merge(id, block, Math::max);
+      if (ChainEvents.LOAN_REQUESTED_TOPIC.equalsIgnoreCase(l.getTopics().get(0))) requestedAt.put(id, block);
+    }
+    if (touched.isEmpty()) return 0;
+
+    repo.findAllById(touched.keySet()).forEach(existing -> touched.put(existing.getId(), existing));
+    for (Map.Entry<String, CreditLoan> e : touched.entrySet()) {
+      CreditLoan row = e.getValue();
+      Long requested = requestedAt.get(e.getKey());
+      if (requested != null) {
+        row.setRequestedBlock(requested);
+      } else if (row.getUserAddress() == null) {
+        // Loan requested before the index existed (cursor started late): its first seen block stands in.
+        row.setRequestedBlock(lastBlock.get(e.getKey()));
+      }
+      row.setUpdatedBlock(lastBlock.get(e.getKey()));
+    }
+    return refresh(touched, toBlock);
+  }
+
+  /**
+   * Relit l'état on-chain des prêts à {@code block} (un lot JSON-RPC) et les enregistre ; un prêt illisible fait
+   * échouer le lot entier (aucun enregistrement).
+   */
+  private int refresh(Map<String, CreditLoan> rows, long block) {
+    List<CreditLoan> list = new ArrayList<>(rows.values());
+    List<EvmCallService.Call> calls = new ArrayList<>(list.size());
+    for (CreditLoan row : list) {
+      calls.add(new EvmCallService.Call(row.getContractAddress(),
+          CreditReadService.loanFunction(BigInteger.valueOf(row.getLoanId()), "B".equals(row.getModel()))));
+    }
+    @SuppressWarnings("rawtypes")
+    List<List<Type>> out = evm.ethCallBatch(calls, BigInteger.valueOf(block));
+    List<CreditLoan> save = new ArrayList<>(list.size());
+    Set<String> changed = new HashSet<>();
+    List<CreditLoan> requested = new ArrayList<>();
+    for (int i = 0; i < list.size(); i++) {
+      CreditLoan row = list.get(i);
+      CreditReadService.LoanInfo info =
+          CreditReadService.parseLoanInfo(BigInteger.valueOf(row.getLoanId()), out.get(i), "B".equals(row.getModel()));
+      if (info == null || info.user() == null) {
+        // Nothing saved and the cursor stays put: the whole chunk is retried on the next run.
+        throw new IllegalStateException("Loan index: loans(" + row.getLoanId() + ") unreadable on "
+            + row.getContractAddress() + " at block " + block);
+      }
+      if (row.getUserAddress() == null || row.getStatus() != info.status()
+          || !row.getPrincipalTnd().equals(info.principalTnd().toString())) {
+        changed.add(info.user().toLowerCase(Locale.ROOT));
+      }
+      if (info.status() == STATUS_REQUESTED && (row.getUserAddress() == null || row.getStatus() != STATUS_REQUESTED)) {
+        requested.add(row);
+      }
+      row.setUserAddress(info.user().toLowerCase(Locale.ROOT));
+      row.setTokenAddress(info.token().toLowerCase(Locale.ROOT));
+      row.setCollateralAmount(info.collateralAmount().toString());
+      row.setVniAtStart(info.vniAtStart().toString());
+      row.setPrincipalTnd(info.principalTnd().toString());
+      row.setStartAt(info.startAt());
+      row.setDurationDays(info.durationDays());
+      row.setStatus(info.status());
+      row.setUpdatedBlock(Math.min(row.getUpdatedBlock(), block));
+      row.setUpdatedAt(Instant.now());
+      save.add(row);
+    }
+    repo.saveAll(save);
+    if (!changed.isEmpty()) {
+      for (LoanListener l : listeners) {
+        try {
+          l.onLoansChanged(changed);
+        } catch (Exception e) {
+          log.warn("Loan index listener failed: {}", e.getMessage());
+        }
+      }
+    }
+    for (CreditLoan row : requested) {
+      for (RequestListener l : requestListeners) {
+        try {
+          l.onRequested(row.getModel(), toInfo(row));
+        } catch (Exception e) {
+          log.warn("Loan index request listener failed: {}", e.getMessage());
+        }
+      }
+    }
+    return save.size();
+  }
+
+  private static CreditReadService.LoanInfo toInfo(CreditLoan l) {
+    return new CreditReadService.LoanInfo(
+        BigInteger.valueOf(l.getLoanId()),
+        l.getUserAddress(),
+        l.getTokenAddress(),
+        new BigInteger(l.getCollateralAmount()),
+        new BigInteger(l.getVniAtStart()),
+        new BigInteger(l.getPrincipalTnd()),
+        l.getStartAt(),
+        l.getDurationDays(),
+        l.getStatus()
+    );
+  }
+
+  private static String normalize(String address) {
+    return address == null || address.isBlank() ? null : address.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private List<Log> getLogs(EthFilter filter) {
+    try {
+      return web3j.ethGetLogs(filter).send().getLogs().stream().map(lr -> (Log) lr.get()).toList();
+    } catch (IOException e) {
+      throw new IllegalStateException("eth_getLogs failed: " + e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.fancapital.backend.blockchain.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Alimente le moniteur LTV avec la tête de chaîne : mises à jour de VNI des nouveaux blocs, avances
+ * rechargées depuis l'index local (d'où la même condition que l'indexeur).
+ * Si le nœud est indisponible, le job log un avertissement et réessaie au prochain tour.
+ */
+@Component
+@ConditionalOnProperty(name = "blockchain.indexer.enabled", havingValue = "true", matchIfMissing = false)
+public class LtvMonitorJob {
+
+  private static final Logger log = LoggerFactory.getLogger(LtvMonitorJob.class);
+
+  private final ChainHeadTracker headTracker;
+  private final LtvMonitorService monitor;
+
+  public LtvMonitorJob(ChainHeadTracker headTracker, LtvMonitorService monitor) {
+    this.headTracker = headTracker;
+    this.monitor = monitor;
+  }
+
+  @Scheduled(fixedDelayString = "${blockchain.risk.ltv-scan-ms:2000}")
+  public void run() {
+    try {
+      monitor.onHead(headTracker.advance());
+    } catch (Exception e) {
+      log.warn("LTV monitor skipped: {}", e.getMessage());
+    }
+  }
+}
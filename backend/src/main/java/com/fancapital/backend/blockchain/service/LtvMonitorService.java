@@ -0,0 +1,319 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.auth.model.Notification.Priority;
+import com.fancapital.backend.auth.model.Notification;
+import com.fancapital.backend.auth.repo.AppUserRepository;
+import com.fancapital.backend.auth.service.NotificationService;
+import com.fancapital.backend.blockchain.config.SpecFinancieresV47;
+import com.fancapital.backend.blockchain.model.FundDto;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.Log;
+
+/**
+ * Surveillance continue du LTV des avances actives (Spécifications Financières v4.7 : appel de marge à 75 %,
+ * liquidation à 85 %).
+ * <p>
+ * Pour chaque fonds, les avances sont rangées par VNI de déclenchement de chaque seuil (VNI en dessous de
+ * laquelle le LTV atteint le seuil). À chaque VNIUpdated / VNIForceUpdated lu dans les nouveaux blocs, seules
+ * les avances dont un seuil est compris entre l'ancienne et la nouvelle VNI sont réévaluées : entrée en appel
+ * de marge ou en liquidation → notification MARGIN à l'investisseur, candidat à la liquidation journalisé et
+ * exposé ({@link #atRisk}), composante risque SCI marquée.
+ * <p>
+ * Les avances sont rechargées depuis l'index des avances ({@link LoanIndexService}) quand il signale un
+ * changement ; les zones connues au démarrage ne sont pas re-notifiées.
+ */
+@Service
+public class LtvMonitorService {
+
+  private static final Logger log = LoggerFactory.getLogger(LtvMonitorService.class);
+  private static final BigInteger PRICE_SCALE = BigInteger.valueOf(100_000_000L);
+  private static final BigInteger BPS = BigInteger.valueOf(10_000L);
+  // SpecFinancieresV47 thresholds are percentages.
+  static final long MARGIN_CALL_LTV_BPS = SpecFinancieresV47.MARGIN_CALL_BPS * 100L;
+  static final long LIQUIDATION_LTV_BPS = SpecFinancieresV47.LIQUIDATION_BPS * 100L;
+
+  public enum Zone { SAFE, MARGIN_CALL, LIQUIDATION }
+
+  public record LtvAlert(
+      String model,         // A | B
+      String loanId,
+      String user,
+      String token,
+      String principalTnd,  // 1e8
+      String vni,           // 1e8, current
+      long ltvBps,
+      Zone zone,
+      String since          // ISO instant of the zone entry
+  ) {}
+
+  /** Avance surveillée : seuils exprimés en VNI de déclenchement (échelle 1e8). */
+  private static final class Watched {
+    final String key;
+    final String model;
+    final CreditReadService.LoanInfo loan;
+    final String token;
+    final BigInteger marginCallVni;
+    final BigInteger liquidationVni;
+    Zone zone = Zone.SAFE;
+    long ltvBps;
+    Instant since = Instant.now();
+
+    Watched(String model, CreditReadService.LoanInfo loan) {
+      this.key = model + ":" + loan.loanId();
+      this.model = model;
+      this.loan = loan;
+      this.token = loan.token().toLowerCase(Locale.ROOT);
+      this.marginCallVni = triggerVni(loan, MARGIN_CALL_LTV_BPS);
+      this.liquidationVni = triggerVni(loan, LIQUIDATION_LTV_BPS);
+    }
+  }
+
+  /** Avances d'un fonds rangées par VNI de déclenchement, et VNI courante. */
+  private static final class TokenBook {
+    BigInteger vni;
+    final NavigableMap<BigInteger, Set<String>> byMarginCallVni = new TreeMap<>();
+    final NavigableMap<BigInteger, Set<String>> byLiquidationVni = new TreeMap<>();
+
+    void add(Watched w) {
+      byMarginCallVni.computeIfAbsent(w.marginCallVni, k -> new HashSet<>()).add(w.key);
+      byLiquidationVni.computeIfAbsent(w.liquidationVni, k -> new HashSet<>()).add(w.key);
+    }
+
+    void remove(Watched w) {
+      removeFrom(byMarginCallVni, w.marginCallVni, w.key);
+      removeFrom(byLiquidationVni, w.liquidationVni, w.key);
+    }
+
+    /** Avances dont un seuil est franchi entre {@code from} et {@code to} (dans un sens ou dans l'autre). */
+    Set<String> crossing(BigInteger from, BigInteger to) {
+      BigInteger lo = from.min(to);
+      BigInteger hi = from.max(to);
+      Set<String> out = new HashSet<>();
+      // Zone entered iff vni <= trigger: a trigger in [lo, hi) flips between the two prices.
+      byMarginCallVni.subMap(lo, true, hi, false).values().forEach(out::addAll);
+      byLiquidationVni.subMap(lo, true, hi, false).values().forEach(out::addAll);
+      return out;
+    }
+
+    private static void removeFrom(NavigableMap<BigInteger, Set<String>> m, BigInteger k, String key) {
+      Set<String> s = m.get(k);
+      if (s == null) return;
+      s.remove(key);
+      if (s.isEmpty()) m.remove(k);
+    }
+  }
+
+  private final Web3j web3j;
+  private final DeploymentRegistry registry;
+  private final CreditReadService creditRead;
+  private final LoanIndexService loanIndex;
+  private final BlockchainReadService readService;
+  private final NotificationService notifications;
+  private final AppUserRepository userRepo;
+  private final SciComponentService sciComponents;
+
+  private final Map<String, Watched> loans = new HashMap<>();
+  private final Map<String, TokenBook> books = new HashMap<>();
+  private volatile boolean reloadNeeded = true;
+  private boolean loaded;
+  private long lastScannedBlock = -1;
+
+  public LtvMonitorService(
+      Web3j web3j,
+      DeploymentRegistry registry,
+      CreditReadService creditRead,
+      LoanIndexService loanIndex,
+      BlockchainReadService readService,
+      NotificationService notifications,
+      AppUserRepository userRepo,
+      SciComponentService sciComponents
+  ) {
+    this.web3j = web3j;
+    this.registry = registry;
+    this.creditRead = creditRead;
+    this.loanIndex = loanIndex;
+    this.readService = readService;
+    this.notifications = notifications;
+    this.userRepo = userRepo;
+    this.sciComponents = sciComponents;
+    loanIndex.addLoanListener(wallets -> reloadNeeded = true);
+  }
+
+  /** LTV (points de base) = principal / (collatéral × VNI) ; -1 si la valeur du collatéral est nulle. */
+  static long ltvBps(CreditReadService.LoanInfo loan, BigInteger vni1e8) {
+    BigInteger value = loan.collateralAmount().multiply(vni1e8).divide(PRICE_SCALE);
+    if (value.signum() <= 0) return -1;
+    return loan.principalTnd().multiply(BPS).divide(value).longValue();
+  }
+
+  static Zone zone(long ltvBps) {
+    if (ltvBps >= LIQUIDATION_LTV_BPS) return Zone.LIQUIDATION;
+    if (ltvBps >= MARGIN_CALL_LTV_BPS) return Zone.MARGIN_CALL;
+    return Zone.SAFE;
+  }
+
+  /** Plus grande VNI à laquelle le LTV atteint {@code thresholdBps} (exact : vni ≤ résultat ⇔ LTV ≥ seuil). */
+  private static BigInteger triggerVni(CreditReadService.LoanInfo loan, long thresholdBps) {
+    BigInteger den = loan.collateralAmount().multiply(BigInteger.valueOf(thresholdBps));
+    if (den.signum() <= 0) return BigInteger.ZERO;
+    return loan.principalTnd().multiply(PRICE_SCALE).multiply(BPS).divide(den);
+  }
+
+  /**
+   * Traite les nouveaux blocs : rechargement des avances si l'index a changé, puis réévaluation des seules
+   * avances franchissant un seuil sur les mises à jour de VNI de (dernier bloc lu, headBlock].
+   */
+  public synchronized void onHead(long headBlock) {
+    if (!loanIndex.isFresh()) return; // no full loan-id scans from here: wait for the index
+    if (reloadNeeded || !loaded) {
+      reloadNeeded = false;
+      reload();
+    }
+    if (lastScannedBlock < 0 || lastScannedBlock > headBlock) {
+      lastScannedBlock = headBlock; // baseline (or reorg below it): VNIs were just read at latest
+      return;
+    }
+    if (headBlock == lastScannedBlock || books.isEmpty()) {
+      lastScannedBlock = headBlock;
+      return;
+    }
+    long from = lastScannedBlock + 1;
+    List<String> oracles = registry.listFunds().stream().map(FundDto::oracle).distinct().toList();
+    EthFilter filter = new EthFilter(
+        new DefaultBlockParameterNumber(BigInteger.valueOf(from)),
+        new DefaultBlockParameterNumber(BigInteger.valueOf(headBlock)),
+        oracles
+    );
+    filter.addOptionalTopics(ChainEvents.VNI_UPDATED_TOPIC, ChainEvents.VNI_FORCE_UPDATED_TOPIC);
+    List<Log> logs;
+    try {
+      logs = web3j.ethGetLogs(filter).send().getLogs().stream().map(lr -> (Log) lr.get()).toList();
+    } catch (IOException e) {
+      throw new IllegalStateException("eth_getLogs failed: " + e.getMessage(), e);
+    }
+    lastScannedBlock = headBlock;
+    for (Log l : logs) {
+      if (l.getTopics() == null || l.getTopics().size() < 2) continue;
+      TokenBook book = books.get(ChainEvents.topicToAddress(l.getTopics().get(1)));
+      if (book == null) continue;
+      @SuppressWarnings("rawtypes")
+      List<Type> data = FunctionReturnDecoder.decode(l.getData(), ChainEvents.VNI_UPDATED.getNonIndexedParameters());
+      if (data.size() < 2) continue;
+      BigInteger next = EvmCallService.uint(data.get(1)); // (oldVni, newVni, timestamp)
+      BigInteger prev = book.vni;
+      book.vni = next;
+      if (prev == null || prev.equals(next)) continue;
+      for (String key : book.crossing(prev, next)) evaluate(loans.get(key), next, true);
+    }
+  }
+
+  /** Avances actuellement en appel de marge ou en liquidation (LTV décroissant). */
+  public synchronized List<LtvAlert> atRisk(Zone minZone) {
+    Zone min = minZone != null ? minZone : Zone.MARGIN_CALL;
+    return loans.values().stream()
+        .filter(w -> w.zone.ordinal() >= min.ordinal())
+        .sorted(Comparator.comparingLong((Watched w) -> w.ltvBps).reversed())
+        .map(w -> new LtvAlert(w.model, w.loan.loanId().toString(), w.loan.user(), w.token,
+            w.loan.principalTnd().toString(), String.valueOf(books.get(w.token).vni), w.ltvBps, w.zone,
+            w.since.toString()))
+        .toList();
+  }
+
+  /** Recharge les avances actives (index local) ; seuls les changements de zone sont signalés. */
+  private void reload() {
+    Map<String, Watched> next = new HashMap<>();
+    for (CreditReadService.LoanInfo l : creditRead.listActiveLoansB()) put(next, new Watched("B", l));
+    for (CreditReadService.LoanInfo l : creditRead.listActiveLoans()) put(next, new Watched("A", l));
+
+    for (Watched old : loans.values()) books.get(old.token).remove(old);
+    Map<String, Watched> previous = new HashMap<>(loans);
+    loans.clear();
+    loans.putAll(next);
+
+    Map<String, BigInteger> vnis = new HashMap<>();
+    for (Watched w : next.values()) {
+      TokenBook book = books.computeIfAbsent(w.token, k -> new TokenBook());
+      if (book.vni == null) book.vni = vnis.computeIfAbsent(w.token, this::currentVni);
+      book.add(w);
+      Watched before = previous.get(w.key);
+      if (before != null) {
+        w.zone = before.zone;
+        w.since = before.since;
+      }
+      // Zones known at startup are recorded without notification.
+      evaluate(w, book.vni, loaded);
+    }
+    books.values().removeIf(b -> b.byMarginCallVni.isEmpty());
+    loaded = true;
+  }
+
+  private void evaluate(Watched w, BigInteger vni, boolean notify) {
+    if (w == null || vni == null) return;
+    long ltv = ltvBps(w.loan, vni);
+    if (ltv < 0) return;
+    w.ltvBps = ltv;
+    Zone z = zone(ltv);
+    if (z == w.zone) return;
+    Zone before = w.zone;
+    w.zone = z;
+    w.since = Instant.now();
+    if (!notify) {
+      if (z == Zone.LIQUIDATION) log.warn("Liquidation candidate: loan {} ({}) LTV {} bps", w.key, w.loan.user(), ltv);
+      return;
+    }
+    sciComponents.onLoanChanged(w.loan.user(), null);
+    if (z == Zone.LIQUIDATION) {
+      log.warn("Liquidation candidate: loan {} ({}) LTV {} bps at VNI {}", w.key, w.loan.user(), ltv, vni);
+    } else {
+      log.info("LTV zone {} -> {}: loan {} ({}) LTV {} bps at VNI {}", before, z, w.key, w.loan.user(), ltv, vni);
+    }
+    if (z.ordinal() > before.ordinal()) notifyUser(w, ltv);
+  }
+
+  private void notifyUser(Watched w, long ltvBps) {
+    String pct = String.format("%.1f", ltvBps / 100.0);
+    String msg = w.zone == Zone.LIQUIDATION
+        ? "Votre ratio LTV est à " + pct + "%. Risque de liquidation imminent."
+        : "Votre ratio LTV est à " + pct + "%. Risque de liquidation si le prix baisse.";
+    try {
+      userRepo.findByWalletAddressIgnoreCase(w.loan.user()).ifPresent(u ->
+          notifications.create(u.getId(), Notification.Type.MARGIN, "Alerte de Marge - LTV Critique", msg, Priority.HIGH));
+    } catch (Exception e) {
+      log.warn("Margin notification failed for {}: {}", w.loan.user(), e.getMessage());
+    }
+  }
+
+  private BigInteger currentVni(String token) {
+    try {
+      BigInteger v = new BigInteger(readService.getVni(token).vni());
+      return v.signum() > 0 ? v : null;
+    } catch (Exception e) {
+      log.debug("VNI read failed for {}: {}", token, e.getMessage());
+      return null;
+    }
+  }
+
+  private static void put(Map<String, Watched> m, Watched w) {
+    if (w.loan.user() != null && w.loan.token() != null) m.put(w.key, w);
+  }
+}
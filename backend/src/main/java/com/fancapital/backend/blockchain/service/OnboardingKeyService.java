@@ -1,6 +1,8 @@
 package com.fancapital.backend.blockchain.service;
 
 import com.fancapital.backend.backoffice.service.DeploymentInfraService;
+import com.fancapital.backend.blockchain.service.FeeOracleService.Urgency;
+import com.fancapital.backend.blockchain.service.TxSubmitterService.KeyLane;
 import com.fancapital.backend.config.BlockchainProperties;
 import java.io.IOException;
 import java.math.BigInteger;
@@ -11,12 +13,7 @@ import org.web3j.abi.datatypes.Address;
 import org.web3j.abi.datatypes.Bool;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.generated.Uint8;
-import org.web3j.crypto.Credentials;
-import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.methods.response.EthGasPrice;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
-import org.web3j.tx.RawTransactionManager;
-import org.web3j.tx.TransactionManager;
 
 /**
  * Service pour gérer la Onboarding Key (clé de validation KYC).
@@ -31,12 +28,12 @@ import org.web3j.tx.TransactionManager;
  */
 @Service
 public class OnboardingKeyService {
-  private final Web3j web3j;
+  private final TxSubmitterService txSubmitter;
   private final BlockchainProperties props;
   private final DeploymentInfraService infra;
 
-  public OnboardingKeyService(Web3j web3j, BlockchainProperties props, DeploymentInfraService infra) {
-    this.web3j = web3j;
+  public OnboardingKeyService(TxSubmitterService txSubmitter, BlockchainProperties props, DeploymentInfraService infra) {
+    this.txSubmitter = txSubmitter;
     this.props = props;
     this.infra = infra;
   }
@@ -64,9 +61,7 @@ public class OnboardingKeyService {
       throw new IllegalStateException("KYCRegistry address not configured in deployments infra.");
     }
 
-    Credentials credentials = Credentials.create(onboardingKey.trim());
-    BigInteger chainId = chainId();
-    TransactionManager tm = new RawTransactionManager(web3j, credentials, chainId.longValue());
+    KeyLane tm = txSubmitter.forKey(onboardingKey);
 
     Function fn = new Function(
         "addToWhitelist",
@@ -75,11 +70,10 @@ public class OnboardingKeyService {
     );
     String data = FunctionEncoder.encode(fn);
 
-    BigInteger gasPrice = suggestedGasPrice();
     BigInteger gasLimit = BigInteger.valueOf(250_000);
 
     try {
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, gasLimit, kycRegistry, data, BigInteger.ZERO);
+      EthSendTransaction tx = tm.send(Urgency.NORMAL, gasLimit, kycRegistry, data, BigInteger.ZERO);
       if (tx.hasError()) {
         throw new IllegalStateException("addToWhitelist failed: " + tx.getError().getMessage());
       }
@@ -106,9 +100,7 @@ public class OnboardingKeyService {
       throw new IllegalStateException("KYCRegistry address not configured in deployments infra.");
     }
 
-    Credentials credentials = Credentials.create(onboardingKey.trim());
-    BigInteger chainId = chainId();
-    TransactionManager tm = new RawTransactionManager(web3j, credentials, chainId.longValue());
+    KeyLane tm = txSubmitter.forKey(onboardingKey);
 
     Function fn = new Function(
         "removeFromWhitelist",
@@ -117,11 +109,10 @@ public class OnboardingKeyService {
     );
     String data = FunctionEncoder.encode(fn);
 
-    BigInteger gasPrice = suggestedGasPrice();
     BigInteger gasLimit = BigInteger.valueOf(250_000);
 
     try {
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, gasLimit, kycRegistry, data, BigInteger.ZERO);
+      EthSendTransaction tx = tm.send(Urgency.NORMAL, gasLimit, kycRegistry, data, BigInteger.ZERO);
       if (tx.hasError()) {
         throw new IllegalStateException("removeFromWhitelist failed: " + tx.getError().getMessage());
       }
@@ -130,25 +121,4 @@ public class OnboardingKeyService {
       throw new IllegalStateException("removeFromWhitelist RPC error: " + e.getMessage(), e);
     }
   }
-
-  private BigInteger suggestedGasPrice() {
-    try {
-      EthGasPrice gp = web3j.ethGasPrice().send();
-      if (gp.hasError()) {
-        throw new IllegalStateException("eth_gasPrice error: " + gp.getError().getMessage());
-      }
-      BigInteger v = gp.getGasPrice();
-      return v.multiply(BigInteger.valueOf(12)).divide(BigInteger.TEN);
-    } catch (IOException e) {
-      return BigInteger.valueOf(1_000_000_000L);
-    }
-  }
-
-  private BigInteger chainId() {
-    try {
-      return web3j.ethChainId().send().getChainId();
-    } catch (IOException e) {
-      return BigInteger.valueOf(31337);
-    }
-  }
 }
@@ -3,7 +3,9 @@ package com.fancapital.backend.blockchain.service;
 import com.fancapital.backend.auth.model.AppUser;
 import com.fancapital.backend.auth.repo.AppUserRepository;
 import com.fancapital.backend.backoffice.service.DeploymentInfraService;
+import com.fancapital.backend.blockchain.service.FeeOracleService.Urgency;
 import com.fancapital.backend.blockchain.service.SciScorePushService;
+import com.fancapital.backend.blockchain.service.TxSubmitterService.KeyLane;
 import com.fancapital.backend.config.BlockchainProperties;
 import java.io.IOException;
 import java.math.BigInteger;
@@ -24,10 +26,7 @@ import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.request.Transaction;
 import org.web3j.protocol.core.methods.response.EthCall;
-import org.web3j.protocol.core.methods.response.EthGasPrice;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
-import org.web3j.tx.RawTransactionManager;
-import org.web3j.tx.TransactionManager;
 
 /**
  * Dev/MVP helper: when KYC Level 1+ is validated, bootstrap on-chain state:
@@ -51,6 +50,7 @@ public class OnchainBootstrapService {
   private static final BigInteger TOPUP_GAS_ETH = new BigInteger("50000000000000000"); // 0.05 ETH
 
   private final Web3j web3j;
+  private final TxSubmitterService txSubmitter;
   private final BlockchainProperties props;
   private final DeploymentRegistry registry;
   private final DeploymentInfraService infra;
@@ -58,18 +58,24 @@ public class OnchainBootstrapService {
   private final WaasUserWalletService waasWallets;
   private final SciScorePushService sciPush;
   private final MintKeyService mintKeyService;
+  private final ReceiptTrackerService receipts;
+  private final WalletStateCacheService walletState;
 
   public OnchainBootstrapService(
       Web3j web3j,
+      TxSubmitterService txSubmitter,
       BlockchainProperties props,
       DeploymentRegistry registry,
       DeploymentInfraService infra,
       AppUserRepository userRepo,
       WaasUserWalletService waasWallets,
       SciScorePushService sciPush,
-      MintKeyService mintKeyService
+      MintKeyService mintKeyService,
+      ReceiptTrackerService receipts,
+      WalletStateCacheService walletState
   ) {
     this.web3j = web3j;
+    this.txSubmitter = txSubmitter;
     this.props = props;
     this.registry = registry;
     this.infra = infra;
@@ -77,6 +83,8 @@ public class OnchainBootstrapService {
     this.waasWallets = waasWallets;
     this.sciPush = sciPush;
     this.mintKeyService = mintKeyService;
+    this.receipts = receipts;
+    this.walletState = walletState;
   }
 
   /**
@@ -98,8 +106,7 @@ public class OnchainBootstrapService {
     if (props.mintPrivateKey() != null && !props.mintPrivateKey().isBlank()) {
       mintKeyService.mint(walletAddress, amountWei);
     } else {
-      Credentials operator = operatorCredentials();
-      TransactionManager opTm = new RawTransactionManager(web3j, operator, chainId().longValue());
+      KeyLane opTm = operatorLane();
       Function mint = new Function("mint", List.of(new Address(walletAddress), new Uint256(amountWei)), List.of());
       sendTx(opTm, cash, mint, BigInteger.valueOf(250_000));
     }
@@ -107,18 +114,10 @@ public class OnchainBootstrapService {
     userRepo.findByWalletAddressIgnoreCase(walletAddress).ifPresent(u -> {
       try {
         // Alimenter en ETH (virtuel) si solde insuffisant pour le gas (approve)
-        Credentials operator = operatorCredentials();
-        TransactionManager opTm = new RawTransactionManager(web3j, operator, chainId().longValue());
-        BigInteger ethBal = ethBalanceOf(walletAddress);
-        if (ethBal.compareTo(MIN_GAS_ETH) < 0) {
-          sendValue(opTm, walletAddress, TOPUP_GAS_ETH, BigInteger.valueOf(21_000));
-        }
+        KeyLane opTm = operatorLane();
+        ensureGas(opTm, walletAddress);
         Credentials userCreds = waasWallets.credentialsForUser(u.getId());
-        TransactionManager userTm = new RawTransactionManager(web3j, userCreds, chainId().longValue());
-        for (var fund : registry.listFunds()) {
-          Function approve = new Function("approve", List.of(new Address(fund.pool()), new Uint256(MAX_APPROVE)), List.of());
-          sendTx(userTm, cash, approve, BigInteger.valueOf(120_000));
-        }
+        approvePools(txSubmitter.forCredentials(userCreds), cash, walletAddress);
       } catch (Exception e) {
         System.err.println("Warning: Could not approve pools after seed for " + walletAddress + ": " + e.getMessage());
       }
@@ -135,11 +134,10 @@ public class OnchainBootstrapService {
     }
 
     // 1) whitelist in KYCRegistry
-    // Note: OnchainBootstrapService should use OnboardingKeyService, but for now we keep operatorCredentials
+    // Note: OnchainBootstrapService should use OnboardingKeyService, but for now we keep the operator key
     // TODO: Migrate to OnboardingKeyService for strict separation
     String kycRegistry = infra.kycRegistryAddress();
-    Credentials operator = operatorCredentials();
-    TransactionManager opTm = new RawTransactionManager(web3j, operator, chainId().longValue());
+    KeyLane opTm = operatorLane();
 
     Function wl = new Function(
         "addToWhitelist",
@@ -149,10 +147,7 @@ public class OnchainBootstrapService {
     sendTx(opTm, kycRegistry, wl, BigInteger.valueOf(250_000));
 
     // 1b) fund wallet with a small amount of native ETH for gas (to allow approve tx)
-    BigInteger ethBal = ethBalanceOf(wallet);
-    if (ethBal.compareTo(MIN_GAS_ETH) < 0) {
-      sendValue(opTm, wallet, TOPUP_GAS_ETH, BigInteger.valueOf(21_000));
-    }
+    ensureGas(opTm, wallet);
 
     // 2) ensure some TND balance (test amounts until payment API integration)
     String cash = infra.cashTokenAddress();
@@ -173,11 +168,7 @@ public class OnchainBootstrapService {
 
     // 3) approve pools for spending user's TND (signed by user's WaaS key)
     Credentials userCreds = waasWallets.credentialsForUser(userId);
-    TransactionManager userTm = new RawTransactionManager(web3j, userCreds, chainId().longValue());
-    for (var fund : registry.listFunds()) {
-      Function approve = new Function("approve", List.of(new Address(fund.pool()), new Uint256(MAX_APPROVE)), List.of());
-      sendTx(userTm, cash, approve, BigInteger.valueOf(120_000));
-    }
+    approvePools(txSubmitter.forCredentials(userCreds), cash, wallet);
 
     // 4) SCI v4.5: calcul score + tier effectif (loi du minimum), push vers InvestorRegistry
     try {
@@ -187,19 +178,40 @@ public class OnchainBootstrapService {
     }
   }
 
-  private Credentials operatorCredentials() {
+  private KeyLane operatorLane() {
     String pk = props.operatorPrivateKey();
     if (pk == null || pk.isBlank()) {
       throw new IllegalStateException("OPERATOR_PRIVATE_KEY not configured (blockchain.operator-private-key).");
     }
-    return Credentials.create(pk.trim());
+    return txSubmitter.forKey(pk);
   }
 
-  private BigInteger ethBalanceOf(String addr) {
-    try {
-      return web3j.ethGetBalance(addr, DefaultBlockParameterName.LATEST).send().getBalance();
-    } catch (IOException e) {
-      throw new IllegalStateException("eth_getBalance failed: " + e.getMessage(), e);
+  /** Top-up de gas si nécessaire ; le solde est enregistré dans le cache dès le reçu du transfert. */
+  private void ensureGas(KeyLane opTm, String wallet) {
+    if (walletState.gasBalance(wallet).compareTo(MIN_GAS_ETH) >= 0) return;
+    String txHash = sendValue(opTm, wallet, TOPUP_GAS_ETH, BigInteger.valueOf(21_000));
+    receipts.track(txHash).thenAccept(r -> {
+      if (r.isStatusOK()) walletState.onFunded(wallet, TOPUP_GAS_ETH);
+    });
+  }
+
+  /**
+   * Approve MAX de chaque pool ; chaque approve confirmé alimente le cache d'allowance pour que le premier
+   * buyFor n'ait ni eth_call allowance ni eth_getBalance à faire.
+   */
+  private void approvePools(KeyLane userTm, String cash, String wallet) {
+    for (var fund : registry.listFunds()) {
+      String pool = fund.pool();
+      Function approve = new Function("approve", List.of(new Address(pool), new Uint256(MAX_APPROVE)), List.of());
+      String txHash = sendTx(userTm, cash, approve, BigInteger.valueOf(120_000));
+      receipts.track(txHash).whenComplete((r, ex) -> {
+        if (ex != null) {
+          walletState.evictGas(wallet);
+          return;
+        }
+        walletState.onGasSpent(wallet, r);
+        if (r.isStatusOK()) walletState.onApproved(cash, wallet, pool, MAX_APPROVE);
+      });
     }
   }
 
@@ -231,50 +243,29 @@ public class OnchainBootstrapService {
     }
   }
 
-  private void sendTx(TransactionManager tm, String to, Function fn, BigInteger gasLimit) {
+  private String sendTx(KeyLane tm, String to, Function fn, BigInteger gasLimit) {
     String data = FunctionEncoder.encode(fn);
-    BigInteger gasPrice = suggestedGasPrice();
     try {
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, gasLimit, to, data, BigInteger.ZERO);
+      EthSendTransaction tx = tm.send(Urgency.LOW, gasLimit, to, data, BigInteger.ZERO);
       if (tx.hasError()) {
         throw new IllegalStateException("EVM tx failed: " + tx.getError().getMessage());
       }
+      return tx.getTransactionHash();
     } catch (IOException e) {
       throw new IllegalStateException("EVM tx RPC error: " + e.getMessage(), e);
     }
   }
 
-  private void sendValue(TransactionManager tm, String to, BigInteger valueWei, BigInteger gasLimit) {
-    BigInteger gasPrice = suggestedGasPrice();
+  private String sendValue(KeyLane tm, String to, BigInteger valueWei, BigInteger gasLimit) {
     try {
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, gasLimit, to, "", valueWei);
+      EthSendTransaction tx = tm.send(Urgency.LOW, gasLimit, to, "", valueWei);
       if (tx.hasError()) {
         throw new IllegalStateException("EVM tx failed: " + tx.getError().getMessage());
       }
+      return tx.getTransactionHash();
     } catch (IOException e) {
       throw new IllegalStateException("EVM tx RPC error: " + e.getMessage(), e);
     }
   }
-
-  private BigInteger suggestedGasPrice() {
-    try {
-      EthGasPrice gp = web3j.ethGasPrice().send();
-      if (gp.hasError()) {
-        throw new IllegalStateException("eth_gasPrice error: " + gp.getError().getMessage());
-      }
-      BigInteger v = gp.getGasPrice();
-      return v.multiply(BigInteger.valueOf(12)).divide(BigInteger.TEN);
-    } catch (IOException e) {
-      return BigInteger.valueOf(1_000_000_000L);
-    }
-  }
-
-  private BigInteger chainId() {
-    try {
-      return web3j.ethChainId().send().getChainId();
-    } catch (IOException e) {
-      return BigInteger.valueOf(31337);
-    }
-  }
 }
 
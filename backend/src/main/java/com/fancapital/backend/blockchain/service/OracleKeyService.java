@@ -1,6 +1,8 @@
 package com.fancapital.backend.blockchain.service;
 
 import com.fancapital.backend.backoffice.service.DeploymentInfraService;
+import com.fancapital.backend.blockchain.service.FeeOracleService.Urgency;
+import com.fancapital.backend.blockchain.service.TxSubmitterService.KeyLane;
 import com.fancapital.backend.config.BlockchainProperties;
 import java.io.IOException;
 import java.math.BigInteger;
@@ -10,12 +12,7 @@ import org.web3j.abi.FunctionEncoder;
 import org.web3j.abi.datatypes.Address;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.generated.Uint256;
-import org.web3j.crypto.Credentials;
-import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.methods.response.EthGasPrice;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
-import org.web3j.tx.RawTransactionManager;
-import org.web3j.tx.TransactionManager;
 
 /**
  * Service pour gérer la Oracle Key (clé de mise à jour des prix).
@@ -30,12 +27,12 @@ import org.web3j.tx.TransactionManager;
  */
 @Service
 public class OracleKeyService {
-  private final Web3j web3j;
+  private final TxSubmitterService txSubmitter;
   private final BlockchainProperties props;
   private final DeploymentInfraService infra;
 
-  public OracleKeyService(Web3j web3j, BlockchainProperties props, DeploymentInfraService infra) {
-    this.web3j = web3j;
+  public OracleKeyService(TxSubmitterService txSubmitter, BlockchainProperties props, DeploymentInfraService infra) {
+    this.txSubmitter = txSubmitter;
     this.props = props;
     this.infra = infra;
   }
@@ -48,19 +45,25 @@ public class OracleKeyService {
    * @return Hash de la transaction
    */
   public String updateVNI(String tokenAddress, BigInteger vniTnd) {
+    return updateVNI(infra.priceOracleAddress(), tokenAddress, vniTnd);
+  }
+
+  /**
+   * Met à jour le VNI sur un PriceOracle donné (oracle du fonds dans le registre des déploiements).
+   *
+   * @return Hash de la transaction
+   */
+  public String updateVNI(String priceOracle, String tokenAddress, BigInteger vniTnd) {
     String oracleKey = props.oraclePrivateKey();
     if (oracleKey == null || oracleKey.isBlank()) {
       throw new IllegalStateException("ORACLE_PRIVATE_KEY not configured (blockchain.oracle-private-key). This key should be stored in HSM for production.");
     }
 
-    String priceOracle = infra.priceOracleAddress();
     if (priceOracle == null || priceOracle.isBlank()) {
       throw new IllegalStateException("PriceOracle address not configured in deployments infra.");
     }
 
-    Credentials credentials = Credentials.create(oracleKey.trim());
-    BigInteger chainId = chainId();
-    TransactionManager tm = new RawTransactionManager(web3j, credentials, chainId.longValue());
+    KeyLane tm = txSubmitter.forKey(oracleKey);
 
     Function fn = new Function(
         "updateVNI",
@@ -69,11 +72,10 @@ public class OracleKeyService {
     );
     String data = FunctionEncoder.encode(fn);
 
-    BigInteger gasPrice = suggestedGasPrice();
     BigInteger gasLimit = BigInteger.valueOf(200_000);
 
     try {
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, gasLimit, priceOracle, data, BigInteger.ZERO);
+      EthSendTransaction tx = tm.send(Urgency.HIGH, gasLimit, priceOracle, data, BigInteger.ZERO);
       if (tx.hasError()) {
         throw new IllegalStateException("updateVNI failed: " + tx.getError().getMessage());
       }
@@ -95,25 +97,4 @@ public class OracleKeyService {
     // Cette méthode devrait utiliser GOV_PRIVATE_KEY ou Multi-Sig
     throw new UnsupportedOperationException("forceUpdateVNI requires GOVERNANCE_ROLE. Use Multi-Sig or Governance service.");
   }
-
-  private BigInteger suggestedGasPrice() {
-    try {
-      EthGasPrice gp = web3j.ethGasPrice().send();
-      if (gp.hasError()) {
-        throw new IllegalStateException("eth_gasPrice error: " + gp.getError().getMessage());
-      }
-      BigInteger v = gp.getGasPrice();
-      return v.multiply(BigInteger.valueOf(12)).divide(BigInteger.TEN);
-    } catch (IOException e) {
-      return BigInteger.valueOf(1_000_000_000L);
-    }
-  }
-
-  private BigInteger chainId() {
-    try {
-      return web3j.ethChainId().send().getChainId();
-    } catch (IOException e) {
-      return BigInteger.valueOf(31337);
-    }
-  }
 }
@@ -0,0 +1,147 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.config.BlockchainProperties;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.abi.datatypes.generated.Uint64;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+/**
+ * Suivi de l'état des PriceOracle (VNI + updatedAt par token) pour n'écrire updateVNI que si nécessaire.
+ * <p>
+ * Chaque entrée est lue via getVNIData puis relue au plus toutes les blockchain.oracle-sync.recheck-ms (une
+ * mise à jour externe, feed BVMT ou gouvernance, est donc prise en compte). {@link #ensureVni} n'envoie une
+ * transaction, signée par la clé Oracle ({@link OracleKeyService}), que si la valeur diffère ou si le prix
+ * approche du seuil de fraîcheur des pools (LiquidityPool.MAX_PRICE_AGE_SEC), puis attend son reçu : l'achat
+ * ou la vente qui suit part sur la file operator et ne doit pas être miné avant le prix. La nouvelle valeur
+ * n'est retenue qu'une fois le reçu OK. Une seule décision par oracle/token à la fois (futur en cours par
+ * clé) ; lecture et envoi se font hors de la map.
+ */
+@Service
+public class OracleVniTracker implements ChainIndexConsumer {
+
+  static final String INDEXER_NAME = "oracle-vni";
+
+  private record VniState(BigInteger vni, long updatedAtSec, long checkedAtMs) {}
+
+  private final EvmCallService evm;
+  private final OracleKeyService oracleKey;
+  private final ReceiptTrackerService receipts;
+  private final long recheckMs;
+  private final long maxPriceAgeSec;
+  private final long refreshMarginSec;
+
+  private final Map<String, VniState> states = new ConcurrentHashMap<>();
+  /** Décision en cours par oracle/token (lecture getVNIData et éventuel updateVNI). */
+  private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+  public OracleVniTracker(
+      EvmCallService evm,
+      OracleKeyService oracleKey,
+      ReceiptTrackerService receipts,
+      BlockchainProperties props
+  ) {
+    this.evm = evm;
+    this.oracleKey = oracleKey;
+    this.receipts = receipts;
+    BlockchainProperties.OracleSync o = props.oracleSync();
+    this.recheckMs = o != null && o.recheckMs() > 0 ? o.recheckMs() : 60_000;
+    this.maxPriceAgeSec = o != null && o.maxPriceAgeSec() > 0 ? o.maxPriceAgeSec() : 86_400;
+    this.refreshMarginSec = o != null && o.refreshMarginSec() > 0 ? o.refreshMarginSec() : 3_600;
+  }
+
+  /**
+   * S'assure que l'oracle porte {@code vni1e8} pour {@code token} avec une fraîcheur suffisante.
+   *
+   * @return hash de la transaction updateVNI (minée), null si aucune écriture n'était nécessaire
+   * @throws IllegalStateException si l'updateVNI est rejeté, revert ou n'est pas miné dans le délai des reçus
+   */
+  public String ensureVni(String oracle, String token, BigInteger vni1e8) {
+    String k = key(oracle, token);
+    while (true) {
+      // Concurrent trades on the same token wait for the running decision, then decide again on its result:
+      // at most one updateVNI in flight per value.
+      CompletableFuture<String> mine = new CompletableFuture<>();
+      CompletableFuture<String> running = inFlight.putIfAbsent(k, mine);
+      if (running != null) {
+        running.handle((h, ex) -> null).join();
+        continue;
+      }
+      try {
+        String txHash = decide(k, oracle, token, vni1e8);
+        mine.complete(txHash);
+        return txHash;
+      } catch (RuntimeException e) {
+        mine.completeExceptionally(e);
+        throw e;
+      } finally {
+        inFlight.remove(k, mine);
+      }
+    }
+  }
+
+  private String decide(String k, String oracle, String token, BigInteger vni1e8) {
+    long nowMs = System.currentTimeMillis();
+    VniState cur = states.get(k);
+    VniState s = cur == null || nowMs - cur.checkedAtMs() >= recheckMs ? load(oracle, token, nowMs) : cur;
+    long ageSec = nowMs / 1000 - s.updatedAtSec();
+    if (s.vni().equals(vni1e8) && s.updatedAtSec() > 0 && ageSec < maxPriceAgeSec - refreshMarginSec) {
+      states.put(k, s);
+      return null;
+    }
+    String txHash = oracleKey.updateVNI(oracle, token, vni1e8);
+    // The trade goes out on the operator lane: it must not be mined before the price it relies on.
+    states.remove(k);
+    TransactionReceipt receipt;
+    try {
+      receipt = receipts.track(txHash).join();
+    } catch (CompletionException e) {
+      Throwable c = e.getCause() != null ? e.getCause() : e;
+      throw new IllegalStateException("updateVNI " + txHash + " for " + token + " not confirmed: " + c.getMessage(), c);
+    }
+    if (!receipt.isStatusOK()) {
+      // Deviation > 10%, missing ORACLE_ROLE…: the next decision re-reads the oracle.
+      throw new IllegalStateException("updateVNI " + txHash + " for " + token + " reverted");
+    }
+    states.put(k, new VniState(vni1e8, nowMs / 1000, System.currentTimeMillis()));
+    return txHash;
+  }
+
+  @Override
+  public String indexerName() {
+    return INDEXER_NAME;
+  }
+
+  @Override
+  public void rollbackAfter(long ancestorBlock) {
+    states.clear();
+  }
+
+  @SuppressWarnings("rawtypes")
+  private VniState load(String oracle, String token, long nowMs) {
+    Function f = new Function(
+        "getVNIData",
+        List.of(new Address(token)),
+        List.of(new TypeReference<Uint256>() {}, new TypeReference<Uint64>() {})
+    );
+    List<Type> out = evm.ethCall(oracle, f);
+    BigInteger vni = out.isEmpty() ? BigInteger.ZERO : EvmCallService.uint(out.get(0));
+    long updatedAt = out.size() < 2 ? 0L : EvmCallService.uint(out.get(1)).longValue();
+    return new VniState(vni, updatedAt, nowMs);
+  }
+
+  private static String key(String oracle, String token) {
+    return (oracle + "|" + token).toLowerCase(Locale.ROOT);
+  }
+}
@@ -47,7 +47,6 @@ public class OrderBookService {
   private final WaasUserWalletService waasWallets;
   private static final int TIER_SILVER = 1;  // P2P disponible à partir de Silver
   private final OrderFallbackExecutorService fallbackService;
-  private final com.fancapital.backend.blockchain.service.DeploymentRegistry registry;
   private final SciScoreService sciScoreService;
   private final BlockchainReadService blockchainRead;
 
@@ -56,7 +55,6 @@ public class OrderBookService {
       AppUserRepository userRepo,
       WaasUserWalletService waasWallets,
       OrderFallbackExecutorService fallbackService,
-      com.fancapital.backend.blockchain.service.DeploymentRegistry registry,
       SciScoreService sciScoreService,
       BlockchainReadService blockchainRead
   ) {
@@ -64,7 +62,6 @@ public class OrderBookService {
     this.userRepo = userRepo;
     this.waasWallets = waasWallets;
     this.fallbackService = fallbackService;
-    this.registry = registry;
     this.sciScoreService = sciScoreService;
     this.blockchainRead = blockchainRead;
   }
@@ -560,10 +557,6 @@ public class OrderBookService {
             order.pricePerToken(), order.nonce(), order.deadline(), newStatus, order.createdAt(),
             order.signature(), order.matchedOrderId(), txHash, order.filledTokenAmount());
         ordersById.put(order.orderId(), updated);
-        if (txHash != null && !txHash.isBlank()) {
-          String fundName = registry.findByToken(order.token()).map(f -> f.name()).orElse("CPEF");
-          fallbackService.notifyAndPushScore(order.maker(), fundName, order.side() == OrderSide.BUY);
-        }
       } catch (Exception e) {
         org.slf4j.LoggerFactory.getLogger(OrderBookService.class)
             .warn("Fallback failed for order {}: {}", order.orderId(), e.getMessage());
@@ -5,6 +5,8 @@ import com.fancapital.backend.blockchain.model.OrderBookDtos.Order;
 import com.fancapital.backend.blockchain.model.OrderBookDtos.OrderSide;
 import com.fancapital.backend.blockchain.model.TxDtos.BuyRequest;
 import com.fancapital.backend.blockchain.model.TxDtos.SellRequest;
+import com.fancapital.backend.blockchain.service.FeeOracleService.Urgency;
+import com.fancapital.backend.blockchain.service.TxSubmitterService.KeyLane;
 import java.math.BigInteger;
 import java.util.List;
 import org.slf4j.Logger;
@@ -16,12 +18,7 @@ import org.web3j.abi.datatypes.Bool;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.Utf8String;
 import org.web3j.abi.datatypes.generated.Uint256;
-import org.web3j.crypto.Credentials;
-import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.methods.response.EthGasPrice;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
-import org.web3j.tx.RawTransactionManager;
-import org.web3j.tx.TransactionManager;
 
 /**
  * Exécute le fallback d'un ordre P2P non matché vers la piscine de liquidité.
@@ -32,43 +29,43 @@ public class OrderFallbackExecutorService {
   private static final Logger log = LoggerFactory.getLogger(OrderFallbackExecutorService.class);
   private static final BigInteger PRICE_SCALE = BigInteger.valueOf(100_000_000L);
 
-  private final Web3j web3j;
+  private final TxSubmitterService txSubmitter;
   private final DeploymentInfraService infra;
   private final DeploymentRegistry registry;
   private final LiquidityPoolWriteService poolWrite;
   private final com.fancapital.backend.config.BlockchainProperties props;
-  private final SciScorePushService sciPush;
-  private final com.fancapital.backend.auth.repo.AppUserRepository userRepo;
-  private final com.fancapital.backend.auth.service.NotificationService notificationService;
+  private final TradeOutboxService outbox;
 
   public OrderFallbackExecutorService(
-      Web3j web3j,
+      TxSubmitterService txSubmitter,
       DeploymentInfraService infra,
       DeploymentRegistry registry,
       LiquidityPoolWriteService poolWrite,
       com.fancapital.backend.config.BlockchainProperties props,
-      SciScorePushService sciPush,
-      com.fancapital.backend.auth.repo.AppUserRepository userRepo,
-      com.fancapital.backend.auth.service.NotificationService notificationService
+      TradeOutboxService outbox
   ) {
-    this.web3j = web3j;
+    this.txSubmitter = txSubmitter;
     this.infra = infra;
     this.registry = registry;
     this.poolWrite = poolWrite;
     this.props = props;
-    this.sciPush = sciPush;
-    this.userRepo = userRepo;
-    this.notificationService = notificationService;
+    this.outbox = outbox;
   }
 
   /**
    * Exécute le reliquat de l'ordre vers la piscine.
    *
+   * Notification et push SCI du maker passent par l'outbox, écrite avant l'envoi.
+   *
    * @param order  Ordre PENDING expiré (reliquat = tokenAmount - filledTokenAmount)
    * @return txHash ou null si erreur
    */
   public String executeFallback(Order order) {
-    return executeFallbackWithCorrectAmounts(order);
+    String fundName = registry.findByToken(order.token()).map(f -> f.name()).orElse("CPEF");
+    return outbox.sendWithEffects(outbox.batch()
+        .notification(order.maker(), "Ordre P2P — fallback exécuté",
+            String.format("Le reliquat de votre ordre %s a été exécuté via la piscine de liquidité.", fundName))
+        .sciPush(order.maker()), () -> executeFallbackWithCorrectAmounts(order));
   }
 
   private String executeViaContract(String executorAddr, String token, String user,
@@ -90,13 +87,10 @@ public class OrderFallbackExecutorService {
     if (pk == null || pk.isBlank()) {
       throw new IllegalStateException("OPERATOR_PRIVATE_KEY not configured");
     }
-    Credentials creds = Credentials.create(pk.trim());
-    TransactionManager tm = new RawTransactionManager(web3j, creds, chainId().longValue());
+    KeyLane tm = txSubmitter.forKey(pk);
     String data = FunctionEncoder.encode(fn);
-    BigInteger gasPrice = suggestedGasPrice();
     try {
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(
-          gasPrice, BigInteger.valueOf(1_500_000), executorAddr, data, BigInteger.ZERO);
+      EthSendTransaction tx = tm.send(fn.getName(), Urgency.NORMAL, BigInteger.valueOf(1_500_000), executorAddr, data, BigInteger.ZERO);
       if (tx.hasError()) {
         throw new IllegalStateException("Fallback tx failed: " + tx.getError().getMessage());
       }
@@ -150,43 +144,4 @@ public class OrderFallbackExecutorService {
 
     return executeViaPool(token, user, remainder, isBuy, order);
   }
-
-  private BigInteger suggestedGasPrice() {
-    try {
-      var gp = web3j.ethGasPrice().send();
-      if (gp.hasError()) return BigInteger.valueOf(1_000_000_000L);
-      return gp.getGasPrice().multiply(BigInteger.valueOf(12)).divide(BigInteger.TEN);
-    } catch (Exception e) {
-      return BigInteger.valueOf(1_000_000_000L);
-    }
-  }
-
-  private BigInteger chainId() {
-    try {
-      return web3j.ethChainId().send().getChainId();
-    } catch (Exception e) {
-      return BigInteger.valueOf(31337);
-    }
-  }
-
-  public void notifyAndPushScore(String walletAddress, String fundName, boolean isBuy) {
-    userRepo.findByWalletAddressIgnoreCase(walletAddress).ifPresent(u -> {
-      try {
-        notificationService.create(u.getId(),
-            com.fancapital.backend.auth.model.Notification.Type.PRICE,
-            "Ordre P2P — fallback exécuté",
-            String.format("Le reliquat de votre ordre %s a été exécuté via la piscine de liquidité.", fundName),
-            com.fancapital.backend.auth.model.Notification.Priority.LOW);
-      } catch (Exception ex) {
-        log.warn("Failed to create fallback notification: {}", ex.getMessage());
-      }
-    });
-    java.util.concurrent.CompletableFuture.runAsync(() -> {
-      try {
-        sciPush.pushForWallet(walletAddress);
-      } catch (Exception e) {
-        log.warn("SCI push after fallback failed: {}", e.getMessage());
-      }
-    });
-  }
 }
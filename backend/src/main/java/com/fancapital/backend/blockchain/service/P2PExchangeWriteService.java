@@ -3,6 +3,8 @@ package com.fancapital.backend.blockchain.service;
 import com.fancapital.backend.backoffice.audit.service.BusinessContextService;
 import com.fancapital.backend.backoffice.service.DeploymentInfraService;
 import com.fancapital.backend.blockchain.model.TxDtos.P2PSettleRequest;
+import com.fancapital.backend.blockchain.service.FeeOracleService.Urgency;
+import com.fancapital.backend.blockchain.service.TxSubmitterService.KeyLane;
 import com.fancapital.backend.config.BlockchainProperties;
 import java.io.IOException;
 import java.math.BigInteger;
@@ -12,30 +14,28 @@ import org.web3j.abi.FunctionEncoder;
 import org.web3j.abi.datatypes.Address;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.generated.Uint256;
-import org.web3j.crypto.Credentials;
-import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
-import org.web3j.protocol.core.methods.response.EthGasPrice;
-import org.web3j.tx.RawTransactionManager;
-import org.web3j.tx.TransactionManager;
 
 @Service
 public class P2PExchangeWriteService {
-  private final Web3j web3j;
+  private final TxSubmitterService txSubmitter;
   private final DeploymentInfraService infra;
   private final BlockchainProperties props;
   private final BusinessContextService businessContextService;
+  private final TradeOutboxService outbox;
 
   public P2PExchangeWriteService(
-      Web3j web3j,
+      TxSubmitterService txSubmitter,
       DeploymentInfraService infra,
       BlockchainProperties props,
-      BusinessContextService businessContextService
+      BusinessContextService businessContextService,
+      TradeOutboxService outbox
   ) {
-    this.web3j = web3j;
+    this.txSubmitter = txSubmitter;
     this.infra = infra;
     this.props = props;
     this.businessContextService = businessContextService;
+    this.outbox = outbox;
   }
 
   /**
@@ -79,26 +79,14 @@ public class P2PExchangeWriteService {
     );
 
     // P2P transactions may require more gas due to multiple transfers (cash + tokens)
-    String txHash = send(p2pExchangeAddress, fn, BigInteger.valueOf(1_500_000));
-    
-    // Enregistrer le BusinessContextId pour la traçabilité (Livre Blanc v2.1 - Section 4.2)
-    String businessContextId = businessContextService.generateBusinessContextId("P2P_SETTLE");
-    try {
-      businessContextService.registerTransaction(
-          txHash,
-          businessContextId,
-          p2pExchangeAddress,
-          "P2P_SETTLE",
-          String.format("P2P trade: seller %s -> buyer %s, token %s, amount %s, price %s", 
-              req.seller(), req.buyer(), req.token(), tokenAmount, pricePerToken),
-          null // accountingDocumentId sera ajouté par le backoffice si nécessaire
-      );
-    } catch (Exception e) {
-      // Log l'erreur mais ne fait pas échouer la transaction
-      System.err.println("Failed to register business context for P2P transaction " + txHash + ": " + e.getMessage());
-    }
-    
-    return txHash;
+    // Enregistrer le BusinessContextId pour la traçabilité (Livre Blanc v2.1 - Section 4.2), via l'outbox
+    // (écrite avant l'envoi)
+    return outbox.sendWithEffects(outbox.batch()
+        .businessContext(businessContextService.generateBusinessContextId("P2P_SETTLE"), p2pExchangeAddress,
+            "P2P_SETTLE",
+            String.format("P2P trade: seller %s -> buyer %s, token %s, amount %s, price %s",
+                req.seller(), req.buyer(), req.token(), tokenAmount, pricePerToken)),
+        () -> send(p2pExchangeAddress, fn, BigInteger.valueOf(1_500_000)));
   }
 
   private String send(String to, Function fn, BigInteger gasLimit) {
@@ -107,15 +95,12 @@ public class P2PExchangeWriteService {
       throw new IllegalStateException("OPERATOR_PRIVATE_KEY not configured (blockchain.operator-private-key).");
     }
 
-    Credentials credentials = Credentials.create(pk.trim());
-    BigInteger chainId = chainId();
-    TransactionManager tm = new RawTransactionManager(web3j, credentials, chainId.longValue());
+    KeyLane tm = txSubmitter.forKey(pk);
 
     String data = FunctionEncoder.encode(fn);
-    BigInteger gasPrice = suggestedGasPrice();
 
     try {
-      EthSendTransaction tx = (EthSendTransaction) tm.sendTransaction(gasPrice, gasLimit, to, data, BigInteger.ZERO);
+      EthSendTransaction tx = tm.send(fn.getName(), Urgency.NORMAL, gasLimit, to, data, BigInteger.ZERO);
       if (tx.hasError()) {
         throw new IllegalStateException("EVM tx failed: " + tx.getError().getMessage());
       }
@@ -125,29 +110,6 @@ public class P2PExchangeWriteService {
     }
   }
 
-  private BigInteger suggestedGasPrice() {
-    try {
-      EthGasPrice gp = web3j.ethGasPrice().send();
-      if (gp.hasError()) {
-        throw new IllegalStateException("eth_gasPrice error: " + gp.getError().getMessage());
-      }
-      BigInteger v = gp.getGasPrice();
-      // add a small buffer (x1.2) to avoid "too low for next block"
-      return v.multiply(BigInteger.valueOf(12)).divide(BigInteger.TEN);
-    } catch (IOException e) {
-      // fallback for local dev
-      return BigInteger.valueOf(1_000_000_000L); // 1 gwei
-    }
-  }
-
-  private BigInteger chainId() {
-    try {
-      return web3j.ethChainId().send().getChainId();
-    } catch (IOException e) {
-      return BigInteger.valueOf(31337);
-    }
-  }
-
   private static BigInteger parseUint(String raw, String field) {
     if (raw == null || raw.isBlank()) throw new IllegalArgumentException(field + " is required");
     try {
@@ -0,0 +1,553 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.blockchain.model.FundDto;
+import com.fancapital.backend.blockchain.model.QuoteDtos.QuoteBuyRequest;
+import com.fancapital.backend.blockchain.model.QuoteDtos.QuoteBuyResponse;
+import com.fancapital.backend.blockchain.model.QuoteDtos.QuoteSellRequest;
+import com.fancapital.backend.blockchain.model.QuoteDtos.QuoteSellResponse;
+import com.fancapital.backend.config.BlockchainProperties;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.abi.datatypes.generated.Uint64;
+import org.web3j.abi.datatypes.generated.Uint8;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.Log;
+
+/**
+ * Moteur de cotation hors chaîne reproduisant LiquidityPool.quoteBuy / quoteSell.
+ * <p>
+ * Les entrées du calcul sont mises en cache : paramètres de la piscine (frais et remises par niveau, spread de
+ * base, alpha/beta/réserve minimale), VNI/volatilité de l'oracle, réserve (cash de la piscine, offre du token)
+ * et, par investisseur, niveau de frais, résidence et PRM. Le cache est invalidé par les événements on-chain
+ * correspondants ({@link #onHead(long)}) ; les calculs suivent exactement l'arithmétique entière du contrat.
+ * Un échantillon des dernières cotations est régulièrement recoupé avec l'eth_call ({@link #checkDrift()}).
+ */
+@Service
+public class PoolQuoteEngine {
+
+  private static final Logger log = LoggerFactory.getLogger(PoolQuoteEngine.class);
+
+  // LiquidityPool constants
+  private static final BigInteger BPS = BigInteger.valueOf(10_000);
+  private static final BigInteger PRICE_SCALE = BigInteger.valueOf(100_000_000L);
+  private static final BigInteger VAT_BPS = BigInteger.valueOf(1_900);
+  private static final BigInteger RAS_RESIDENT_BPS = BigInteger.valueOf(1_000);
+  private static final BigInteger RAS_NON_RESIDENT_BPS = BigInteger.valueOf(1_500);
+  private static final long MAX_PRICE_AGE_SEC = 24 * 3600L;
+  private static final int FEE_LEVELS = 5;
+  private static final String ZERO_ADDRESS = "0x0000000000000000000000000000000000000000";
+
+  /** Filet de sécurité pour les entrées par investisseur non couvertes par un événement (résidence KYC). */
+  private static final long USER_TTL_MS = 60_000;
+
+  private record PoolParams(
+      String cashToken,
+      String kycRegistry,
+      String investorRegistry,
+      BigInteger baseSpreadBps,
+      BigInteger alphaVolBps,
+      BigInteger betaReserveBps,
+      BigInteger minReserveRatioBps,
+      List<BigInteger> poolFeeBps,
+      List<BigInteger> spreadDiscountBps
+  ) {}
+
+  private record OracleState(BigInteger vni, long updatedAtSec, BigInteger volBps) {}
+
+  private record Reserve(BigInteger poolCash, BigInteger supply) {}
+
+  private record InvestorInputs(int feeLevel, boolean resident, long loadedAtMs) {}
+
+  private record CachedPrm(BigInteger prm, long loadedAtMs) {}
+
+  private final Web3j web3j;
+  private final EvmCallService evm;
+  private final DeploymentRegistry registry;
+  private final BlockTimeIndexService blockTimes;
+  private final boolean enabled;
+
+  // Loaded once per key outside the map lock (see cached()); concurrent quotes wait on the same load.
+  private final Map<String, CompletableFuture<PoolParams>> pools = new ConcurrentHashMap<>();   // pool -> params
+  private final Map<String, CompletableFuture<OracleState>> oracle = new ConcurrentHashMap<>(); // token -> VNI/vol
+  private final Map<String, CompletableFuture<Reserve>> reserves = new ConcurrentHashMap<>();   // token -> reserve inputs
+  private final Map<String, InvestorInputs> investors = new ConcurrentHashMap<>(); // pool|user -> fee level, resident
+  private final Map<String, CachedPrm> prms = new ConcurrentHashMap<>();           // token|user -> PRM
+
+  // Last request seen per token, replayed on-chain by checkDrift()
+  private final Map<String, QuoteBuyRequest> lastBuy = new ConcurrentHashMap<>();
+  private final Map<String, QuoteSellRequest> lastSell = new ConcurrentHashMap<>();
+  private final AtomicLong driftCount = new AtomicLong();
+
+  private volatile long lastScannedBlock = -1;
+  private volatile long headTimestampSec = -1;
+
+  public PoolQuoteEngine(
+      Web3j web3j,
+      EvmCallService evm,
+      DeploymentRegistry registry,
+      BlockTimeIndexService blockTimes,
+      BlockchainProperties props
+  ) {
+    this.web3j = web3j;
+    this.evm = evm;
+    this.registry = registry;
+    this.blockTimes = blockTimes;
+    this.enabled = props.quoteEngine() == null || props.quoteEngine().enabled();
+  }
+
+  public boolean enabled() {
+    return enabled;
+  }
+
+  /** true dès qu'une cotation a été servie localement : le rafraîchissement par événements n'a lieu qu'alors. */
+  public boolean isWarm() {
+    return !pools.isEmpty();
+  }
+
+  public long driftCount() {
+    return driftCount.get();
+  }
+
+  // ---------------------------------------------------------------------------------------------
+  // Local quotes (same integer arithmetic as LiquidityPool)
+  // ---------------------------------------------------------------------------------------------
+
+  public QuoteBuyResponse quoteBuy(FundDto fund, QuoteBuyRequest req) {
+    lastBuy.put(key(fund.token()), req);
+    PoolParams pp = pool(fund.pool());
+    OracleState os = requireFreshPrice(fund);
+    InvestorInputs inv = investor(fund.pool(), pp, req.user());
+
+    BigInteger tndIn = new BigInteger(req.tndIn());
+    BigInteger feeBase = tndIn.multiply(pp.poolFeeBps().get(inv.feeLevel())).divide(BPS);
+    BigInteger vat = feeBase.multiply(VAT_BPS).divide(BPS);
+    BigInteger totalFee = feeBase.add(vat);
+    BigInteger spreadBps = effectiveSpreadBps(fund, pp, os, inv.feeLevel());
+    BigInteger priceClient = os.vni().multiply(BPS.add(spreadBps)).divide(BPS);
+    BigInteger netTnd = tndIn.subtract(totalFee);
+    if (netTnd.signum() < 0) throw new IllegalStateException("LP: fees exceed");
+    if (priceClient.signum() == 0) throw new IllegalStateException("LP: VNI not set");
+    BigInteger minted = netTnd.multiply(PRICE_SCALE).divide(priceClient);
+
+    return new QuoteBuyResponse(
+        priceClient.toString(),
+        minted.toString(),
+        feeBase.toString(),
+        vat.toString(),
+        totalFee.toString()
+    );
+  }
+
+  public QuoteSellResponse quoteSell(FundDto fund, QuoteSellRequest req) {
+    lastSell.put(key(fund.token()), req);
+    PoolParams pp = pool(fund.pool());
+    OracleState os = requireFreshPrice(fund);
+    InvestorInputs inv = investor(fund.pool(), pp, req.user());
+
+    BigInteger tokenAmount = new BigInteger(req.tokenAmount());
+    BigInteger spreadBps = effectiveSpreadBps(fund, pp, os, inv.feeLevel());
+    BigInteger priceClient = os.vni().multiply(BPS.subtract(spreadBps)).divide(BPS);
+    BigInteger grossTnd = tokenAmount.multiply(priceClient).divide(PRICE_SCALE);
+    BigInteger feeBase = grossTnd.multiply(pp.poolFeeBps().get(inv.feeLevel())).divide(BPS);
+    BigInteger vat = feeBase.multiply(VAT_BPS).divide(BPS);
+    BigInteger totalFee = feeBase.add(vat);
+    BigInteger tax = ras(fund, pp, inv, req.user(), tokenAmount, os.vni());
+    BigInteger tndOut = grossTnd.subtract(totalFee).subtract(tax);
+    if (tndOut.signum() < 0) throw new IllegalStateException("LP: fees+tax exceed");
+
+    return new QuoteSellResponse(
+        priceClient.toString(),
+        tndOut.toString(),
+        feeBase.toString(),
+        vat.toString(),
+        totalFee.toString(),
+        tax.toString()
+    );
+  }
+
+  private BigInteger ras(FundDto fund, PoolParams pp, InvestorInputs inv, String user, BigInteger tokenAmount, BigInteger vni) {
+    if (ZERO_ADDRESS.equals(pp.kycRegistry())) return BigInteger.ZERO;
+    BigInteger prm = prm(fund.token(), user);
+    if (vni.compareTo(prm) <= 0) return BigInteger.ZERO;
+    BigInteger gainTnd = tokenAmount.multiply(vni.subtract(prm)).divide(PRICE_SCALE);
+    BigInteger rate = inv.resident() ? RAS_RESIDENT_BPS : RAS_NON_RESIDENT_BPS;
+    return gainTnd.multiply(rate).divide(BPS);
+  }
+
+  private BigInteger effectiveSpreadBps(FundDto fund, PoolParams pp, OracleState os, int feeLevel) {
+    BigInteger dyn = dynamicSpreadBps(fund, pp, os);
+    BigInteger disc = pp.spreadDiscountBps().get(feeLevel);
+    if (disc.signum() == 0) return dyn;
+    return dyn.multiply(BPS.subtract(disc)).divide(BPS);
+  }
+
+  private BigInteger dynamicSpreadBps(FundDto fund, PoolParams pp, OracleState os) {
+    if (os.vni().signum() == 0) return pp.baseSpreadBps();
+    BigInteger volComponent = os.volBps().multiply(pp.alphaVolBps()).divide(BPS);
+
+    BigInteger reserveRatioBps = reserveRatioBps(fund, pp, os.vni());
+    BigInteger reservePenalty = BigInteger.ZERO;
+    if (reserveRatioBps.compareTo(pp.minReserveRatioBps()) < 0) {
+      BigInteger gap = pp.minReserveRatioBps().subtract(reserveRatioBps);
+      reservePenalty = gap.multiply(pp.betaReserveBps()).divide(BPS);
+    }
+    return pp.baseSpreadBps().add(volComponent).add(reservePenalty);
+  }
+
+  private BigInteger reserveRatioBps(FundDto fund, PoolParams pp, BigInteger vni) {
+    if (ZERO_ADDRESS.equals(pp.cashToken())) return BPS;
+    Reserve r = cached(reserves, key(fund.token()), () -> new Reserve(
+        uintCall(pp.cashToken(), "balanceOf", new Address(fund.pool())),
+        uintCall(fund.token(), "totalSupply")
+    ));
+    BigInteger liability = r.supply().multiply(vni).divide(PRICE_SCALE);
+    BigInteger denom = r.poolCash().add(liability);
+    if (denom.signum() == 0) return BPS;
+    return r.poolCash().multiply(BPS).divide(denom);
+  }
+
+  private OracleState requireFreshPrice(FundDto fund) {
+    OracleState os = cached(oracle, key(fund.token()), () -> loadOracle(fund));
+    if (os.updatedAtSec() == 0) throw new IllegalStateException("LP: price not set");
+    long now = headTimestampSec > 0 ? headTimestampSec : Instant.now().getEpochSecond();
+    if (now - os.updatedAtSec() > MAX_PRICE_AGE_SEC) throw new IllegalStateException("LP: price stale");
+    return os;
+  }
+
+  // ---------------------------------------------------------------------------------------------
+  // On-chain quotes (reference implementation, also used when the engine is disabled)
+  // ---------------------------------------------------------------------------------------------
+
+  public QuoteBuyResponse onchainQuoteBuy(FundDto fund, QuoteBuyRequest req) {
+    Function f = new Function(
+        "quoteBuy",
+        List.of(new Address(req.token()), new Address(req.user()), new Uint256(new BigInteger(req.tndIn()))),
+        List.of(
+            new TypeReference<Uint256>() {}, // priceClient
+            new TypeReference<Uint256>() {}, // minted
+            new TypeReference<Uint256>() {}, // feeBase
+            new TypeReference<Uint256>() {}, // vat
+            new TypeReference<Uint256>() {}  // totalFee
+        )
+    );
+    @SuppressWarnings("rawtypes")
+    List<Type> out = evm.ethCall(fund.pool(), f);
+    return new QuoteBuyResponse(
+        EvmCallService.uint(out.get(0)).toString(),
+        EvmCallService.uint(out.get(1)).toString(),
+        EvmCallService.uint(out.get(2)).toString(),
+        EvmCallService.uint(out.get(3)).toString(),
+        EvmCallService.uint(out.get(4)).toString()
+    );
+  }
+
+  public QuoteSellResponse onchainQuoteSell(FundDto fund, QuoteSellRequest req) {
+    Function f = new Function(
+        "quoteSell",
+        List.of(new Address(req.token()), new Address(req.user()), new Uint256(new BigInteger(req.tokenAmount()))),
+        List.of(
+            new TypeReference<Uint256>() {}, // priceClient
+            new TypeReference<Uint256>() {}, // tndOut
+            new TypeReference<Uint256>() {}, // feeBase
+            new TypeReference<Uint256>() {}, // vat
+            new TypeReference<Uint256>() {}, // totalFee
+            new TypeReference<Uint256>() {}  // tax
+        )
+    );
+    @SuppressWarnings("rawtypes")
+    List<Type> out = evm.ethCall(fund.pool(), f);
+    return new QuoteSellResponse(
+        EvmCallService.uint(out.get(0)).toString(),
+        EvmCallService.uint(out.get(1)).toString(),
+        EvmCallService.uint(out.get(2)).toString(),
+        EvmCallService.uint(out.get(3)).toString(),
+        EvmCallService.uint(out.get(4)).toString(),
+        EvmCallService.uint(out.get(5)).toString()
+    );
+  }
+
+  // ---------------------------------------------------------------------------------------------
+  // Event-driven invalidation and drift check
+  // ---------------------------------------------------------------------------------------------
+
+  /** Invalide les entrées touchées par les événements des blocs (lastScanned, headBlock]. */
+  public synchronized void onHead(long headBlock) {
+    headTimestampSec = blockTimes.timestampOf(headBlock);
+    if (lastScannedBlock < 0 || lastScannedBlock > headBlock) {
+      // No scan baseline yet (or reorg below it): reload the volatile inputs rather than miss events.
+      oracle.clear();
+      reserves.clear();
+      lastScannedBlock = headBlock;
+      return;
+    }
+    if (headBlock == lastScannedBlock) return;
+    long from = lastScannedBlock + 1;
+    lastScannedBlock = headBlock;
+
+    List<FundDto> funds = registry.listFunds();
+    List<String> addresses = new ArrayList<>();
+    for (FundDto f : funds) {
+      addresses.add(f.token());
+      addresses.add(f.pool());
+      addresses.add(f.oracle());
+    }
+    for (CompletableFuture<PoolParams> loaded : pools.values()) {
+      if (!loaded.isDone() || loaded.isCompletedExceptionally()) continue;
+      PoolParams pp = loaded.join();
+      if (!ZERO_ADDRESS.equals(pp.cashToken())) addresses.add(pp.cashToken());
+      if (!ZERO_ADDRESS.equals(pp.investorRegistry())) addresses.add(pp.investorRegistry());
+    }
+
+    EthFilter filter = new EthFilter(
+        new DefaultBlockParameterNumber(BigInteger.valueOf(from)),
+        new DefaultBlockParameterNumber(BigInteger.valueOf(headBlock)),
+        addresses.stream().map(PoolQuoteEngine::key).distinct().toList()
+    );
+    filter.addOptionalTopics(
+        ChainEvents.VNI_UPDATED_TOPIC,
+        ChainEvents.VNI_FORCE_UPDATED_TOPIC,
+        ChainEvents.VOLATILITY_UPDATED_TOPIC,
+        ChainEvents.POOL_FEE_UPDATED_TOPIC,
+        ChainEvents.SPREAD_DISCOUNT_UPDATED_TOPIC,
+        ChainEvents.BASE_SPREAD_UPDATED_TOPIC,
+        ChainEvents.SPREAD_PARAMS_UPDATED_TOPIC,
+        ChainEvents.TRANSFER_TOPIC,
+        ChainEvents.PRM_UPDATED_TOPIC,
+        ChainEvents.FEE_LEVEL_UPDATED_TOPIC
+    );
+    List<Log> logs;
+    try {
+      logs = web3j.ethGetLogs(filter).send().getLogs().stream().map(lr -> (Log) lr.get()).toList();
+    } catch (IOException e) {
+      lastScannedBlock = from - 1; // retry the same range next time
+      throw new IllegalStateException("eth_getLogs failed: " + e.getMessage(), e);
+    }
+    for (Log l : logs) {
+      apply(l, funds);
+    }
+  }
+
+  private void apply(Log l, List<FundDto> funds) {
+    List<String> t = l.getTopics();
+    if (t == null || t.isEmpty()) return;
+    String topic0 = t.get(0);
+    String emitter = key(l.getAddress());
+
+    if (ChainEvents.VNI_UPDATED_TOPIC.equals(topic0) || ChainEvents.VNI_FORCE_UPDATED_TOPIC.equals(topic0)
+        || ChainEvents.VOLATILITY_UPDATED_TOPIC.equals(topic0)) {
+      if (t.size() >= 2) oracle.remove(ChainEvents.topicToAddress(t.get(1)));
+    } else if (ChainEvents.POOL_FEE_UPDATED_TOPIC.equals(topic0) || ChainEvents.SPREAD_DISCOUNT_UPDATED_TOPIC.equals(topic0)
+        || ChainEvents.BASE_SPREAD_UPDATED_TOPIC.equals(topic0) || ChainEvents.SPREAD_PARAMS_UPDATED_TOPIC.equals(topic0)) {
+      pools.remove(emitter);
+    } else if (ChainEvents.PRM_UPDATED_TOPIC.equals(topic0)) {
+      if (t.size() >= 2) prms.remove(emitter + "|" + ChainEvents.topicToAddress(t.get(1)));
+    } else if (ChainEvents.FEE_LEVEL_UPDATED_TOPIC.equals(topic0)) {
+      if (t.size() >= 2) {
+        String user = ChainEvents.topicToAddress(t.get(1));
+        investors.keySet().removeIf(k -> k.endsWith("|" + user));
+      }
+    } else if (ChainEvents.TRANSFER_TOPIC.equals(topic0) && t.size() >= 3) {
+      // Reserve ratio inputs: token supply (mint/burn) and pool cash balance.
+      String from = ChainEvents.topicToAddress(t.get(1));
+      String to = ChainEvents.topicToAddress(t.get(2));
+      for (FundDto f : funds) {
+        String pool = key(f.pool());
+        if (emitter.equals(key(f.token())) || pool.equals(from) || pool.equals(to)) {
+          reserves.remove(key(f.token()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Rejoue on-chain la dernière cotation achat/vente de chaque fonds et compare au calcul local.
+   * En cas d'écart, le cache du fonds est vidé (auto-correction) et l'écart journalisé.
+   *
+   * @return nombre d'écarts détectés
+   */
+  public int checkDrift() {
+    int drifts = 0;
+    for (FundDto fund : registry.listFunds()) {
+      QuoteBuyRequest b = lastBuy.get(key(fund.token()));
+      if (b != null && !sameQuote(() -> quoteBuy(fund, b), () -> onchainQuoteBuy(fund, b))) {
+        drifts += onDrift(fund, "buy", b.user());
+      }
+      QuoteSellRequest s = lastSell.get(key(fund.token()));
+      if (s != null && !sameQuote(() -> quoteSell(fund, s), () -> onchainQuoteSell(fund, s))) {
+        drifts += onDrift(fund, "sell", s.user());
+      }
+    }
+    return drifts;
+  }
+
+  private boolean sameQuote(Supplier<Object> local, Supplier<Object> onchain) {
+    Object remote;
+    try {
+      remote = onchain.get();
+    } catch (IllegalStateException e) {
+      // On-chain revert (stale price...): the local engine must refuse as well.
+      try {
+        local.get();
+        return false;
+      } catch (IllegalStateException expected) {
+        return true;
+      }
+    }
+    try {
+      return Objects.equals(local.get(), remote);
+    } catch (IllegalStateException e) {
+      return false;
+    }
+  }
+
+  private int onDrift(FundDto fund, String side, String user) {
+    driftCount.incrementAndGet();
+    log.warn("Quote engine drift on {} {} for user {}: local cache invalidated", fund.symbol(), side, user);
+    String token = key(fund.token());
+    pools.remove(key(fund.pool()));
+    oracle.remove(token);
+    reserves.remove(token);
+    prms.keySet().removeIf(k -> k.startsWith(token + "|"));
+    investors.remove(key(fund.pool()) + "|" + key(user));
+    return 1;
+  }
+
+  // ---------------------------------------------------------------------------------------------
+  // Loaders
+  // ---------------------------------------------------------------------------------------------
+
+  private PoolParams pool(String poolAddress) {
+    String k = key(poolAddress);
+    return cached(pools, k, () -> loadPool(k));
+  }
+
+  /**
+   * Valeur de {@code k}, chargée au plus une fois à la fois par clé : le chargement (eth_call bloquants) se
+   * fait hors du verrou de la map, les appelants concurrents attendent le même futur. Un chargement en échec
+   * est retiré (nouvel essai à l'appel suivant) ; une invalidation pendant le chargement retire le futur, le
+   * prochain appel relit la chaîne.
+   */
+  private static <V> V cached(Map<String, CompletableFuture<V>> map, String k, Supplier<V> loader) {
+    CompletableFuture<V> f = map.get(k);
+    if (f == null) {
+      CompletableFuture<V> mine = new CompletableFuture<>();
+      f = map.putIfAbsent(k, mine);
+      if (f == null) {
+        f = mine;
+        try {
+          mine.complete(loader.get());
+        } catch (RuntimeException e) {
+          map.remove(k, mine);
+          mine.completeExceptionally(e);
+        }
+      }
+    }
+    try {
+      return f.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException re) throw re;
+      throw e;
+    }
+  }
+
+  private PoolParams loadPool(String pool) {
+    List<BigInteger> fees = new ArrayList<>(FEE_LEVELS);
+    List<BigInteger> discounts = new ArrayList<>(FEE_LEVELS);
+    for (int lvl = 0; lvl < FEE_LEVELS; lvl++) {
+      fees.add(uintCall(pool, "poolFeeBps", new Uint8(lvl)));
+      discounts.add(uintCall(pool, "spreadDiscountBps", new Uint8(lvl)));
+    }
+    return new PoolParams(
+        addressCall(pool, "cashToken"),
+        addressCall(pool, "kycRegistry"),
+        addressCall(pool, "investorRegistry"),
+        uintCall(pool, "baseSpreadBps"),
+        uintCall(pool, "alphaVolBps"),
+        uintCall(pool, "betaReserveBps"),
+        uintCall(pool, "minReserveRatioBps"),
+        List.copyOf(fees),
+        List.copyOf(discounts)
+    );
+  }
+
+  private OracleState loadOracle(FundDto fund) {
+    Function f = new Function(
+        "getVNIData",
+        List.of(new Address(fund.token())),
+        List.of(new TypeReference<Uint256>() {}, new TypeReference<Uint64>() {})
+    );
+    @SuppressWarnings("rawtypes")
+    List<Type> out = evm.ethCall(fund.oracle(), f);
+    BigInteger vni = out.isEmpty() ? BigInteger.ZERO : EvmCallService.uint(out.get(0));
+    long updatedAt = out.size() < 2 ? 0L : EvmCallService.uint(out.get(1)).longValue();
+    BigInteger vol = uintCall(fund.oracle(), "getVolatilityBps", new Address(fund.token()));
+    return new OracleState(vni, updatedAt, vol);
+  }
+
+  private InvestorInputs investor(String pool, PoolParams pp, String user) {
+    String k = key(pool) + "|" + key(user);
+    InvestorInputs cached = investors.get(k);
+    if (cached != null && System.currentTimeMillis() - cached.loadedAtMs() < USER_TTL_MS) return cached;
+
+    int feeLevel = uintCall(pp.investorRegistry(), "getFeeLevel", new Address(user)).intValue();
+    boolean resident = false;
+    if (!ZERO_ADDRESS.equals(pp.kycRegistry())) {
+      Function f = new Function("isResident", List.of(new Address(user)), List.of(new TypeReference<Bool>() {}));
+      @SuppressWarnings("rawtypes")
+      List<Type> out = evm.ethCall(pp.kycRegistry(), f);
+      resident = !out.isEmpty() && (Boolean) out.get(0).getValue();
+    }
+    InvestorInputs inv = new InvestorInputs(Math.min(feeLevel, FEE_LEVELS - 1), resident, System.currentTimeMillis());
+    investors.put(k, inv);
+    return inv;
+  }
+
+  private BigInteger prm(String token, String user) {
+    String k = key(token) + "|" + key(user);
+    CachedPrm cached = prms.get(k);
+    if (cached != null && System.currentTimeMillis() - cached.loadedAtMs() < USER_TTL_MS) return cached.prm();
+    BigInteger prm = uintCall(token, "getPRM", new Address(user));
+    prms.put(k, new CachedPrm(prm, System.currentTimeMillis()));
+    return prm;
+  }
+
+  @SuppressWarnings("rawtypes")
+  private BigInteger uintCall(String contract, String name, Type... args) {
+    Function f = new Function(name, List.of(args), List.of(new TypeReference<Uint256>() {}));
+    List<Type> out = evm.ethCall(contract, f);
+    return out == null || out.isEmpty() ? BigInteger.ZERO : EvmCallService.uint(out.get(0));
+  }
+
+  @SuppressWarnings("rawtypes")
+  private String addressCall(String contract, String name) {
+    Function f = new Function(name, List.of(), List.of(new TypeReference<Address>() {}));
+    List<Type> out = evm.ethCall(contract, f);
+    return out == null || out.isEmpty() ? ZERO_ADDRESS : key(out.get(0).getValue().toString());
+  }
+
+  private static String key(String address) {
+    return address.toLowerCase(Locale.ROOT);
+  }
+}
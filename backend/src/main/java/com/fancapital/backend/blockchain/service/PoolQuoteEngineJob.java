@@ -0,0 +1,48 @@
+package com.fancapital.backend.blockchain.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rafraîchit le cache du moteur de cotation à partir des événements des nouveaux blocs, et recoupe
+ * périodiquement un échantillon de cotations avec LiquidityPool.quoteBuy/quoteSell. Inactif tant
+ * qu'aucune cotation locale n'a été servie.
+ */
+@Component
+public class PoolQuoteEngineJob {
+
+  private static final Logger log = LoggerFactory.getLogger(PoolQuoteEngineJob.class);
+
+  private final ChainHeadTracker headTracker;
+  private final PoolQuoteEngine engine;
+
+  public PoolQuoteEngineJob(ChainHeadTracker headTracker, PoolQuoteEngine engine) {
+    this.headTracker = headTracker;
+    this.engine = engine;
+  }
+
+  @Scheduled(fixedDelayString = "${blockchain.indexer.interval-ms:5000}")
+  public void refresh() {
+    if (!engine.enabled() || !engine.isWarm()) return;
+    try {
+      engine.onHead(headTracker.advance());
+    } catch (Exception e) {
+      log.warn("Quote engine refresh skipped: {}", e.getMessage());
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${blockchain.quote-engine.drift-check-interval-ms:30000}")
+  public void checkDrift() {
+    if (!engine.enabled() || !engine.isWarm()) return;
+    try {
+      int drifts = engine.checkDrift();
+      if (drifts > 0) {
+        log.warn("Quote engine: {} quote(s) differed from on-chain (total {})", drifts, engine.driftCount());
+      }
+    } catch (Exception e) {
+      log.warn("Quote engine drift check skipped: {}", e.getMessage());
+    }
+  }
+}
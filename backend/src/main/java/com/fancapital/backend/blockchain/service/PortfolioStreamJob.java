@@ -0,0 +1,34 @@
+package com.fancapital.backend.blockchain.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Alimente les flux SSE du portefeuille à chaque nouveau bloc. Ne touche pas au nœud tant qu'aucun
+ * client n'est abonné.
+ */
+@Component
+public class PortfolioStreamJob {
+
+  private static final Logger log = LoggerFactory.getLogger(PortfolioStreamJob.class);
+
+  private final ChainHeadTracker headTracker;
+  private final PortfolioStreamService stream;
+
+  public PortfolioStreamJob(ChainHeadTracker headTracker, PortfolioStreamService stream) {
+    this.headTracker = headTracker;
+    this.stream = stream;
+  }
+
+  @Scheduled(fixedDelayString = "${blockchain.indexer.stream-interval-ms:2000}")
+  public void run() {
+    if (!stream.hasSubscribers()) return;
+    try {
+      stream.onHead(headTracker.advance());
+    } catch (Exception e) {
+      log.warn("Portfolio stream tick skipped: {}", e.getMessage());
+    }
+  }
+}
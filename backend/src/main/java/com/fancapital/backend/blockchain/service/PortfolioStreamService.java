@@ -0,0 +1,215 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.backoffice.service.DeploymentInfraService;
+import com.fancapital.backend.blockchain.model.FundDto;
+import com.fancapital.backend.blockchain.model.PortfolioDtos.PortfolioPosition;
+import com.fancapital.backend.blockchain.model.PortfolioDtos.PortfolioResponse;
+import com.fancapital.backend.blockchain.model.PortfolioDtos.PortfolioUpdate;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.Log;
+
+/**
+ * Flux SSE du portefeuille par wallet.
+ * <p>
+ * À l'abonnement, le {@link PortfolioResponse} complet est envoyé (événement {@code portfolio}). Ensuite, à
+ * chaque nouveau bloc contenant un Transfer (CPEF/Cash), Bought/Sold ou un événement d'escrow touchant un
+ * wallet abonné, seules les positions modifiées sont poussées (événement {@code positions}). Sans abonné,
+ * aucun appel RPC n'est fait.
+ */
+@Service
+public class PortfolioStreamService {
+
+  private static final Logger log = LoggerFactory.getLogger(PortfolioStreamService.class);
+  private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L; // EventSource reconnects on its own
+
+  private final Web3j web3j;
+  private final DeploymentRegistry registry;
+  private final DeploymentInfraService infra;
+  private final BlockchainReadService readService;
+
+  private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+  private final Map<String, PortfolioResponse> lastSent = new ConcurrentHashMap<>();
+  private volatile long lastScannedBlock = -1;
+
+  public PortfolioStreamService(
+      Web3j web3j,
+      DeploymentRegistry registry,
+      DeploymentInfraService infra,
+      BlockchainReadService readService
+  ) {
+    this.web3j = web3j;
+    this.registry = registry;
+    this.infra = infra;
+    this.readService = readService;
+  }
+
+  public boolean hasSubscribers() {
+    return !subscribers.isEmpty();
+  }
+
+  public SseEmitter subscribe(String walletAddress) {
+    String wallet = walletAddress.toLowerCase(Locale.ROOT);
+    SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+    // Registered before the first read so a change mined meanwhile is still pushed.
+    subscribers.compute(wallet, (k, list) -> {
+      List<SseEmitter> l = list != null ? list : new CopyOnWriteArrayList<>();
+      l.add(emitter);
+      return l;
+    });
+    emitter.onCompletion(() -> remove(wallet, emitter));
+    emitter.onTimeout(() -> remove(wallet, emitter));
+    emitter.onError(e -> remove(wallet, emitter));
+
+    PortfolioResponse p;
+    try {
+      p = readService.portfolio(walletAddress);
+    } catch (RuntimeException e) {
+      // The emitter never reaches Spring: its callbacks would never fire and the job would poll forever.
+      remove(wallet, emitter);
+      throw e;
+    }
+    lastSent.put(wallet, p);
+    try {
+      emitter.send(SseEmitter.event().name("portfolio").data(p));
+    } catch (IOException e) {
+      remove(wallet, emitter);
+      emitter.completeWithError(e);
+    }
+    return emitter;
+  }
+
+  /**
+   * Traite les blocs apparus depuis le dernier passage jusqu'à {@code headBlock} : recalcule le portefeuille
+   * des seuls wallets abonnés touchés et leur pousse les positions modifiées.
+   */
+  public synchronized void onHead(long headBlock) {
+    if (subscribers.isEmpty()) {
+      lastScannedBlock = -1;
+      return;
+    }
+    if (lastScannedBlock < 0 || lastScannedBlock > headBlock) {
+      // Fresh subscribers already received a full snapshot: start from the current head.
+      lastScannedBlock = headBlock;
+      return;
+    }
+    if (headBlock == lastScannedBlock) return;
+
+    Set<String> touched = touchedWallets(lastScannedBlock + 1, headBlock);
+    lastScannedBlock = headBlock;
+    touched.retainAll(subscribers.keySet());
+    if (touched.isEmpty()) return;
+    List<String> wallets = new ArrayList<>(touched);
+    List<PortfolioResponse> portfolios = readService.portfolios(wallets, null);
+    for (int i = 0; i < wallets.size(); i++) {
+      pushDelta(wallets.get(i), portfolios.get(i), headBlock);
+    }
+  }
+
+  private void pushDelta(String wallet, PortfolioResponse next, long blockNumber) {
+    PortfolioResponse prev = lastSent.put(wallet, next);
+
+    Map<Integer, PortfolioPosition> before = new HashMap<>();
+    if (prev != null) prev.positions().forEach(p -> before.put(p.fundId(), p));
+    List<PortfolioPosition> changed = new ArrayList<>();
+    for (PortfolioPosition p : next.positions()) {
+      if (!p.equals(before.get(p.fundId()))) changed.add(p);
+    }
+    boolean cashChanged = prev == null
+        || !Objects.equals(prev.cashBalanceTnd(), next.cashBalanceTnd())
+        || !Objects.equals(prev.creditDebtTnd(), next.creditDebtTnd());
+    if (changed.isEmpty() && !cashChanged) return;
+
+    PortfolioUpdate update = new PortfolioUpdate(next.user(), blockNumber, changed, next.cashBalanceTnd(),
+        next.creditDebtTnd(), next.totalValueTnd(), next.totalUnrealizedGainTnd());
+    for (SseEmitter emitter : subscribers.getOrDefault(wallet, List.of())) {
+      try {
+        emitter.send(SseEmitter.event().name("positions").data(update));
+      } catch (IOException | IllegalStateException e) {
+        remove(wallet, emitter);
+      }
+    }
+  }
+
+  /** Un seul eth_getLogs (toutes adresses, topic0 en OR) pour la plage de blocs. */
+  private Set<String> touchedWallets(long fromBlock, long toBlock) {
+    List<String> addresses = new ArrayList<>();
+    for (FundDto f : registry.listFunds()) {
+      addresses.add(f.token());
+      addresses.add(f.pool());
+    }
+    String cash = infra.cashTokenAddress();
+    if (cash != null && !cash.isBlank()) addresses.add(cash);
+    String escrow = infra.escrowRegistryAddress();
+    if (escrow != null && !escrow.isBlank()) addresses.add(escrow);
+
+    Set<String> out = new HashSet<>();
+    if (addresses.isEmpty()) return out;
+
+    EthFilter filter = new EthFilter(
+        new DefaultBlockParameterNumber(BigInteger.valueOf(fromBlock)),
+        new DefaultBlockParameterNumber(BigInteger.valueOf(toBlock)),
+        addresses.stream().distinct().toList()
+    );
+    filter.addOptionalTopics(
+        ChainEvents.TRANSFER_TOPIC,
+        ChainEvents.BOUGHT_TOPIC,
+        ChainEvents.SOLD_TOPIC,
+        ChainEvents.COLLATERAL_LOCKED_TOPIC,
+        ChainEvents.COLLATERAL_UNLOCKED_TOPIC,
+        ChainEvents.ESCROW_LOCK_UPDATED_TOPIC
+    );
+
+    List<Log> logs;
+    try {
+      logs = web3j.ethGetLogs(filter).send().getLogs().stream().map(lr -> (Log) lr.get()).toList();
+    } catch (IOException e) {
+      throw new IllegalStateException("eth_getLogs failed: " + e.getMessage(), e);
+    }
+
+    for (Log l : logs) {
+      List<String> t = l.getTopics();
+      if (t == null || t.isEmpty()) continue;
+      String topic0 = t.get(0);
+      if (ChainEvents.TRANSFER_TOPIC.equals(topic0) && t.size() >= 3) {
+        out.add(ChainEvents.topicToAddress(t.get(1)));
+        out.add(ChainEvents.topicToAddress(t.get(2)));
+      } else if ((ChainEvents.BOUGHT_TOPIC.equals(topic0) || ChainEvents.SOLD_TOPIC.equals(topic0)
+          || ChainEvents.COLLATERAL_LOCKED_TOPIC.equals(topic0) || ChainEvents.COLLATERAL_UNLOCKED_TOPIC.equals(topic0))
+          && t.size() >= 3) {
+        out.add(ChainEvents.topicToAddress(t.get(2)));
+      } else if (ChainEvents.ESCROW_LOCK_UPDATED_TOPIC.equals(topic0) && t.size() >= 2) {
+        out.add(ChainEvents.topicToAddress(t.get(1)));
+      }
+    }
+    return out;
+  }
+
+  private void remove(String wallet, SseEmitter emitter) {
+    subscribers.computeIfPresent(wallet, (k, list) -> {
+      list.remove(emitter);
+      return list.isEmpty() ? null : list;
+    });
+    if (!subscribers.containsKey(wallet)) {
+      lastSent.remove(wallet);
+    }
+    log.debug("Portfolio stream closed for {}", wallet);
+  }
+}
@@ -0,0 +1,150 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.config.BlockchainProperties;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+/**
+ * Suivi asynchrone des reçus de transaction.
+ * <p>
+ * {@link #track(String)} rend un futur complété quand la transaction est minée. Un seul thread interroge le
+ * nœud pour toutes les transactions en attente : à chaque nouveau bloc, un lot JSON-RPC
+ * eth_getTransactionReceipt couvre tous les hashes suivis. Aucun thread n'est bloqué par transaction, les
+ * étapes dépendantes (approve → buyFor) s'enchaînent sur le futur.
+ */
+@Service
+public class ReceiptTrackerService {
+
+  private static final Logger log = LoggerFactory.getLogger(ReceiptTrackerService.class);
+  private static final int BATCH_SIZE = 200;
+
+  private final Web3j web3j;
+  private final long pollIntervalMs;
+  private final long timeoutMs;
+
+  private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "receipt-tracker");
+    t.setDaemon(true);
+    return t;
+  });
+  private boolean polling; // guarded by this
+  private long lastPolledBlock = -1; // poller thread only
+
+  private record Pending(CompletableFuture<TransactionReceipt> future, long deadlineMs, boolean fresh) {}
+
+  public ReceiptTrackerService(Web3j web3j, BlockchainProperties props) {
+    this.web3j = web3j;
+    BlockchainProperties.Receipts r = props.receipts();
+    this.pollIntervalMs = r != null && r.pollIntervalMs() > 0 ? r.pollIntervalMs() : 500;
+    this.timeoutMs = r != null && r.timeoutMs() > 0 ? r.timeoutMs() : 15_000;
+  }
+
+  /** Suit {@code txHash} avec le délai par défaut (blockchain.receipts.timeout-ms). */
+  public CompletableFuture<TransactionReceipt> track(String txHash) {
+    return track(txHash, timeoutMs);
+  }
+
+  /**
+   * @return futur complété avec le reçu, ou en erreur ({@link IllegalStateException}) si la transaction
+   *     n'est pas minée dans le délai
+   */
+  public CompletableFuture<TransactionReceipt> track(String txHash, long timeoutMs) {
+    if (txHash == null || txHash.isBlank()) {
+      return CompletableFuture.failedFuture(new IllegalArgumentException("txHash is required"));
+    }
+    String key = txHash.toLowerCase();
+    Pending p = pending.computeIfAbsent(key,
+        k -> new Pending(new CompletableFuture<>(), System.currentTimeMillis() + timeoutMs, true));
+    ensurePolling();
+    return p.future();
+  }
+
+  public int pendingCount() {
+    return pending.size();
+  }
+
+  private synchronized void ensurePolling() {
+    if (polling) return;
+    polling = true;
+    poller.schedule(this::poll, pollIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  private void poll() {
+    try {
+      pollOnce();
+    } catch (Exception e) {
+      log.debug("Receipt poll failed: {}", e.getMessage());
+    }
+    synchronized (this) {
+      if (pending.isEmpty()) {
+        polling = false;
+        lastPolledBlock = -1;
+        return;
+      }
+      poller.schedule(this::poll, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void pollOnce() throws IOException {
+    expire();
+    if (pending.isEmpty()) return;
+
+    // Receipts only change with new blocks: skip the batch unless the head moved or a hash was just added.
+    long head = web3j.ethBlockNumber().send().getBlockNumber().longValue();
+    boolean fresh = pending.values().stream().anyMatch(Pending::fresh);
+    if (head == lastPolledBlock && !fresh) return;
+    lastPolledBlock = head;
+
+    List<String> hashes = new ArrayList<>(pending.keySet());
+    for (int start = 0; start < hashes.size(); start += BATCH_SIZE) {
+      List<String> chunk = hashes.subList(start, Math.min(hashes.size(), start + BATCH_SIZE));
+      BatchRequest batch = web3j.newBatch();
+      for (String h : chunk) batch.add(web3j.ethGetTransactionReceipt(h));
+      Map<Long, Response<?>> byId = new HashMap<>();
+      for (Response<?> r : batch.send().getResponses()) byId.put(r.getId(), r);
+
+      for (int i = 0; i < chunk.size(); i++) {
+        String h = chunk.get(i);
+        EthGetTransactionReceipt res = (EthGetTransactionReceipt) byId.get(batch.getRequests().get(i).getId());
+        if (res != null && !res.hasError() && res.getTransactionReceipt().isPresent()) {
+          Pending p = pending.remove(h);
+          if (p != null) p.future().complete(res.getTransactionReceipt().get());
+        } else {
+          pending.computeIfPresent(h, (k, p) -> p.fresh() ? new Pending(p.future(), p.deadlineMs(), false) : p);
+        }
+      }
+    }
+  }
+
+  private void expire() {
+    long now = System.currentTimeMillis();
+    pending.forEach((h, p) -> {
+      if (p.deadlineMs() < now && pending.remove(h, p)) {
+        p.future().completeExceptionally(new IllegalStateException("Tx " + h + " not mined within timeout"));
+      }
+    });
+  }
+
+  @PreDestroy
+  void shutdown() {
+    poller.shutdownNow();
+  }
+}
@@ -0,0 +1,193 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.blockchain.model.RepaymentDueDay;
+import com.fancapital.backend.blockchain.model.RepaymentInstallment;
+import com.fancapital.backend.blockchain.model.RepaymentInstallment.Status;
+import com.fancapital.backend.blockchain.repo.RepaymentDueDayRepository;
+import com.fancapital.backend.blockchain.repo.RepaymentInstallmentRepository;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Calendrier de remboursement matérialisé (Mod AST 2.2 - Calendrier de collecte).
+ * <p>
+ * À l'activation d'une avance, ses échéances sont écrites une fois : une par période de 30 jours, la dernière
+ * à maturité ; capital et intérêts fixes (TIER_INTEREST_RATES, cf. {@code CreditAdvanceActivationService})
+ * répartis à parts égales, le reliquat d'arrondi sur la dernière. Les échéances dues forment une file
+ * ordonnée par prochaine tentative ; l'agrégat par jour ({@link RepaymentDueDay}) est mis à jour dans la même
+ * transaction que les échéances.
+ */
+@Service
+public class RepaymentCalendarService {
+
+  static final long PERIOD_DAYS = 30;
+  private static final int MAX_ERROR_LENGTH = 500;
+
+  private final RepaymentInstallmentRepository installmentRepo;
+  private final RepaymentDueDayRepository dayRepo;
+
+  public RepaymentCalendarService(RepaymentInstallmentRepository installmentRepo, RepaymentDueDayRepository dayRepo) {
+    this.installmentRepo = installmentRepo;
+    this.dayRepo = dayRepo;
+  }
+
+  public static String loanKey(String model, BigInteger loanId) {
+    return model + ":" + loanId;
+  }
+
+  /**
+   * Matérialise le calendrier d'une avance activée (idempotent : rien n'est réécrit si le calendrier existe).
+   *
+   * @param startAt       début de l'avance (activation)
+   * @param totalInterest intérêts fixes de l'avance (TND, échelle 1e8)
+   * @return échéances de l'avance
+   */
+  @Transactional
+  public List<RepaymentInstallment> schedule(String model, CreditReadService.LoanInfo loan, Instant startAt,
+      BigInteger totalInterest) {
+    String key = loanKey(model, loan.loanId());
+    if (installmentRepo.existsByLoanKey(key)) return installmentRepo.findByLoanKeyOrderBySeqAsc(key);
+
+    long durationDays = Math.max(1, loan.durationDays());
+    int count = (int) Math.max(1, durationDays / PERIOD_DAYS);
+    BigInteger n = BigInteger.valueOf(count);
+    BigInteger principal = loan.principalTnd();
+    BigInteger interest = totalInterest != null ? totalInterest : BigInteger.ZERO;
+    BigInteger principalShare = principal.divide(n);
+    BigInteger interestShare = interest.divide(n);
+
+    List<RepaymentInstallment> items = new ArrayList<>(count);
+    for (int i = 1; i <= count; i++) {
+      boolean last = i == count;
+      Instant dueAt = startAt.plus(Duration.ofDays(last ? durationDays : i * PERIOD_DAYS));
+      RepaymentInstallment item = new RepaymentInstallment(key, loan.loanId().longValueExact(),
+          loan.user().toLowerCase(), i, count, dueAt, LocalDate.ofInstant(dueAt, ZoneId.systemDefault()));
+      BigInteger p = last ? principal.subtract(principalShare.multiply(n.subtract(BigInteger.ONE))) : principalShare;
+      BigInteger in = last ? interest.subtract(interestShare.multiply(n.subtract(BigInteger.ONE))) : interestShare;
+      item.setPrincipalTnd1e8(p.toString());
+      item.setInterestTnd1e8(in.toString());
+      item.setAmountTnd1e8(p.add(in).toString());
+      items.add(item);
+    }
+    installmentRepo.saveAll(items);
+
+    Map<LocalDate, long[]> byDay = new TreeMap<>();
+    for (RepaymentInstallment item : items) {
+      long[] agg = byDay.computeIfAbsent(item.getDueDate(), d -> new long[2]);
+      agg[0] += new BigInteger(item.getAmountTnd1e8()).longValueExact();
+      agg[1]++;
+    }
+    Instant now = Instant.now();
+    byDay.forEach((day, agg) -> {
+      if (!dayRepo.existsById(day)) dayRepo.saveAndFlush(new RepaymentDueDay(day));
+      dayRepo.addDue(day, agg[0], (int) agg[1], (int) agg[1], now);
+    });
+    return items;
+  }
+
+  /** File des échéances dues (prochaine tentative échue), plus anciennes d'abord. */
+  public List<RepaymentInstallment> due(Instant now, int limit) {
+    return installmentRepo.findDue(Status.DUE, now, PageRequest.of(0, limit));
+  }
+
+  /** Étape du prélèvement enregistrée avant de poursuivre (BURNING avant l'envoi du burn, BURNED après). */
+  public void markStep(RepaymentInstallment item, Status step, String burnTxHash) {
+    item.setStatus(step);
+    if (burnTxHash != null) item.setBurnTxHash(burnTxHash);
+    item.setUpdatedAt(Instant.now());
+    installmentRepo.save(item);
+  }
+
+  /** Échec ou interruption après le début du burn : plus de reprise automatique, rapprochement opérateur. */
+  public void markReview(RepaymentInstallment item, String error) {
+    item.setStatus(Status.REVIEW);
+    item.setLastError(truncate(error));
+    item.setUpdatedAt(Instant.now());
+    installmentRepo.save(item);
+  }
+
+  /**
+   * Échéances restées en BURNING / BURNED (process arrêté pendant un prélèvement) passées en REVIEW.
+   * À appeler en début de passe : le prélèvement est mono-thread, aucune de ces échéances n'est alors en cours.
+   */
+  public int flagInterrupted() {
+    List<RepaymentInstallment> stuck = installmentRepo.findByStatusInOrderByUpdatedAtAsc(List.of(Status.BURNING, Status.BURNED));
+    for (RepaymentInstallment item : stuck) markReview(item, "Prélèvement interrompu après le début du burn");
+    return stuck.size();
+  }
+
+  /** Échéances à rapprocher par l'opérateur. */
+  public List<RepaymentInstallment> toReview() {
+    return installmentRepo.findByStatusInOrderByUpdatedAtAsc(List.of(Status.REVIEW));
+  }
+
+  /** Échéance soldée : {@code amount} prélevé (0 si l'avance était déjà remboursée). */
+  @Transactional
+  public void markCollected(RepaymentInstallment item, BigInteger amount, String txHash) {
+    Instant now = Instant.now();
+    item.setStatus(Status.COLLECTED);
+    item.setCollectedTnd1e8(amount.toString());
+    item.setTxHash(txHash);
+    item.setLastError(null);
+    item.setAttempts(item.getAttempts() + 1);
+    item.setUpdatedAt(now);
+    installmentRepo.save(item);
+    dayRepo.addCollected(item.getDueDate(), amount.longValueExact(), -1, now);
+  }
+
+  /**
+   * Tentative échouée avant le burn (solde insuffisant, rejet du nœud…) : nouvelle tentative après
+   * {@code retryAfter}, FAILED au-delà de {@code maxAttempts} (l'échéance reste ouverte dans l'agrégat).
+   */
+  @Transactional
+  public void markFailed(RepaymentInstallment item, String error, Duration retryAfter, int maxAttempts) {
+    Instant now = Instant.now();
+    item.setAttempts(item.getAttempts() + 1);
+    item.setLastError(truncate(error));
+    item.setNextAttemptAt(now.plus(retryAfter));
+    item.setStatus(item.getAttempts() >= maxAttempts ? Status.FAILED : Status.DUE);
+    item.setUpdatedAt(now);
+    installmentRepo.save(item);
+  }
+
+  /**
+   * Avance clôturée ou annulée : échéances restantes (DUE / FAILED) annulées et retirées de l'agrégat.
+   *
+   * @return nombre d'échéances annulées
+   */
+  @Transactional
+  public int cancelRemaining(String loanKey, String reason) {
+    List<RepaymentInstallment> open = installmentRepo.findByLoanKeyAndStatusIn(loanKey, List.of(Status.DUE, Status.FAILED));
+    Instant now = Instant.now();
+    for (RepaymentInstallment item : open) {
+      item.setStatus(Status.CANCELLED);
+      item.setLastError(reason);
+      item.setUpdatedAt(now);
+      dayRepo.addDue(item.getDueDate(), -new BigInteger(item.getAmountTnd1e8()).longValueExact(), -1, -1, now);
+    }
+    installmentRepo.saveAll(open);
+    return open.size();
+  }
+
+  public List<RepaymentInstallment> installments(String model, BigInteger loanId) {
+    return installmentRepo.findByLoanKeyOrderBySeqAsc(loanKey(model, loanId));
+  }
+
+  public List<RepaymentDueDay> dueDays(LocalDate from, LocalDate to) {
+    return dayRepo.findRange(from, to);
+  }
+
+  private static String truncate(String error) {
+    return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+  }
+}
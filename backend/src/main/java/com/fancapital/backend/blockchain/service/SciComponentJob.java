@@ -0,0 +1,30 @@
+package com.fancapital.backend.blockchain.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Relit la composante Risk des wallets dont l'avance a changé (une lecture groupée des avances actives par tour).
+ */
+@Component
+public class SciComponentJob {
+
+  private static final Logger log = LoggerFactory.getLogger(SciComponentJob.class);
+
+  private final SciComponentService components;
+
+  public SciComponentJob(SciComponentService components) {
+    this.components = components;
+  }
+
+  @Scheduled(fixedDelayString = "${blockchain.sci.risk-refresh-ms:15000}")
+  public void run() {
+    try {
+      components.refreshRisk();
+    } catch (Exception e) {
+      log.warn("SCI risk refresh skipped: {}", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,380 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.auth.model.AppUser;
+import com.fancapital.backend.auth.repo.AppUserRepository;
+import com.fancapital.backend.blockchain.model.ChainTxEvent;
+import com.fancapital.backend.blockchain.model.PortfolioDtos.PortfolioResponse;
+import com.fancapital.backend.blockchain.model.SciComponents;
+import com.fancapital.backend.blockchain.model.SciTierChange;
+import com.fancapital.backend.blockchain.repo.ChainTxEventRepository;
+import com.fancapital.backend.blockchain.repo.SciComponentsRepository;
+import com.fancapital.backend.blockchain.repo.SciTierChangeRepository;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+/**
+ * Composantes SCI par wallet, en mémoire et persistées ({@link SciComponents}).
+ * <p>
+ * Chaque wallet est construit une fois à partir des sources (snapshots AUM ou portefeuille, KYC, index local
+ * des événements, avance active), puis mis à jour de façon incrémentale :
+ * <ul>
+ *   <li>Behavior : compteur incrémenté par les événements de {@link TxEventIndexerService} (recompté après reorg) ;</li>
+ *   <li>KYC : {@link #onKycLevel} à chaque validation ;</li>
+ *   <li>AUM : {@link #refreshAum()} après le snapshot quotidien ;</li>
+ *   <li>Risk : {@link #onLoanChanged} (activation, remboursement, coupon) relu au reçu, puis {@link #refreshRisk()}
+ *   en une lecture groupée des avances actives ; les changements vus par l'index des avances
+ *   ({@link LoanIndexService}) marquent aussi le wallet.</li>
+ * </ul>
+ * Le calcul du score ({@link SciScoreService}) se limite alors à une lecture de cette table en mémoire.
+ * Le dernier score/tier calculé est mémorisé par wallet ; chaque changement de tier est journalisé
+ * ({@link SciTierChange}).
+ */
+@Service
+public class SciComponentService implements TxEventIndexerService.IndexListener {
+
+  private static final Logger log = LoggerFactory.getLogger(SciComponentService.class);
+
+  private final SciComponentsRepository repo;
+  private final AppUserRepository userRepo;
+  private final ChainTxEventRepository txEvents;
+  private final AumSnapshotService aumSnapshotService;
+  private final BlockchainReadService blockchainRead;
+  private final DebtManager debtManager;
+  private final ReceiptTrackerService receipts;
+  private final SciTierChangeRepository tierChangeRepo;
+
+  private final Map<String, SciComponents> byWallet = new ConcurrentHashMap<>();
+  private final Set<String> riskDirty = ConcurrentHashMap.newKeySet();
+
+  public SciComponentService(SciComponentsRepository repo, AppUserRepository userRepo, ChainTxEventRepository txEvents,
+      AumSnapshotService aumSnapshotService, BlockchainReadService blockchainRead, DebtManager debtManager,
+      ReceiptTrackerService receipts, SciTierChangeRepository tierChangeRepo, TxEventIndexerService txIndexer,
+      LoanIndexService loanIndex) {
+    this.repo = repo;
+    this.userRepo = userRepo;
+    this.txEvents = txEvents;
+    this.aumSnapshotService = aumSnapshotService;
+    this.blockchainRead = blockchainRead;
+    this.debtManager = debtManager;
+    this.receipts = receipts;
+    this.tierChangeRepo = tierChangeRepo;
+    txIndexer.setIndexListener(this);
+    // Loans changed on chain (including outside this service): risk re-read on the next refresh.
+    loanIndex.addLoanListener(wallets -> wallets.forEach(w -> onLoanChanged(w, null)));
+  }
+
+  /**
+   * Composantes du wallet (chargées ou construites au premier accès). Le chargement (base, index, RPC) se fait
+   * hors de la map ; si deux appels chargent le même wallet, le premier inséré est gardé.
+   */
+  public SciComponents components(String walletAddress) {
+    String w = normalize(walletAddress);
+    SciComponents c = byWallet.get(w);
+    if (c != null) return c;
+    SciComponents loaded = load(w);
+    SciComponents raced = byWallet.putIfAbsent(w, loaded);
+    return raced != null ? raced : loaded;
+  }
+
+  /** Niveau KYC validé (appelé après la mise à jour de l'utilisateur). */
+  public void onKycLevel(String walletAddress, int kycLevel) {
+    if (walletAddress == null || walletAddress.isBlank()) return;
+    update(normalize(walletAddress), c -> c.setKycLevel(kycLevel));
+  }
+
+  /**
+   * Opération modifiant l'avance du wallet : le risque est relu une fois la transaction minée
+   * (immédiatement si {@code txHash} est null).
+   */
+  public void onLoanChanged(String walletAddress, String txHash) {
+    if (walletAddress == null || walletAddress.isBlank()) return;
+    String w = normalize(walletAddress);
+    if (txHash == null || txHash.isBlank()) {
+      riskDirty.add(w);
+      return;
+    }
+    receipts.track(txHash).whenComplete((r, e) -> riskDirty.add(w));
+  }
+
+  /** Relit le risque des wallets marqués, en une lecture des avances actives. */
+  public int refreshRisk() {
+    if (riskDirty.isEmpty()) return 0;
+    List<String> wallets = new ArrayList<>(riskDirty);
+    Map<String, CreditReadService.LoanInfo> loans = debtManager.activeLoansByWallet();
+    Map<String, BigInteger> vnis = new HashMap<>();
+    for (String w : wallets) {
+      riskDirty.remove(w);
+      double points = riskPoints(loans.get(w), vnis);
+      update(w, c -> c.setRiskPoints(points));
+    }
+    return wallets.size();
+  }
+
+  /**
+   * Charge en mémoire un lot de wallets par lectures groupées (recalcul global) : lignes persistées et comptes
+   * d'événements en une requête chacune, portefeuilles des nouveaux wallets en une passe
+   * ({@link BlockchainReadService#portfolios}). Le risque de tout le lot est repris de {@code activeLoans}
+   * (réconcilie les clôtures faites hors de ce backend) ; null = risque conservé.
+   */
+  public void preload(List<AppUser> users, Map<String, CreditReadService.LoanInfo> activeLoans) {
+    Map<String, AppUser> byW = new HashMap<>();
+    for (AppUser u : users) {
+      if (u.getWalletAddress() != null && !u.getWalletAddress().isBlank()) byW.put(normalize(u.getWalletAddress()), u);
+    }
+    List<String> missing = byW.keySet().stream().filter(w -> !byWallet.containsKey(w)).toList();
+    if (!missing.isEmpty()) {
+      Map<String, Long> counts = new HashMap<>();
+      for (Object[] row : txEvents.countByWallets(missing)) counts.put((String) row[0], (Long) row[1]);
+      Map<String, SciComponents> stored = new HashMap<>();
+      repo.findAllById(missing).forEach(c -> stored.put(c.getWalletAddress(), c));
+
+      List<SciComponents> created = new ArrayList<>();
+      for (String w : missing) {
+        SciComponents c = stored.get(w);
+        if (c == null) {
+          c = new SciComponents(w);
+          c.setKycLevel(byW.get(w).getKycLevel());
+          BigDecimal avg = aumSnapshotService.getAum90DaysAvgTnd(w);
+          if (avg != null) {
+            c.setAum1e8(avg.toBigInteger().toString());
+            c.setAumFromSnapshots(true);
+          }
+          created.add(c);
+        }
+        c.setTxCount(counts.getOrDefault(w, 0L));
+        byWallet.putIfAbsent(w, c);
+      }
+      if (activeLoans == null) {
+        created.forEach(c -> riskDirty.add(c.getWalletAddress()));
+      }
+    }
+    // AUM not yet backed by snapshots: the live portfolio is re-read on every pass (one bulk read).
+    List<String> needPortfolio = new ArrayList<>();
+    for (String w : byW.keySet()) {
+      SciComponents c = byWallet.get(w);
+      if (c != null && !c.isAumFromSnapshots()) needPortfolio.add(w);
+    }
+    if (!needPortfolio.isEmpty()) {
+      try {
+        List<PortfolioResponse> ports = blockchainRead.portfolios(needPortfolio, null);
+        for (int i = 0; i < needPortfolio.size(); i++) {
+          PortfolioResponse p = ports.get(i);
+          SciComponents c = byWallet.get(needPortfolio.get(i));
+          synchronized (c) {
+            if (!c.isAumFromSnapshots()) c.setAum1e8(portfolio1e8(p));
+          }
+        }
+      } catch (Exception e) {
+        log.debug("SCI bulk portfolio read failed for {} wallets: {}", needPortfolio.size(), e.getMessage());
+      }
+    }
+    if (activeLoans != null) {
+      Map<String, BigInteger> vnis = new HashMap<>();
+      for (String w : byW.keySet()) {
+        SciComponents c = byWallet.get(w);
+        if (c != null) c.setRiskPoints(riskPoints(activeLoans.get(w), vnis));
+      }
+    }
+  }
+
+  /**
+   * Enregistre les scores calculés : met à jour score/tier mémorisés et journalise les changements de tier.
+   *
+   * @return résultats dont le score ou le tier a changé (à pousser vers InvestorRegistry)
+   */
+  public List<SciScoreService.SciScoreResult> recordScores(List<SciScoreService.SciScoreResult> results,
+      String source) {
+    List<SciScoreService.SciScoreResult> changed = new ArrayList<>();
+    List<SciComponents> toSave = new ArrayList<>();
+    List<SciTierChange> tierChanges = new ArrayList<>();
+    Instant now = Instant.now();
+    for (SciScoreService.SciScoreResult r : results) {
+      SciComponents c = components(r.walletAddress());
+      synchronized (c) {
+        int oldTier = c.getLastTier();
+        int oldScore = c.getLastScore();
+        if (oldTier != r.effectiveTier() && oldTier >= 0) {
+          tierChanges.add(new SciTierChange(c.getWalletAddress(), oldTier, r.effectiveTier(), oldScore, r.score(), source));
+        }
+        if (oldScore != r.score() || oldTier != r.effectiveTier()) changed.add(r);
+        c.setLastScore(r.score());
+        c.setLastTier(r.effectiveTier());
+        c.setUpdatedAt(now);
+      }
+      toSave.add(c);
+    }
+    repo.saveAll(toSave);
+    if (!tierChanges.isEmpty()) {
+      // One writer at a time: seq values become visible in insertion order, so a reader's cursor never skips one.
+      synchronized (tierChangeRepo) {
+        tierChangeRepo.saveAll(tierChanges);
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Recalcule l'AUM_90j des wallets connus après le snapshot quotidien ; un wallet encore sans snapshots garde
+   * l'AUM de son portefeuille courant, relu ici.
+   */
+  public void refreshAum() {
+    for (SciComponents stored : repo.findAll()) {
+      String w = stored.getWalletAddress();
+      BigDecimal avg = aumSnapshotService.getAum90DaysAvgTnd(w);
+      if (avg == null) {
+        if (!stored.isAumFromSnapshots()) {
+          String live = currentPortfolio1e8(w);
+          update(w, c -> {
+            if (!c.isAumFromSnapshots()) c.setAum1e8(live);
+          });
+        }
+        continue;
+      }
+      String aum1e8 = avg.toBigInteger().toString();
+      update(w, c -> {
+        c.setAum1e8(aum1e8);
+        c.setAumFromSnapshots(true);
+      });
+    }
+  }
+
+  /** Flux des changements de tier dans l'ordre d'insertion, strictement après la séquence {@code afterSeq}. */
+  public List<SciTierChange> tierChangesAfter(long afterSeq, int limit) {
+    return tierChangeRepo.findAfter(afterSeq, PageRequest.of(0, Math.max(1, Math.min(limit, 1000))));
+  }
+
+  @Override
+  public void onIndexed(List<ChainTxEvent> events) {
+    Map<String, Long> counts = new HashMap<>();
+    for (ChainTxEvent e : events) counts.merge(e.getWalletAddress(), 1L, Long::sum);
+    // Only wallets already in memory: the others are recounted from the index when loaded.
+    counts.forEach((w, n) -> {
+      SciComponents c = byWallet.get(w);
+      if (c == null) return;
+      synchronized (c) {
+        c.setTxCount(c.getTxCount() + n);
+        c.setUpdatedAt(Instant.now());
+        repo.save(c);
+      }
+    });
+  }
+
+  @Override
+  public void onRolledBack(long ancestorBlock) {
+    for (Map.Entry<String, SciComponents> e : byWallet.entrySet()) {
+      long count = txEvents.countByWalletAddress(e.getKey());
+      SciComponents c = e.getValue();
+      synchronized (c) {
+        c.setTxCount(count);
+        repo.save(c);
+      }
+    }
+  }
+
+  /**
+   * Risk (15%) : LTV = Dette / Valeur collatéral à la VNI courante (Spécifications Financières v4.7).
+   * Pas d'avance active → 100 pts ; LTV ≥ 75 % → 50 (appel de marge) ; LTV ≥ 85 % → 0 (liquidation).
+   * VNI lue une fois par fonds et par passe ({@code vnis}) ; VNI de départ si l'oracle est illisible.
+   */
+  private double riskPoints(CreditReadService.LoanInfo loan, Map<String, BigInteger> vnis) {
+    if (loan == null) return 100.0;
+    BigInteger vni = vnis.computeIfAbsent(normalize(loan.token()), this::currentVni);
+    return riskPoints(loan, vni != null ? vni : loan.vniAtStart());
+  }
+
+  static double riskPoints(CreditReadService.LoanInfo loan, BigInteger vni1e8) {
+    if (loan == null) return 100.0;
+    long ltvBps = LtvMonitorService.ltvBps(loan, vni1e8);
+    if (ltvBps < 0) return 100.0;
+    return switch (LtvMonitorService.zone(ltvBps)) {
+      case LIQUIDATION -> 0.0;
+      case MARGIN_CALL -> 50.0;
+      case SAFE -> 100.0;
+    };
+  }
+
+  private BigInteger currentVni(String token) {
+    try {
+      BigInteger v = new BigInteger(blockchainRead.getVni(token).vni());
+      return v.signum() > 0 ? v : null;
+    } catch (Exception e) {
+      log.debug("SCI VNI read failed for {}: {}", token, e.getMessage());
+      return null;
+    }
+  }
+
+  /** Modifie et enregistre le wallet sous son propre verrou, jamais sous celui de la map. */
+  private void update(String wallet, Consumer<SciComponents> change) {
+    SciComponents cached = byWallet.get(wallet);
+    if (cached != null) {
+      synchronized (cached) {
+        change.accept(cached);
+        cached.setUpdatedAt(Instant.now());
+        repo.save(cached);
+      }
+      return;
+    }
+    repo.findById(wallet).ifPresent(c -> {
+      change.accept(c);
+      c.setUpdatedAt(Instant.now());
+      repo.save(c);
+    });
+  }
+
+  private SciComponents load(String wallet) {
+    SciComponents c = repo.findById(wallet).orElse(null);
+    if (c != null) {
+      // Local count query: events indexed while this wallet was not in memory.
+      c.setTxCount(txEvents.countByWalletAddress(wallet));
+      return c;
+    }
+    c = new SciComponents(wallet);
+    c.setKycLevel(userRepo.findByWalletAddressIgnoreCase(wallet).map(AppUser::getKycLevel).orElse(0));
+    c.setTxCount(txEvents.countByWalletAddress(wallet));
+    BigDecimal avg = aumSnapshotService.getAum90DaysAvgTnd(wallet);
+    if (avg != null) {
+      c.setAum1e8(avg.toBigInteger().toString());
+      c.setAumFromSnapshots(true);
+    } else {
+      c.setAum1e8(currentPortfolio1e8(wallet));
+    }
+    try {
+      c.setRiskPoints(riskPoints(debtManager.getActiveLoanForUser(wallet), new HashMap<>()));
+    } catch (Exception e) {
+      log.debug("SCI risk read failed for {}: {}", wallet, e.getMessage());
+      riskDirty.add(wallet);
+    }
+    c.setUpdatedAt(Instant.now());
+    return repo.save(c);
+  }
+
+  private String currentPortfolio1e8(String wallet) {
+    try {
+      return portfolio1e8(blockchainRead.portfolio(wallet));
+    } catch (Exception e) {
+      log.debug("SCI portfolio read failed for {}: {}", wallet, e.getMessage());
+      return "0";
+    }
+  }
+
+  private static String portfolio1e8(PortfolioResponse p) {
+    return new BigDecimal(p.totalValueTnd()).add(new BigDecimal(p.cashBalanceTnd())).toBigInteger().toString();
+  }
+
+  private static String normalize(String walletAddress) {
+    return walletAddress.trim().toLowerCase(Locale.ROOT);
+  }
+}
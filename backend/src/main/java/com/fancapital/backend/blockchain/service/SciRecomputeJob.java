@@ -0,0 +1,32 @@
+package com.fancapital.backend.blockchain.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recalcul SCI global quotidien, après le snapshot AUM (blockchain.sci.recompute-cron).
+ */
+@Component
+public class SciRecomputeJob {
+
+  private static final Logger log = LoggerFactory.getLogger(SciRecomputeJob.class);
+
+  private final SciRecomputeService recompute;
+
+  public SciRecomputeJob(SciRecomputeService recompute) {
+    this.recompute = recompute;
+  }
+
+  @Scheduled(cron = "${blockchain.sci.recompute-cron:0 30 1 * * ?}")
+  public void run() {
+    try {
+      var r = recompute.recomputeAll();
+      log.info("SCI recompute: {} wallets, {} computed, {} changed, {} deferred in {} ms",
+          r.wallets(), r.computed(), r.changed(), r.skipped(), r.elapsedMs());
+    } catch (Exception e) {
+      log.warn("SCI recompute skipped: {}", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.auth.model.AppUser;
+import com.fancapital.backend.auth.repo.AppUserRepository;
+import com.fancapital.backend.config.BlockchainProperties;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Recalcul global du SCI (nocturne) : les tiers suivent le glissement de la fenêtre AUM_90j même sans trade.
+ * <p>
+ * Les wallets sont traités par lots sur un pool borné (blockchain.sci.recompute-parallelism) ; chaque lot est
+ * chargé par lectures groupées ({@link SciComponentService#preload}), les avances actives sont lues une seule
+ * fois pour tout le passage. Seuls les wallets dont le score ou le tier change sont soumis à
+ * {@link InvestorRegistrySyncService}, qui les envoie groupés (setInvestors). Les changements de tier sont
+ * journalisés au passage. Les lots non commencés à la fin de la fenêtre (recompute-max-ms) sont abandonnés.
+ */
+@Service
+public class SciRecomputeService {
+
+  private static final Logger log = LoggerFactory.getLogger(SciRecomputeService.class);
+
+  public record RecomputeResult(int wallets, int computed, int changed, int skipped, long elapsedMs) {}
+
+  private final AppUserRepository userRepo;
+  private final SciComponentService components;
+  private final SciScoreService sciScore;
+  private final InvestorRegistrySyncService registrySync;
+  private final DebtManager debtManager;
+  private final int parallelism;
+  private final int chunkSize;
+  private final long maxMs;
+
+  public SciRecomputeService(AppUserRepository userRepo, SciComponentService components, SciScoreService sciScore,
+      InvestorRegistrySyncService registrySync, DebtManager debtManager, BlockchainProperties props) {
+    this.userRepo = userRepo;
+    this.components = components;
+    this.sciScore = sciScore;
+    this.registrySync = registrySync;
+    this.debtManager = debtManager;
+    BlockchainProperties.Sci s = props.sci();
+    this.parallelism = s != null && s.recomputeParallelism() > 0 ? s.recomputeParallelism() : 8;
+    this.chunkSize = s != null && s.recomputeChunkSize() > 0 ? s.recomputeChunkSize() : 500;
+    this.maxMs = s != null && s.recomputeMaxMs() > 0 ? s.recomputeMaxMs() : 30 * 60 * 1000L;
+  }
+
+  public synchronized RecomputeResult recomputeAll() {
+    long started = System.currentTimeMillis();
+    long deadline = started + maxMs;
+    List<AppUser> users = userRepo.findAll().stream()
+        .filter(u -> u.getWalletAddress() != null && !u.getWalletAddress().isBlank())
+        .toList();
+
+    Map<String, CreditReadService.LoanInfo> loans;
+    try {
+      loans = debtManager.activeLoansByWallet();
+    } catch (Exception e) {
+      log.warn("SCI recompute: active loans unavailable, keeping current risk: {}", e.getMessage());
+      loans = null;
+    }
+    Map<String, CreditReadService.LoanInfo> activeLoans = loans;
+
+    AtomicInteger computed = new AtomicInteger();
+    AtomicInteger changed = new AtomicInteger();
+    AtomicInteger skipped = new AtomicInteger();
+    AtomicInteger threadNo = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(parallelism, r -> {
+      Thread t = new Thread(r, "sci-recompute-" + threadNo.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int start = 0; start < users.size(); start += chunkSize) {
+        List<AppUser> chunk = users.subList(start, Math.min(users.size(), start + chunkSize));
+        futures.add(pool.submit(() -> {
+          if (System.currentTimeMillis() > deadline) {
+            skipped.addAndGet(chunk.size());
+            return;
+          }
+          int c = recomputeChunk(chunk, activeLoans);
+          computed.addAndGet(chunk.size());
+          changed.addAndGet(c);
+        }));
+      }
+      for (Future<?> f : futures) {
+        try {
+          f.get();
+        } catch (ExecutionException e) {
+          log.warn("SCI recompute chunk failed: {}", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      pool.shutdownNow();
+    }
+
+    RecomputeResult r = new RecomputeResult(users.size(), computed.get(), changed.get(), skipped.get(),
+        System.currentTimeMillis() - started);
+    if (r.skipped() > 0) {
+      log.warn("SCI recompute window exceeded: {} of {} wallets deferred", r.skipped(), r.wallets());
+    }
+    return r;
+  }
+
+  /** @return nombre de wallets dont le score ou le tier a changé (soumis à InvestorRegistry) */
+  private int recomputeChunk(List<AppUser> chunk, Map<String, CreditReadService.LoanInfo> activeLoans) {
+    components.preload(chunk, activeLoans);
+    List<SciScoreService.SciScoreResult> results = new ArrayList<>(chunk.size());
+    for (AppUser u : chunk) results.add(sciScore.computeScore(u.getWalletAddress()));
+    List<SciScoreService.SciScoreResult> changed = components.recordScores(results, "NIGHTLY");
+    if (changed.isEmpty()) return 0;
+
+    Map<String, Boolean> premiumByWallet = new HashMap<>();
+    for (AppUser u : chunk) premiumByWallet.put(u.getWalletAddress(), u.isPremium());
+    for (SciScoreService.SciScoreResult r : changed) {
+      registrySync.submit(r.walletAddress(),
+          new InvestorRegistrySyncService.Target(r.score(), r.effectiveTier(), premiumByWallet.get(r.walletAddress())));
+    }
+    return changed.size();
+  }
+}
@@ -2,41 +2,46 @@ package com.fancapital.backend.blockchain.service;
 
 import com.fancapital.backend.auth.model.AppUser;
 import com.fancapital.backend.auth.repo.AppUserRepository;
+import java.util.List;
 import org.springframework.stereotype.Service;
 
 /**
  * Pousse le score SCI et le tier effectif (feeLevel) vers InvestorRegistry on-chain.
  * Conformité LBA/FT: feeLevel = min(tier_score, tier_kyc).
+ * L'envoi passe par {@link InvestorRegistrySyncService} : seuls les champs modifiés partent, groupés par lots.
  */
 @Service
 public class SciScorePushService {
 
   private final SciScoreService sciScore;
-  private final InvestorRegistryWriteService registryWrite;
+  private final InvestorRegistrySyncService registrySync;
   private final AppUserRepository userRepo;
+  private final SciComponentService components;
 
   public SciScorePushService(
       SciScoreService sciScore,
-      InvestorRegistryWriteService registryWrite,
-      AppUserRepository userRepo
+      InvestorRegistrySyncService registrySync,
+      AppUserRepository userRepo,
+      SciComponentService components
   ) {
     this.sciScore = sciScore;
-    this.registryWrite = registryWrite;
+    this.registrySync = registrySync;
     this.userRepo = userRepo;
+    this.components = components;
   }
 
   /**
-   * Recalcule le SCI, détermine le tier effectif (loi du minimum) et pousse vers la blockchain.
+   * Recalcule le SCI, détermine le tier effectif (loi du minimum) et planifie la mise à jour on-chain.
+   * {@code pushed} = false si InvestorRegistry porte déjà ces valeurs.
    */
   public SciPushResult pushForWallet(String walletAddress) {
     var result = sciScore.computeScore(walletAddress);
-
-    registryWrite.setScore(walletAddress, result.score());
-    registryWrite.setFeeLevel(walletAddress, result.effectiveTier());
+    components.recordScores(List.of(result), "PUSH");
 
     // Sync premium (AppUser.premium) → subscriptionActive on-chain (Mod AST 5)
-    userRepo.findByWalletAddressIgnoreCase(walletAddress)
-        .ifPresent(u -> registryWrite.setSubscriptionActive(walletAddress, u.isPremium()));
+    Boolean premium = userRepo.findByWalletAddressIgnoreCase(walletAddress).map(AppUser::isPremium).orElse(null);
+    boolean pushed = registrySync.submit(walletAddress,
+        new InvestorRegistrySyncService.Target(result.score(), result.effectiveTier(), premium));
 
     return new SciPushResult(
         result.walletAddress(),
@@ -44,7 +49,7 @@ public class SciScorePushService {
         result.tierFromScore(),
         result.effectiveTier(),
         result.kycTierCap(),
-        true
+        pushed
     );
   }
 
@@ -2,9 +2,8 @@ package com.fancapital.backend.blockchain.service;
 
 import com.fancapital.backend.auth.model.AppUser;
 import com.fancapital.backend.auth.repo.AppUserRepository;
-import com.fancapital.backend.blockchain.model.PortfolioDtos.PortfolioResponse;
+import com.fancapital.backend.blockchain.model.SciComponents;
 import java.math.BigDecimal;
-import java.math.BigInteger;
 import java.math.RoundingMode;
 import org.springframework.stereotype.Service;
 
@@ -38,42 +37,40 @@ public class SciScoreService {
   /** Nombre de tx pour Behavior max (100 pts). */
   private static final int BEHAVIOR_TX_THRESHOLD = 50;
 
-  private final BlockchainReadService blockchainRead;
+  private final SciComponentService components;
   private final AppUserRepository userRepo;
-  private final DebtManager debtManager;
-  private final AumSnapshotService aumSnapshotService;
 
-  public SciScoreService(BlockchainReadService blockchainRead, AppUserRepository userRepo, DebtManager debtManager,
-      AumSnapshotService aumSnapshotService) {
-    this.blockchainRead = blockchainRead;
+  public SciScoreService(SciComponentService components, AppUserRepository userRepo) {
+    this.components = components;
     this.userRepo = userRepo;
-    this.debtManager = debtManager;
-    this.aumSnapshotService = aumSnapshotService;
   }
 
   /**
-   * Calcule le score SCI brut (0-100) pour une adresse wallet.
+   * Calcule le score SCI brut (0-100) pour une adresse wallet, à partir des composantes matérialisées
+   * ({@link SciComponentService}) : aucune lecture chaîne ni base une fois le wallet chargé.
    */
   public SciScoreResult computeScore(String walletAddress) {
-    // AUM (50%) - utilisation du portefeuille actuel comme proxy AUM_90j jusqu'à historique disponible
-    double aumPoints = computeAumPoints(walletAddress);
+    SciComponents c = components.components(walletAddress);
+
+    // AUM (50%) - moyenne 90j, ou portefeuille actuel comme proxy jusqu'à historique disponible
+    double aumPoints = aumPoints(new BigDecimal(c.getAum1e8()));
 
     // KYC Depth (20%)
-    double kycPoints = computeKycPoints(walletAddress);
+    double kycPoints = c.getKycLevel() >= 2 ? KYC_DEPTH_L2 : (c.getKycLevel() >= 1 ? KYC_DEPTH_L1 : 0);
 
-    // Behavior (15%) - récurrence via historique de transactions
-    double behaviorPoints = computeBehaviorPoints(walletAddress);
+    // Behavior (15%) - récurrence via l'index local des transactions
+    double behaviorPoints = Math.min(1.0, (double) c.getTxCount() / BEHAVIOR_TX_THRESHOLD) * 100;
 
-    // Risk (15%) - ratio d'endettement AST (placeholder 100 si pas d'AST)
-    double riskPoints = computeRiskPoints(walletAddress);
+    // Risk (15%) - ratio d'endettement AST (100 si pas d'AST)
+    double riskPoints = c.getRiskPoints();
 
     double sciRaw = (aumPoints * WEIGHT_AUM) + (kycPoints * WEIGHT_KYC)
         + (behaviorPoints * WEIGHT_BEHAVIOR) + (riskPoints * WEIGHT_RISK);
 
     int score = (int) Math.round(Math.min(100, Math.max(0, sciRaw)));
     int tierScore = tierFromScore(score);
-    int kycCap = kycTierCapFromWallet(walletAddress);
-    int effective = effectiveTier(score, userRepo.findByWalletAddressIgnoreCase(walletAddress).map(AppUser::getKycLevel).orElse(0));
+    int kycCap = kycTierCapForLevel(c.getKycLevel());
+    int effective = effectiveTier(score, c.getKycLevel());
 
     return new SciScoreResult(
         walletAddress,
@@ -89,51 +86,14 @@ public class SciScoreService {
   }
 
   /**
-   * AUM (50%): Inertie sur 90 jours (Spécifications Financières v4.7).
-   * Si historique disponible → moyenne AUM_90j ; sinon → portefeuille actuel comme proxy.
+   * AUM (50%): Inertie sur 90 jours (Spécifications Financières v4.7), normalisée sur 1M TND.
    */
-  private double computeAumPoints(String walletAddress) {
-    BigDecimal aum1e8 = aumSnapshotService.getAum90DaysAvgTnd(walletAddress);
-    if (aum1e8 == null) {
-      PortfolioResponse port = blockchainRead.portfolio(walletAddress);
-      BigDecimal total = new BigDecimal(port.totalValueTnd()).add(new BigDecimal(port.cashBalanceTnd()));
-      aum1e8 = total;
-    }
+  private static double aumPoints(BigDecimal aum1e8) {
     BigDecimal aumTnd = aum1e8.divide(BigDecimal.valueOf(100_000_000), 8, RoundingMode.HALF_UP);
     BigDecimal ratio = aumTnd.min(AUM_NORMALIZATION_TND).divide(AUM_NORMALIZATION_TND, 8, RoundingMode.HALF_UP);
     return ratio.doubleValue() * 100;
   }
 
-  private double computeKycPoints(String walletAddress) {
-    return userRepo.findByWalletAddressIgnoreCase(walletAddress)
-        .map(u -> u.getKycLevel() >= 2 ? KYC_DEPTH_L2 : (u.getKycLevel() >= 1 ? KYC_DEPTH_L1 : 0))
-        .orElse(0);
-  }
-
-  private double computeBehaviorPoints(String walletAddress) {
-    var txHistory = blockchainRead.txHistory(walletAddress, 500);
-    int count = txHistory.items() != null ? txHistory.items().size() : 0;
-    double ratio = Math.min(1.0, (double) count / BEHAVIOR_TX_THRESHOLD);
-    return ratio * 100;
-  }
-
-  /**
-   * Risk (15%): Surveillance ratio d'endettement AST (Spécifications Financières v4.7).
-   * LTV = Dette / Valeur collatéral. Si pas d'avance active → 100 pts (sans risque).
-   */
-  private double computeRiskPoints(String walletAddress) {
-    var loan = debtManager.getActiveLoanForUser(walletAddress);
-    if (loan == null) return 100.0;
-    BigInteger collateralValueTnd = loan.collateralAmount()
-        .multiply(loan.vniAtStart())
-        .divide(BigInteger.valueOf(100_000_000));
-    if (collateralValueTnd.signum() <= 0) return 100.0;
-    double ltv = loan.principalTnd().doubleValue() / collateralValueTnd.doubleValue() * 100;
-    if (ltv >= 85) return 0.0;   // Liquidation
-    if (ltv >= 75) return 50.0;  // Margin Call
-    return 100.0;                // Sécurisé
-  }
-
   /** Tiers SCI v4.5: BRONZE 0-15, SILVER 16-35, GOLD 36-55, PLATINUM 56-84, DIAMOND 85+ */
   public static int tierFromScore(int score) {
     if (score <= 15) return 0; // BRONZE
@@ -154,8 +114,12 @@ public class SciScoreService {
   }
 
   public int kycTierCap(AppUser user) {
-    if (user == null || user.getKycLevel() < 1) return 0; // BRONZE
-    if (user.getKycLevel() < 2) return 1; // KYC1 → Silver max (Gold+ nécessite KYC2)
+    return user == null ? 0 : kycTierCapForLevel(user.getKycLevel());
+  }
+
+  private static int kycTierCapForLevel(int kycLevel) {
+    if (kycLevel < 1) return 0; // BRONZE
+    if (kycLevel < 2) return 1; // KYC1 → Silver max (Gold+ nécessite KYC2)
     return 4; // KYC2 → full tier (Diamond)
   }
 
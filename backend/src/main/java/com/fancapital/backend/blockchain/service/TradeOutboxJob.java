@@ -0,0 +1,34 @@
+package com.fancapital.backend.blockchain.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Vide l'outbox post-trade : lots successifs jusqu'à épuisement des événements échus (borné par tour
+ * pour ne pas monopoliser le scheduler).
+ */
+@Component
+public class TradeOutboxJob {
+
+  private static final Logger log = LoggerFactory.getLogger(TradeOutboxJob.class);
+  private static final int MAX_BATCHES_PER_RUN = 20;
+
+  private final TradeOutboxService outbox;
+
+  public TradeOutboxJob(TradeOutboxService outbox) {
+    this.outbox = outbox;
+  }
+
+  @Scheduled(fixedDelayString = "${blockchain.outbox.interval-ms:1000}")
+  public void run() {
+    try {
+      for (int i = 0; i < MAX_BATCHES_PER_RUN && outbox.drainOnce() > 0; i++) {
+        // keep draining while there is due work
+      }
+    } catch (Exception e) {
+      log.warn("Trade outbox drain skipped: {}", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,285 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.auth.model.Notification;
+import com.fancapital.backend.auth.model.Notification.Priority;
+import com.fancapital.backend.auth.repo.AppUserRepository;
+import com.fancapital.backend.auth.service.NotificationService;
+import com.fancapital.backend.backoffice.audit.service.BusinessContextService;
+import com.fancapital.backend.blockchain.model.TradeOutboxEvent;
+import com.fancapital.backend.blockchain.model.TradeOutboxEvent.Kind;
+import com.fancapital.backend.blockchain.model.TradeOutboxEvent.Status;
+import com.fancapital.backend.blockchain.repo.TradeOutboxRepository;
+import com.fancapital.backend.config.BlockchainProperties;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+/**
+ * Outbox des effets de bord post-trade (buyFor, sellFor, settle P2P, fallback d'ordre).
+ * <p>
+ * Le chemin du trade écrit seulement des lignes {@link TradeOutboxEvent} (un saveAll) : enregistrement du
+ * BusinessContextId (Livre Blanc v2.1 - Section 4.2), notification utilisateur, push du score SCI.
+ * {@link #sendWithEffects} les écrit AVANT l'envoi de la transaction (PENDING_TX) puis y rattache le hash :
+ * si l'écriture échoue rien n'est envoyé, si le rattachement échoue il est repris par {@link #drainOnce()}.
+ * {@link #drainOnce()} les exécute par lots : pushs SCI regroupés par wallet, reprises avec backoff
+ * exponentiel, passage en FAILED après blockchain.outbox.max-attempts échecs. Aucun effet n'est perdu si
+ * le processus s'arrête entre le trade et son exécution.
+ */
+@Service
+public class TradeOutboxService {
+
+  private static final Logger log = LoggerFactory.getLogger(TradeOutboxService.class);
+  private static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+
+  private final TradeOutboxRepository repo;
+  private final BusinessContextService businessContextService;
+  private final AppUserRepository userRepo;
+  private final NotificationService notificationService;
+  private final SciScorePushService sciPush;
+  private final int batchSize;
+  private final int maxAttempts;
+  /** Lots envoyés dont le rattachement du hash a échoué : batchId → txHash. */
+  private final Map<String, String> unattached = new ConcurrentHashMap<>();
+
+  public TradeOutboxService(
+      TradeOutboxRepository repo,
+      BusinessContextService businessContextService,
+      AppUserRepository userRepo,
+      NotificationService notificationService,
+      SciScorePushService sciPush,
+      BlockchainProperties props
+  ) {
+    this.repo = repo;
+    this.businessContextService = businessContextService;
+    this.userRepo = userRepo;
+    this.notificationService = notificationService;
+    this.sciPush = sciPush;
+    BlockchainProperties.Outbox o = props.outbox();
+    this.batchSize = o != null && o.batchSize() > 0 ? o.batchSize() : 100;
+    this.maxAttempts = o != null && o.maxAttempts() > 0 ? o.maxAttempts() : 8;
+  }
+
+  /** Effets d'un trade à écrire ensemble (une seule écriture dans le chemin de la requête). */
+  public static final class Batch {
+    private final List<TradeOutboxEvent> events = new ArrayList<>();
+
+    /** Mapping transaction → BusinessContextId ({@code prefix}-xxxxxxxx, généré maintenant ; hash rattaché après l'envoi). */
+    public Batch businessContext(String businessContextId, String contractAddress, String operationType,
+        String description) {
+      TradeOutboxEvent e = new TradeOutboxEvent(Kind.BUSINESS_CONTEXT);
+      e.setBusinessContextId(businessContextId);
+      e.setContractAddress(contractAddress);
+      e.setOperationType(operationType);
+      e.setMessage(truncate(description, 500));
+      events.add(e);
+      return this;
+    }
+
+    /** Notification PRICE/LOW à l'utilisateur propriétaire du wallet (ignorée si aucun utilisateur). */
+    public Batch notification(String walletAddress, String title, String message) {
+      TradeOutboxEvent e = new TradeOutboxEvent(Kind.NOTIFICATION);
+      e.setWalletAddress(normalize(walletAddress));
+      e.setTitle(truncate(title, 200));
+      e.setMessage(truncate(message, 500));
+      events.add(e);
+      return this;
+    }
+
+    /** Recalcul + push du score SCI du wallet. */
+    public Batch sciPush(String walletAddress) {
+      TradeOutboxEvent e = new TradeOutboxEvent(Kind.SCI_PUSH);
+      e.setWalletAddress(normalize(walletAddress));
+      events.add(e);
+      return this;
+    }
+  }
+
+  public Batch batch() {
+    return new Batch();
+  }
+
+  /** Écrit les effets du lot ; ils seront exécutés par le job de l'outbox. */
+  public void enqueue(Batch batch) {
+    if (!batch.events.isEmpty()) repo.saveAll(batch.events);
+  }
+
+  /**
+   * Écrit les effets en PENDING_TX, envoie la transaction, puis rattache son hash (effets exécutables).
+   * Si l'écriture échoue, rien n'est envoyé. Si le nœud rejette l'envoi ou que rien n'est envoyé (null), le
+   * lot est supprimé. Si l'issue de l'envoi est inconnue (erreur RPC), le lot reste en PENDING_TX pour
+   * rapprochement. Un rattachement en échec est repris au prochain passage du job.
+   *
+   * @param send envoi de la transaction : hash, ou null si rien n'a été envoyé
+   * @return hash de la transaction (null si rien n'a été envoyé)
+   */
+  public String sendWithEffects(Batch batch, Supplier<String> send) {
+    if (batch.events.isEmpty()) return send.get();
+    String batchId = UUID.randomUUID().toString();
+    for (TradeOutboxEvent e : batch.events) {
+      e.setBatchId(batchId);
+      e.setStatus(Status.PENDING_TX);
+    }
+    repo.saveAll(batch.events);
+
+    String txHash;
+    try {
+      txHash = send.get();
+    } catch (RuntimeException e) {
+      if (outcomeUnknown(e)) {
+        log.warn("Outbox batch {} kept in PENDING_TX: send outcome unknown ({})", batchId, e.getMessage());
+      } else {
+        discard(batchId);
+      }
+      throw e;
+    }
+    if (txHash == null || txHash.isBlank()) {
+      discard(batchId);
+      return txHash;
+    }
+    attach(batchId, txHash);
+    return txHash;
+  }
+
+  /** Raccourci : push SCI seul. */
+  public void enqueueSciPush(String walletAddress) {
+    enqueue(batch().sciPush(walletAddress));
+  }
+
+  /**
+   * Exécute un lot d'événements échus.
+   *
+   * @return nombre d'événements traités (réussis ou replanifiés)
+   */
+  public int drainOnce() {
+    retryAttach();
+    Instant now = Instant.now();
+    List<TradeOutboxEvent> due = repo.findDue(Status.PENDING, now, PageRequest.of(0, batchSize));
+    if (due.isEmpty()) return 0;
+
+    List<TradeOutboxEvent> done = new ArrayList<>();
+    List<TradeOutboxEvent> retry = new ArrayList<>();
+    Map<String, List<TradeOutboxEvent>> sciByWallet = new LinkedHashMap<>();
+
+    for (TradeOutboxEvent e : due) {
+      if (e.getKind() == Kind.SCI_PUSH) {
+        sciByWallet.computeIfAbsent(e.getWalletAddress(), w -> new ArrayList<>()).add(e);
+        continue;
+      }
+      try {
+        if (e.getKind() == Kind.BUSINESS_CONTEXT) registerBusinessContext(e);
+        else notify(e);
+        done.add(e);
+      } catch (Exception ex) {
+        retry.add(failed(e, ex, now));
+      }
+    }
+
+    // Several trades of the same wallet in one batch need a single score push.
+    sciByWallet.forEach((wallet, events) -> {
+      try {
+        sciPush.pushForWallet(wallet);
+        done.addAll(events);
+      } catch (Exception ex) {
+        for (TradeOutboxEvent e : events) retry.add(failed(e, ex, now));
+      }
+    });
+
+    if (!done.isEmpty()) repo.deleteAllInBatch(done);
+    if (!retry.isEmpty()) repo.saveAll(retry);
+    return due.size();
+  }
+
+  public long pendingCount() {
+    return repo.countByStatus(Status.PENDING);
+  }
+
+  private void attach(String batchId, String txHash) {
+    try {
+      repo.attachTx(batchId, txHash, Status.PENDING, Instant.now(), Status.PENDING_TX);
+    } catch (RuntimeException e) {
+      // The tx is out: never fail the trade, keep the hash in memory and retry from the job.
+      unattached.put(batchId, txHash);
+      log.warn("Outbox batch {} not attached to tx {} yet, retried by the job: {}", batchId, txHash, e.getMessage());
+    }
+  }
+
+  private void retryAttach() {
+    unattached.forEach((batchId, txHash) -> {
+      try {
+        repo.attachTx(batchId, txHash, Status.PENDING, Instant.now(), Status.PENDING_TX);
+        unattached.remove(batchId, txHash);
+      } catch (RuntimeException e) {
+        log.debug("Outbox batch {} attach retry failed: {}", batchId, e.getMessage());
+      }
+    });
+  }
+
+  private void discard(String batchId) {
+    try {
+      repo.deleteBatch(batchId, Status.PENDING_TX);
+    } catch (RuntimeException e) {
+      log.warn("Outbox batch {} of a tx not sent left in PENDING_TX: {}", batchId, e.getMessage());
+    }
+  }
+
+  /** Erreur RPC (IOException dans la chaîne des causes) : la transaction a pu être diffusée. */
+  private static boolean outcomeUnknown(Throwable e) {
+    for (Throwable c = e; c != null; c = c.getCause()) {
+      if (c instanceof IOException) return true;
+    }
+    return false;
+  }
+
+  private void registerBusinessContext(TradeOutboxEvent e) {
+    // Idempotent on retry: the mapping may have been saved before a later failure.
+    if (businessContextService.findByTransactionHash(e.getTxHash()).isPresent()) return;
+    businessContextService.registerTransaction(
+        e.getTxHash(),
+        e.getBusinessContextId(),
+        e.getContractAddress(),
+        e.getOperationType(),
+        e.getMessage(),
+        null // accountingDocumentId sera ajouté par le backoffice si nécessaire
+    );
+  }
+
+  private void notify(TradeOutboxEvent e) {
+    userRepo.findByWalletAddressIgnoreCase(e.getWalletAddress()).ifPresent(u ->
+        notificationService.create(u.getId(), Notification.Type.PRICE, e.getTitle(), e.getMessage(), Priority.LOW));
+  }
+
+  private TradeOutboxEvent failed(TradeOutboxEvent e, Exception ex, Instant now) {
+    int attempts = e.getAttempts() + 1;
+    e.setAttempts(attempts);
+    e.setLastError(truncate(ex.getMessage(), 500));
+    if (attempts >= maxAttempts) {
+      e.setStatus(Status.FAILED);
+      log.warn("Outbox {} {} failed permanently after {} attempts: {}", e.getKind(), e.getId(), attempts, ex.getMessage());
+    } else {
+      Duration backoff = Duration.ofSeconds(1L << Math.min(attempts, 16));
+      e.setNextAttemptAt(now.plus(backoff.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff));
+      log.debug("Outbox {} {} attempt {} failed: {}", e.getKind(), e.getId(), attempts, ex.getMessage());
+    }
+    return e;
+  }
+
+  private static String normalize(String wallet) {
+    return wallet == null ? null : wallet.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static String truncate(String s, int max) {
+    return s == null || s.length() <= max ? s : s.substring(0, max);
+  }
+}
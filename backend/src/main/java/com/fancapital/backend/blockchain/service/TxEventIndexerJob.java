@@ -0,0 +1,54 @@
+package com.fancapital.backend.blockchain.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Suit la tête de chaîne (contrôle de réorganisation compris) et alimente l'index local de l'historique des transactions
+ * ainsi que le cache d'allowances (événements Approval) et l'index des avances (événements de prêt),
+ * puis complète l'index bloc/horodatage jusqu'au dernier bloc confirmé (par tranches, pour ne pas monopoliser le nœud).
+ * Si le nœud est indisponible, le job log un avertissement et réessaie au prochain tour.
+ */
+@Component
+@ConditionalOnProperty(name = "blockchain.indexer.enabled", havingValue = "true", matchIfMissing = false)
+public class TxEventIndexerJob {
+
+  private static final Logger log = LoggerFactory.getLogger(TxEventIndexerJob.class);
+  private static final int BLOCK_TIME_BACKFILL_PER_RUN = 2_000;
+
+  private final ChainHeadTracker headTracker;
+  private final TxEventIndexerService indexer;
+  private final BlockTimeIndexService blockTimes;
+  private final WalletStateCacheService walletState;
+  private final LoanIndexService loanIndex;
+
+  public TxEventIndexerJob(
+      ChainHeadTracker headTracker,
+      TxEventIndexerService indexer,
+      BlockTimeIndexService blockTimes,
+      WalletStateCacheService walletState,
+      LoanIndexService loanIndex
+  ) {
+    this.headTracker = headTracker;
+    this.indexer = indexer;
+    this.blockTimes = blockTimes;
+    this.walletState = walletState;
+    this.loanIndex = loanIndex;
+  }
+
+  @Scheduled(fixedDelayString = "${blockchain.indexer.interval-ms:5000}")
+  public void run() {
+    try {
+      long head = headTracker.advance();
+      indexer.indexTo(head);
+      walletState.onHead(head);
+      loanIndex.indexTo(head);
+      blockTimes.backfill(headTracker.confirmedBlock(head), BLOCK_TIME_BACKFILL_PER_RUN);
+    } catch (Exception e) {
+      log.warn("Tx history indexer skipped: {}", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,256 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.backoffice.service.DeploymentInfraService;
+import com.fancapital.backend.blockchain.model.ChainIndexerState;
+import com.fancapital.backend.blockchain.model.ChainTxEvent;
+import com.fancapital.backend.blockchain.model.FundDto;
+import com.fancapital.backend.blockchain.repo.ChainIndexerStateRepository;
+import com.fancapital.backend.blockchain.repo.ChainTxEventRepository;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.Log;
+
+/**
+ * Indexeur des événements d'historique utilisateur (Bought, Sold, mint/burn CashTokenTND).
+ * <p>
+ * Suit la chaîne par tranches de blocs depuis le dernier bloc indexé et persiste chaque log avec
+ * l'horodatage de son bloc. L'historique /tx/history est servi depuis cette table (pagination keyset),
+ * donc sa latence ne dépend plus de l'âge de la chaîne.
+ * <p>
+ * L'indexation va jusqu'à la tête validée par {@link ChainHeadTracker} ; en cas de fork, les événements
+ * des blocs abandonnés sont supprimés via {@link #rollbackAfter(long)}.
+ */
+@Service
+public class TxEventIndexerService implements ChainIndexConsumer {
+
+  private static final Logger log = LoggerFactory.getLogger(TxEventIndexerService.class);
+  static final String INDEXER_NAME = "tx-history";
+  private static final long CHUNK = 5_000;
+
+  private final Web3j web3j;
+  private final DeploymentRegistry registry;
+  private final DeploymentInfraService infra;
+  private final ChainTxEventRepository eventRepo;
+  private final ChainIndexerStateRepository stateRepo;
+  private final BlockTimeIndexService blockTimes;
+  private volatile IndexListener listener;
+
+  /** Consommateur des événements persistés (ex. composantes SCI), appelé sous le verrou de l'indexeur. */
+  public interface IndexListener {
+    void onIndexed(List<ChainTxEvent> events);
+
+    void onRolledBack(long ancestorBlock);
+  }
+
+  public TxEventIndexerService(
+      Web3j web3j,
+      DeploymentRegistry registry,
+      DeploymentInfraService infra,
+      ChainTxEventRepository eventRepo,
+      ChainIndexerStateRepository stateRepo,
+      BlockTimeIndexService blockTimes
+  ) {
+    this.web3j = web3j;
+    this.registry = registry;
+    this.infra = infra;
+    this.eventRepo = eventRepo;
+    this.stateRepo = stateRepo;
+    this.blockTimes = blockTimes;
+  }
+
+  public void setIndexListener(IndexListener listener) {
+    this.listener = listener;
+  }
+
+  /** Dernier bloc entièrement indexé (-1 si aucun). */
+  public long lastIndexedBlock() {
+    return stateRepo.findById(INDEXER_NAME).map(ChainIndexerState::getLastIndexedBlock).orElse(-1L);
+  }
+
+  @Override
+  public String indexerName() {
+    return INDEXER_NAME;
+  }
+
+  @Override
+  public synchronized void rollbackAfter(long ancestorBlock) {
+    int removed = eventRepo.deleteAbove(ancestorBlock);
+    stateRepo.findById(INDEXER_NAME).ifPresent(st -> {
+      if (st.getLastIndexedBlock() > ancestorBlock) {
+        st.setLastIndexedBlock(ancestorBlock);
+        st.setUpdatedAt(Instant.now());
+        stateRepo.save(st);
+      }
+    });
+    if (removed > 0) {
+      log.info("Tx history indexer: {} events above block {} removed after reorg", removed, ancestorBlock);
+      IndexListener l = listener;
+      if (l != null) {
+        try {
+          l.onRolledBack(ancestorBlock);
+        } catch (Exception e) {
+          log.warn("Tx index listener rollback failed: {}", e.getMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * Indexe les blocs non encore traités jusqu'à {@code latest} (tête validée par {@link ChainHeadTracker}).
+   *
+   * @return nombre d'événements persistés
+   */
+  public synchronized int indexTo(long latest) {
+    ChainIndexerState st = stateRepo.findById(INDEXER_NAME).orElseGet(() -> new ChainIndexerState(INDEXER_NAME));
+    long from = st.getLastIndexedBlock() + 1;
+    if (from > latest) return 0;
+
+    int stored = 0;
+    for (long start = from; start <= latest; start += CHUNK) {
+      long end = Math.min(latest, start + CHUNK - 1);
+      stored += indexRange(start, end);
+      // Events first, cursor second: a crash in between only re-saves the same ids.
+      st.setLastIndexedBlock(end);
+      st.setUpdatedAt(Instant.now());
+      st = stateRepo.save(st);
+    }
+    if (stored > 0) {
+      log.debug("Tx history indexer: {} events stored up to block {}", stored, latest);
+    }
+    return stored;
+  }
+
+  private int indexRange(long fromBlock, long toBlock) {
+    List<ChainTxEvent> out = new ArrayList<>();
+
+    List<String> pools = registry.listFunds().stream().map(FundDto::pool).distinct().toList();
+    if (!pools.isEmpty()) {
+      out.addAll(poolEvents("BUY", ChainEvents.BOUGHT, ChainEvents.BOUGHT_TOPIC, pools, fromBlock, toBlock));
+      out.addAll(poolEvents("SELL", ChainEvents.SOLD, ChainEvents.SOLD_TOPIC, pools, fromBlock, toBlock));
+    }
+
+    String cashToken = infra.cashTokenAddress();
+    if (cashToken != null && !cashToken.isBlank()) {
+      out.addAll(cashEvents("DEPOSIT", cashToken, ChainEvents.ZERO_TOPIC, null, fromBlock, toBlock));
+      out.addAll(cashEvents("WITHDRAW", cashToken, null, ChainEvents.ZERO_TOPIC, fromBlock, toBlock));
+    }
+
+    if (!out.isEmpty()) {
+      eventRepo.saveAll(out);
+      IndexListener l = listener;
+      if (l != null) {
+        try {
+          l.onIndexed(out);
+        } catch (Exception e) {
+          log.warn("Tx index listener failed for blocks {}-{}: {}", fromBlock, toBlock, e.getMessage());
+        }
+      }
+    }
+    return out.size();
+  }
+
+  private List<ChainTxEvent> poolEvents(String kind, Event ev, String topic0, List<String> pools,
+      long fromBlock, long toBlock) {
+    EthFilter filter = new EthFilter(
+        new DefaultBlockParameterNumber(BigInteger.valueOf(fromBlock)),
+        new DefaultBlockParameterNumber(BigInteger.valueOf(toBlock)),
+        pools
+    );
+    filter.addSingleTopic(topic0);
+
+    List<ChainTxEvent> out = new ArrayList<>();
+    for (Log l : getLogs(filter)) {
+      if (l.getTopics() == null || l.getTopics().size() < 3) continue;
+      String tokenAddr = ChainEvents.topicToAddress(l.getTopics().get(1));
+      String userAddr = ChainEvents.topicToAddress(l.getTopics().get(2));
+      FundDto fund = registry.findByToken(tokenAddr).orElse(null);
+
+      @SuppressWarnings("rawtypes")
+      List<Type> decoded = FunctionReturnDecoder.decode(l.getData(), ev.getNonIndexedParameters());
+      if (decoded.size() < 3) continue;
+      BigInteger a0 = EvmCallService.uint(decoded.get(0));
+      BigInteger priceClient = EvmCallService.uint(decoded.get(1));
+      BigInteger a2 = EvmCallService.uint(decoded.get(2));
+
+      ChainTxEvent e = baseEvent(l, kind, userAddr, tokenAddr);
+      if ("BUY".equals(kind)) {
+        e.setAmountTnd1e8(a0.toString());     // tndIn
+        e.setAmountToken1e8(a2.toString());   // minted
+      } else {
+        e.setAmountTnd1e8(a2.toString());     // tndOut
+        e.setAmountToken1e8(a0.toString());   // tokenAmount
+      }
+      e.setPriceClient1e8(priceClient.toString());
+      e.setFundId(fund != null ? fund.id() : -1);
+      e.setFundName(fund != null ? fund.name() : "Unknown");
+      e.setFundSymbol(fund != null ? fund.symbol() : "");
+      out.add(e);
+    }
+    return out;
+  }
+
+  private List<ChainTxEvent> cashEvents(String kind, String cashToken, String topicFrom, String topicTo,
+      long fromBlock, long toBlock) {
+    EthFilter filter = new EthFilter(
+        new DefaultBlockParameterNumber(BigInteger.valueOf(fromBlock)),
+        new DefaultBlockParameterNumber(BigInteger.valueOf(toBlock)),
+        cashToken
+    );
+    filter.addSingleTopic(ChainEvents.TRANSFER_TOPIC);
+    if (topicFrom != null) filter.addSingleTopic(topicFrom); else filter.addNullTopic();
+    if (topicTo != null) filter.addSingleTopic(topicTo); else filter.addNullTopic();
+
+    List<ChainTxEvent> out = new ArrayList<>();
+    for (Log l : getLogs(filter)) {
+      if (l.getTopics() == null || l.getTopics().size() < 3) continue;
+      // DEPOSIT = mint (from 0x0) → wallet = to ; WITHDRAW = burn (to 0x0) → wallet = from
+      String wallet = ChainEvents.topicToAddress(l.getTopics().get("DEPOSIT".equals(kind) ? 2 : 1));
+
+      @SuppressWarnings("rawtypes")
+      List<Type> decoded = FunctionReturnDecoder.decode(l.getData(), ChainEvents.TRANSFER.getNonIndexedParameters());
+      BigInteger value = decoded.isEmpty() ? BigInteger.ZERO : EvmCallService.uint(decoded.get(0));
+
+      ChainTxEvent e = baseEvent(l, kind, wallet, cashToken);
+      e.setAmountTnd1e8(value.toString());
+      e.setFundId(-1);
+      e.setFundName("Cash");
+      e.setFundSymbol("TND");
+      out.add(e);
+    }
+    return out;
+  }
+
+  private ChainTxEvent baseEvent(Log l, String kind, String wallet, String tokenAddr) {
+    long logIndex = l.getLogIndex() != null ? l.getLogIndex().longValue() : 0L;
+    ChainTxEvent e = new ChainTxEvent();
+    e.setId(ChainTxEvent.buildId(l.getTransactionHash(), logIndex));
+    e.setWalletAddress(wallet.toLowerCase());
+    e.setKind(kind);
+    e.setTokenAddress(tokenAddr.toLowerCase());
+    e.setBlockNumber(l.getBlockNumber().longValue());
+    e.setLogIndex(logIndex);
+    e.setTimestampSec(blockTimes.timestampOf(l.getBlockNumber().longValue()));
+    e.setTxHash(l.getTransactionHash());
+    return e;
+  }
+
+  private List<Log> getLogs(EthFilter filter) {
+    try {
+      return web3j.ethGetLogs(filter).send().getLogs().stream().map(lr -> (Log) lr.get()).toList();
+    } catch (IOException e) {
+      throw new IllegalStateException("eth_getLogs failed: " + e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,333 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.blockchain.model.TxLifecycleRecord;
+import com.fancapital.backend.blockchain.model.TxLifecycleRecord.Status;
+import com.fancapital.backend.blockchain.repo.TxLifecycleRepository;
+import com.fancapital.backend.blockchain.service.FeeOracleService.Fees;
+import com.fancapital.backend.blockchain.service.FeeOracleService.Urgency;
+import com.fancapital.backend.blockchain.service.TxSubmitterService.KeyLane;
+import com.fancapital.backend.blockchain.service.TxSubmitterService.Submission;
+import com.fancapital.backend.config.BlockchainProperties;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.utils.Numeric;
+
+/**
+ * Cycle de vie persisté des transactions envoyées par {@link TxSubmitterService}.
+ * <p>
+ * Chaque envoi accepté crée une ligne PENDING (objet, nonce, frais) puis est suivi par
+ * {@link ReceiptTrackerService} : MINED ou REVERTED avec bloc, gas consommé et prix effectif.
+ * {@link #supervise()} reprend les transactions bloquées (non minées après blockchain.tx-lifecycle.stuck-after-ms) :
+ * nonce déjà consommé → reçu relu ou DROPPED ; sinon remplacement au même nonce avec des frais relevés
+ * (bump-percent, au moins les frais HIGH courants), au plus max-bumps fois, puis STUCK (terminal). Une
+ * transaction sous-payée ne bloque donc plus toute la file de sa clé. Si c'est l'original remplacé qui est
+ * miné, c'est lui qui reçoit le reçu. Les lignes sont écrites par un thread dédié, jamais par la file de
+ * signature.
+ */
+@Service
+public class TxLifecycleService implements TxSubmitterService.SubmissionListener {
+
+  private static final Logger log = LoggerFactory.getLogger(TxLifecycleService.class);
+  private static final int SUPERVISE_BATCH = 200;
+  private static final long REPLACE_TIMEOUT_SECONDS = 30;
+
+  private final Web3j web3j;
+  private final TxLifecycleRepository repo;
+  private final TxSubmitterService txSubmitter;
+  private final FeeOracleService feeOracle;
+  private final ReceiptTrackerService receipts;
+  private final long stuckAfterMs;
+  private final int maxBumps;
+  private final int bumpPercent;
+  /** Enregistrement des envois hors de la file de signature (ordre d'envoi conservé). */
+  private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "tx-lifecycle-writer");
+    t.setDaemon(true);
+    return t;
+  });
+
+  /** Profondeur de file d'un signataire : en file locale (pas encore envoyées) et en attente de minage. */
+  public record LaneDepth(
+      String address,
+      int queued,
+      long pending,
+      Long lowestPendingNonce,
+      Long oldestPendingAgeSeconds
+  ) {}
+
+  public TxLifecycleService(
+      Web3j web3j,
+      TxLifecycleRepository repo,
+      TxSubmitterService txSubmitter,
+      FeeOracleService feeOracle,
+      ReceiptTrackerService receipts,
+      BlockchainProperties props
+  ) {
+    this.web3j = web3j;
+    this.repo = repo;
+    this.txSubmitter = txSubmitter;
+    this.feeOracle = feeOracle;
+    this.receipts = receipts;
+    BlockchainProperties.TxLifecycle t = props.txLifecycle();
+    this.stuckAfterMs = t != null && t.stuckAfterMs() > 0 ? t.stuckAfterMs() : 60_000;
+    this.maxBumps = t != null && t.maxBumps() >= 0 ? t.maxBumps() : 3;
+    this.bumpPercent = t != null && t.bumpPercent() >= 10 ? t.bumpPercent() : 15;
+    txSubmitter.setSubmissionListener(this);
+  }
+
+  @Override
+  public void onSubmitted(Submission s) {
+    TxLifecycleRecord r = new TxLifecycleRecord();
+    r.setTxHash(s.txHash().toLowerCase(Locale.ROOT));
+    r.setFromAddress(s.from().toLowerCase(Locale.ROOT));
+    r.setNonce(s.nonce());
+    r.setToAddress(s.to() != null ? s.to().toLowerCase(Locale.ROOT) : null);
+    r.setPurpose(s.purpose().length() > 80 ? s.purpose().substring(0, 80) : s.purpose());
+    r.setUrgency(s.urgency().name());
+    r.setData(s.data());
+    r.setValueWei(s.value() != null ? s.value().toString() : "0");
+    r.setGasLimit(s.gasLimit().longValue());
+    applyFees(r, s.fees());
+    writer.execute(() -> {
+      try {
+        repo.save(r);
+        track(r.getTxHash());
+      } catch (Exception e) {
+        log.warn("Tx lifecycle not recorded for {}: {}", r.getTxHash(), e.getMessage());
+      }
+    });
+  }
+
+  /** Vue par signataire, triée par adresse. */
+  public List<LaneDepth> queueDepth() {
+    Map<String, LaneDepth> out = new TreeMap<>();
+    Instant now = Instant.now();
+    Map<String, Integer> queued = txSubmitter.queuedByAddress();
+    for (Object[] row : repo.depthBySender(Status.PENDING)) {
+      String from = (String) row[0];
+      Instant oldest = (Instant) row[3];
+      out.put(from, new LaneDepth(from, queued.getOrDefault(from, 0), (Long) row[1], (Long) row[2],
+          oldest != null ? Duration.between(oldest, now).toSeconds() : null));
+    }
+    queued.forEach((address, n) -> {
+      if (!out.containsKey(address) && n > 0) out.put(address, new LaneDepth(address, n, 0, null, null));
+    });
+    return new ArrayList<>(out.values());
+  }
+
+  public Optional<TxLifecycleRecord> find(String txHash) {
+    return txHash == null ? Optional.empty() : repo.findById(txHash.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Reprend les transactions en attente depuis plus de stuck-after-ms.
+   *
+   * @return nombre de transactions remplacées
+   */
+  public int supervise() {
+    Instant before = Instant.now().minusMillis(stuckAfterMs);
+    List<TxLifecycleRecord> stuck = repo.findByStatusSubmittedBefore(Status.PENDING, before,
+        PageRequest.of(0, SUPERVISE_BATCH));
+    if (stuck.isEmpty()) return 0;
+
+    Map<String, Long> minedNonce = new HashMap<>();
+    int replaced = 0;
+    for (TxLifecycleRecord r : stuck) {
+      try {
+        long next = minedNonce.computeIfAbsent(r.getFromAddress(), this::latestNonce);
+        if (next > r.getNonce()) {
+          settleConsumedNonce(r);
+        } else if (r.getBumps() >= maxBumps) {
+          markStuck(r, "Still pending after " + r.getBumps() + " fee bumps");
+        } else if (replace(r)) {
+          replaced++;
+        }
+      } catch (Exception e) {
+        markError(r, e.getMessage());
+      }
+    }
+    return replaced;
+  }
+
+  private void track(String txHash) {
+    receipts.track(txHash).whenComplete((receipt, ex) -> {
+      // On timeout the row stays PENDING and the supervisor takes over.
+      if (receipt != null) onReceipt(txHash, receipt);
+    });
+  }
+
+  private void onReceipt(String txHash, TransactionReceipt receipt) {
+    repo.findById(txHash.toLowerCase(Locale.ROOT)).ifPresent(r -> {
+      // A replaced original may still win the race for its nonce: the receipt is authoritative.
+      r.setStatus(receipt.isStatusOK() ? Status.MINED : Status.REVERTED);
+      r.setBlockNumber(receipt.getBlockNumber() != null ? receipt.getBlockNumber().longValue() : null);
+      r.setGasUsed(receipt.getGasUsed() != null ? receipt.getGasUsed().longValue() : null);
+      r.setEffectiveGasPrice(receipt.getEffectiveGasPrice() != null
+          ? Numeric.decodeQuantity(receipt.getEffectiveGasPrice()).toString() : null);
+      r.setUpdatedAt(Instant.now());
+      repo.save(r);
+    });
+  }
+
+  private void settleConsumedNonce(TxLifecycleRecord r) throws IOException {
+    Optional<TransactionReceipt> receipt = receipt(r.getTxHash());
+    if (receipt.isPresent()) {
+      onReceipt(r.getTxHash(), receipt.get());
+      return;
+    }
+    // A replacement losing to an earlier version of itself: the mined original gets the receipt.
+    String mined = null;
+    for (String prev = r.getReplacesTxHash(); prev != null && mined == null; ) {
+      Optional<TransactionReceipt> prevReceipt = receipt(prev);
+      if (prevReceipt.isPresent()) {
+        onReceipt(prev, prevReceipt.get());
+        mined = prev;
+      } else {
+        prev = repo.findById(prev).map(TxLifecycleRecord::getReplacesTxHash).orElse(null);
+      }
+    }
+    r.setStatus(Status.DROPPED);
+    if (mined != null) r.setLastError("Nonce consumed by replaced original " + mined);
+    r.setUpdatedAt(Instant.now());
+    repo.save(r);
+    if (mined != null) log.info("Replaced tx {} mined after all; replacement {} dropped", mined, r.getTxHash());
+  }
+
+  private Optional<TransactionReceipt> receipt(String txHash) throws IOException {
+    return web3j.ethGetTransactionReceipt(txHash).send().getTransactionReceipt();
+  }
+
+  private boolean replace(TxLifecycleRecord r) throws IOException, InterruptedException {
+    KeyLane lane = txSubmitter.lane(r.getFromAddress());
+    if (lane == null) {
+      // WaaS keys are not retained once sent, service key not loaded since restart: nothing to sign with.
+      markStuck(r, "No signing lane for " + r.getFromAddress() + " in this process");
+      return false;
+    }
+    Fees fees = bumpedFees(r);
+    EthSendTransaction res;
+    try {
+      res = lane.replaceAsync(r.getNonce(), fees, BigInteger.valueOf(r.getGasLimit()), r.getToAddress(), r.getData(),
+          new BigInteger(r.getValueWei())).get(REPLACE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (ExecutionException | TimeoutException e) {
+      Throwable c = e.getCause() != null ? e.getCause() : e;
+      throw new IOException("replacement failed: " + c.getMessage(), c);
+    }
+    if (res.hasError()) {
+      // "nonce too low" / "already known": the nonce was mined meanwhile, the next pass settles it.
+      markError(r, "Replacement rejected: " + res.getError().getMessage());
+      return false;
+    }
+
+    String newHash = res.getTransactionHash().toLowerCase(Locale.ROOT);
+    TxLifecycleRecord next = new TxLifecycleRecord();
+    next.setTxHash(newHash);
+    next.setFromAddress(r.getFromAddress());
+    next.setNonce(r.getNonce());
+    next.setToAddress(r.getToAddress());
+    next.setPurpose(r.getPurpose());
+    next.setUrgency(r.getUrgency());
+    next.setData(r.getData());
+    next.setValueWei(r.getValueWei());
+    next.setGasLimit(r.getGasLimit());
+    applyFees(next, fees);
+    next.setBumps(r.getBumps() + 1);
+    next.setReplacesTxHash(r.getTxHash());
+
+    r.setStatus(Status.REPLACED);
+    r.setReplacedByTxHash(newHash);
+    r.setUpdatedAt(Instant.now());
+    repo.saveAll(List.of(r, next));
+    track(newHash);
+    log.info("Replaced stuck tx {} ({} nonce {}) by {} (bump {})", r.getTxHash(), r.getPurpose(), r.getNonce(),
+        newHash, next.getBumps());
+    return true;
+  }
+
+  /** Frais du remplacement : au moins +bump-percent sur chaque composante (règle des nœuds) et les frais HIGH courants. */
+  private Fees bumpedFees(TxLifecycleRecord r) {
+    Fees current = feeOracle.fees(Urgency.HIGH);
+    if (r.isEip1559()) {
+      BigInteger tip = bump(new BigInteger(r.getMaxPriorityFeePerGas()));
+      BigInteger maxFee = bump(new BigInteger(r.getMaxFeePerGas()));
+      if (current.eip1559()) {
+        tip = tip.max(current.maxPriorityFeePerGas());
+        maxFee = maxFee.max(current.maxFeePerGas());
+      }
+      maxFee = maxFee.max(tip);
+      return new Fees(true, tip, maxFee, null);
+    }
+    BigInteger gasPrice = bump(new BigInteger(r.getGasPrice()));
+    if (current.gasPrice() != null) gasPrice = gasPrice.max(current.gasPrice());
+    return new Fees(false, null, null, gasPrice);
+  }
+
+  private BigInteger bump(BigInteger v) {
+    return v.multiply(BigInteger.valueOf(100L + bumpPercent)).add(BigInteger.valueOf(99)).divide(BigInteger.valueOf(100));
+  }
+
+  private long latestNonce(String address) {
+    try {
+      return web3j.ethGetTransactionCount(address, DefaultBlockParameterName.LATEST).send().getTransactionCount().longValue();
+    } catch (IOException e) {
+      throw new IllegalStateException("eth_getTransactionCount failed: " + e.getMessage(), e);
+    }
+  }
+
+  /** Erreur passagère : la ligne reste PENDING, repasse derrière les autres (updatedAt) et sera reprise. */
+  private void markError(TxLifecycleRecord r, String error) {
+    boolean reported = error != null && error.equals(r.getLastError()); // already logged on a previous pass
+    r.setLastError(truncate(error));
+    r.setUpdatedAt(Instant.now());
+    repo.save(r);
+    if (!reported) log.warn("Stuck tx {} ({} nonce {}): {}", r.getTxHash(), r.getPurpose(), r.getNonce(), error);
+  }
+
+  /** Plus rien à tenter automatiquement : STUCK, sortie de la file du superviseur. */
+  private void markStuck(TxLifecycleRecord r, String error) {
+    r.setStatus(Status.STUCK);
+    r.setLastError(truncate(error));
+    r.setUpdatedAt(Instant.now());
+    repo.save(r);
+    log.warn("Tx {} ({} nonce {}) marked STUCK: {}", r.getTxHash(), r.getPurpose(), r.getNonce(), error);
+  }
+
+  private static String truncate(String error) {
+    return error != null && error.length() > 500 ? error.substring(0, 500) : error;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    writer.shutdown();
+  }
+
+  private static void applyFees(TxLifecycleRecord r, Fees fees) {
+    r.setEip1559(fees.eip1559());
+    r.setMaxPriorityFeePerGas(fees.maxPriorityFeePerGas() != null ? fees.maxPriorityFeePerGas().toString() : null);
+    r.setMaxFeePerGas(fees.maxFeePerGas() != null ? fees.maxFeePerGas().toString() : null);
+    r.setGasPrice(fees.gasPrice() != null ? fees.gasPrice().toString() : null);
+  }
+}
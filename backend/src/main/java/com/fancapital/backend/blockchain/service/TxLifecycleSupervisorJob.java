@@ -0,0 +1,30 @@
+package com.fancapital.backend.blockchain.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Relance périodique des transactions bloquées (remplacement avec frais relevés, cf. {@link TxLifecycleService}).
+ */
+@Component
+public class TxLifecycleSupervisorJob {
+
+  private static final Logger log = LoggerFactory.getLogger(TxLifecycleSupervisorJob.class);
+
+  private final TxLifecycleService lifecycle;
+
+  public TxLifecycleSupervisorJob(TxLifecycleService lifecycle) {
+    this.lifecycle = lifecycle;
+  }
+
+  @Scheduled(fixedDelayString = "${blockchain.tx-lifecycle.supervise-interval-ms:15000}")
+  public void run() {
+    try {
+      lifecycle.supervise();
+    } catch (Exception e) {
+      log.warn("Tx lifecycle supervisor skipped: {}", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,489 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.blockchain.service.FeeOracleService.Fees;
+import com.fancapital.backend.blockchain.service.FeeOracleService.Urgency;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.tx.RawTransactionManager;
+import org.web3j.tx.TransactionManager;
+
+/**
+ * Moteur d'envoi des transactions, une file par adresse de signature.
+ * <p>
+ * Les clés de service (operator, gov, oracle, mint, burn…) ont une {@link KeyLane} permanente : credentials
+ * dérivés une fois, chain id mis en cache, nonce alloué localement, file mono-thread dédiée. Les wallets WaaS
+ * passent par une file éphémère : envois sérialisés par adresse sur un pool partagé borné, file et nonce
+ * oubliés dès qu'elle est vide (aucun credential utilisateur conservé après l'envoi). Pas d'attente du minage,
+ * donc plusieurs transactions par bloc sans collision de nonce.
+ * Les frais viennent de {@link FeeOracleService} selon l'urgence de l'envoi. Chaque envoi accepté par le nœud
+ * est signalé au {@link SubmissionListener} enregistré (cycle de vie persisté, cf. {@link TxLifecycleService}).
+ * Le nonce est resynchronisé depuis le nœud (pending) au premier envoi de la file, après une erreur RPC et
+ * quand le nœud rejette un nonce.
+ */
+@Service
+public class TxSubmitterService {
+
+  private static final Logger log = LoggerFactory.getLogger(TxSubmitterService.class);
+  private static final int USER_LANE_THREADS = 4;
+
+  private final Web3j web3j;
+  private final FeeOracleService feeOracle;
+  /** Adresse par empreinte (keccak) de clé de service : la clé brute n'est jamais une clé de map. */
+  private final Map<String, String> addressByKeyDigest = new ConcurrentHashMap<>();
+  /** Files permanentes des clés de service, par adresse. */
+  private final Map<String, KeyLane> lanes = new ConcurrentHashMap<>();
+  /** Files WaaS en cours, par adresse ; gardé par lui-même, entrée retirée quand la file est vide. */
+  private final Map<String, SendQueue> userQueues = new HashMap<>();
+  private final ExecutorService userPool;
+  private volatile Long chainId;
+  private volatile SubmissionListener listener;
+
+  /** Transaction acceptée par le nœud (eth_sendRawTransaction sans erreur). */
+  public record Submission(
+      String txHash,
+      String from,
+      long nonce,
+      String purpose,
+      Urgency urgency,
+      Fees fees,
+      BigInteger gasLimit,
+      String to,
+      String data,
+      BigInteger value
+  ) {}
+
+  public interface SubmissionListener {
+    /** Appelé sur la file de la clé, juste après l'acceptation : ne doit pas bloquer ni lever d'exception. */
+    void onSubmitted(Submission submission);
+  }
+
+  public TxSubmitterService(Web3j web3j, FeeOracleService feeOracle) {
+    this.web3j = web3j;
+    this.feeOracle = feeOracle;
+    AtomicInteger threadNo = new AtomicInteger();
+    this.userPool = Executors.newFixedThreadPool(USER_LANE_THREADS, r -> {
+      Thread t = new Thread(r, "tx-lane-user-" + threadNo.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /** File permanente de la clé de service donnée (hex). */
+  public KeyLane forKey(String privateKey) {
+    String pk = privateKey.trim();
+    String digest = Hash.sha3String(pk);
+    String address = addressByKeyDigest.get(digest);
+    KeyLane lane = address != null ? lanes.get(address) : null;
+    if (lane != null) return lane;
+    Credentials credentials = Credentials.create(pk);
+    address = credentials.getAddress().toLowerCase(Locale.ROOT);
+    // Resolved before the lane is created: a lane never holds a guessed chain id.
+    long id = chainId();
+    lane = lanes.computeIfAbsent(address, a -> new KeyLane(web3j, feeOracle, credentials, id, this::notifySubmitted,
+        new DedicatedQueue(a)));
+    addressByKeyDigest.put(digest, address);
+    return lane;
+  }
+
+  /**
+   * File éphémère du wallet WaaS donné : à utiliser pour les envois en cours puis à abandonner. Les envois
+   * d'une même adresse restent ordonnés (nonce local) tant que sa file n'est pas vide.
+   */
+  public KeyLane forCredentials(Credentials credentials) {
+    String address = credentials.getAddress().toLowerCase(Locale.ROOT);
+    KeyLane lane = lanes.get(address);
+    if (lane != null) return lane;
+    return new KeyLane(web3j, feeOracle, credentials, chainId(), this::notifySubmitted, new UserQueue(address));
+  }
+
+  /** File permanente de la clé de service, null pour un wallet WaaS ou une clé non chargée depuis le démarrage. */
+  public KeyLane lane(String address) {
+    return address == null ? null : lanes.get(address.toLowerCase(Locale.ROOT));
+  }
+
+  /** Envois en file (pas encore transmis au nœud) par adresse, files de service et WaaS. */
+  public Map<String, Integer> queuedByAddress() {
+    Map<String, Integer> out = new HashMap<>();
+    lanes.forEach((address, lane) -> out.put(address, lane.queuedCount()));
+    synchronized (userQueues) {
+      userQueues.forEach((address, q) -> out.put(address, q.queued.get()));
+    }
+    return out;
+  }
+
+  public void setSubmissionListener(SubmissionListener listener) {
+    this.listener = listener;
+  }
+
+  private void notifySubmitted(Submission submission) {
+    SubmissionListener l = listener;
+    if (l == null) return;
+    try {
+      l.onSubmitted(submission);
+    } catch (Exception e) {
+      log.warn("Submission listener failed for {}: {}", submission.txHash(), e.getMessage());
+    }
+  }
+
+  /**
+   * Chain id du nœud, mis en cache à la première lecture réussie.
+   *
+   * @throws IllegalStateException si le nœud ne répond pas (aucune transaction n'est alors signée ni envoyée)
+   */
+  public long chainId() {
+    Long cached = chainId;
+    if (cached != null) return cached;
+    try {
+      long id = web3j.ethChainId().send().getChainId().longValue();
+      chainId = id;
+      return id;
+    } catch (IOException e) {
+      // No IOException cause on purpose: callers read that cause as "transaction outcome unknown".
+      throw new IllegalStateException("eth_chainId failed, nothing sent: " + e.getMessage());
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    lanes.values().forEach(l -> ((DedicatedQueue) l.queues).shutdown());
+    userPool.shutdown();
+  }
+
+  /** Ordre d'envoi et nonce d'une adresse. */
+  private static final class SendQueue {
+    private final Executor executor;
+    private final AtomicInteger queued = new AtomicInteger();
+    /** Prochain nonce à utiliser ; -1 = à relire depuis le nœud. Accédé uniquement depuis les tâches de la file. */
+    private long nextNonce = -1;
+
+    private SendQueue(Executor executor) {
+      this.executor = executor;
+    }
+  }
+
+  /** Fournit la file d'une {@link KeyLane} pour un envoi, et la libère une fois l'envoi traité. */
+  private interface QueueSource {
+    SendQueue acquire();
+
+    void release(SendQueue q);
+
+    int queued();
+  }
+
+  /** Clé de service : une file mono-thread pour la durée du process. */
+  private static final class DedicatedQueue implements QueueSource {
+    private final ExecutorService thread;
+    private final SendQueue queue;
+
+    private DedicatedQueue(String address) {
+      this.thread = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "tx-lane-" + address.substring(0, Math.min(10, address.length())));
+        t.setDaemon(true);
+        return t;
+      });
+      this.queue = new SendQueue(thread);
+    }
+
+    @Override
+    public SendQueue acquire() {
+      queue.queued.incrementAndGet();
+      return queue;
+    }
+
+    @Override
+    public void release(SendQueue q) {
+      q.queued.decrementAndGet();
+    }
+
+    @Override
+    public int queued() {
+      return queue.queued.get();
+    }
+
+    void shutdown() {
+      thread.shutdown();
+    }
+  }
+
+  /** Wallet WaaS : file partagée par les envois en cours de l'adresse, retirée quand elle se vide. */
+  private final class UserQueue implements QueueSource {
+    private final String address;
+
+    private UserQueue(String address) {
+      this.address = address;
+    }
+
+    @Override
+    public SendQueue acquire() {
+      synchronized (userQueues) {
+        SendQueue q = userQueues.computeIfAbsent(address, a -> new SendQueue(new SerialExecutor(userPool)));
+        q.queued.incrementAndGet();
+        return q;
+      }
+    }
+
+    @Override
+    public void release(SendQueue q) {
+      synchronized (userQueues) {
+        if (q.queued.decrementAndGet() == 0) userQueues.remove(address, q);
+      }
+    }
+
+    @Override
+    public int queued() {
+      synchronized (userQueues) {
+        SendQueue q = userQueues.get(address);
+        return q != null ? q.queued.get() : 0;
+      }
+    }
+  }
+
+  /** Exécute les tâches une à une, dans l'ordre, sur le pool partagé (une tâche par passage). */
+  private static final class SerialExecutor implements Executor {
+    private final Executor pool;
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private boolean running;
+
+    private SerialExecutor(Executor pool) {
+      this.pool = pool;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+      synchronized (tasks) {
+        tasks.add(task);
+        if (running) return;
+        running = true;
+      }
+      schedule();
+    }
+
+    private void schedule() {
+      try {
+        pool.execute(this::runNext);
+      } catch (RejectedExecutionException e) {
+        synchronized (tasks) {
+          tasks.clear();
+          running = false;
+        }
+        throw e;
+      }
+    }
+
+    /** Les tâches de {@link KeyLane} ne lèvent pas d'exception (le résultat passe par leur futur). */
+    private void runNext() {
+      Runnable next;
+      synchronized (tasks) {
+        next = tasks.poll();
+      }
+      if (next != null) next.run();
+      synchronized (tasks) {
+        if (tasks.isEmpty()) {
+          running = false;
+          return;
+        }
+      }
+      schedule();
+    }
+  }
+
+  /**
+   * {@link TransactionManager} avec nonce local et envoi sérialisé par clé. Même contrat que
+   * {@link RawTransactionManager} : la méthode rend la réponse d'eth_sendRawTransaction (hash ou erreur
+   * du nœud) sans attendre le reçu.
+   */
+  public static final class KeyLane extends RawTransactionManager {
+
+    private final Web3j web3j;
+    private final FeeOracleService feeOracle;
+    private final long chainId;
+    private final String address;
+    private final Consumer<Submission> onSubmitted;
+    private final QueueSource queues;
+    /** File de l'envoi en cours d'exécution ; lu et écrit uniquement depuis les tâches de la file. */
+    private SendQueue active;
+
+    private KeyLane(Web3j web3j, FeeOracleService feeOracle, Credentials credentials, long chainId,
+        Consumer<Submission> onSubmitted, QueueSource queues) {
+      super(web3j, credentials, chainId);
+      this.web3j = web3j;
+      this.feeOracle = feeOracle;
+      this.chainId = chainId;
+      this.address = credentials.getAddress();
+      this.onSubmitted = onSubmitted;
+      this.queues = queues;
+    }
+
+    @Override
+    protected BigInteger getNonce() throws IOException {
+      SendQueue q = active;
+      if (q.nextNonce < 0) {
+        q.nextNonce = web3j.ethGetTransactionCount(address, DefaultBlockParameterName.PENDING)
+            .send().getTransactionCount().longValue();
+      }
+      return BigInteger.valueOf(q.nextNonce);
+    }
+
+    @Override
+    public EthSendTransaction sendTransaction(BigInteger gasPrice, BigInteger gasLimit, String to, String data,
+        BigInteger value, boolean constructor) throws IOException {
+      return await(enqueue(() -> KeyLane.super.sendTransaction(gasPrice, gasLimit, to, data, value, constructor), true));
+    }
+
+    @Override
+    public EthSendTransaction sendEIP1559Transaction(long chainId, BigInteger maxPriorityFeePerGas,
+        BigInteger maxFeePerGas, BigInteger gasLimit, String to, String data, BigInteger value, boolean constructor)
+        throws IOException {
+      return await(enqueue(() -> KeyLane.super.sendEIP1559Transaction(
+          chainId, maxPriorityFeePerGas, maxFeePerGas, gasLimit, to, data, value, constructor), true));
+    }
+
+    /**
+     * Envoi avec les frais de {@link FeeOracleService} pour l'urgence donnée : transaction type 2 si le nœud
+     * supporte EIP-1559, legacy sinon. Les frais sont lus quand la transaction arrive en tête de file.
+     */
+    public EthSendTransaction send(Urgency urgency, BigInteger gasLimit, String to, String data, BigInteger value)
+        throws IOException {
+      return send(null, urgency, gasLimit, to, data, value);
+    }
+
+    /**
+     * @param purpose libellé métier conservé dans le cycle de vie (ex. nom de la fonction appelée) ; null = sélecteur
+     */
+    public EthSendTransaction send(String purpose, Urgency urgency, BigInteger gasLimit, String to, String data,
+        BigInteger value) throws IOException {
+      return await(submitAsync(purpose, urgency, gasLimit, to, data, value));
+    }
+
+    /** Variante asynchrone de {@link #send} : le futur se complète à la réponse du nœud. */
+    public CompletableFuture<EthSendTransaction> submitAsync(String purpose, Urgency urgency, BigInteger gasLimit,
+        String to, String data, BigInteger value) {
+      return enqueue(() -> {
+        Fees fees = feeOracle.fees(urgency);
+        long nonce = getNonce().longValue();
+        EthSendTransaction res = signAndSend(rawTransaction(nonce, fees, gasLimit, to, data, value));
+        if (!res.hasError()) {
+          onSubmitted.accept(new Submission(res.getTransactionHash(), address, nonce,
+              purpose != null ? purpose : purposeOf(data), urgency, fees, gasLimit, to, data, value));
+        }
+        return res;
+      }, true);
+    }
+
+    /**
+     * Remplace la transaction en attente au {@code nonce} donné (mêmes destinataire/données/valeur, frais plus
+     * élevés). Passe par la file de la clé mais ne touche pas au compteur de nonce.
+     */
+    public CompletableFuture<EthSendTransaction> replaceAsync(long nonce, Fees fees, BigInteger gasLimit, String to,
+        String data, BigInteger value) {
+      return enqueue(() -> signAndSend(rawTransaction(nonce, fees, gasLimit, to, data, value)), false);
+    }
+
+    public String address() {
+      return address;
+    }
+
+    /** Envois en file, pas encore transmis au nœud. */
+    public int queuedCount() {
+      return queues.queued();
+    }
+
+    private RawTransaction rawTransaction(long nonce, Fees fees, BigInteger gasLimit, String to, String data,
+        BigInteger value) {
+      BigInteger n = BigInteger.valueOf(nonce);
+      return fees.eip1559()
+          ? RawTransaction.createTransaction(chainId, n, gasLimit, to, value, data,
+              fees.maxPriorityFeePerGas(), fees.maxFeePerGas())
+          : RawTransaction.createTransaction(n, fees.gasPrice(), gasLimit, to, value, data);
+    }
+
+    private static String purposeOf(String data) {
+      if (data == null || data.length() < 10) return "transfer";
+      return data.substring(0, 10);
+    }
+
+    private CompletableFuture<EthSendTransaction> enqueue(Callable<EthSendTransaction> send, boolean allocateNonce) {
+      CompletableFuture<EthSendTransaction> out = new CompletableFuture<>();
+      SendQueue q = queues.acquire();
+      try {
+        q.executor.execute(() -> {
+          active = q;
+          try {
+            out.complete(allocateNonce ? sendWithNonce(q, send) : send.call());
+          } catch (Exception e) {
+            out.completeExceptionally(e);
+          } finally {
+            active = null;
+            queues.release(q);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        queues.release(q);
+        out.completeExceptionally(e);
+      }
+      return out;
+    }
+
+    /** Exécuté sur la file : alloue le nonce, envoie, et avance le compteur seulement si le nœud accepte. */
+    private EthSendTransaction sendWithNonce(SendQueue q, Callable<EthSendTransaction> send) throws Exception {
+      for (int attempt = 0; ; attempt++) {
+        EthSendTransaction res;
+        try {
+          res = send.call();
+        } catch (IOException e) {
+          q.nextNonce = -1; // unknown whether the node took it
+          throw e;
+        }
+        if (!res.hasError()) {
+          q.nextNonce++;
+          return res;
+        }
+        String msg = res.getError().getMessage();
+        if (attempt == 0 && msg != null && msg.toLowerCase(Locale.ROOT).contains("nonce")) {
+          log.info("Nonce rejected for {} ({}), resyncing from node", address, msg);
+          q.nextNonce = -1;
+          continue;
+        }
+        return res;
+      }
+    }
+
+    private static EthSendTransaction await(CompletableFuture<EthSendTransaction> f) throws IOException {
+      try {
+        return f.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for tx submission", e);
+      } catch (ExecutionException e) {
+        Throwable c = e.getCause();
+        if (c instanceof IOException io) throw io;
+        if (c instanceof RuntimeException re) throw re;
+        throw new IOException(c.getMessage(), c);
+      }
+    }
+  }
+}
@@ -0,0 +1,203 @@
+package com.fancapital.backend.blockchain.service;
+
+import com.fancapital.backend.backoffice.service.DeploymentInfraService;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.utils.Numeric;
+
+/**
+ * Cache de l'état pré-trade des wallets : allowance CashTokenTND par (wallet, spender) et solde ETH de gas.
+ * <p>
+ * Chaque valeur est lue une fois sur la chaîne puis tenue à jour localement : événements Approval du
+ * CashToken (via {@link #onHead(long)}), approves et top-ups confirmés par reçu, montants dépensés par
+ * buyFor, gas consommé par les transactions signées pour l'utilisateur. Le chemin d'achat n'appelle donc
+ * plus allowance/eth_getBalance quand l'approve a été fait à l'onboarding.
+ * <p>
+ * Les valeurs locales sont prudentes (dépenses soustraites à l'envoi) : au pire un approve ou un top-up
+ * redondant, jamais un achat sans allowance. Le solde de gas est en plus relu après {@value #GAS_TTL_MS} ms
+ * (transactions signées hors de ce process) et retiré du cache sur tout envoi utilisateur en échec.
+ * En cas de reorg, le cache est vidé et relu à la demande.
+ */
+@Service
+public class WalletStateCacheService implements ChainIndexConsumer {
+
+  private static final Logger log = LoggerFactory.getLogger(WalletStateCacheService.class);
+  static final String INDEXER_NAME = "wallet-state";
+  static final long GAS_TTL_MS = 60_000;
+
+  private final Web3j web3j;
+  private final EvmCallService evm;
+  private final DeploymentInfraService infra;
+
+  private final Map<String, BigInteger> allowances = new ConcurrentHashMap<>();
+  private final Map<String, GasBalance> gasBalances = new ConcurrentHashMap<>();
+  private volatile long lastScannedBlock = -1;
+
+  private record GasBalance(BigInteger wei, long readAtMs) {
+    GasBalance minus(BigInteger cost) {
+      return new GasBalance(wei.subtract(cost).max(BigInteger.ZERO), readAtMs);
+    }
+  }
+
+  public WalletStateCacheService(Web3j web3j, EvmCallService evm, DeploymentInfraService infra) {
+    this.web3j = web3j;
+    this.evm = evm;
+    this.infra = infra;
+  }
+
+  /**
+   * Allowance ERC20 {@code owner → spender} (lue sur la chaîne au premier accès, hors de la map). Lecture en
+   * échec : 0 sans mise en cache (au pire un approve redondant, qui alimente alors l'entrée).
+   */
+  public BigInteger allowance(String token, String owner, String spender) {
+    String k = key(token, owner, spender);
+    BigInteger cached = allowances.get(k);
+    if (cached != null) return cached;
+    BigInteger read = readAllowance(token, owner, spender);
+    if (read == null) return BigInteger.ZERO;
+    // An approve confirmed during the read wins over the value read.
+    BigInteger prev = allowances.putIfAbsent(k, read);
+    return prev != null ? prev : read;
+  }
+
+  /** Approve miné avec succès. */
+  public void onApproved(String token, String owner, String spender, BigInteger amount) {
+    allowances.put(key(token, owner, spender), amount);
+  }
+
+  /** Montant consommé par un transferFrom envoyé (buyFor) : soustrait dès l'envoi. */
+  public void onSpent(String token, String owner, String spender, BigInteger amount) {
+    allowances.computeIfPresent(key(token, owner, spender), (k, v) -> v.subtract(amount).max(BigInteger.ZERO));
+  }
+
+  /** Solde ETH natif disponible pour le gas (relu sur la chaîne au premier accès puis après {@value #GAS_TTL_MS} ms). */
+  public BigInteger gasBalance(String wallet) {
+    String w = wallet.toLowerCase(Locale.ROOT);
+    long now = System.currentTimeMillis();
+    GasBalance cached = gasBalances.get(w);
+    if (cached != null && now - cached.readAtMs() < GAS_TTL_MS) return cached.wei();
+    BigInteger wei;
+    try {
+      wei = web3j.ethGetBalance(w, DefaultBlockParameterName.LATEST).send().getBalance();
+    } catch (IOException e) {
+      throw new IllegalStateException("eth_getBalance failed: " + e.getMessage(), e);
+    }
+    gasBalances.put(w, new GasBalance(wei, now));
+    return wei;
+  }
+
+  /** Top-up de gas miné. */
+  public void onFunded(String wallet, BigInteger amountWei) {
+    gasBalances.computeIfPresent(wallet.toLowerCase(Locale.ROOT), (k, v) -> new GasBalance(v.wei().add(amountWei), v.readAtMs()));
+  }
+
+  /** Envoi signé par {@code wallet} en échec ou sans reçu : gas consommé inconnu, solde relu au prochain accès. */
+  public void evictGas(String wallet) {
+    gasBalances.remove(wallet.toLowerCase(Locale.ROOT));
+  }
+
+  /** Transaction signée par {@code wallet} minée : retire le gas réellement payé. */
+  public void onGasSpent(String wallet, TransactionReceipt receipt) {
+    String w = wallet.toLowerCase(Locale.ROOT);
+    String price = receipt.getEffectiveGasPrice();
+    if (receipt.getGasUsed() == null || price == null) {
+      gasBalances.remove(w);
+      return;
+    }
+    BigInteger cost = receipt.getGasUsed().multiply(Numeric.decodeQuantity(price));
+    gasBalances.computeIfPresent(w, (k, v) -> v.minus(cost));
+  }
+
+  /**
+   * Applique les événements Approval du CashToken jusqu'à {@code headBlock} (valeur de l'événement = nouvelle
+   * allowance). Seules les paires déjà en cache sont mises à jour.
+   */
+  public synchronized void onHead(long headBlock) {
+    String cash = infra.cashTokenAddress();
+    if (cash == null || cash.isBlank() || allowances.isEmpty()) {
+      lastScannedBlock = headBlock;
+      return;
+    }
+    if (lastScannedBlock < 0 || lastScannedBlock > headBlock) {
+      lastScannedBlock = headBlock;
+      return;
+    }
+    if (headBlock == lastScannedBlock) return;
+
+    EthFilter filter = new EthFilter(
+        new DefaultBlockParameterNumber(BigInteger.valueOf(lastScannedBlock + 1)),
+        new DefaultBlockParameterNumber(BigInteger.valueOf(headBlock)),
+        cash
+    );
+    filter.addSingleTopic(ChainEvents.APPROVAL_TOPIC);
+    List<Log> logs;
+    try {
+      logs = web3j.ethGetLogs(filter).send().getLogs().stream().map(lr -> (Log) lr.get()).toList();
+    } catch (IOException e) {
+      throw new IllegalStateException("eth_getLogs failed: " + e.getMessage(), e);
+    }
+    for (Log l : logs) {
+      List<String> t = l.getTopics();
+      if (t == null || t.size() < 3) continue;
+      @SuppressWarnings("rawtypes")
+      List<Type> decoded = FunctionReturnDecoder.decode(l.getData(), ChainEvents.APPROVAL.getNonIndexedParameters());
+      if (decoded.isEmpty()) continue;
+      String k = key(cash, ChainEvents.topicToAddress(t.get(1)), ChainEvents.topicToAddress(t.get(2)));
+      allowances.computeIfPresent(k, (kk, v) -> EvmCallService.uint(decoded.get(0)));
+    }
+    lastScannedBlock = headBlock;
+  }
+
+  @Override
+  public String indexerName() {
+    return INDEXER_NAME;
+  }
+
+  @Override
+  public synchronized void rollbackAfter(long ancestorBlock) {
+    allowances.clear();
+    gasBalances.clear();
+    lastScannedBlock = -1;
+    log.info("Wallet state cache cleared after reorg (ancestor {})", ancestorBlock);
+  }
+
+  /** @return allowance lue, null si l'appel a échoué (rien à mettre en cache) */
+  private BigInteger readAllowance(String token, String owner, String spender) {
+    Function f = new Function(
+        "allowance",
+        List.of(new Address(owner), new Address(spender)),
+        List.of(new TypeReference<Uint256>() {})
+    );
+    try {
+      @SuppressWarnings("rawtypes")
+      List<Type> out = evm.ethCall(token, f);
+      return out.isEmpty() ? null : EvmCallService.uint(out.get(0));
+    } catch (IllegalStateException e) {
+      log.debug("allowance({}, {}) on {} failed: {}", owner, spender, token, e.getMessage());
+      return null;
+    }
+  }
+
+  private static String key(String token, String owner, String spender) {
+    return (token + "|" + owner + "|" + spender).toLowerCase(Locale.ROOT);
+  }
+}
@@ -26,7 +26,31 @@ public record BlockchainProperties(
     // Onboarding Key (HSM) for KYC validation and account creation (KYC_VALIDATOR_ROLE on KYCRegistry).
     // According to Dossier de Sécurité v2.0, this key is used exclusively for KYC validation.
     // In production, this key should be stored in a Hardware Security Module (HSM).
-    String onboardingPrivateKey
+    String onboardingPrivateKey,
+    // Credit/AST repayment calendar collection and requested-advance activation pipeline.
+    Credit credit,
+    // Local chain indexers (tx history, audit reconciliation) and their reorg window.
+    Indexer indexer,
+    // Off-chain LiquidityPool quote engine (cached pricing inputs, periodic on-chain cross-check).
+    QuoteEngine quoteEngine,
+    // Shared receipt tracker (one poller for every pending tx).
+    Receipts receipts,
+    // Shared fee oracle (eth_feeHistory sampled at most once per refresh interval).
+    Fees fees,
+    // Post-trade outbox (business context, notifications, SCI pushes drained in batches with retries).
+    Outbox outbox,
+    // Persisted tx lifecycle and stuck-tx supervisor (same-nonce replacement with bumped fees).
+    TxLifecycle txLifecycle,
+    // Diff-based InvestorRegistry sync (coalescing window, wallets per setInvestors tx).
+    InvestorSync investorSync,
+    // Oracle VNI tracker (skip redundant updateVNI on the trade path).
+    OracleSync oracleSync,
+    // Daily AUM snapshot (cron, paged users, parallel bulk portfolio reads, resumable checkpoint).
+    Aum aum,
+    // Materialised SCI components: dirty-risk refresh and nightly bulk recompute.
+    Sci sci,
+    // Continuous LTV monitor (margin call / liquidation triggers on oracle VNI updates).
+    Risk risk
 ) {
   public record PriceOverrides(
       boolean enabled,
@@ -36,5 +60,95 @@ public record BlockchainProperties(
       int feeBps,
       int vatBps
   ) {}
-}
 
+  /**
+   * confirmations = profondeur de la fenêtre non confirmée : les blocs plus récents peuvent être
+   * réorganisés et restent annulables par les indexeurs.
+   */
+  public record Indexer(
+      boolean enabled,
+      long intervalMs,
+      int confirmations,
+      long streamIntervalMs
+  ) {}
+
+  public record QuoteEngine(
+      boolean enabled,
+      long driftCheckIntervalMs
+  ) {}
+
+  public record Receipts(
+      long pollIntervalMs,
+      long timeoutMs
+  ) {}
+
+  public record Fees(
+      long refreshMs,
+      long minPriorityFeeWei
+  ) {}
+
+  /**
+   * collectRetryMs : délai avant une nouvelle tentative de prélèvement (solde insuffisant, nœud indisponible).
+   * activateParallelism : activations traitées en parallèle (files de signature operator et mint chevauchées).
+   */
+  public record Credit(
+      int collectBatchSize,
+      int collectMaxAttempts,
+      long collectRetryMs,
+      int activateParallelism,
+      long activateRetryMs
+  ) {}
+
+  public record Outbox(
+      long intervalMs,
+      int batchSize,
+      int maxAttempts
+  ) {}
+
+  /** bumpPercent : hausse minimale des frais à chaque remplacement (les nœuds exigent au moins 10 %). */
+  public record TxLifecycle(
+      long superviseIntervalMs,
+      long stuckAfterMs,
+      int maxBumps,
+      int bumpPercent
+  ) {}
+
+  /** batchEnabled=false : setters unitaires seulement (InvestorRegistry déployé sans setInvestors). */
+  public record InvestorSync(
+      long flushIntervalMs,
+      int maxWalletsPerTx,
+      boolean batchEnabled
+  ) {}
+
+  /**
+   * maxPriceAgeSec = LiquidityPool.MAX_PRICE_AGE_SEC ; le VNI est réécrit quand son âge dépasse
+   * maxPriceAgeSec - refreshMarginSec, même inchangé.
+   */
+  public record OracleSync(
+      long recheckMs,
+      long maxPriceAgeSec,
+      long refreshMarginSec
+  ) {}
+
+  public record Aum(
+      String snapshotCron,
+      int snapshotParallelism,
+      int snapshotPageSize
+  ) {}
+
+  /**
+   * recomputeMaxMs : fenêtre du recalcul global ; les lots non commencés à l'échéance sont reportés à la nuit
+   * suivante (le push après trade reste actif).
+   */
+  public record Sci(
+      long riskRefreshMs,
+      int recomputeParallelism,
+      int recomputeChunkSize,
+      long recomputeMaxMs
+  ) {}
+
+  /** ltvScanMs : fréquence de lecture des mises à jour de VNI (nouveaux blocs) par le moniteur LTV. */
+  public record Risk(
+      long ltvScanMs
+  ) {}
+}
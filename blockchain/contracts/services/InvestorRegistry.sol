@@ -19,6 +19,11 @@ contract InvestorRegistry is IInvestorRegistry, AccessControl {
     uint8 public constant TIER_PLATINUM = 3;
     uint8 public constant TIER_DIAMOND = 4;
 
+    // Field mask for setInvestors (only flagged fields are written).
+    uint8 public constant FIELD_SCORE = 1;
+    uint8 public constant FIELD_FEE_LEVEL = 2;
+    uint8 public constant FIELD_SUBSCRIPTION = 4;
+
     struct Investor {
         uint16 score; // 0..100 (or more if needed)
         bool subscriptionActive;
@@ -64,6 +69,41 @@ contract InvestorRegistry is IInvestorRegistry, AccessControl {
         emit FeeLevelUpdated(user, feeLevel);
     }
 
+    /// @notice Batch sync pushed by the platform: one entry per user, only the fields set in `fields[i]` are written.
+    /// @dev Same events as the single-field setters, so off-chain indexers see no difference.
+    function setInvestors(
+        address[] calldata users,
+        uint16[] calldata scores,
+        uint8[] calldata feeLevels,
+        bool[] calldata subscriptions,
+        uint8[] calldata fields
+    ) external onlyOperatorOrGov {
+        uint256 n = users.length;
+        require(
+            scores.length == n && feeLevels.length == n && subscriptions.length == n && fields.length == n,
+            "INV: length mismatch"
+        );
+        uint64 now_ = uint64(block.timestamp);
+        for (uint256 i = 0; i < n; i++) {
+            Investor storage inv = _investors[users[i]];
+            uint8 f = fields[i];
+            if (f & FIELD_SCORE != 0) {
+                inv.score = scores[i];
+                inv.lastUpdatedAt = now_;
+                emit ScoreUpdated(users[i], scores[i], now_);
+            }
+            if (f & FIELD_FEE_LEVEL != 0) {
+                require(feeLevels[i] <= 4, "INV: bad fee level");
+                inv.feeLevel = feeLevels[i];
+                emit FeeLevelUpdated(users[i], feeLevels[i]);
+            }
+            if (f & FIELD_SUBSCRIPTION != 0) {
+                inv.subscriptionActive = subscriptions[i];
+                emit SubscriptionUpdated(users[i], subscriptions[i]);
+            }
+        }
+    }
+
     function getScore(address user) external view returns (uint16) {
         return _investors[user].score;
     }